@@ -1,15 +1,31 @@
 package rocks.gkvs;
 
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.Consumer;
+import java.util.function.LongConsumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
+import javax.annotation.Nullable;
+
+import org.reactivestreams.Publisher;
 import org.reactivestreams.Subscriber;
 import org.reactivestreams.Subscription;
 
+import io.grpc.Context.CancellableContext;
+import reactor.core.Disposable;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.FluxSink;
 import rx.Observable;
 import rx.Observable.OnSubscribe;
-
+import rx.Producer;
+import rx.functions.Action0;
+import rx.subscriptions.Subscriptions;
 
 /**
  * 
@@ -33,6 +49,41 @@ public abstract class BiStream<S, R> {
 	
 	public abstract Iterable<R> sync(Iterable<S> src);
 	
+	/**
+	 * Lazy sync stream invocation, data is taken from the source while results are read,
+	 * at most the window of data is in flight, so memory does not depend on the size of the source
+	 * 
+	 * @param src - input data, read by the thread of the iterator
+	 * @param window - max number of requests without read results
+	 * @return iterator of results, close cancels the stream
+	 */
+	
+	public CloseableIterator<R> iterator(Iterable<S> src, int window) {
+		return new WindowIterator<S, R>(src.iterator(), window).open(this);
+	}
+	
+	/**
+	 * Lazy sync stream invocation as java stream, see {@link #iterator(Iterable, int)}
+	 * 
+	 * @param src - input data
+	 * @param window - max number of requests without read results
+	 * @return stream of results, close cancels the call
+	 */
+	
+	public Stream<R> stream(Iterable<S> src, int window) {
+		
+		final CloseableIterator<R> iterator = iterator(src, window);
+		
+		return StreamSupport.stream(Spliterators.spliteratorUnknownSize(iterator, Spliterator.ORDERED | Spliterator.NONNULL), false).onClose(new Runnable() {
+
+			@Override
+			public void run() {
+				iterator.close();
+			}
+			
+		});
+	}
+	
 	/**
 	 * Bi-directional stream invocation
 	 * 
@@ -42,6 +93,27 @@ public abstract class BiStream<S, R> {
 	
 	public abstract Observer<S> async(Observer<R> observer);
 	
+	/**
+	 * Bi-directional stream invocation with manual flow control
+	 * 
+	 * @param observer - observer of results
+	 * @param control - flow control or null for automatic flow control
+	 * @return observer of sending data
+	 */
+	
+	protected Observer<S> async(Observer<R> observer, @Nullable FlowControl control) {
+		return async(observer);
+	}
+	
+	/**
+	 * Creates out-coming observable based on incoming one (RX-JAVA), unsubscribe cancels the call and the incoming stream
+	 * 
+	 * The incoming observable is requested one by one when the call is ready to send,
+	 * results are requested from the server by the demand of the subscriber 
+	 * 
+	 * @param incoming - observable
+	 * @return output stream
+	 */
 	
 	public Observable<R> observe(final Observable<S> incoming) {
 		
@@ -50,43 +122,37 @@ public abstract class BiStream<S, R> {
 			@Override
 			public void call(final rx.Subscriber<? super R> subscriber) {
 
-				final Observer<S> sender = async(new Observer<R>() {
-
-					@Override
-					public void onNext(R item) {
-						subscriber.onNext(item);
-					}
-
-					@Override
-					public void onError(Throwable t) {
-						subscriber.onError(t);
-					}
+				final RxSender<S> incomingSubscriber = new RxSender<S>();
+				final FlowControl control = new FlowControl(incomingSubscriber);
+				incomingSubscriber.control = control;
+				
+				final RxReceiver<R> observer = new RxReceiver<R>(subscriber, control);
+				subscriber.setProducer(observer);
+				
+				final AtomicReference<Observer<S>> senderRef = new AtomicReference<Observer<S>>();
+				
+				final CancellableContext context = CallContext.run(new Runnable() {
 
 					@Override
-					public void onCompleted() {
-						subscriber.onCompleted();
+					public void run() {
+						senderRef.set(async(observer, control));
 					}
 					
 				});
 				
-				incoming.subscribe(new rx.Observer<S>() {
-
-					@Override
-					public void onNext(S item) {
-						sender.onNext(item);
-					}
-
-					@Override
-					public void onError(Throwable t) {
-						sender.onError(t);
-					}
+				incomingSubscriber.sender = senderRef.get();
+				
+				subscriber.add(Subscriptions.create(new Action0() {
 
 					@Override
-					public void onCompleted() {
-						sender.onCompleted();
+					public void call() {
+						CallContext.cancel(context);
 					}
 					
-				});
+				}));
+				
+				subscriber.add(incoming.subscribe(incomingSubscriber));
+				incomingSubscriber.run();
 				
 			}
 			
@@ -96,7 +162,10 @@ public abstract class BiStream<S, R> {
 	
 	
 	/**
-	 * Creates out-coming flux based on incoming one
+	 * Creates out-coming flux based on incoming one (REACTOR), cancel of the subscription cancels the call and the incoming stream
+	 * 
+	 * The incoming flux is requested one by one when the call is ready to send,
+	 * results are requested from the server by the demand of the subscriber 
 	 * 
 	 * @param incoming - flux
 	 * @return output stream
@@ -109,7 +178,7 @@ public abstract class BiStream<S, R> {
 			@Override
 			public void accept(final FluxSink<R> sink) {
 
-				final Observer<S> sender = async(new Observer<R>() {
+				final Observer<R> observer = new Observer<R>() {
 
 					@Override
 					public void onNext(R item) {
@@ -126,35 +195,350 @@ public abstract class BiStream<S, R> {
 						sink.complete();
 					}
 					
-				});
-
-				incoming.subscribe(new Subscriber<S>() {
+				};
+				
+				final IncomingSubscriber<S> incomingSubscriber = new IncomingSubscriber<S>();
+				final FlowControl control = new FlowControl(incomingSubscriber);
+				incomingSubscriber.control = control;
+				
+				sink.onRequest(new LongConsumer() {
 
 					@Override
-					public void onSubscribe(Subscription s) {
-						s.request(Long.MAX_VALUE);
+					public void accept(long n) {
+						control.request(n);
 					}
+					
+				});
+				
+				final AtomicReference<Observer<S>> senderRef = new AtomicReference<Observer<S>>();
+				
+				final CancellableContext context = CallContext.run(new Runnable() {
 
 					@Override
-					public void onNext(S item) {
-						sender.onNext(item);
+					public void run() {
+						senderRef.set(async(observer, control));
 					}
+					
+				});
+				
+				incomingSubscriber.sender = senderRef.get();
+				
+				sink.onCancel(new Disposable() {
 
 					@Override
-					public void onError(Throwable t) {
-						sender.onError(t);
+					public void dispose() {
+						CallContext.cancel(context);
+						incomingSubscriber.cancel();
 					}
+					
+				});
+
+				incoming.subscribe(incomingSubscriber);
+
+			}
+			
+		});
+	}
+	
+	/**
+	 * Creates Reactive Streams publisher of results based on the incoming publisher, every subscriber starts the new call
+	 * 
+	 * The incoming publisher is requested one by one when the call is ready to send,
+	 * results are requested from the server by the demand of the subscriber,
+	 * cancel of the subscription cancels the call and the incoming subscription
+	 * 
+	 * @param incoming - publisher of sending data
+	 * @return publisher of results
+	 */
+	
+	public Publisher<R> publisher(final Publisher<S> incoming) {
+		
+		return new Publisher<R>() {
+
+			@Override
+			public void subscribe(Subscriber<? super R> subscriber) {
+				
+				if (subscriber == null) {
+					throw new NullPointerException("subscriber is null");
+				}
+				
+				final IncomingSubscriber<S> incomingSubscriber = new IncomingSubscriber<S>();
+				final FlowControl control = new FlowControl(incomingSubscriber);
+				incomingSubscriber.control = control;
+				
+				final StreamSubscription<R> subscription = new StreamSubscription<R>(subscriber, new Runnable() {
 
 					@Override
-					public void onComplete() {
-						sender.onCompleted();
+					public void run() {
+						incomingSubscriber.cancel();
 					}
 					
 				});
+				
+				subscriber.onSubscribe(subscription);
+				
+				if (subscription.isCancelled()) {
+					return;
+				}
+				
+				final AtomicReference<Observer<S>> senderRef = new AtomicReference<Observer<S>>();
+				final CancellableContext context;
+				
+				try {
+					context = CallContext.run(new Runnable() {
+	
+						@Override
+						public void run() {
+							senderRef.set(async(subscription, control));
+						}
+						
+					});
+				}
+				catch(RuntimeException e) {
+					subscription.onError(e);
+					return;
+				}
+				
+				incomingSubscriber.sender = senderRef.get();
+				
+				subscription.attach(new LongConsumer() {
 
+					@Override
+					public void accept(long n) {
+						control.request(n);
+					}
+					
+				}, context);
+				
+				incoming.subscribe(incomingSubscriber);
 			}
 			
-		});
+		};
+	}
+	
+	/**
+	 * Emits results by the demand of the subscriber, holds results that came before the demand
+	 */
+	
+	private static final class RxReceiver<R> implements Observer<R>, Producer {
+
+		private final rx.Subscriber<? super R> subscriber;
+		private final FlowControl control;
+		
+		private final Queue<R> queue = new ArrayDeque<R>();
+		private long demand;
+		private boolean done;
+		private Throwable error;
+		private boolean emitting;
+		private boolean missed;
+		
+		RxReceiver(rx.Subscriber<? super R> subscriber, FlowControl control) {
+			this.subscriber = subscriber;
+			this.control = control;
+		}
+		
+		@Override
+		public void request(long n) {
+			
+			if (n <= 0) {
+				return;
+			}
+			
+			synchronized (this) {
+				demand = demand + n < 0 ? Long.MAX_VALUE : demand + n;
+			}
+			
+			control.request(n);
+			drain();
+		}
+		
+		@Override
+		public void onNext(R item) {
+			synchronized (this) {
+				queue.add(item);
+			}
+			drain();
+		}
+
+		@Override
+		public void onError(Throwable t) {
+			synchronized (this) {
+				error = t;
+				done = true;
+			}
+			drain();
+		}
+
+		@Override
+		public void onCompleted() {
+			synchronized (this) {
+				done = true;
+			}
+			drain();
+		}
+		
+		private void drain() {
+			
+			synchronized (this) {
+				if (emitting) {
+					missed = true;
+					return;
+				}
+				emitting = true;
+			}
+			
+			while (true) {
+				
+				R item = null;
+				boolean terminate = false;
+				
+				synchronized (this) {
+					
+					if (!queue.isEmpty() && demand > 0) {
+						item = queue.poll();
+						if (demand != Long.MAX_VALUE) {
+							demand--;
+						}
+					}
+					else if (queue.isEmpty() && done) {
+						terminate = true;
+					}
+					else if (missed) {
+						missed = false;
+						continue;
+					}
+					else {
+						emitting = false;
+						return;
+					}
+					
+				}
+				
+				// emitting stays set, nothing is delivered after the terminal event
+				if (terminate) {
+					if (error != null) {
+						subscriber.onError(error);
+					}
+					else {
+						subscriber.onCompleted();
+					}
+					return;
+				}
+				
+				subscriber.onNext(item);
+			}
+			
+		}
+		
+	}
+	
+	/**
+	 * Subscriber of the incoming observable, requests the next item when the call is ready
+	 */
+	
+	private static final class RxSender<S> extends rx.Subscriber<S> implements Runnable {
+
+		private final AtomicBoolean requested = new AtomicBoolean(false);
+		
+		volatile FlowControl control;
+		volatile Observer<S> sender;
+		
+		@Override
+		public void onStart() {
+			request(0);
+		}
+		
+		@Override
+		public void onNext(S item) {
+			sender.onNext(item);
+			requested.set(false);
+			run();
+		}
+
+		@Override
+		public void onError(Throwable t) {
+			sender.onError(t);
+		}
+
+		@Override
+		public void onCompleted() {
+			sender.onCompleted();
+		}
+		
+		/**
+		 * Called by the call when it is ready to send
+		 */
+		
+		@Override
+		public void run() {
+			if (sender != null && !isUnsubscribed() && control.isReady() && requested.compareAndSet(false, true)) {
+				request(1);
+			}
+		}
+		
+	}
+	
+	/**
+	 * Subscriber of the incoming publisher, requests the next item when the call is ready
+	 */
+	
+	private static final class IncomingSubscriber<S> implements Subscriber<S>, Runnable {
+
+		private final AtomicReference<Subscription> subscription = new AtomicReference<Subscription>();
+		private final AtomicBoolean requested = new AtomicBoolean(false);
+		private volatile boolean cancelled;
+		
+		volatile FlowControl control;
+		volatile Observer<S> sender;
+		
+		@Override
+		public void onSubscribe(Subscription s) {
+			subscription.set(s);
+			if (cancelled) {
+				s.cancel();
+			}
+			else {
+				run();
+			}
+		}
+
+		@Override
+		public void onNext(S item) {
+			sender.onNext(item);
+			requested.set(false);
+			run();
+		}
+
+		@Override
+		public void onError(Throwable t) {
+			sender.onError(t);
+		}
+
+		@Override
+		public void onComplete() {
+			sender.onCompleted();
+		}
+		
+		/**
+		 * Called by the call when it is ready to send
+		 */
+		
+		@Override
+		public void run() {
+			Subscription s = subscription.get();
+			if (s != null && sender != null && !cancelled && control.isReady() && requested.compareAndSet(false, true)) {
+				s.request(1);
+			}
+		}
+		
+		void cancel() {
+			cancelled = true;
+			Subscription s = subscription.get();
+			if (s != null) {
+				s.cancel();
+			}
+		}
+		
 	}
 	
 }
@@ -0,0 +1,154 @@
+/*
+ *
+ * Copyright 2018-present GKVS authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package rocks.gkvs;
+
+import java.util.NoSuchElementException;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+
+import javax.annotation.Nullable;
+
+/**
+ *
+ * BlockingIterator
+ *
+ * Blocking iterator over results of the stream, the stream adds results and the terminal event in to the queue,
+ * the consumer thread takes them by hasNext() and next()
+ *
+ * @param <T> - element type
+ */
+
+abstract class BlockingIterator<T> implements CloseableIterator<T> {
+
+	private static final Object COMPLETED = new Object();
+
+	private final BlockingQueue<Object> queue = new LinkedBlockingQueue<Object>();
+
+	private @Nullable Object next;
+	private boolean done;
+
+	protected void received(Object item) {
+		queue.add(item);
+	}
+
+	protected void failed(Throwable t) {
+		queue.add(new Failure(t));
+	}
+
+	protected void completed() {
+		queue.add(COMPLETED);
+	}
+
+	/**
+	 * Called by the consumer thread before it waits for the next result
+	 */
+
+	protected void beforeTake() {
+	}
+
+	/**
+	 * Called by the consumer thread when the stream is completed
+	 *
+	 * @throws GkvsException if results are missing
+	 */
+
+	protected void checkCompleted() {
+	}
+
+	/**
+	 * Converts the result taken by next()
+	 *
+	 * @param item - received result
+	 * @return element
+	 */
+
+	protected abstract T taken(Object item);
+
+	/**
+	 * Stops the iteration
+	 *
+	 * @return true if the iteration was not done before
+	 */
+
+	protected boolean finish() {
+		if (done) {
+			return false;
+		}
+		done = true;
+		return true;
+	}
+
+	@Override
+	public boolean hasNext() {
+
+		if (done) {
+			return false;
+		}
+
+		if (next == null) {
+
+			beforeTake();
+
+			try {
+				next = queue.take();
+			}
+			catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				close();
+				throw new GkvsException("interrupted await", e);
+			}
+		}
+
+		if (next == COMPLETED) {
+			done = true;
+			checkCompleted();
+			return false;
+		}
+
+		if (next instanceof Failure) {
+			done = true;
+			throw new GkvsException("stream error", ((Failure) next).cause);
+		}
+
+		return true;
+	}
+
+	@Override
+	public T next() {
+
+		if (!hasNext()) {
+			throw new NoSuchElementException();
+		}
+
+		Object item = next;
+		next = null;
+
+		return taken(item);
+	}
+
+	private static final class Failure {
+
+		final Throwable cause;
+
+		Failure(Throwable cause) {
+			this.cause = cause;
+		}
+
+	}
+
+}
@@ -0,0 +1,68 @@
+/*
+ *
+ * Copyright 2018-present GKVS authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package rocks.gkvs;
+
+import io.grpc.Context;
+import io.grpc.Context.CancellableContext;
+
+/**
+ *
+ * CallContext
+ *
+ * Starts calls in the cancellable gRPC context, cancellation of the context cancels all calls started in it
+ *
+ * Used by reactive adapters to cancel the RPC on unsubscribe
+ *
+ */
+
+final class CallContext {
+
+	private CallContext() {
+	}
+
+	/**
+	 * Runs the starter of calls in the new cancellable context
+	 *
+	 * @param starter - starts calls
+	 * @return context to cancel the calls
+	 */
+
+	protected static CancellableContext run(Runnable starter) {
+
+		CancellableContext context = Context.current().withCancellation();
+
+		Context previous = context.attach();
+		try {
+			starter.run();
+		}
+		catch(RuntimeException e) {
+			context.cancel(e);
+			throw e;
+		}
+		finally {
+			context.detach(previous);
+		}
+
+		return context;
+	}
+
+	protected static void cancel(CancellableContext context) {
+		context.cancel(null);
+	}
+
+}
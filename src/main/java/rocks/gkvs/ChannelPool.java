@@ -0,0 +1,120 @@
+/*
+ *
+ * Copyright 2018-present GKVS authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package rocks.gkvs;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import io.grpc.ManagedChannelBuilder;
+
+/**
+ *
+ * ChannelPool
+ *
+ * Fixed set of channels to the same endpoint, every channel is the separate HTTP/2 connection
+ *
+ */
+
+final class ChannelPool {
+
+	private final GkvsChannel[] channels;
+	private final AtomicInteger next = new AtomicInteger(0);
+
+	protected ChannelPool(ManagedChannelBuilder<?> channelBuilder, int size) {
+
+		if (size < 1) {
+			throw new IllegalArgumentException("invalid pool size: " + size);
+		}
+
+		this.channels = new GkvsChannel[size];
+		for (int i = 0; i != size; ++i) {
+			channels[i] = new GkvsChannel(channelBuilder.build());
+		}
+	}
+
+	protected int size() {
+		return channels.length;
+	}
+
+	protected GkvsChannel get(int index) {
+		return channels[index];
+	}
+
+	/**
+	 * Selects the channel with the least outstanding requests and acquires the slot on it,
+	 * the caller must release it when the call is done
+	 *
+	 * Scan starts from the rotating position, so ties are distributed round-robin
+	 *
+	 * @return acquired channel
+	 */
+
+	protected GkvsChannel acquire() {
+
+		int size = channels.length;
+		GkvsChannel best = channels[0];
+
+		if (size > 1) {
+
+			int start = (next.getAndIncrement() & Integer.MAX_VALUE) % size;
+			best = channels[start];
+			int bestOutstanding = best.getOutstanding();
+
+			for (int i = 1; i != size && bestOutstanding != 0; ++i) {
+
+				GkvsChannel candidate = channels[(start + i) % size];
+				int outstanding = candidate.getOutstanding();
+
+				if (outstanding < bestOutstanding) {
+					best = candidate;
+					bestOutstanding = outstanding;
+				}
+
+			}
+
+		}
+
+		best.acquire();
+		return best;
+	}
+
+	protected void shutdown() {
+		for (GkvsChannel channel : channels) {
+			channel.shutdown();
+		}
+	}
+
+	protected void awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+
+		long deadline = System.nanoTime() + unit.toNanos(timeout);
+
+		for (GkvsChannel channel : channels) {
+			long remaining = deadline - System.nanoTime();
+			if (remaining > 0) {
+				channel.awaitTermination(remaining, TimeUnit.NANOSECONDS);
+			}
+		}
+
+	}
+
+	@Override
+	public String toString() {
+		return "ChannelPool [size=" + channels.length + "]";
+	}
+
+}
@@ -0,0 +1,230 @@
+/*
+ *
+ * Copyright 2018-present GKVS authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package rocks.gkvs;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.annotation.Nullable;
+
+import com.google.common.util.concurrent.AbstractFuture;
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.MoreExecutors;
+
+import io.grpc.Context;
+import io.grpc.Deadline;
+import rocks.gkvs.protos.BatchKeyOperation;
+import rocks.gkvs.protos.BatchValueResult;
+
+/**
+ *
+ * ChunkedCall
+ *
+ * Sends chunks of the large MultiGet with the limited number of chunks in flight
+ *
+ * Every chunk is delivered to the listener as soon as it completes, listener calls are serialized.
+ * The first error or the cancel stops the call and cancels chunks in flight.
+ * Chunks are sent in the context of the caller, so the cancel of the caller context cancels them too.
+ *
+ */
+
+final class ChunkedCall extends AbstractFuture<Void> {
+
+	interface ChunkListener {
+
+		void onChunk(int index, BatchValueResult result);
+
+	}
+
+	static final class Chunk {
+
+		final int endpoint;
+		final BatchKeyOperation request;
+
+		Chunk(int endpoint, BatchKeyOperation request) {
+			this.endpoint = endpoint;
+			this.request = request;
+		}
+
+	}
+
+	private final GkvsClient instance;
+	private final List<Chunk> chunks;
+	private final @Nullable Deadline deadline;
+	private final ChunkListener listener;
+	private final Context context = Context.current();
+
+	private final Set<ListenableFuture<BatchValueResult>> inFlight = ConcurrentHashMap.newKeySet();
+
+	private int slots;
+	private int next;
+	private int completed;
+	private boolean draining;
+
+	private ChunkedCall(GkvsClient instance, List<Chunk> chunks, int concurrency, @Nullable Deadline deadline, ChunkListener listener) {
+		this.instance = instance;
+		this.chunks = chunks;
+		this.slots = concurrency;
+		this.deadline = deadline;
+		this.listener = listener;
+	}
+
+	/**
+	 * Starts the call
+	 *
+	 * @param instance - client
+	 * @param chunks - not empty list of chunks
+	 * @param concurrency - max number of chunks in flight
+	 * @param deadline - deadline of every chunk
+	 * @param listener - receiver of chunk results
+	 * @return future completed after the last chunk
+	 */
+
+	protected static ListenableFuture<Void> start(GkvsClient instance, List<Chunk> chunks, int concurrency, @Nullable Deadline deadline, ChunkListener listener) {
+
+		if (concurrency < 1) {
+			throw new IllegalArgumentException("invalid concurrency: " + concurrency);
+		}
+
+		final ChunkedCall call = new ChunkedCall(instance, chunks, concurrency, deadline, listener);
+
+		call.addListener(new Runnable() {
+
+			@Override
+			public void run() {
+				for (ListenableFuture<BatchValueResult> chunk : call.inFlight) {
+					chunk.cancel(false);
+				}
+			}
+
+		}, MoreExecutors.directExecutor());
+
+		call.drain();
+		return call;
+	}
+
+	/**
+	 * Sends chunks while there are free slots, the loop instead of the recursion,
+	 * because chunks can complete in the calling thread
+	 */
+
+	private void drain() {
+
+		synchronized (this) {
+			if (draining) {
+				return;
+			}
+			draining = true;
+		}
+
+		while (true) {
+
+			int index;
+
+			synchronized (this) {
+				if (slots == 0 || next == chunks.size() || isDone()) {
+					draining = false;
+					return;
+				}
+				slots--;
+				index = next++;
+			}
+
+			send(index);
+		}
+
+	}
+
+	private void send(final int index) {
+
+		Chunk chunk = chunks.get(index);
+		final ListenableFuture<BatchValueResult> result;
+
+		Context previous = context.attach();
+		try {
+			GkvsChannel channel = instance.acquireChannel(chunk.endpoint);
+			result = channel.track(channel.getFutureStub(deadline).multiGet(chunk.request));
+		}
+		catch(RuntimeException e) {
+			setException(e);
+			return;
+		}
+		finally {
+			context.detach(previous);
+		}
+
+		inFlight.add(result);
+
+		// cancelled while sending
+		if (isDone()) {
+			result.cancel(false);
+		}
+
+		Futures.addCallback(result, new FutureCallback<BatchValueResult>() {
+
+			@Override
+			public void onSuccess(BatchValueResult batch) {
+
+				inFlight.remove(result);
+
+				try {
+					synchronized (listener) {
+						if (!isDone()) {
+							listener.onChunk(index, batch);
+						}
+					}
+				}
+				catch(RuntimeException e) {
+					setException(e);
+					return;
+				}
+
+				boolean last;
+
+				synchronized (ChunkedCall.this) {
+					last = ++completed == chunks.size();
+					slots++;
+				}
+
+				if (last) {
+					set(null);
+				}
+				else {
+					drain();
+				}
+			}
+
+			@Override
+			public void onFailure(Throwable t) {
+				inFlight.remove(result);
+				setException(t);
+			}
+
+		}, MoreExecutors.directExecutor());
+
+	}
+
+	@Override
+	public String toString() {
+		return "ChunkedCall [chunks=" + chunks.size() + ", inFlight=" + inFlight.size() + "]";
+	}
+
+}
@@ -0,0 +1,41 @@
+/*
+ *
+ * Copyright 2018-present GKVS authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package rocks.gkvs;
+
+import java.io.Closeable;
+import java.util.Iterator;
+
+/**
+ * 
+ * CloseableIterator
+ *
+ * Blocking iterator over the open stream, close cancels the stream if it is not read until the end
+ *
+ * @param <T>
+ */
+
+public interface CloseableIterator<T> extends Iterator<T>, Closeable {
+
+	/**
+	 * Cancels the stream, does nothing if the stream is completed
+	 */
+	
+	@Override
+	void close();
+	
+}
@@ -0,0 +1,150 @@
+/*
+ *
+ * Copyright 2018-present GKVS authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package rocks.gkvs;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.function.Function;
+
+/**
+ *
+ * FanOut
+ *
+ * Runs many blocking sync() calls in parallel
+ *
+ * On Java 21 every task runs on its own virtual thread and sync calls park without pinning the carrier,
+ * so tens of thousands of concurrent calls need no thread pool. On Java 8 tasks run on the bounded pool of platform threads.
+ *
+ * Example:
+ *
+ * List<Record> records = FanOut.sync(operations);
+ *
+ */
+
+public final class FanOut {
+
+	private FanOut() {
+	}
+
+	/**
+	 * Creates the executor of blocking tasks, virtual thread per task on Java 21, the caller shuts it down
+	 *
+	 * @return executor
+	 */
+
+	public static ExecutorService newExecutor() {
+		return SyncCalls.newTaskExecutor();
+	}
+
+	/**
+	 * Checks that the executor runs tasks on virtual threads
+	 *
+	 * @return true on Java 21 and later
+	 */
+
+	public static boolean isVirtual() {
+		return SyncCalls.isVirtual();
+	}
+
+	/**
+	 * Calls sync() of every operation as the separate task
+	 *
+	 * @param operations - operations
+	 * @return results in the order of operations
+	 */
+
+	public static <T> List<T> sync(Collection<? extends One<T>> operations) {
+
+		return map(operations, new Function<One<T>, T>() {
+
+			@Override
+			public T apply(One<T> operation) {
+				return operation.sync();
+			}
+
+		});
+	}
+
+	/**
+	 * Applies the blocking function to every input as the separate task,
+	 * the first failure interrupts remaining tasks and is thrown to the caller
+	 *
+	 * @param inputs - inputs
+	 * @param fn - blocking function, usually builds the operation and calls sync()
+	 * @return results in the order of inputs
+	 */
+
+	public static <T, R> List<R> map(Collection<? extends T> inputs, final Function<? super T, ? extends R> fn) {
+
+		ExecutorService executor = newExecutor();
+
+		try {
+
+			List<Future<R>> futures = new ArrayList<Future<R>>(inputs.size());
+
+			for (final T input : inputs) {
+
+				futures.add(executor.submit(new Callable<R>() {
+
+					@Override
+					public R call() throws Exception {
+						return fn.apply(input);
+					}
+
+				}));
+
+			}
+
+			List<R> results = new ArrayList<R>(futures.size());
+
+			for (Future<R> future : futures) {
+				results.add(await(future));
+			}
+
+			return results;
+		}
+		finally {
+			executor.shutdownNow();
+		}
+
+	}
+
+	private static <R> R await(Future<R> future) {
+
+		try {
+			return future.get();
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new GkvsException("interrupted fan-out", e);
+		}
+		catch (ExecutionException e) {
+			if (e.getCause() instanceof RuntimeException) {
+				throw (RuntimeException) e.getCause();
+			}
+			throw new GkvsException("fan-out task failed", e.getCause());
+		}
+
+	}
+
+}
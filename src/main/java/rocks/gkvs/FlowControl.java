@@ -0,0 +1,225 @@
+/*
+ *
+ * Copyright 2018-present GKVS authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package rocks.gkvs;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import javax.annotation.Nullable;
+
+import io.grpc.stub.ClientCallStreamObserver;
+import io.grpc.stub.ClientResponseObserver;
+import io.grpc.stub.StreamObserver;
+
+/**
+ *
+ * FlowControl
+ *
+ * Manual flow control of bi-directional streams
+ *
+ * Outbound, the producer asks {@link #isReady()} before it sends and is called back by the ready handler
+ * when the transport drains. Inbound, results are requested by the demand of the consumer.
+ *
+ * Streams opened later get the whole demand requested so far, so the routed stream over N endpoints
+ * receives at most N times the demand. The stub requests the first result of every call on start,
+ * so one result of the call can arrive before the demand.
+ *
+ */
+
+final class FlowControl {
+
+	private final Runnable onReady;
+
+	private final List<Call> calls = new CopyOnWriteArrayList<Call>();
+	private long requested;
+
+	/**
+	 * Creates flow control
+	 *
+	 * @param onReady - handler that sends more data, called by gRPC threads
+	 */
+
+	protected FlowControl(Runnable onReady) {
+		this.onReady = onReady;
+	}
+
+	/**
+	 * Attaches the flow control to the call
+	 *
+	 * @param control - flow control or null for automatic flow control
+	 * @param responses - observer of responses
+	 * @return observer that must be passed to the stub
+	 */
+
+	protected static <ReqT, RespT> StreamObserver<RespT> wrap(@Nullable FlowControl control, StreamObserver<RespT> responses) {
+		return control != null ? control.<ReqT, RespT>wrap(responses) : responses;
+	}
+
+	private <ReqT, RespT> StreamObserver<RespT> wrap(final StreamObserver<RespT> responses) {
+
+		return new ClientResponseObserver<ReqT, RespT>() {
+
+			@Override
+			public void beforeStart(ClientCallStreamObserver<ReqT> call) {
+				attach(call);
+			}
+
+			@Override
+			public void onNext(RespT value) {
+				responses.onNext(value);
+			}
+
+			@Override
+			public void onError(Throwable t) {
+				responses.onError(t);
+			}
+
+			@Override
+			public void onCompleted() {
+				responses.onCompleted();
+			}
+
+		};
+
+	}
+
+	private void attach(final ClientCallStreamObserver<?> call) {
+
+		final Call entry = new Call(call);
+
+		long initial;
+
+		synchronized (this) {
+			calls.add(entry);
+			initial = requested;
+		}
+
+		// the consumer without backpressure
+		if (initial != Long.MAX_VALUE) {
+			call.disableAutoInboundFlowControl();
+		}
+
+		call.setOnReadyHandler(new Runnable() {
+
+			@Override
+			public void run() {
+				if (!entry.started) {
+					start(entry);
+				}
+				onReady.run();
+			}
+
+		});
+
+	}
+
+	/**
+	 * The call can request results only after the start, the first ready event comes right after it
+	 */
+
+	private void start(Call entry) {
+
+		long initial;
+
+		synchronized (this) {
+			entry.started = true;
+			initial = requested;
+		}
+
+		if (initial != Long.MAX_VALUE) {
+			entry.request(initial);
+		}
+	}
+
+	/**
+	 * Checks that all opened calls can accept the message without buffering
+	 *
+	 * @return true if the producer can send
+	 */
+
+	protected boolean isReady() {
+		for (Call entry : calls) {
+			if (!entry.call.isReady()) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Requests more results from all calls
+	 *
+	 * @param n - demand of the consumer
+	 */
+
+	protected void request(long n) {
+
+		if (n <= 0) {
+			return;
+		}
+
+		synchronized (this) {
+			requested = requested + n < 0 ? Long.MAX_VALUE : requested + n;
+		}
+
+		// results are delivered outside of the lock
+		for (Call entry : calls) {
+			if (entry.started) {
+				entry.request(n);
+			}
+		}
+	}
+
+	private static final class Call {
+
+		final ClientCallStreamObserver<?> call;
+		volatile boolean started;
+
+		// the stub requests the first result on start
+		private int prefetched = 1;
+
+		Call(ClientCallStreamObserver<?> call) {
+			this.call = call;
+		}
+
+		void request(long n) {
+
+			synchronized (this) {
+				if (prefetched > 0 && n > 0) {
+					prefetched--;
+					n--;
+				}
+			}
+
+			if (n > 0) {
+				call.request(toInt(n));
+			}
+		}
+
+	}
+
+	private static int toInt(long n) {
+		return n > Integer.MAX_VALUE ? Integer.MAX_VALUE : (int) n;
+	}
+
+	@Override
+	public synchronized String toString() {
+		return "FlowControl [calls=" + calls.size() + ", requested=" + requested + "]";
+	}
+
+}
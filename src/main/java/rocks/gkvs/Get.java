@@ -18,9 +18,20 @@
 
 package rocks.gkvs;
 
+import java.util.function.Consumer;
+
+import javax.annotation.Nullable;
+
+import com.google.common.base.Supplier;
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.Futures;
 import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.MoreExecutors;
 
+import io.grpc.Deadline;
 import rocks.gkvs.Transformers.KeyResolver;
+import rocks.gkvs.Transformers.SingleKeyResolver;
+import rocks.gkvs.protos.GenericStoreGrpc;
 import rocks.gkvs.protos.KeyOperation;
 import rocks.gkvs.protos.OperationHeader;
 import rocks.gkvs.protos.OutputOptions;
@@ -46,9 +57,17 @@ public final class Get extends One<Record> {
 	private final OperationHeader.Builder header = OperationHeader.newBuilder();
 	private Select.Builder selectOrNull;
 	private boolean metadataOnly = false;
+	private boolean hedge;
+	private boolean coalesce;
+	private boolean batch;
+	private boolean nearCache;
 	
 	public Get(GkvsClient instance) {
 		this.instance = instance;
+		this.hedge = instance.useHedging();
+		this.coalesce = instance.useSingleFlight();
+		this.batch = instance.useBatching();
+		this.nearCache = instance.useNearCache();
 	}
 	
 	public Get setKey(Key key) {
@@ -79,6 +98,56 @@ public final class Get extends One<Record> {
 		return this;
 	}
 	
+	/**
+	 * Enables or disables hedging of this read, takes effect only if the client has hedging enabled
+	 * 
+	 * @param hedge - send the duplicate request to the slow read
+	 * @return this
+	 */
+	
+	public Get hedge(boolean hedge) {
+		this.hedge = hedge;
+		return this;
+	}
+	
+	/**
+	 * Enables or disables sharing of this read with concurrent identical reads, takes effect only if the client has single-flight enabled
+	 * 
+	 * @param coalesce - join the identical read in flight
+	 * @return this
+	 */
+	
+	public Get coalesce(boolean coalesce) {
+		this.coalesce = coalesce;
+		return this;
+	}
+	
+	/**
+	 * Enables or disables micro-batching of this read with concurrent reads, takes effect only if the client has batching enabled
+	 * 
+	 * Batched reads are not hedged, the batch is sent as one MultiGet
+	 * 
+	 * @param batch - send the read in the MultiGet batch
+	 * @return this
+	 */
+	
+	public Get batch(boolean batch) {
+		this.batch = batch;
+		return this;
+	}
+	
+	/**
+	 * Enables or disables the near cache for this read, takes effect only if the client has the near cache of the view
+	 * 
+	 * @param nearCache - serve the cached record and cache the result
+	 * @return this
+	 */
+	
+	public Get nearCache(boolean nearCache) {
+		this.nearCache = nearCache;
+		return this;
+	}
+	
 	private KeyOperation buildRequest() {
 		
 		if (key == null) {
@@ -119,45 +188,384 @@ public final class Get extends One<Record> {
 	
 	private Record doSync() {
 		
-		ValueResult result = instance.getBlockingStub().get(buildRequest());
+		KeyOperation request = buildRequest();
+		
+		Deadline deadline = instance.deadline(header.getTimeout());
+		
+		if (instance.isAbsent(key)) {
+			return Transformers.notFound(key, request.getHeader().getTag());
+		}
+		
+		NearCache cache = nearCache ? instance.nearCache(key) : null;
+		
+		if (cache == null) {
+			return load(request, deadline);
+		}
+		
+		FlightKey read = new FlightKey(key, request);
+		
+		Record record = cache.get(read);
+		if (record != null) {
+			return record;
+		}
+		
+		long stamp = cache.stamp(key);
+		
+		Record stale = metadataOnly ? null : cache.getStale(read);
+		if (stale != null) {
+			Record metadata = fetch(metadataRequest(request), deadline);
+			if (NearCache.isSameVersion(metadata, stale)) {
+				return cache.revalidated(read, stale, metadata, stamp);
+			}
+		}
+		
+		record = load(request, deadline);
+		cache.put(read, record, stamp);
+		
+		return record;
+	}
+	
+	/**
+	 * Creates the read of the version of the stale record
+	 * 
+	 * @param request - read of the value
+	 * @return metadata-only read
+	 */
+	
+	private KeyOperation metadataRequest(KeyOperation request) {
+		return request.toBuilder().setOutput(OutputOptions.METADATA).build();
+	}
+	
+	private Record load(KeyOperation request, @Nullable Deadline deadline) {
+		
+		NegativeCache negative = instance.negativeCache(key);
+		
+		if (negative == null) {
+			return fetch(request, deadline);
+		}
+		
+		long stamp = negative.stamp(key);
+		Record record = fetch(request, deadline);
+		negative.put(key, record, stamp);
 		
-		return Transformers.toRecord(key, result);
+		return record;
+	}
+	
+	private Record fetch(KeyOperation request, @Nullable Deadline deadline) {
+		
+		if (hedge || coalesce || batch) {
+			return Futures.getUnchecked(send(request, deadline));
+		}
+		
+		GkvsChannel channel = instance.acquireChannel(key);
+		try {
+			ValueResult result = channel.blockingUnary(GenericStoreGrpc.getGetMethod(), deadline, request);
+			return Transformers.toRecord(key, result);
+		}
+		finally {
+			channel.release();
+		}
 		
 	}
 	
 	@Override
 	public GkvsFuture<Record> async() {
 		
-		ListenableFuture<ValueResult> result = instance.getFutureStub().get(buildRequest());
+		KeyOperation request = buildRequest();
+		
+		Deadline deadline = instance.deadline(header.getTimeout());
+		
+		if (instance.isAbsent(key)) {
+			return GkvsFuture.completed(Transformers.notFound(key, request.getHeader().getTag()));
+		}
+		
+		final NearCache cache = nearCache ? instance.nearCache(key) : null;
+		
+		if (cache == null) {
+			return loadAsync(request, deadline);
+		}
+		
+		final FlightKey read = new FlightKey(key, request);
+		
+		Record record = cache.get(read);
+		if (record != null) {
+			return GkvsFuture.completed(record);
+		}
+		
+		long stamp = cache.stamp(key);
+		
+		Record stale = metadataOnly ? null : cache.getStale(read);
+		if (stale != null) {
+			return revalidateAsync(cache, read, stale, stamp, request, deadline);
+		}
+		
+		return loadAsync(cache, read, stamp, request, deadline);
+	}
+	
+	private GkvsFuture<Record> loadAsync(final NearCache cache, final FlightKey read, final long stamp, KeyOperation request, @Nullable Deadline deadline) {
+		
+		GkvsFuture<Record> result = loadAsync(request, deadline);
+		
+		result.addCallbacks(new Consumer<Record>() {
+
+			@Override
+			public void accept(Record loaded) {
+				cache.put(read, loaded, stamp);
+			}
+			
+		}, new Consumer<Throwable>() {
+
+			@Override
+			public void accept(Throwable t) {
+			}
+			
+		});
+		
+		return result;
+	}
+	
+	/**
+	 * Reads the version of the stale record, the value is read only if the version changed
+	 */
+	
+	private GkvsFuture<Record> revalidateAsync(final NearCache cache, final FlightKey read, final Record stale, final long stamp, 
+			final KeyOperation request, final @Nullable Deadline deadline) {
+		
+		final GkvsFuture<Record> result = new GkvsFuture<Record>();
+		
+		final Consumer<Throwable> onFailure = new Consumer<Throwable>() {
+
+			@Override
+			public void accept(Throwable t) {
+				result.completeExceptionally(t);
+			}
+			
+		};
+		
+		fetchAsync(metadataRequest(request), deadline).addCallbacks(new Consumer<Record>() {
+
+			@Override
+			public void accept(Record metadata) {
+				
+				if (NearCache.isSameVersion(metadata, stale)) {
+					result.complete(cache.revalidated(read, stale, metadata, stamp));
+					return;
+				}
+				
+				loadAsync(cache, read, stamp, request, deadline).addCallbacks(new Consumer<Record>() {
+
+					@Override
+					public void accept(Record loaded) {
+						result.complete(loaded);
+					}
+					
+				}, onFailure);
+			}
+			
+		}, onFailure);
+		
+		return result;
+	}
+	
+	private GkvsFuture<Record> loadAsync(KeyOperation request, @Nullable Deadline deadline) {
+		
+		final NegativeCache negative = instance.negativeCache(key);
 		
-		return new GkvsFuture<Record>(Transformers.toRecord(key, result));
+		if (negative == null) {
+			return fetchAsync(request, deadline);
+		}
+		
+		final long stamp = negative.stamp(key);
+		GkvsFuture<Record> result = fetchAsync(request, deadline);
+		
+		result.addCallbacks(new Consumer<Record>() {
+
+			@Override
+			public void accept(Record loaded) {
+				negative.put(key, loaded, stamp);
+			}
+			
+		}, new Consumer<Throwable>() {
+
+			@Override
+			public void accept(Throwable t) {
+			}
+			
+		});
+		
+		return result;
+	}
+	
+	private GkvsFuture<Record> fetchAsync(KeyOperation request, @Nullable Deadline deadline) {
+		
+		if (hedge || coalesce || batch) {
+			return new GkvsFuture<Record>(send(request, deadline));
+		}
+		
+		GkvsChannel channel = instance.acquireChannel(key);
+		
+		return new UnaryCall<KeyOperation, ValueResult, Record>(channel) {
+
+			@Override
+			protected Record decode(ValueResult result) {
+				return Transformers.toRecord(key, result);
+			}
+			
+		}.start(GenericStoreGrpc.getGetMethod(), deadline, request);
 		
 	}
 
 	@Override
 	public void async(final Observer<Record> recordObserver) {
 		
+		if ((nearCache && instance.nearCache(key) != null) || instance.tracksAbsence(key)) {
+			
+			async().addCallbacks(new Consumer<Record>() {
+
+				@Override
+				public void accept(Record record) {
+					recordObserver.onNext(record);
+					recordObserver.onCompleted();
+				}
+				
+			}, new Consumer<Throwable>() {
+
+				@Override
+				public void accept(Throwable t) {
+					recordObserver.onError(t);
+				}
+				
+			});
+			
+			return;
+		}
+		
 		KeyOperation request = buildRequest();
+		Deadline deadline = instance.deadline(header.getTimeout());
+		
+		if (hedge || coalesce || batch) {
+			
+			Futures.addCallback(send(request, deadline), new FutureCallback<Record>() {
+
+				@Override
+				public void onSuccess(Record record) {
+					recordObserver.onNext(record);
+					recordObserver.onCompleted();
+				}
+
+				@Override
+				public void onFailure(Throwable t) {
+					recordObserver.onError(t);
+				}
 				
-		instance.pushWaitingQueue(request.getHeader().getTag(), key);
+			}, MoreExecutors.directExecutor());
+			
+			return;
+		}
+				
+		final KeyResolver keyResolver = new SingleKeyResolver(key);
+		
+		GkvsChannel channel = instance.acquireChannel(key);
+		channel.getAsyncStub(deadline).get(request, channel.track(Transformers.observeRecords(recordObserver, keyResolver)));
+	
+	}
+	
+	/**
+	 * Sends the read, joins the identical read in flight if coalescing is enabled
+	 */
+	
+	private ListenableFuture<Record> send(final KeyOperation request, final @Nullable Deadline deadline) {
+		
+		if (!coalesce) {
+			return decode(request, deadline);
+		}
 		
-		final KeyResolver keyResolver = new KeyResolver() {
+		return instance.coalesce(new FlightKey(key, request), new Supplier<ListenableFuture<Record>>() {
 
 			@Override
-			public Key find(long requestId) {
-				return instance.popWaitingQueue(requestId);
+			public ListenableFuture<Record> get() {
+				return decode(request, deadline);
 			}
 			
-		};
+		});
 		
-		instance.getAsyncStub().get(request, Transformers.observeRecords(recordObserver, keyResolver));
+	}
 	
+	private ListenableFuture<Record> decode(KeyOperation request, @Nullable Deadline deadline) {
+		if (batch) {
+			return instance.batch(key, request, deadline);
+		}
+		return Transformers.toRecord(key, hedge ? hedgedCall(request, deadline) : call(request, deadline));
+	}
+	
+	private ListenableFuture<ValueResult> call(KeyOperation request, @Nullable Deadline deadline) {
+		GkvsChannel channel = instance.acquireChannel(key);
+		return channel.track(channel.getFutureStub(deadline).get(request));
+	}
+	
+	private ListenableFuture<ValueResult> hedgedCall(final KeyOperation request, final @Nullable Deadline deadline) {
+		
+		return instance.hedge(new Supplier<ListenableFuture<ValueResult>>() {
+
+			@Override
+			public ListenableFuture<ValueResult> get() {
+				return call(request, deadline);
+			}
+			
+		});
+		
 	}
 	
 	@Override
 	public String toString() {
 		return "Get " + key;
 	}
+	
+	/**
+	 * Identity of the read for single-flight, the tag and the timeout are not part of it
+	 */
+	
+	static final class FlightKey {
+		
+		private final Key key;
+		private final Select select;
+		private final OutputOptions output;
+		
+		FlightKey(Key key, KeyOperation request) {
+			this(key, request.getSelect(), request.getOutput());
+		}
+		
+		FlightKey(Key key, Select select, OutputOptions output) {
+			this.key = key;
+			this.select = select;
+			this.output = output;
+		}
+		
+		Key key() {
+			return key;
+		}
+
+		@Override
+		public int hashCode() {
+			final int prime = 31;
+			int result = 1;
+			result = prime * result + key.hashCode();
+			result = prime * result + select.hashCode();
+			result = prime * result + output.hashCode();
+			return result;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (this == obj)
+				return true;
+			if (obj == null || getClass() != obj.getClass())
+				return false;
+			FlightKey other = (FlightKey) obj;
+			return output == other.output && key.equals(other.key) && select.equals(other.select);
+		}
+		
+	}
 
 	
 }
@@ -18,12 +18,21 @@
 
 package rocks.gkvs;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import javax.annotation.Nullable;
+
+import io.grpc.Deadline;
 import io.grpc.stub.StreamObserver;
 import rocks.gkvs.Transformers.KeyResolver;
+import rocks.gkvs.Transformers.TagKeyResolver;
 import rocks.gkvs.protos.KeyOperation;
 import rocks.gkvs.protos.OperationHeader;
 import rocks.gkvs.protos.OutputOptions;
 import rocks.gkvs.protos.Select;
+import rocks.gkvs.protos.ValueResult;
 
 /**
  * 
@@ -41,6 +50,7 @@ public final class GetAll extends BiStream<Key, Record> {
 	private final GkvsClient instance;
 	
 	private int timeoutMls;
+	private int deadlineMls;
 	
 	private Select.Builder selectOrNull;
 	private boolean metadataOnly = false;
@@ -67,6 +77,18 @@ public final class GetAll extends BiStream<Key, Record> {
 		return this;
 	}
 	
+	/**
+	 * Sets the deadline of the whole stream, the stream is cancelled when it expires
+	 * 
+	 * @param deadlineMls - deadline in milliseconds after the start of the stream
+	 * @return this
+	 */
+	
+	public GetAll withDeadline(int deadlineMls) {
+		this.deadlineMls = deadlineMls;
+		return this;
+	}
+	
 	public GetAll metadataOnly() {
 		this.metadataOnly = true;
 		return this;
@@ -115,39 +137,108 @@ public final class GetAll extends BiStream<Key, Record> {
 	}
 	
 	@Override
-	public Observer<Key> async(final Observer<Record> recordObserver) {
+	public Observer<Key> async(Observer<Record> recordObserver) {
+		return async(recordObserver, null);
+	}
+	
+	@Override
+	protected Observer<Key> async(final Observer<Record> recordObserver, final @Nullable FlowControl control) {
+		
+		final TagTable<Key> waitingKeys = new TagTable<Key>();
+		final KeyResolver keyResolver = new TagKeyResolver(waitingKeys);
 		
-		final KeyResolver keyResolver = new KeyResolver() {
+		Deadline deadline = instance.streamDeadline(deadlineMls);
+		
+		if (instance.getEndpointCount() > 1) {
+			return asyncRouted(recordObserver, waitingKeys, keyResolver, deadline, control);
+		}
+		
+		final GkvsChannel channel = instance.acquireChannel();
+		final StreamObserver<KeyOperation> streamOut = channel.getAsyncStub(deadline).getAll(FlowControl.<KeyOperation, ValueResult>wrap(control, channel.track(Transformers.observeRecords(recordObserver, keyResolver))));
+		
+		return new Observer<Key>() {
+
+			@Override
+			public void onNext(Key key) {
+				KeyOperation op = buildRequest(key).build();
+				waitingKeys.put(op.getHeader().getTag(), key);
+				streamOut.onNext(op);
+			}
+
+			@Override
+			public void onError(Throwable t) {
+				streamOut.onError(t);
+			}
 
 			@Override
-			public Key find(long requestId) {
-				return instance.popWaitingQueue(requestId);
+			public void onCompleted() {
+				streamOut.onCompleted();
 			}
 			
 		};
+	}
+
+	/**
+	 * Opens the stream per endpoint on demand, every key goes to the endpoint that owns it
+	 * 
+	 * @param recordObserver - observer of merged results
+	 * @param waitingKeys - keys of requests in flight
+	 * @param keyResolver - resolver of request keys
+	 * @param deadline - deadline of all streams
+	 * @param control - flow control of all streams
+	 * @return observer of keys
+	 */
+	
+	private Observer<Key> asyncRouted(final Observer<Record> recordObserver, final TagTable<Key> waitingKeys, final KeyResolver keyResolver, final @Nullable Deadline deadline, final @Nullable FlowControl control) {
+		
+		final MergedObserver<Record> merged = new MergedObserver<Record>(recordObserver);
 		
-		final StreamObserver<KeyOperation> streamOut = instance.getAsyncStub().getAll(Transformers.observeRecords(recordObserver, keyResolver));
+		final List<StreamObserver<KeyOperation>> streams = new ArrayList<StreamObserver<KeyOperation>>(Collections.<StreamObserver<KeyOperation>>nCopies(instance.getEndpointCount(), null));
 		
 		return new Observer<Key>() {
 
+			private StreamObserver<KeyOperation> stream(int endpoint) {
+				
+				StreamObserver<KeyOperation> streamOut = streams.get(endpoint);
+				
+				if (streamOut == null) {
+					GkvsChannel channel = instance.acquireChannel(endpoint);
+					streamOut = channel.getAsyncStub(deadline).getAll(FlowControl.<KeyOperation, ValueResult>wrap(control, channel.track(Transformers.observeRecords(merged.fork(), keyResolver))));
+					streams.set(endpoint, streamOut);
+				}
+				
+				return streamOut;
+			}
+			
 			@Override
 			public void onNext(Key key) {
 				KeyOperation op = buildRequest(key).build();
-				instance.pushWaitingQueue(op.getHeader().getTag(), key);
-				streamOut.onNext(op);
+				waitingKeys.put(op.getHeader().getTag(), key);
+				stream(instance.route(key)).onNext(op);
 			}
 
 			@Override
 			public void onError(Throwable t) {
-				streamOut.onError(t);
+				for (StreamObserver<KeyOperation> streamOut : streams) {
+					if (streamOut != null) {
+						streamOut.onError(t);
+					}
+				}
+				merged.error(t);
 			}
 
 			@Override
 			public void onCompleted() {
-				streamOut.onCompleted();
+				for (StreamObserver<KeyOperation> streamOut : streams) {
+					if (streamOut != null) {
+						streamOut.onCompleted();
+					}
+				}
+				merged.complete();
 			}
 			
 		};
+		
 	}
 
 	@Override
@@ -0,0 +1,324 @@
+/*
+ *
+ * Copyright 2018-present GKVS authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package rocks.gkvs;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.Nullable;
+
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.common.util.concurrent.SettableFuture;
+
+import io.grpc.Context;
+import io.grpc.Deadline;
+import rocks.gkvs.protos.BatchKeyOperation;
+import rocks.gkvs.protos.BatchValueResult;
+import rocks.gkvs.protos.KeyOperation;
+import rocks.gkvs.protos.ValueResult;
+
+/**
+ *
+ * GetBatcher
+ *
+ * Collects concurrent single-key reads per endpoint and sends them as one MultiGet
+ *
+ * The batch is sent when it reaches the max size or when the linger time of the first read expires.
+ * Every read keeps its own tag, results are returned to callers by tag.
+ * The batch takes the latest deadline of its reads, or no deadline if one of the reads has none,
+ * the deadline of every read is enforced on its own future, so the short timeout of one caller
+ * does not fail other reads of the batch.
+ *
+ */
+
+final class GetBatcher {
+
+	private final GkvsClient instance;
+	private final long lingerNanos;
+	private final int maxBatchSize;
+
+	private final Batch[] batches;
+
+	protected GetBatcher(GkvsClient instance, int lingerMls, int maxBatchSize) {
+
+		if (lingerMls < 0) {
+			throw new IllegalArgumentException("invalid linger: " + lingerMls);
+		}
+
+		if (maxBatchSize < 1) {
+			throw new IllegalArgumentException("invalid max batch size: " + maxBatchSize);
+		}
+
+		this.instance = instance;
+		this.lingerNanos = TimeUnit.MILLISECONDS.toNanos(lingerMls);
+		this.maxBatchSize = maxBatchSize;
+
+		this.batches = new Batch[instance.getEndpointCount()];
+		for (int i = 0; i != batches.length; ++i) {
+			batches[i] = new Batch(i);
+		}
+	}
+
+	/**
+	 * Adds the read to the batch of its endpoint
+	 *
+	 * @param key - record key
+	 * @param request - single read with the unique tag
+	 * @param deadline - deadline of the read
+	 * @return future of the record
+	 */
+
+	protected ListenableFuture<Record> submit(Key key, KeyOperation request, @Nullable Deadline deadline) {
+
+		Waiter waiter = new Waiter(key, request, deadline);
+
+		if (deadline != null) {
+			expireAt(waiter, deadline);
+		}
+
+		batches[instance.route(key)].add(waiter);
+		return waiter.future;
+	}
+
+	private void expireAt(final Waiter waiter, Deadline deadline) {
+
+		final ScheduledFuture<?> expiry = instance.getScheduler().schedule(new Runnable() {
+
+			@Override
+			public void run() {
+				waiter.future.setException(io.grpc.Status.DEADLINE_EXCEEDED.withDescription("batched get timed out").asRuntimeException());
+			}
+
+		}, deadline.timeRemaining(TimeUnit.NANOSECONDS), TimeUnit.NANOSECONDS);
+
+		waiter.future.addListener(new Runnable() {
+
+			@Override
+			public void run() {
+				expiry.cancel(false);
+			}
+
+		}, MoreExecutors.directExecutor());
+	}
+
+	private static final class Waiter {
+
+		final Key key;
+		final KeyOperation request;
+		final @Nullable Deadline deadline;
+		final SettableFuture<Record> future = SettableFuture.create();
+
+		Waiter(Key key, KeyOperation request, @Nullable Deadline deadline) {
+			this.key = key;
+			this.request = request;
+			this.deadline = deadline;
+		}
+
+	}
+
+	private final class Batch {
+
+		private final int endpoint;
+
+		private List<Waiter> waiters = new ArrayList<Waiter>();
+
+		// incremented by every take, the linger timer of the taken batch does nothing
+		private long generation;
+		private @Nullable ScheduledFuture<?> linger;
+
+		Batch(int endpoint) {
+			this.endpoint = endpoint;
+		}
+
+		void add(Waiter waiter) {
+
+			List<Waiter> full = null;
+
+			synchronized (this) {
+
+				waiters.add(waiter);
+
+				if (waiters.size() >= maxBatchSize) {
+					full = take();
+				}
+				else if (waiters.size() == 1) {
+					linger = instance.getScheduler().schedule(new Linger(generation), lingerNanos, TimeUnit.NANOSECONDS);
+				}
+
+			}
+
+			if (full != null) {
+				send(full);
+			}
+		}
+
+		/**
+		 * Linger time of the batch expired
+		 *
+		 * @param expired - generation of the batch
+		 */
+
+		void lingered(long expired) {
+
+			List<Waiter> taken;
+
+			synchronized (this) {
+
+				// the batch was sent by the max size
+				if (generation != expired) {
+					return;
+				}
+
+				taken = take();
+			}
+
+			if (!taken.isEmpty()) {
+				send(taken);
+			}
+		}
+
+		private List<Waiter> take() {
+
+			if (linger != null) {
+				linger.cancel(false);
+				linger = null;
+			}
+
+			generation++;
+
+			List<Waiter> taken = waiters;
+			waiters = new ArrayList<Waiter>();
+			return taken;
+		}
+
+		private final class Linger implements Runnable {
+
+			private final long generation;
+
+			Linger(long generation) {
+				this.generation = generation;
+			}
+
+			@Override
+			public void run() {
+				lingered(generation);
+			}
+
+		}
+
+		private void send(final List<Waiter> sending) {
+
+			final TagTable<Waiter> waiting = new TagTable<Waiter>();
+
+			BatchKeyOperation.Builder builder = BatchKeyOperation.newBuilder();
+			Deadline deadline = null;
+			boolean unbounded = false;
+
+			for (Waiter waiter : sending) {
+
+				// cancelled by the caller before the batch was sent
+				if (waiter.future.isDone()) {
+					continue;
+				}
+
+				builder.addOperation(waiter.request);
+				waiting.put(waiter.request.getHeader().getTag(), waiter);
+
+				if (waiter.deadline == null) {
+					unbounded = true;
+				}
+				else if (deadline == null || deadline.isBefore(waiter.deadline)) {
+					deadline = waiter.deadline;
+				}
+			}
+
+			if (builder.getOperationCount() == 0) {
+				return;
+			}
+
+			if (unbounded) {
+				deadline = null;
+			}
+
+			ListenableFuture<BatchValueResult> result;
+
+			// the batch is not cancelled with the context of one caller
+			Context forked = Context.current().fork();
+			Context previous = forked.attach();
+			try {
+				GkvsChannel channel = instance.acquireChannel(endpoint);
+				result = channel.track(channel.getFutureStub(deadline).multiGet(builder.build()));
+			}
+			catch(RuntimeException e) {
+				fail(sending, e);
+				return;
+			}
+			finally {
+				forked.detach(previous);
+			}
+
+			Futures.addCallback(result, new FutureCallback<BatchValueResult>() {
+
+				@Override
+				public void onSuccess(BatchValueResult batch) {
+
+					for (ValueResult result : batch.getResultList()) {
+						Waiter waiter = waiting.remove(result.getHeader().getTag());
+						if (waiter != null) {
+							try {
+								waiter.future.set(Transformers.toRecord(waiter.key, result));
+							}
+							catch(RuntimeException e) {
+								waiter.future.setException(e);
+							}
+						}
+					}
+
+					fail(sending, io.grpc.Status.INTERNAL.withDescription("no result in batch").asRuntimeException());
+				}
+
+				@Override
+				public void onFailure(Throwable t) {
+					fail(sending, t);
+				}
+
+			}, MoreExecutors.directExecutor());
+
+		}
+
+		private void fail(List<Waiter> sending, Throwable t) {
+			for (Waiter waiter : sending) {
+				if (!waiter.future.isDone()) {
+					waiter.future.setException(t);
+				}
+			}
+		}
+
+	}
+
+	@Override
+	public String toString() {
+		return "GetBatcher [endpoints=" + batches.length + ", maxBatchSize=" + maxBatchSize + "]";
+	}
+
+}
@@ -0,0 +1,237 @@
+/*
+ *
+ * Copyright 2018-present GKVS authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package rocks.gkvs;
+
+import java.util.Iterator;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.annotation.Nullable;
+
+import com.google.common.base.Function;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.MoreExecutors;
+
+import io.grpc.CallOptions;
+import io.grpc.ClientCall;
+import io.grpc.Context.CancellableContext;
+import io.grpc.Deadline;
+import io.grpc.ManagedChannel;
+import io.grpc.MethodDescriptor;
+import io.grpc.stub.StreamObserver;
+import rocks.gkvs.protos.GenericStoreGrpc;
+import rocks.gkvs.protos.GenericStoreGrpc.GenericStoreBlockingStub;
+import rocks.gkvs.protos.GenericStoreGrpc.GenericStoreFutureStub;
+import rocks.gkvs.protos.GenericStoreGrpc.GenericStoreStub;
+
+/**
+ *
+ * GkvsChannel
+ *
+ * Single connection with stubs and the counter of outstanding requests
+ *
+ */
+
+final class GkvsChannel {
+
+	private final ManagedChannel channel;
+	private final GenericStoreBlockingStub blockingStub;
+	private final GenericStoreStub asyncStub;
+	private final GenericStoreFutureStub futureStub;
+
+	private final AtomicInteger outstanding = new AtomicInteger(0);
+
+	protected GkvsChannel(ManagedChannel channel) {
+		this.channel = channel;
+		this.blockingStub = GenericStoreGrpc.newBlockingStub(channel);
+		this.asyncStub = GenericStoreGrpc.newStub(channel);
+		this.futureStub = GenericStoreGrpc.newFutureStub(channel);
+	}
+
+	protected GenericStoreBlockingStub getBlockingStub(@Nullable Deadline deadline) {
+		return deadline != null ? blockingStub.withDeadline(deadline) : blockingStub;
+	}
+
+	protected GenericStoreStub getAsyncStub(@Nullable Deadline deadline) {
+		return deadline != null ? asyncStub.withDeadline(deadline) : asyncStub;
+	}
+
+	protected GenericStoreFutureStub getFutureStub(@Nullable Deadline deadline) {
+		return deadline != null ? futureStub.withDeadline(deadline) : futureStub;
+	}
+
+	/**
+	 * Executes the blocking unary call, on Java 21 the caller parks without pinning the virtual thread
+	 *
+	 * @param method - unary method of the store
+	 * @param deadline - deadline or null
+	 * @param request - request
+	 * @return response
+	 */
+
+	protected <ReqT, RespT> RespT blockingUnary(MethodDescriptor<ReqT, RespT> method, @Nullable Deadline deadline, ReqT request) {
+		return SyncCalls.blockingUnary(channel, method, deadline != null ? CallOptions.DEFAULT.withDeadline(deadline) : CallOptions.DEFAULT, request);
+	}
+
+	/**
+	 * Creates the call of the direct async path, see {@link UnaryCall}
+	 *
+	 * @param method - method of the store
+	 * @param options - call options
+	 * @return new call
+	 */
+
+	protected <ReqT, RespT> ClientCall<ReqT, RespT> newCall(MethodDescriptor<ReqT, RespT> method, CallOptions options) {
+		return channel.newCall(method, options);
+	}
+
+	protected int getOutstanding() {
+		return outstanding.get();
+	}
+
+	protected void acquire() {
+		outstanding.incrementAndGet();
+	}
+
+	protected void release() {
+		outstanding.decrementAndGet();
+	}
+
+	/**
+	 * Releases the acquired slot when the future is done
+	 *
+	 * @param future - result of the call
+	 * @return the same future
+	 */
+
+	protected <T> ListenableFuture<T> track(ListenableFuture<T> future) {
+
+		future.addListener(new Runnable() {
+
+			@Override
+			public void run() {
+				release();
+			}
+
+		}, MoreExecutors.directExecutor());
+
+		return future;
+	}
+
+	/**
+	 * Releases the acquired slot when the response stream is closed
+	 *
+	 * @param observer - response observer
+	 * @return wrapped observer
+	 */
+
+	protected <T> StreamObserver<T> track(final StreamObserver<T> observer) {
+
+		return new StreamObserver<T>() {
+
+			@Override
+			public void onNext(T value) {
+				observer.onNext(value);
+			}
+
+			@Override
+			public void onError(Throwable t) {
+				release();
+				observer.onError(t);
+			}
+
+			@Override
+			public void onCompleted() {
+				release();
+				observer.onCompleted();
+			}
+
+		};
+
+	}
+
+	/**
+	 * Releases the acquired slot when the blocking iterator is exhausted, failed or closed,
+	 * close cancels the call if the stream is not read until the end
+	 *
+	 * @param iterator - server streaming results
+	 * @param transform - converts results
+	 * @param context - context the call was started in
+	 * @return closeable iterator
+	 */
+
+	protected <T, R> CloseableIterator<R> track(final Iterator<T> iterator, final Function<T, R> transform, final CancellableContext context) {
+
+		final AtomicBoolean released = new AtomicBoolean(false);
+
+		return new CloseableIterator<R>() {
+
+			@Override
+			public boolean hasNext() {
+				try {
+					boolean hasNext = iterator.hasNext();
+					if (!hasNext && released.compareAndSet(false, true)) {
+						release();
+					}
+					return hasNext;
+				}
+				catch(RuntimeException e) {
+					if (released.compareAndSet(false, true)) {
+						release();
+					}
+					throw e;
+				}
+			}
+
+			@Override
+			public R next() {
+				return transform.apply(iterator.next());
+			}
+
+			@Override
+			public void remove() {
+				throw new UnsupportedOperationException();
+			}
+
+			@Override
+			public void close() {
+				if (released.compareAndSet(false, true)) {
+					release();
+				}
+				CallContext.cancel(context);
+			}
+
+		};
+
+	}
+
+	protected void shutdown() {
+		channel.shutdown();
+	}
+
+	protected boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+		return channel.awaitTermination(timeout, unit);
+	}
+
+	@Override
+	public String toString() {
+		return "GkvsChannel [outstanding=" + outstanding.get() + "]";
+	}
+
+}
@@ -23,18 +23,28 @@ import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.URL;
+import java.nio.ByteBuffer;
+import java.util.Collections;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
 
 import javax.annotation.Nullable;
 import javax.net.ssl.SSLException;
 
-import com.google.common.cache.Cache;
-import com.google.common.cache.CacheBuilder;
+import com.google.common.base.Supplier;
+import com.google.common.net.HostAndPort;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.protobuf.ByteString;
 
-import io.grpc.ManagedChannel;
+import io.grpc.Deadline;
 import io.grpc.ManagedChannelBuilder;
 import io.grpc.netty.GrpcSslContexts;
 import io.grpc.netty.NegotiationType;
@@ -42,10 +52,10 @@ import io.grpc.netty.NettyChannelBuilder;
 import io.netty.handler.ssl.SslContext;
 import io.netty.handler.ssl.SslContextBuilder;
 import io.netty.handler.ssl.SupportedCipherSuiteFilter;
-import rocks.gkvs.protos.GenericStoreGrpc;
-import rocks.gkvs.protos.GenericStoreGrpc.GenericStoreBlockingStub;
-import rocks.gkvs.protos.GenericStoreGrpc.GenericStoreFutureStub;
-import rocks.gkvs.protos.GenericStoreGrpc.GenericStoreStub;
+import io.netty.util.concurrent.DefaultThreadFactory;
+import rocks.gkvs.protos.KeyOperation;
+import rocks.gkvs.protos.PutOperation;
+import rocks.gkvs.value.RawValue;
 import rocks.gkvs.value.Value;
 
 /**
@@ -63,16 +73,25 @@ public final class GkvsClient implements Closeable {
 	
 	private static volatile GkvsClient defaultInstance = null;
 	
-	private final ManagedChannel channel;
-	private final GenericStoreBlockingStub blockingStub;
-	private final GenericStoreStub asyncStub;
-	private final GenericStoreFutureStub futureStub;
+	private final ChannelPool[] endpoints;
+	private final KeyRouter router;
+	private final AtomicInteger nextEndpoint = new AtomicInteger(0);
+	private final @Nullable GkvsTransport transport;
+	private final @Nullable HedgePolicy hedgePolicy;
+	private final int deadlineMls;
+	private final int multiGetChunkKeys;
+	private final int multiGetChunkBytes;
+	private final int multiGetConcurrency;
+	private final @Nullable SingleFlight<Get.FlightKey, Record> flights;
+	private final @Nullable GetBatcher batcher;
+	private final @Nullable WriteBehind writeBehind;
+	private final @Nullable NearCache nearCache;
+	private final @Nullable NegativeCache negativeCache;
+	private final ConcurrentMap<String, KeyFilter> keyFilters = new ConcurrentHashMap<String, KeyFilter>();
+	private final long keyFilterBytes;
+	private final double keyFilterFpp;
+	private volatile ScheduledExecutorService scheduler;
 	
-    private final Cache<Long, Key> waitingQueue = CacheBuilder.newBuilder()
-    		.expireAfterWrite(20, TimeUnit.MINUTES)
-    		.concurrencyLevel(16)
-    		.build();
-    
 	private final AtomicLong sequenceNum = new AtomicLong(1L);
 	
 	public static GkvsClient createFromClasspath() {
@@ -112,14 +131,94 @@ public final class GkvsClient implements Closeable {
 	}
 	
 	public GkvsClient(GkvsConfig config) {
-		this(buildChannel(config));
+		this(config, GkvsTransport.acquire(config), null);
+	}
+	
+	/**
+	 * Creates client on top of the transport shared with other clients
+	 * 
+	 * @param config - client configuration
+	 * @param transport - event-loop group and executor, retained by the client until close
+	 */
+	
+	public GkvsClient(GkvsConfig config, GkvsTransport transport) {
+		this(config, transport.retain(), null);
 	}
 	
 	public GkvsClient(ManagedChannelBuilder<?> channelBuilder) {
-		channel = channelBuilder.build();
-		blockingStub = GenericStoreGrpc.newBlockingStub(channel);
-		asyncStub = GenericStoreGrpc.newStub(channel);
-		futureStub = GenericStoreGrpc.newFutureStub(channel);
+		this(channelBuilder, 1);
+	}
+	
+	public GkvsClient(ManagedChannelBuilder<?> channelBuilder, int poolSize) {
+		this(defaultConfig(poolSize), channelBuilder);
+	}
+	
+	/**
+	 * Creates client on top of the custom channel, endpoints and transport of the config are ignored
+	 * 
+	 * @param config - client configuration
+	 * @param channelBuilder - builder of pooled channels
+	 */
+	
+	public GkvsClient(GkvsConfig config, ManagedChannelBuilder<?> channelBuilder) {
+		this(config, null, channelBuilder);
+	}
+	
+	/**
+	 * Initializes the client, owns the transport
+	 * 
+	 * @param config - client configuration
+	 * @param transport - acquired transport or null for the custom channel
+	 * @param channelBuilder - custom channel or null for endpoints of the config
+	 */
+	
+	private GkvsClient(GkvsConfig config, @Nullable GkvsTransport transport, @Nullable ManagedChannelBuilder<?> channelBuilder) {
+		this.transport = transport;
+		this.hedgePolicy = config.useHedging() ? HedgePolicy.fromConfig(config) : null;
+		this.deadlineMls = config.getDeadlineMls();
+		this.multiGetChunkKeys = config.getMultiGetChunkKeys();
+		this.multiGetChunkBytes = config.getMultiGetChunkBytes();
+		this.multiGetConcurrency = config.getMultiGetConcurrency();
+		this.flights = config.useSingleFlight() ? new SingleFlight<Get.FlightKey, Record>() : null;
+		this.nearCache = config.useNearCache() ? NearCache.fromConfig(config) : null;
+		this.negativeCache = !config.getNegativeCacheViews().isEmpty() ? NegativeCache.fromConfig(config) : null;
+		this.keyFilterBytes = config.getKeyFilterBytes();
+		this.keyFilterFpp = config.getKeyFilterFpp();
+		
+		List<String> names = channelBuilder != null ? Collections.singletonList(channelBuilder.toString()) : config.getEndpoints();
+		this.endpoints = new ChannelPool[names.size()];
+		this.router = new KeyRouter(names);
+		
+		try {
+			if (channelBuilder != null) {
+				endpoints[0] = new ChannelPool(channelBuilder, config.getPoolSize());
+			}
+			else {
+				for (int i = 0; i != endpoints.length; ++i) {
+					HostAndPort endpoint = HostAndPort.fromString(names.get(i)).withDefaultPort(config.getPort());
+					endpoints[i] = new ChannelPool(buildChannel(config, endpoint, transport), config.getPoolSize());
+				}
+			}
+			this.batcher = config.useBatching() ? new GetBatcher(this, config.getBatchLingerMls(), config.getBatchSize()) : null;
+			this.writeBehind = config.useWriteBehind() ? newWriteBehind(config) : null;
+		}
+		catch(RuntimeException e) {
+			shutdown();
+			if (transport != null) {
+				transport.release();
+			}
+			throw e;
+		}
+	}
+	
+	private WriteBehind newWriteBehind(GkvsConfig config) {
+		return new WriteBehind(this, config.getWriteBehindStreams(), config.getWriteBehindFlushMls(), config.getWriteBehindPendingBytes());
+	}
+	
+	private static GkvsConfig defaultConfig(int poolSize) {
+		GkvsConfig.Builder builder = new GkvsConfig.Builder();
+		builder.setPoolSize(poolSize);
+		return builder.build();
 	}
 	
 	public static GkvsClient getDefaultInstance() {
@@ -148,16 +247,430 @@ public final class GkvsClient implements Closeable {
 		return defaultInstance;
 	}
 	
-	protected GenericStoreBlockingStub getBlockingStub() {
-		return blockingStub;
+	/**
+	 * Acquires the least loaded channel of the next endpoint, used by operations without key affinity
+	 * 
+	 * The caller must release it after the call, streams keep the channel for the whole stream
+	 * 
+	 * @return acquired channel
+	 */
+	
+	protected GkvsChannel acquireChannel() {
+		int endpoint = (nextEndpoint.getAndIncrement() & Integer.MAX_VALUE) % endpoints.length;
+		return endpoints[endpoint].acquire();
+	}
+	
+	/**
+	 * Acquires the least loaded channel of the endpoint that owns the key
+	 * 
+	 * @param key - routing key
+	 * @return acquired channel
+	 */
+	
+	protected GkvsChannel acquireChannel(Key key) {
+		return endpoints[router.route(key)].acquire();
+	}
+	
+	protected GkvsChannel acquireChannel(int endpoint) {
+		return endpoints[endpoint].acquire();
+	}
+	
+	protected int getEndpointCount() {
+		return endpoints.length;
+	}
+	
+	protected int route(Key key) {
+		return router.route(key);
 	}
 
-	protected GenericStoreStub getAsyncStub() {
-		return asyncStub;
+	/**
+	 * Gets the deadline of the unary call
+	 * 
+	 * @param timeoutMls - timeout of the operation, 0 for the client default
+	 * @return deadline or null if the call has no deadline
+	 */
+	
+	protected @Nullable Deadline deadline(int timeoutMls) {
+		int mls = timeoutMls > 0 ? timeoutMls : deadlineMls;
+		return mls > 0 ? Deadline.after(mls, TimeUnit.MILLISECONDS) : null;
+	}
+	
+	/**
+	 * Gets the deadline of the stream, streams do not use the client default
+	 * 
+	 * @param deadlineMls - deadline of the stream
+	 * @return deadline or null if the stream has no deadline
+	 */
+	
+	protected @Nullable Deadline streamDeadline(int deadlineMls) {
+		return deadlineMls > 0 ? Deadline.after(deadlineMls, TimeUnit.MILLISECONDS) : null;
+	}
+	
+	protected int getMultiGetChunkKeys() {
+		return multiGetChunkKeys;
+	}
+	
+	protected int getMultiGetChunkBytes() {
+		return multiGetChunkBytes;
+	}
+	
+	protected int getMultiGetConcurrency() {
+		return multiGetConcurrency;
+	}
+	
+	protected boolean useHedging() {
+		return hedgePolicy != null;
+	}
+	
+	/**
+	 * Sends the idempotent read, duplicates it after the hedge delay if hedging is enabled
+	 * 
+	 * @param call - sends the read, may be invoked twice
+	 * @return future of the first response
+	 */
+	
+	protected <T> ListenableFuture<T> hedge(Supplier<ListenableFuture<T>> call) {
+		if (hedgePolicy == null) {
+			return call.get();
+		}
+		return HedgedFuture.start(call, hedgePolicy, getScheduler());
+	}
+	
+	protected boolean useSingleFlight() {
+		return flights != null;
+	}
+	
+	/**
+	 * Joins the identical read in flight or sends the new one if single-flight is enabled
+	 * 
+	 * @param key - identity of the read
+	 * @param call - sends the read
+	 * @return future of the shared record
+	 */
+	
+	protected ListenableFuture<Record> coalesce(Get.FlightKey key, Supplier<ListenableFuture<Record>> call) {
+		if (flights == null) {
+			return call.get();
+		}
+		return flights.execute(key, call);
+	}
+	
+	protected boolean useBatching() {
+		return batcher != null;
+	}
+	
+	/**
+	 * Adds the read to the batch of its endpoint, sends it alone if batching is disabled
+	 * 
+	 * @param key - record key
+	 * @param request - single read
+	 * @param deadline - deadline of the read
+	 * @return future of the record
+	 */
+	
+	protected ListenableFuture<Record> batch(Key key, KeyOperation request, @Nullable Deadline deadline) {
+		if (batcher == null) {
+			GkvsChannel channel = acquireChannel(key);
+			return Transformers.toRecord(key, channel.track(channel.getFutureStub(deadline).get(request)));
+		}
+		return batcher.submit(key, request, deadline);
+	}
+	
+	protected boolean useWriteBehind() {
+		return writeBehind != null;
+	}
+	
+	/**
+	 * Queues the write in to the PutAll stream, sends it alone if write-behind is disabled
+	 * 
+	 * @param key - record key
+	 * @param request - put
+	 * @param deadline - deadline of the put
+	 * @return future of the status
+	 */
+	
+	protected ListenableFuture<Status> writeBehind(Key key, PutOperation request, @Nullable Deadline deadline) {
+		if (writeBehind == null) {
+			GkvsChannel channel = acquireChannel(key);
+			return Transformers.toStatus(key, channel.track(channel.getFutureStub(deadline).put(request)));
+		}
+		return writeBehind.submit(key, request, deadline);
+	}
+	
+	/**
+	 * Gets the near cache of the view
+	 * 
+	 * @param key - record key
+	 * @return cache or null if the near cache is disabled or the view is not cached
+	 */
+	
+	protected @Nullable NearCache nearCache(Key key) {
+		return nearCache != null && nearCache.isCached(key) ? nearCache : null;
+	}
+	
+	protected @Nullable NearCache getNearCache() {
+		return nearCache;
 	}
+	
+	protected boolean useNearCache() {
+		return nearCache != null;
+	}
+	
+	/**
+	 * Removes the key from the near cache, called by writes of the client
+	 * 
+	 * @param key - record key
+	 */
+	
+	protected void invalidate(Key key) {
+		if (nearCache != null) {
+			nearCache.invalidate(key);
+		}
+		if (negativeCache != null) {
+			negativeCache.invalidate(key);
+		}
+	}
+	
+	/**
+	 * Adds the key to the key filter of the view, called by Put before the write is sent
+	 * 
+	 * @param key - record key
+	 */
+	
+	protected void mayExist(Key key) {
+		KeyFilter filter = keyFilters.get(key.getViewName());
+		if (filter != null) {
+			filter.add(key);
+		}
+	}
+	
+	/**
+	 * Gets the negative cache of the view
+	 * 
+	 * @param key - record key
+	 * @return cache or null if keys of the view are not cached
+	 */
+	
+	protected @Nullable NegativeCache negativeCache(Key key) {
+		return negativeCache != null && negativeCache.isCached(key) ? negativeCache : null;
+	}
+	
+	/**
+	 * Checks that the read of the key can be answered locally as not found
+	 * 
+	 * @param key - record key
+	 * @return true if the key filter or the negative cache can answer
+	 */
+	
+	protected boolean tracksAbsence(Key key) {
+		return negativeCache(key) != null || keyFilters.containsKey(key.getViewName());
+	}
+	
+	/**
+	 * Checks that the key is definitely absent by the key filter of the view or was not found recently
+	 * 
+	 * @param key - record key
+	 * @return true if the read is not needed
+	 */
+	
+	protected boolean isAbsent(Key key) {
+		
+		KeyFilter filter = keyFilters.get(key.getViewName());
+		if (filter != null && filter.isAbsent(key)) {
+			return true;
+		}
+		
+		NegativeCache cache = negativeCache(key);
+		return cache != null && cache.contains(key);
+	}
+	
+	/**
+	 * Loads the key filter of the view by the key-only Scan, Get and exists() of the view 
+	 * answer keys that are not in the filter as not found without the read
+	 * 
+	 * The filter is valid only if all writes of the view go through this client, keys written by Put
+	 * of the client are added to the filter, keys removed stay in the filter.
+	 * Keys written by the Put issued before the load can be missed by the Scan.
+	 * 
+	 * @param viewName - view name
+	 * @return number of keys loaded
+	 */
+	
+	public long loadKeyFilter(String viewName) {
+		
+		KeyFilter filter = new KeyFilter(keyFilterBytes, keyFilterFpp);
+		
+		// writes during the load go to the new filter
+		keyFilters.put(viewName, filter);
+		
+		long loaded = 0;
+		
+		try {
+			Iterator<Record> records = scan(viewName).includeKey(true).includeValue(false).sync();
+			while (records.hasNext()) {
+				filter.add(records.next().key().get());
+				loaded++;
+			}
+		}
+		catch(RuntimeException e) {
+			keyFilters.remove(viewName, filter);
+			throw e;
+		}
+		
+		filter.ready();
+		return loaded;
+	}
+	
+	/**
+	 * Removes the key filter of the view, all reads of the view are sent to the server
+	 * 
+	 * @param viewName - view name
+	 */
+	
+	public void removeKeyFilter(String viewName) {
+		keyFilters.remove(viewName);
+	}
+	
+	/**
+	 * Checks that the key filter of the view is loaded and answers reads
+	 * 
+	 * @param viewName - view name
+	 * @return true if the filter is ready and not overfilled
+	 */
+	
+	public boolean hasKeyFilter(String viewName) {
+		KeyFilter filter = keyFilters.get(viewName);
+		return filter != null && filter.isReady() && filter.count() <= filter.capacity();
+	}
+	
+	/**
+	 * Removes all keys from the negative cache
+	 */
+	
+	public void clearNegativeCache() {
+		if (negativeCache != null) {
+			negativeCache.clear();
+		}
+	}
+	
+	/**
+	 * Creates the task that removes the key from the near cache on completion of the write,
+	 * so the read issued while the write was in flight is not served after it
+	 * 
+	 * @param key - record key
+	 * @return task
+	 */
+	
+	protected Runnable invalidation(final Key key) {
+		
+		return new Runnable() {
 
-	protected GenericStoreFutureStub getFutureStub() {
-		return futureStub;
+			@Override
+			public void run() {
+				invalidate(key);
+			}
+			
+		};
+	}
+	
+	/**
+	 * Wraps the observer of the write to remove the key from the near cache on the result
+	 * 
+	 * @param key - record key
+	 * @param statusObserver - observer of the write
+	 * @return observer or the same observer if the near cache is disabled
+	 */
+	
+	protected Observer<Status> invalidating(final Key key, Observer<Status> statusObserver) {
+		
+		if (nearCache == null && negativeCache == null) {
+			return statusObserver;
+		}
+		
+		return Observers.transform(statusObserver, new Observers.Fn<Status, Status>() {
+
+			@Override
+			public Status apply(Status status) {
+				invalidate(key);
+				return status;
+			}
+			
+		});
+	}
+	
+	/**
+	 * Wraps the observer of the stream write to remove the key of each result from the near cache,
+	 * so the read issued while the write was in flight is not served after it
+	 * 
+	 * @param statusObserver - observer of the stream write
+	 * @return observer or the same observer if the near cache is disabled
+	 */
+	
+	protected Observer<Status> invalidating(Observer<Status> statusObserver) {
+		
+		if (nearCache == null && negativeCache == null) {
+			return statusObserver;
+		}
+		
+		return Observers.transform(statusObserver, new Observers.Fn<Status, Status>() {
+
+			@Override
+			public Status apply(Status status) {
+				NullableKey key = status.key();
+				if (!key.isNull()) {
+					invalidate(key.get());
+				}
+				return status;
+			}
+			
+		});
+	}
+	
+	/**
+	 * Gets counters of the near cache
+	 * 
+	 * @return snapshot of counters, zeros if the near cache is disabled
+	 */
+	
+	public NearCacheStats getNearCacheStats() {
+		return nearCache != null ? nearCache.stats() : new NearCacheStats(0, 0, 0, 0, 0, 0, 0, 0, 0);
+	}
+	
+	/**
+	 * Removes all records from the near cache
+	 */
+	
+	public void clearNearCache() {
+		if (nearCache != null) {
+			nearCache.clear();
+		}
+	}
+	
+	/**
+	 * Sends all queued writes
+	 */
+	
+	public void flush() {
+		if (writeBehind != null) {
+			writeBehind.flush();
+		}
+	}
+	
+	/**
+	 * Gets the timer of the client, created on first use
+	 * 
+	 * @return single-thread daemon scheduler
+	 */
+	
+	protected ScheduledExecutorService getScheduler() {
+		if (scheduler == null) {
+			synchronized (this) {
+				if (scheduler == null) {
+					scheduler = Executors.newSingleThreadScheduledExecutor(new DefaultThreadFactory("gkvs-scheduler", true));
+				}
+			}
+		}
+		return scheduler;
 	}
 
 	protected long nextTag() {
@@ -171,25 +684,36 @@ public final class GkvsClient implements Closeable {
 	    return num;
 	}
 	
-	protected void pushWaitingQueue(long tag, Key key) {
-		waitingQueue.put(tag, key);
-	}
-	
-	protected @Nullable Key popWaitingQueue(long tag) {
-		Key key =  waitingQueue.getIfPresent(tag);
-		if (key != null) {
-			waitingQueue.invalidate(tag);
-		}
-		return key;
-	}
-		
 	@Override
 	public void close() throws IOException {
+		if (writeBehind != null) {
+			writeBehind.close();
+		}
+		shutdown();
 		try {
-			channel.shutdown().awaitTermination(5, TimeUnit.SECONDS);
+			long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+			for (ChannelPool pool : endpoints) {
+				pool.awaitTermination(Math.max(0L, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+			}
 		} catch (InterruptedException e) {
 			throw new IOException(e);
 		}
+		finally {
+			if (transport != null) {
+				transport.release();
+			}
+		}
+	}
+	
+	private void shutdown() {
+		if (scheduler != null) {
+			scheduler.shutdownNow();
+		}
+		for (ChannelPool pool : endpoints) {
+			if (pool != null) {
+				pool.shutdown();
+			}
+		}
 	}
 	
 	public ListCmd list() {
@@ -240,6 +764,26 @@ public final class GkvsClient implements Closeable {
 		return new Put(this).put(keyValue);
 	}
 	
+	/**
+	 * Puts the pre-encoded msgpack value, the payload is not parsed or copied and must not be changed until the put completes
+	 * 
+	 * @param key - record key
+	 * @param msgpack - one msgpack value
+	 * @return put operation
+	 */
+	
+	public Put putRaw(Key key, byte[] msgpack) {
+		return new Put(this).put(key, RawValue.wrap(msgpack));
+	}
+	
+	public Put putRaw(Key key, ByteBuffer msgpack) {
+		return new Put(this).put(key, RawValue.wrap(msgpack));
+	}
+	
+	public Put putRaw(Key key, ByteString msgpack) {
+		return new Put(this).put(key, RawValue.wrap(msgpack));
+	}
+	
 	public Put putIfAbsent(String viewName, String recordKey, Value value) {
 		return new Put(this).putIfAbsent(Key.raw(viewName, recordKey), value);
 	}
@@ -302,17 +846,19 @@ public final class GkvsClient implements Closeable {
 
 	}
 	
-	private static NettyChannelBuilder buildChannel(GkvsConfig config) {
+	private static NettyChannelBuilder buildChannel(GkvsConfig config, HostAndPort endpoint, GkvsTransport transport) {
 
+		NettyChannelBuilder builder = transport.configure(NettyChannelBuilder.forAddress(endpoint.getHost(), endpoint.getPort()));
+		
 		if (config.useSsl()) {
 		
-			return NettyChannelBuilder.forAddress(config.getHost(), config.getPort()).negotiationType(NegotiationType.TLS)
+			return builder.negotiationType(NegotiationType.TLS)
 				.sslContext(buildSslContext(config.getSslKeys()));
 		
 		}
 		else {
 			
-			return NettyChannelBuilder.forAddress(config.getHost(), config.getPort()).usePlaintext();
+			return builder.usePlaintext();
 			
 		}
 
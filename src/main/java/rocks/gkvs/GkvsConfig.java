@@ -1,7 +1,12 @@
 package rocks.gkvs;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 import java.util.Properties;
 
+import com.google.common.net.HostAndPort;
+
 /**
  * 
  * GkvsConfig
@@ -15,14 +20,88 @@ public final class GkvsConfig {
 
 	private final String host;
 	private final int port;
+	private final List<String> endpoints;
 	private final boolean useSsl;
 	private final String sslKeys;
+	private final int poolSize;
+	private final int deadlineMls;
+	private final boolean useEpoll;
+	private final int eventLoopThreads;
+	private final int executorThreads;
+	private final boolean useSharedTransport;
+	private final boolean useHedging;
+	private final int hedgeDelayMls;
+	private final int hedgePercentile;
+	private final int hedgeBudgetPercent;
+	private final boolean useSingleFlight;
+	private final boolean useBatching;
+	private final int batchLingerMls;
+	private final int batchSize;
+	private final boolean useWriteBehind;
+	private final int writeBehindStreams;
+	private final int writeBehindFlushMls;
+	private final long writeBehindPendingBytes;
+	private final int multiGetChunkKeys;
+	private final int multiGetChunkBytes;
+	private final int multiGetConcurrency;
+	private final boolean useNearCache;
+	private final List<String> nearCacheViews;
+	private final int nearCacheEntries;
+	private final long nearCacheBytes;
+	private final int nearCacheTtlMls;
+	private final boolean useNearCacheRevalidation;
+	private final int nearCacheStaleMls;
+	private final boolean useNearCacheOffHeap;
+	private final long nearCacheOffHeapBytes;
+	private final int nearCacheSlabBytes;
+	private final List<String> negativeCacheViews;
+	private final int negativeCacheEntries;
+	private final int negativeCacheTtlMls;
+	private final double keyFilterFpp;
+	private final long keyFilterBytes;
 
 	protected GkvsConfig(Builder builder) {
 		this.host = builder.host;
 		this.port = builder.port;
+		this.endpoints = Collections.unmodifiableList(new ArrayList<String>(builder.endpoints));
 		this.useSsl = builder.useSsl;
 		this.sslKeys = builder.sslKeys;
+		this.poolSize = builder.poolSize;
+		this.deadlineMls = builder.deadlineMls;
+		this.useEpoll = builder.useEpoll;
+		this.eventLoopThreads = builder.eventLoopThreads;
+		this.executorThreads = builder.executorThreads;
+		this.useSharedTransport = builder.useSharedTransport;
+		this.useHedging = builder.useHedging;
+		this.hedgeDelayMls = builder.hedgeDelayMls;
+		this.hedgePercentile = builder.hedgePercentile;
+		this.hedgeBudgetPercent = builder.hedgeBudgetPercent;
+		this.useSingleFlight = builder.useSingleFlight;
+		this.useBatching = builder.useBatching;
+		this.batchLingerMls = builder.batchLingerMls;
+		this.batchSize = builder.batchSize;
+		this.useWriteBehind = builder.useWriteBehind;
+		this.writeBehindStreams = builder.writeBehindStreams;
+		this.writeBehindFlushMls = builder.writeBehindFlushMls;
+		this.writeBehindPendingBytes = builder.writeBehindPendingBytes;
+		this.multiGetChunkKeys = builder.multiGetChunkKeys;
+		this.multiGetChunkBytes = builder.multiGetChunkBytes;
+		this.multiGetConcurrency = builder.multiGetConcurrency;
+		this.useNearCache = builder.useNearCache;
+		this.nearCacheViews = Collections.unmodifiableList(new ArrayList<String>(builder.nearCacheViews));
+		this.nearCacheEntries = builder.nearCacheEntries;
+		this.nearCacheBytes = builder.nearCacheBytes;
+		this.nearCacheTtlMls = builder.nearCacheTtlMls;
+		this.useNearCacheRevalidation = builder.useNearCacheRevalidation;
+		this.nearCacheStaleMls = builder.nearCacheStaleMls;
+		this.useNearCacheOffHeap = builder.useNearCacheOffHeap;
+		this.nearCacheOffHeapBytes = builder.nearCacheOffHeapBytes;
+		this.nearCacheSlabBytes = builder.nearCacheSlabBytes;
+		this.negativeCacheViews = Collections.unmodifiableList(new ArrayList<String>(builder.negativeCacheViews));
+		this.negativeCacheEntries = builder.negativeCacheEntries;
+		this.negativeCacheTtlMls = builder.negativeCacheTtlMls;
+		this.keyFilterFpp = builder.keyFilterFpp;
+		this.keyFilterBytes = builder.keyFilterBytes;
 	}
 	
 	public String getHost() {
@@ -33,6 +112,19 @@ public final class GkvsConfig {
 		return port;
 	}
 
+	/**
+	 * Gets endpoints of gKVS front-ends, keys are routed across them by consistent hashing
+	 * 
+	 * @return list of host:port, host and port if endpoints are not configured
+	 */
+	
+	public List<String> getEndpoints() {
+		if (endpoints.isEmpty()) {
+			return Collections.singletonList(HostAndPort.fromParts(host, port).toString());
+		}
+		return endpoints;
+	}
+
 	public boolean useSsl() {
 		return useSsl;
 	}
@@ -41,14 +133,368 @@ public final class GkvsConfig {
 		return sslKeys;
 	}
 
+	public int getPoolSize() {
+		return poolSize;
+	}
+
+	/**
+	 * Gets the default deadline of unary operations without the explicit timeout
+	 * 
+	 * @return deadline in milliseconds, 0 if calls have no deadline
+	 */
+	
+	public int getDeadlineMls() {
+		return deadlineMls;
+	}
+
+	public boolean useEpoll() {
+		return useEpoll;
+	}
+
+	public int getEventLoopThreads() {
+		return eventLoopThreads;
+	}
+
+	public int getExecutorThreads() {
+		return executorThreads;
+	}
+
+	public boolean useSharedTransport() {
+		return useSharedTransport;
+	}
+
+	/**
+	 * Enables hedged reads for Get and MultiGet
+	 * 
+	 * @return true if the duplicate request is sent to the slow read
+	 */
+	
+	public boolean useHedging() {
+		return useHedging;
+	}
+
+	/**
+	 * Gets the fixed hedge delay, the lower bound of the adaptive one
+	 * 
+	 * @return delay in milliseconds
+	 */
+	
+	public int getHedgeDelayMls() {
+		return hedgeDelayMls;
+	}
+
+	/**
+	 * Gets the percentile of recent latencies used as hedge delay
+	 * 
+	 * @return percentile, 0 for the fixed delay
+	 */
+	
+	public int getHedgePercentile() {
+		return hedgePercentile;
+	}
 
+	/**
+	 * Gets the budget of hedged requests
+	 * 
+	 * @return percent of original requests
+	 */
+	
+	public int getHedgeBudgetPercent() {
+		return hedgeBudgetPercent;
+	}
+
+	/**
+	 * Enables sharing of one call between concurrent identical Get and Exists
+	 * 
+	 * @return true if identical reads in flight are coalesced
+	 */
+	
+	public boolean useSingleFlight() {
+		return useSingleFlight;
+	}
+
+	/**
+	 * Enables micro-batching of single Get and Exists in to MultiGet
+	 * 
+	 * @return true if concurrent reads are batched
+	 */
+	
+	public boolean useBatching() {
+		return useBatching;
+	}
+
+	/**
+	 * Gets the time the first read of the batch waits for others
+	 * 
+	 * @return linger time in milliseconds
+	 */
+	
+	public int getBatchLingerMls() {
+		return batchLingerMls;
+	}
+
+	public int getBatchSize() {
+		return batchSize;
+	}
+
+	/**
+	 * Enables write-behind of Put over long-lived PutAll streams
+	 * 
+	 * @return true if puts are queued and flushed in to streams
+	 */
+	
+	public boolean useWriteBehind() {
+		return useWriteBehind;
+	}
+
+	/**
+	 * Gets the number of PutAll streams per endpoint
+	 * 
+	 * @return number of streams
+	 */
+	
+	public int getWriteBehindStreams() {
+		return writeBehindStreams;
+	}
+
+	public int getWriteBehindFlushMls() {
+		return writeBehindFlushMls;
+	}
+
+	/**
+	 * Gets the size of unsent writes of the stream that triggers the flush
+	 * 
+	 * @return size in bytes
+	 */
+	
+	public long getWriteBehindPendingBytes() {
+		return writeBehindPendingBytes;
+	}
+
+	/**
+	 * Gets the max number of keys in one MultiGet call, large key sets are split in to chunks
+	 * 
+	 * @return number of keys, 0 for unlimited
+	 */
+	
+	public int getMultiGetChunkKeys() {
+		return multiGetChunkKeys;
+	}
+
+	/**
+	 * Gets the max estimated size of one MultiGet request
+	 * 
+	 * @return size in bytes, 0 for unlimited
+	 */
+	
+	public int getMultiGetChunkBytes() {
+		return multiGetChunkBytes;
+	}
+
+	/**
+	 * Gets the max number of MultiGet chunks in flight
+	 * 
+	 * @return number of chunks
+	 */
+	
+	public int getMultiGetConcurrency() {
+		return multiGetConcurrency;
+	}
+
+	/**
+	 * Enables the near cache of Get and MultiGet results
+	 * 
+	 * @return true if records are cached by the client
+	 */
+	
+	public boolean useNearCache() {
+		return useNearCache;
+	}
+
+	/**
+	 * Gets views of the near cache
+	 * 
+	 * @return view names, empty if all views are cached
+	 */
+	
+	public List<String> getNearCacheViews() {
+		return nearCacheViews;
+	}
+
+	/**
+	 * Gets the max number of cached records
+	 * 
+	 * @return number of records
+	 */
+	
+	public int getNearCacheEntries() {
+		return nearCacheEntries;
+	}
+
+	/**
+	 * Gets the max weight of cached records
+	 * 
+	 * @return estimated size in bytes
+	 */
+	
+	public long getNearCacheBytes() {
+		return nearCacheBytes;
+	}
+
+	/**
+	 * Gets the max time the cached record is served without the read, the record ttl shortens it
+	 * 
+	 * @return time in milliseconds
+	 */
+	
+	public int getNearCacheTtlMls() {
+		return nearCacheTtlMls;
+	}
+
+	/**
+	 * Enables revalidation of expired records of the near cache by metadata-only reads
+	 * 
+	 * @return true if the value is refetched only when the version changed
+	 */
+	
+	public boolean useNearCacheRevalidation() {
+		return useNearCacheRevalidation;
+	}
+
+	/**
+	 * Gets the time the expired record is kept for revalidation
+	 * 
+	 * @return time in milliseconds
+	 */
+	
+	public int getNearCacheStaleMls() {
+		return nearCacheStaleMls;
+	}
+
+	/**
+	 * Enables the off-heap store of the near cache, serialized results are kept in direct buffers
+	 * 
+	 * @return true if records are kept off the heap
+	 */
+	
+	public boolean useNearCacheOffHeap() {
+		return useNearCacheOffHeap;
+	}
+
+	/**
+	 * Gets the memory of the off-heap store, must fit in to the max direct memory of the JVM
+	 * 
+	 * @return size in bytes
+	 */
+	
+	public long getNearCacheOffHeapBytes() {
+		return nearCacheOffHeapBytes;
+	}
+
+	/**
+	 * Gets the memory of one slab of the off-heap store, the larger record is not cached
+	 * 
+	 * @return size in bytes
+	 */
+	
+	public int getNearCacheSlabBytes() {
+		return nearCacheSlabBytes;
+	}
+
+	/**
+	 * Gets views of the negative cache, keys of these views that were not found are cached by the client
+	 * 
+	 * @return view names, empty if the negative cache is disabled
+	 */
+	
+	public List<String> getNegativeCacheViews() {
+		return negativeCacheViews;
+	}
+
+	/**
+	 * Gets the max number of cached keys that were not found
+	 * 
+	 * @return number of keys
+	 */
+	
+	public int getNegativeCacheEntries() {
+		return negativeCacheEntries;
+	}
+
+	/**
+	 * Gets the max time the key is answered as not found without the read
+	 * 
+	 * @return time in milliseconds
+	 */
+	
+	public int getNegativeCacheTtlMls() {
+		return negativeCacheTtlMls;
+	}
+
+	/**
+	 * Gets the target false positive rate of the key filter
+	 * 
+	 * @return rate between 0 and 1
+	 */
+	
+	public double getKeyFilterFpp() {
+		return keyFilterFpp;
+	}
+
+	/**
+	 * Gets the memory of the key filter of one view, the number of keys the filter holds
+	 * at the target false positive rate depends on it
+	 * 
+	 * @return size in bytes
+	 */
+	
+	public long getKeyFilterBytes() {
+		return keyFilterBytes;
+	}
 
 	public static final class Builder {
 
 		private String host;
 		private int port;
+		private final List<String> endpoints = new ArrayList<String>();
 		private boolean useSsl;
 		private String sslKeys;
+		private int poolSize = 1;
+		private int deadlineMls;
+		private boolean useEpoll = true;
+		private int eventLoopThreads;
+		private int executorThreads;
+		private boolean useSharedTransport = true;
+		private boolean useHedging;
+		private int hedgeDelayMls = 10;
+		private int hedgePercentile = 95;
+		private int hedgeBudgetPercent = 10;
+		private boolean useSingleFlight;
+		private boolean useBatching;
+		private int batchLingerMls = 1;
+		private int batchSize = 128;
+		private boolean useWriteBehind;
+		private int writeBehindStreams = 1;
+		private int writeBehindFlushMls = 5;
+		private long writeBehindPendingBytes = 1024 * 1024;
+		private int multiGetChunkKeys = 1000;
+		private int multiGetChunkBytes = 1024 * 1024;
+		private int multiGetConcurrency = 8;
+		private boolean useNearCache;
+		private final List<String> nearCacheViews = new ArrayList<String>();
+		private int nearCacheEntries = 10000;
+		private long nearCacheBytes = 64 * 1024 * 1024;
+		private int nearCacheTtlMls = 1000;
+		private boolean useNearCacheRevalidation;
+		private int nearCacheStaleMls = 60000;
+		private boolean useNearCacheOffHeap;
+		private long nearCacheOffHeapBytes = 1024L * 1024 * 1024;
+		private int nearCacheSlabBytes = 4 * 1024 * 1024;
+		private final List<String> negativeCacheViews = new ArrayList<String>();
+		private int negativeCacheEntries = 10000;
+		private int negativeCacheTtlMls = 100;
+		private double keyFilterFpp = 0.01;
+		private long keyFilterBytes = 1024 * 1024;
 
 		public String getHost() {
 			return host;
@@ -66,6 +512,14 @@ public final class GkvsConfig {
 			this.port = port;
 		}
 
+		public List<String> getEndpoints() {
+			return endpoints;
+		}
+
+		public void addEndpoint(String hostAndPort) {
+			this.endpoints.add(hostAndPort);
+		}
+
 		public boolean useSsl() {
 			return useSsl;
 		}
@@ -82,6 +536,294 @@ public final class GkvsConfig {
 			this.sslKeys = sslKeys;
 		}
 
+		public int getPoolSize() {
+			return poolSize;
+		}
+
+		public void setPoolSize(int poolSize) {
+			this.poolSize = poolSize;
+		}
+
+		public int getDeadlineMls() {
+			return deadlineMls;
+		}
+
+		public void setDeadlineMls(int deadlineMls) {
+			this.deadlineMls = deadlineMls;
+		}
+
+		public boolean useEpoll() {
+			return useEpoll;
+		}
+
+		public void useEpoll(boolean useEpoll) {
+			this.useEpoll = useEpoll;
+		}
+
+		public int getEventLoopThreads() {
+			return eventLoopThreads;
+		}
+
+		public void setEventLoopThreads(int eventLoopThreads) {
+			this.eventLoopThreads = eventLoopThreads;
+		}
+
+		public int getExecutorThreads() {
+			return executorThreads;
+		}
+
+		public void setExecutorThreads(int executorThreads) {
+			this.executorThreads = executorThreads;
+		}
+
+		public boolean useSharedTransport() {
+			return useSharedTransport;
+		}
+
+		public void useSharedTransport(boolean useSharedTransport) {
+			this.useSharedTransport = useSharedTransport;
+		}
+
+		public boolean useHedging() {
+			return useHedging;
+		}
+
+		public void useHedging(boolean useHedging) {
+			this.useHedging = useHedging;
+		}
+
+		public int getHedgeDelayMls() {
+			return hedgeDelayMls;
+		}
+
+		public void setHedgeDelayMls(int hedgeDelayMls) {
+			this.hedgeDelayMls = hedgeDelayMls;
+		}
+
+		public int getHedgePercentile() {
+			return hedgePercentile;
+		}
+
+		public void setHedgePercentile(int hedgePercentile) {
+			this.hedgePercentile = hedgePercentile;
+		}
+
+		public int getHedgeBudgetPercent() {
+			return hedgeBudgetPercent;
+		}
+
+		public void setHedgeBudgetPercent(int hedgeBudgetPercent) {
+			this.hedgeBudgetPercent = hedgeBudgetPercent;
+		}
+
+		public boolean useSingleFlight() {
+			return useSingleFlight;
+		}
+
+		public void useSingleFlight(boolean useSingleFlight) {
+			this.useSingleFlight = useSingleFlight;
+		}
+
+		public boolean useBatching() {
+			return useBatching;
+		}
+
+		public void useBatching(boolean useBatching) {
+			this.useBatching = useBatching;
+		}
+
+		public int getBatchLingerMls() {
+			return batchLingerMls;
+		}
+
+		public void setBatchLingerMls(int batchLingerMls) {
+			this.batchLingerMls = batchLingerMls;
+		}
+
+		public int getBatchSize() {
+			return batchSize;
+		}
+
+		public void setBatchSize(int batchSize) {
+			this.batchSize = batchSize;
+		}
+
+		public boolean useWriteBehind() {
+			return useWriteBehind;
+		}
+
+		public void useWriteBehind(boolean useWriteBehind) {
+			this.useWriteBehind = useWriteBehind;
+		}
+
+		public int getWriteBehindStreams() {
+			return writeBehindStreams;
+		}
+
+		public void setWriteBehindStreams(int writeBehindStreams) {
+			this.writeBehindStreams = writeBehindStreams;
+		}
+
+		public int getWriteBehindFlushMls() {
+			return writeBehindFlushMls;
+		}
+
+		public void setWriteBehindFlushMls(int writeBehindFlushMls) {
+			this.writeBehindFlushMls = writeBehindFlushMls;
+		}
+
+		public long getWriteBehindPendingBytes() {
+			return writeBehindPendingBytes;
+		}
+
+		public void setWriteBehindPendingBytes(long writeBehindPendingBytes) {
+			this.writeBehindPendingBytes = writeBehindPendingBytes;
+		}
+
+		public int getMultiGetChunkKeys() {
+			return multiGetChunkKeys;
+		}
+
+		public void setMultiGetChunkKeys(int multiGetChunkKeys) {
+			this.multiGetChunkKeys = multiGetChunkKeys;
+		}
+
+		public int getMultiGetChunkBytes() {
+			return multiGetChunkBytes;
+		}
+
+		public void setMultiGetChunkBytes(int multiGetChunkBytes) {
+			this.multiGetChunkBytes = multiGetChunkBytes;
+		}
+
+		public int getMultiGetConcurrency() {
+			return multiGetConcurrency;
+		}
+
+		public void setMultiGetConcurrency(int multiGetConcurrency) {
+			this.multiGetConcurrency = multiGetConcurrency;
+		}
+
+		public boolean useNearCache() {
+			return useNearCache;
+		}
+
+		public void useNearCache(boolean useNearCache) {
+			this.useNearCache = useNearCache;
+		}
+
+		public List<String> getNearCacheViews() {
+			return nearCacheViews;
+		}
+
+		public void addNearCacheView(String viewName) {
+			this.nearCacheViews.add(viewName);
+		}
+
+		public int getNearCacheEntries() {
+			return nearCacheEntries;
+		}
+
+		public void setNearCacheEntries(int nearCacheEntries) {
+			this.nearCacheEntries = nearCacheEntries;
+		}
+
+		public long getNearCacheBytes() {
+			return nearCacheBytes;
+		}
+
+		public void setNearCacheBytes(long nearCacheBytes) {
+			this.nearCacheBytes = nearCacheBytes;
+		}
+
+		public int getNearCacheTtlMls() {
+			return nearCacheTtlMls;
+		}
+
+		public void setNearCacheTtlMls(int nearCacheTtlMls) {
+			this.nearCacheTtlMls = nearCacheTtlMls;
+		}
+
+		public boolean useNearCacheRevalidation() {
+			return useNearCacheRevalidation;
+		}
+
+		public void useNearCacheRevalidation(boolean useNearCacheRevalidation) {
+			this.useNearCacheRevalidation = useNearCacheRevalidation;
+		}
+
+		public int getNearCacheStaleMls() {
+			return nearCacheStaleMls;
+		}
+
+		public void setNearCacheStaleMls(int nearCacheStaleMls) {
+			this.nearCacheStaleMls = nearCacheStaleMls;
+		}
+
+		public boolean useNearCacheOffHeap() {
+			return useNearCacheOffHeap;
+		}
+
+		public void useNearCacheOffHeap(boolean useNearCacheOffHeap) {
+			this.useNearCacheOffHeap = useNearCacheOffHeap;
+		}
+
+		public long getNearCacheOffHeapBytes() {
+			return nearCacheOffHeapBytes;
+		}
+
+		public void setNearCacheOffHeapBytes(long nearCacheOffHeapBytes) {
+			this.nearCacheOffHeapBytes = nearCacheOffHeapBytes;
+		}
+
+		public int getNearCacheSlabBytes() {
+			return nearCacheSlabBytes;
+		}
+
+		public void setNearCacheSlabBytes(int nearCacheSlabBytes) {
+			this.nearCacheSlabBytes = nearCacheSlabBytes;
+		}
+
+		public List<String> getNegativeCacheViews() {
+			return negativeCacheViews;
+		}
+
+		public void addNegativeCacheView(String viewName) {
+			this.negativeCacheViews.add(viewName);
+		}
+
+		public int getNegativeCacheEntries() {
+			return negativeCacheEntries;
+		}
+
+		public void setNegativeCacheEntries(int negativeCacheEntries) {
+			this.negativeCacheEntries = negativeCacheEntries;
+		}
+
+		public int getNegativeCacheTtlMls() {
+			return negativeCacheTtlMls;
+		}
+
+		public void setNegativeCacheTtlMls(int negativeCacheTtlMls) {
+			this.negativeCacheTtlMls = negativeCacheTtlMls;
+		}
+
+		public double getKeyFilterFpp() {
+			return keyFilterFpp;
+		}
+
+		public void setKeyFilterFpp(double keyFilterFpp) {
+			this.keyFilterFpp = keyFilterFpp;
+		}
+
+		public long getKeyFilterBytes() {
+			return keyFilterBytes;
+		}
+
+		public void setKeyFilterBytes(long keyFilterBytes) {
+			this.keyFilterBytes = keyFilterBytes;
+		}
+
 		public GkvsConfig build() {
 			return new GkvsConfig(this);
 		}
@@ -94,15 +836,18 @@ public final class GkvsConfig {
 		
 		builder.setHost(props.getProperty("gkvs.host", "localhost"));
 		
-		int port;
-		try {
-			port = Integer.parseInt(props.getProperty("gkvs.port", "4040"));
-		}
-		catch(NumberFormatException e) {
-			throw new IllegalStateException("unable parse gkvs.port property", e);
+		builder.setPort(getInt(props, "gkvs.port", "4040"));
+		
+		String endpoints = props.getProperty("gkvs.endpoints");
+		if (endpoints != null) {
+			for (String endpoint : endpoints.split(",")) {
+				endpoint = endpoint.trim();
+				if (!endpoint.isEmpty()) {
+					builder.addEndpoint(endpoint);
+				}
+			}
 		}
 		
-		builder.setPort(port);
 		builder.useSsl(Boolean.parseBoolean(props.getProperty("gkvs.ssl.enabled", "false")));
 	
 		String keys = props.getProperty("gkvs.ssl.keys");
@@ -118,7 +863,110 @@ public final class GkvsConfig {
 		
 		builder.setSslKeys(keys);
 		
+		int poolSize = getInt(props, "gkvs.pool.size", "1");
+		if (poolSize < 1) {
+			throw new IllegalStateException("gkvs.pool.size must be positive: " + poolSize);
+		}
+		
+		builder.setPoolSize(poolSize);
+		
+		builder.setDeadlineMls(getInt(props, "gkvs.deadline.ms", "0"));
+		
+		builder.useEpoll(Boolean.parseBoolean(props.getProperty("gkvs.transport.epoll", "true")));
+		builder.setEventLoopThreads(getInt(props, "gkvs.transport.threads", "0"));
+		builder.setExecutorThreads(getInt(props, "gkvs.transport.executor.threads", "0"));
+		builder.useSharedTransport(Boolean.parseBoolean(props.getProperty("gkvs.transport.shared", "true")));
+		
+		builder.useHedging(Boolean.parseBoolean(props.getProperty("gkvs.hedge.enabled", "false")));
+		builder.setHedgeDelayMls(getInt(props, "gkvs.hedge.delay.ms", "10"));
+		builder.setHedgePercentile(getInt(props, "gkvs.hedge.percentile", "95"));
+		builder.setHedgeBudgetPercent(getInt(props, "gkvs.hedge.budget.percent", "10"));
+		
+		builder.useSingleFlight(Boolean.parseBoolean(props.getProperty("gkvs.singleflight.enabled", "false")));
+		
+		builder.useBatching(Boolean.parseBoolean(props.getProperty("gkvs.batch.enabled", "false")));
+		builder.setBatchLingerMls(getInt(props, "gkvs.batch.linger.ms", "1"));
+		builder.setBatchSize(getInt(props, "gkvs.batch.size", "128"));
+		
+		builder.useWriteBehind(Boolean.parseBoolean(props.getProperty("gkvs.writebehind.enabled", "false")));
+		builder.setWriteBehindStreams(getInt(props, "gkvs.writebehind.streams", "1"));
+		builder.setWriteBehindFlushMls(getInt(props, "gkvs.writebehind.flush.ms", "5"));
+		builder.setWriteBehindPendingBytes(getInt(props, "gkvs.writebehind.pending.bytes", "1048576"));
+		
+		builder.setMultiGetChunkKeys(getInt(props, "gkvs.multiget.chunk.keys", "1000"));
+		builder.setMultiGetChunkBytes(getInt(props, "gkvs.multiget.chunk.bytes", "1048576"));
+		builder.setMultiGetConcurrency(getInt(props, "gkvs.multiget.concurrency", "8"));
+		
+		builder.useNearCache(Boolean.parseBoolean(props.getProperty("gkvs.nearcache.enabled", "false")));
+		
+		for (String view : getList(props, "gkvs.nearcache.views")) {
+			builder.addNearCacheView(view);
+		}
+		
+		builder.setNearCacheEntries(getInt(props, "gkvs.nearcache.entries", "10000"));
+		builder.setNearCacheBytes(getLong(props, "gkvs.nearcache.bytes", "67108864"));
+		builder.setNearCacheTtlMls(getInt(props, "gkvs.nearcache.ttl.ms", "1000"));
+		builder.useNearCacheRevalidation(Boolean.parseBoolean(props.getProperty("gkvs.nearcache.revalidate.enabled", "false")));
+		builder.setNearCacheStaleMls(getInt(props, "gkvs.nearcache.stale.ms", "60000"));
+		builder.useNearCacheOffHeap(Boolean.parseBoolean(props.getProperty("gkvs.nearcache.offheap.enabled", "false")));
+		builder.setNearCacheOffHeapBytes(getLong(props, "gkvs.nearcache.offheap.bytes", "1073741824"));
+		builder.setNearCacheSlabBytes(getInt(props, "gkvs.nearcache.offheap.slab.bytes", "4194304"));
+		
+		for (String view : getList(props, "gkvs.negativecache.views")) {
+			builder.addNegativeCacheView(view);
+		}
+		
+		builder.setNegativeCacheEntries(getInt(props, "gkvs.negativecache.entries", "10000"));
+		builder.setNegativeCacheTtlMls(getInt(props, "gkvs.negativecache.ttl.ms", "100"));
+		
+		builder.setKeyFilterFpp(getDouble(props, "gkvs.keyfilter.fpp", "0.01"));
+		builder.setKeyFilterBytes(getLong(props, "gkvs.keyfilter.bytes", "1048576"));
+		
 		return builder.build();
 	}
 
+	private static int getInt(Properties props, String name, String defaultValue) {
+		try {
+			return Integer.parseInt(props.getProperty(name, defaultValue));
+		}
+		catch(NumberFormatException e) {
+			throw new IllegalStateException("unable parse " + name + " property", e);
+		}
+	}
+
+	private static long getLong(Properties props, String name, String defaultValue) {
+		try {
+			return Long.parseLong(props.getProperty(name, defaultValue));
+		}
+		catch(NumberFormatException e) {
+			throw new IllegalStateException("unable parse " + name + " property", e);
+		}
+	}
+
+	private static double getDouble(Properties props, String name, String defaultValue) {
+		try {
+			return Double.parseDouble(props.getProperty(name, defaultValue));
+		}
+		catch(NumberFormatException e) {
+			throw new IllegalStateException("unable parse " + name + " property", e);
+		}
+	}
+
+	private static List<String> getList(Properties props, String name) {
+		
+		List<String> list = new ArrayList<String>();
+		
+		String value = props.getProperty(name);
+		if (value != null) {
+			for (String item : value.split(",")) {
+				item = item.trim();
+				if (!item.isEmpty()) {
+					list.add(item);
+				}
+			}
+		}
+		
+		return list;
+	}
+
 }
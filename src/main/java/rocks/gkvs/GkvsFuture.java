@@ -18,12 +18,16 @@
 package rocks.gkvs;
 
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Executor;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
+import java.util.function.BiConsumer;
 import java.util.function.Consumer;
 
+import javax.annotation.Nullable;
+
 import com.google.common.util.concurrent.FutureCallback;
 import com.google.common.util.concurrent.Futures;
 import com.google.common.util.concurrent.ListenableFuture;
@@ -43,18 +47,57 @@ import com.google.common.util.concurrent.MoreExecutors;
 
 public class GkvsFuture<T> extends CompletableFuture<T> {
 
-	private final ListenableFuture<T> delegate; 
+	private final @Nullable ListenableFuture<T> delegate; 
 	
 	protected GkvsFuture(ListenableFuture<T> delegate) {
 		this.delegate = delegate;
 		addCallbacks(this::complete, this::completeExceptionally);
 	}
+	
+	/**
+	 * Creates the future without the delegate, the subclass completes it directly
+	 */
+	
+	protected GkvsFuture() {
+		this.delegate = null;
+	}
     
 	protected static <T> GkvsFuture<T> from(ListenableFuture<T> delegate) {
 		return new GkvsFuture<T>(delegate);
 	}
 	
+	/**
+	 * Creates the completed future
+	 * 
+	 * @param value - result
+	 * @return completed future
+	 */
+	
+	protected static <T> GkvsFuture<T> completed(T value) {
+		GkvsFuture<T> future = new GkvsFuture<T>();
+		future.complete(value);
+		return future;
+	}
+	
     public void addCallbacks(Consumer<T> successCallback, Consumer<Throwable> failureCallback) {
+    	
+    	if (delegate == null) {
+    		whenComplete(new BiConsumer<T, Throwable>() {
+
+				@Override
+				public void accept(T result, Throwable t) {
+					if (t == null) {
+						successCallback.accept(result);
+					}
+					else {
+						failureCallback.accept(t instanceof CompletionException && t.getCause() != null ? t.getCause() : t);
+					}
+				}
+    			
+    		});
+    		return;
+    	}
+    	
         Futures.addCallback(delegate, new FutureCallback<T>() {
             @Override
             public void onSuccess(T result) {
@@ -69,10 +112,17 @@ public class GkvsFuture<T> extends CompletableFuture<T> {
         }, MoreExecutors.directExecutor());
     }
     
+	/**
+	 * Cancels the future and the underlying gRPC call, the server stops the work as soon as it receives RST_STREAM
+	 */
+	
 	@Override
 	public boolean cancel(boolean mayInterruptIfRunning) {
         if (isDone()) {
             return false;
+        }
+        if (delegate == null) {
+        	return super.cancel(mayInterruptIfRunning);
         }
 		 boolean result = delegate.cancel(mayInterruptIfRunning);
 	     super.cancel(mayInterruptIfRunning);
@@ -81,22 +131,22 @@ public class GkvsFuture<T> extends CompletableFuture<T> {
 
 	@Override
 	public boolean isCancelled() {
-		return delegate.isCancelled();
+		return delegate != null ? delegate.isCancelled() : super.isCancelled();
 	}
 
 	@Override
 	public boolean isDone() {
-		return delegate.isDone();
+		return delegate != null ? delegate.isDone() : super.isDone();
 	}
 
 	@Override
 	public T get() throws InterruptedException, ExecutionException {
-		return delegate.get();
+		return delegate != null ? delegate.get() : super.get();
 	}
 	
 	public T getUnchecked() {
 		try {
-			return delegate.get();
+			return get();
 		} catch (InterruptedException | ExecutionException e) {
 			throw new GkvsException("future exception", e);
 		}
@@ -104,22 +154,35 @@ public class GkvsFuture<T> extends CompletableFuture<T> {
 
 	@Override
 	public T get(long timeout, TimeUnit unit) throws InterruptedException, ExecutionException, TimeoutException {
-		return delegate.get(timeout, unit);
+		return delegate != null ? delegate.get(timeout, unit) : super.get(timeout, unit);
 	}
 	
 	public T getUnchecked(long timeout, TimeUnit unit) {
 		try {
-			return delegate.get(timeout, unit);
+			return get(timeout, unit);
 		} catch (InterruptedException | ExecutionException | TimeoutException e) {
 			throw new GkvsException("future exception", e);
 		}
 	}
 	
 	public void addListener(Runnable listener) {
-		delegate.addListener(listener, MoreExecutors.directExecutor());	
+		addListener(listener, MoreExecutors.directExecutor());	
 	}
 	
-	public void addListener(Runnable listener, Executor executor) {
+	public void addListener(final Runnable listener, Executor executor) {
+		
+		if (delegate == null) {
+			whenCompleteAsync(new BiConsumer<T, Throwable>() {
+
+				@Override
+				public void accept(T result, Throwable t) {
+					listener.run();
+				}
+				
+			}, executor);
+			return;
+		}
+		
 		delegate.addListener(listener, executor);	
 	}
 	
@@ -0,0 +1,197 @@
+/*
+ *
+ * Copyright 2018-present GKVS authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package rocks.gkvs;
+
+import java.io.Closeable;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.Nullable;
+
+import io.grpc.netty.NettyChannelBuilder;
+import io.netty.channel.Channel;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.epoll.Epoll;
+import io.netty.channel.epoll.EpollEventLoopGroup;
+import io.netty.channel.epoll.EpollSocketChannel;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.socket.nio.NioSocketChannel;
+import io.netty.util.concurrent.DefaultThreadFactory;
+
+/**
+ *
+ * GkvsTransport
+ *
+ * Netty event-loop group and gRPC executor, could be shared by many clients
+ *
+ * Uses native epoll transport on Linux and falls back to NIO everywhere else
+ *
+ */
+
+public final class GkvsTransport implements Closeable {
+
+	private static final Map<String, GkvsTransport> shared = new HashMap<>();
+
+	private final EventLoopGroup eventLoopGroup;
+	private final Class<? extends Channel> channelType;
+	private final @Nullable ExecutorService executor;
+	private final boolean epoll;
+
+	private @Nullable String sharedId;
+	private int refCnt = 1;
+
+	private GkvsTransport(boolean useEpoll, int eventLoopThreads, int executorThreads) {
+
+		this.epoll = useEpoll && Epoll.isAvailable();
+
+		if (epoll) {
+			this.eventLoopGroup = new EpollEventLoopGroup(eventLoopThreads, new DefaultThreadFactory("gkvs-epoll", true));
+			this.channelType = EpollSocketChannel.class;
+		}
+		else {
+			this.eventLoopGroup = new NioEventLoopGroup(eventLoopThreads, new DefaultThreadFactory("gkvs-nio", true));
+			this.channelType = NioSocketChannel.class;
+		}
+
+		if (executorThreads > 0) {
+			this.executor = Executors.newFixedThreadPool(executorThreads, new DefaultThreadFactory("gkvs-executor", true));
+		}
+		else {
+			// gRPC default cached executor
+			this.executor = null;
+		}
+
+	}
+
+	/**
+	 * Creates new transport owned by the caller
+	 *
+	 * @param useEpoll - use native epoll transport if available
+	 * @param eventLoopThreads - number of event loop threads, 0 is Netty default
+	 * @param executorThreads - number of executor threads, 0 is gRPC default
+	 * @return new transport
+	 */
+
+	public static GkvsTransport create(boolean useEpoll, int eventLoopThreads, int executorThreads) {
+		return new GkvsTransport(useEpoll, eventLoopThreads, executorThreads);
+	}
+
+	public static GkvsTransport create(GkvsConfig config) {
+		return create(config.useEpoll(), config.getEventLoopThreads(), config.getExecutorThreads());
+	}
+
+	/**
+	 * Gets the shared transport for the same settings, the caller must close it when done
+	 *
+	 * @param config - client configuration
+	 * @return retained transport
+	 */
+
+	public static GkvsTransport shared(GkvsConfig config) {
+
+		String id = config.useEpoll() + ":" + config.getEventLoopThreads() + ":" + config.getExecutorThreads();
+
+		synchronized (shared) {
+
+			GkvsTransport transport = shared.get(id);
+
+			if (transport != null) {
+				return transport.retain();
+			}
+
+			transport = create(config);
+			transport.sharedId = id;
+			shared.put(id, transport);
+			return transport;
+		}
+
+	}
+
+	protected static GkvsTransport acquire(GkvsConfig config) {
+		return config.useSharedTransport() ? shared(config) : create(config);
+	}
+
+	public boolean isEpoll() {
+		return epoll;
+	}
+
+	public EventLoopGroup getEventLoopGroup() {
+		return eventLoopGroup;
+	}
+
+	protected NettyChannelBuilder configure(NettyChannelBuilder builder) {
+
+		builder.eventLoopGroup(eventLoopGroup).channelType(channelType);
+
+		if (executor != null) {
+			builder.executor(executor);
+		}
+
+		return builder;
+	}
+
+	public GkvsTransport retain() {
+		synchronized (shared) {
+			if (refCnt == 0) {
+				throw new IllegalStateException("transport is closed");
+			}
+			refCnt++;
+		}
+		return this;
+	}
+
+	public void release() {
+
+		synchronized (shared) {
+
+			if (refCnt == 0) {
+				return;
+			}
+
+			if (--refCnt > 0) {
+				return;
+			}
+
+			if (sharedId != null) {
+				shared.remove(sharedId);
+			}
+
+		}
+
+		eventLoopGroup.shutdownGracefully(0, 5, TimeUnit.SECONDS);
+
+		if (executor != null) {
+			executor.shutdown();
+		}
+
+	}
+
+	@Override
+	public void close() {
+		release();
+	}
+
+	@Override
+	public String toString() {
+		return "GkvsTransport [epoll=" + epoll + ", sharedId=" + sharedId + "]";
+	}
+
+}
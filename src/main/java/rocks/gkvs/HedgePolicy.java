@@ -0,0 +1,158 @@
+/*
+ *
+ * Copyright 2018-present GKVS authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package rocks.gkvs;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ *
+ * HedgePolicy
+ *
+ * Delay before the duplicate read and the budget of duplicates
+ *
+ * Delay is fixed or tracks the percentile of recent latencies, but never less than the fixed one.
+ * Every request deposits the fraction of the token, every hedge spends the whole token,
+ * so during the outage hedges stop as soon as the budget is exhausted
+ *
+ */
+
+final class HedgePolicy {
+
+	private static final int SAMPLES = 1024;
+	private static final int RECALCULATE_EVERY = 128;
+
+	private static final long TOKEN = 1000L;
+	private static final long MAX_TOKENS = 10 * TOKEN;
+
+	private final long minDelayNanos;
+	private final int percentile;
+	private final long deposit;
+
+	private final AtomicLong tokens = new AtomicLong(MAX_TOKENS);
+
+	private final AtomicLongArray samples = new AtomicLongArray(SAMPLES);
+	private final AtomicLong recorded = new AtomicLong(0L);
+
+	private volatile long delayNanos;
+
+	protected HedgePolicy(int delayMls, int percentile, int budgetPercent) {
+
+		if (percentile < 0 || percentile >= 100) {
+			throw new IllegalArgumentException("invalid percentile: " + percentile);
+		}
+
+		if (budgetPercent < 0 || budgetPercent > 100) {
+			throw new IllegalArgumentException("invalid budget percent: " + budgetPercent);
+		}
+
+		this.minDelayNanos = TimeUnit.MILLISECONDS.toNanos(delayMls);
+		this.percentile = percentile;
+		this.deposit = TOKEN * budgetPercent / 100;
+		this.delayNanos = minDelayNanos;
+	}
+
+	protected static HedgePolicy fromConfig(GkvsConfig config) {
+		return new HedgePolicy(config.getHedgeDelayMls(), config.getHedgePercentile(), config.getHedgeBudgetPercent());
+	}
+
+	protected long getDelayNanos() {
+		return delayNanos;
+	}
+
+	/**
+	 * Deposits the budget for every original request
+	 */
+
+	protected void onRequest() {
+
+		while (true) {
+			long current = tokens.get();
+			if (current >= MAX_TOKENS) {
+				return;
+			}
+			if (tokens.compareAndSet(current, Math.min(MAX_TOKENS, current + deposit))) {
+				return;
+			}
+		}
+
+	}
+
+	/**
+	 * Spends the token on the duplicate request
+	 *
+	 * @return true if the budget allows to hedge
+	 */
+
+	protected boolean tryHedge() {
+
+		while (true) {
+			long current = tokens.get();
+			if (current < TOKEN) {
+				return false;
+			}
+			if (tokens.compareAndSet(current, current - TOKEN)) {
+				return true;
+			}
+		}
+
+	}
+
+	/**
+	 * Records the latency of the winning response
+	 *
+	 * @param latencyNanos - latency
+	 */
+
+	protected void record(long latencyNanos) {
+
+		if (percentile == 0) {
+			return;
+		}
+
+		long num = recorded.getAndIncrement();
+		samples.set((int) (num & (SAMPLES - 1)), latencyNanos);
+
+		if ((num + 1) % RECALCULATE_EVERY == 0) {
+			recalculate(Math.min(num + 1, SAMPLES));
+		}
+
+	}
+
+	private void recalculate(long count) {
+
+		int size = (int) count;
+		long[] sorted = new long[size];
+		for (int i = 0; i != size; ++i) {
+			sorted[i] = samples.get(i);
+		}
+
+		Arrays.sort(sorted);
+
+		long value = sorted[Math.min(size - 1, size * percentile / 100)];
+		delayNanos = Math.max(minDelayNanos, value);
+	}
+
+	@Override
+	public String toString() {
+		return "HedgePolicy [delayNanos=" + delayNanos + ", percentile=" + percentile + ", tokens=" + tokens.get() + "]";
+	}
+
+}
@@ -0,0 +1,147 @@
+/*
+ *
+ * Copyright 2018-present GKVS authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package rocks.gkvs;
+
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.google.common.base.Supplier;
+import com.google.common.util.concurrent.AbstractFuture;
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.MoreExecutors;
+
+import io.grpc.Context;
+
+/**
+ *
+ * HedgedFuture
+ *
+ * Sends the idempotent read and duplicates it if there is no response after the hedge delay
+ *
+ * The first successful response wins, the other call is cancelled,
+ * the error is delivered only when there are no more calls in flight
+ *
+ * @param <T>
+ */
+
+final class HedgedFuture<T> extends AbstractFuture<T> {
+
+	private final Supplier<ListenableFuture<T>> call;
+	private final HedgePolicy policy;
+
+	private final AtomicInteger inFlight = new AtomicInteger(0);
+
+	private volatile ListenableFuture<T> primary;
+	private volatile ListenableFuture<T> hedge;
+	private volatile Future<?> timer;
+
+	private HedgedFuture(Supplier<ListenableFuture<T>> call, HedgePolicy policy) {
+		this.call = call;
+		this.policy = policy;
+	}
+
+	protected static <T> ListenableFuture<T> start(Supplier<ListenableFuture<T>> call, HedgePolicy policy, ScheduledExecutorService scheduler) {
+
+		final HedgedFuture<T> future = new HedgedFuture<T>(call, policy);
+
+		policy.onRequest();
+		future.primary = future.send();
+
+		if (!future.isDone()) {
+			// hedge inherits the cancellation of the caller context
+			future.timer = scheduler.schedule(Context.current().wrap(new Runnable() {
+
+				@Override
+				public void run() {
+					future.hedge();
+				}
+
+			}), policy.getDelayNanos(), TimeUnit.NANOSECONDS);
+		}
+
+		future.addListener(new Runnable() {
+
+			@Override
+			public void run() {
+				future.cancelAll();
+			}
+
+		}, MoreExecutors.directExecutor());
+
+		return future;
+	}
+
+	private ListenableFuture<T> send() {
+
+		inFlight.incrementAndGet();
+
+		final long startTime = System.nanoTime();
+		ListenableFuture<T> attempt = call.get();
+
+		Futures.addCallback(attempt, new FutureCallback<T>() {
+
+			@Override
+			public void onSuccess(T result) {
+				inFlight.decrementAndGet();
+				if (set(result)) {
+					policy.record(System.nanoTime() - startTime);
+				}
+			}
+
+			@Override
+			public void onFailure(Throwable t) {
+				if (inFlight.decrementAndGet() == 0) {
+					setException(t);
+				}
+			}
+
+		}, MoreExecutors.directExecutor());
+
+		return attempt;
+	}
+
+	private void hedge() {
+
+		if (isDone() || inFlight.get() == 0 || !policy.tryHedge()) {
+			return;
+		}
+
+		hedge = send();
+
+		if (isDone()) {
+			hedge.cancel(true);
+		}
+	}
+
+	private void cancelAll() {
+		cancel(timer);
+		cancel(primary);
+		cancel(hedge);
+	}
+
+	private static void cancel(Future<?> future) {
+		if (future != null && !future.isDone()) {
+			future.cancel(true);
+		}
+	}
+
+}
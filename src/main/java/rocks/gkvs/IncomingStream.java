@@ -1,13 +1,23 @@
 package rocks.gkvs;
 
 import java.util.Iterator;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.Consumer;
+import java.util.function.LongConsumer;
 
+import javax.annotation.Nullable;
+
+import org.reactivestreams.Publisher;
+
+import io.grpc.Context.CancellableContext;
+import reactor.core.Disposable;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.FluxSink;
 import rx.Observable;
 import rx.Observable.OnSubscribe;
 import rx.Subscriber;
+import rx.functions.Action0;
+import rx.subscriptions.Subscriptions;
 
 /**
  * 
@@ -40,7 +50,19 @@ public abstract class IncomingStream<R> {
 	public abstract void async(Observer<R> observer);
 	
 	/**
-	 * Creates observable stream (RX-JAVA)
+	 * Async streaming call driven by the demand of the consumer
+	 * 
+	 * @param observer - receiver of data
+	 * @return receiver of the demand or null if the stream has no flow control
+	 */
+	
+	protected @Nullable LongConsumer asyncOnDemand(Observer<R> observer) {
+		async(observer);
+		return null;
+	}
+	
+	/**
+	 * Creates observable stream (RX-JAVA), unsubscribe cancels the call
 	 * 
 	 * @return stream
 	 */
@@ -52,7 +74,7 @@ public abstract class IncomingStream<R> {
 			@Override
 			public void call(final Subscriber<? super R> subscriber) {
 
-				async(new Observer<R>() {
+				final Observer<R> observer = new Observer<R>() {
 
 					@Override
 					public void onNext(R item) {
@@ -69,8 +91,26 @@ public abstract class IncomingStream<R> {
 						subscriber.onCompleted();
 					}
 					
+				};
+				
+				final CancellableContext context = CallContext.run(new Runnable() {
+
+					@Override
+					public void run() {
+						async(observer);
+					}
+					
 				});
 				
+				subscriber.add(Subscriptions.create(new Action0() {
+
+					@Override
+					public void call() {
+						CallContext.cancel(context);
+					}
+					
+				}));
+				
 			}
 			
 		});
@@ -79,7 +119,8 @@ public abstract class IncomingStream<R> {
 	
 	
 	/**
-	 * Creates Flux stream for the result (REACTOR)
+	 * Creates Flux stream for the result (REACTOR), cancel of the subscription cancels the call,
+	 * results of the flow controlled stream are requested by the demand of the subscriber
 	 * 
 	 * @return flux
 	 */
@@ -91,7 +132,7 @@ public abstract class IncomingStream<R> {
 			@Override
 			public void accept(final FluxSink<R> sink) {
 
-				async(new Observer<R>() {
+				final Observer<R> observer = new Observer<R>() {
 
 					@Override
 					public void onNext(R item) {
@@ -108,6 +149,30 @@ public abstract class IncomingStream<R> {
 						sink.complete();
 					}
 					
+				};
+				
+				final AtomicReference<LongConsumer> demand = new AtomicReference<LongConsumer>();
+				
+				final CancellableContext context = CallContext.run(new Runnable() {
+
+					@Override
+					public void run() {
+						demand.set(asyncOnDemand(observer));
+					}
+					
+				});
+				
+				if (demand.get() != null) {
+					sink.onRequest(demand.get());
+				}
+				
+				sink.onCancel(new Disposable() {
+
+					@Override
+					public void dispose() {
+						CallContext.cancel(context);
+					}
+					
 				});
 				
 			}
@@ -116,4 +181,54 @@ public abstract class IncomingStream<R> {
 		
 	}
 	
+	/**
+	 * Creates Reactive Streams publisher for the result, every subscriber starts the new call,
+	 * results are requested from the server by the demand of the subscriber, cancel of the subscription cancels the call
+	 * 
+	 * @return publisher
+	 */
+	
+	public Publisher<R> publisher() {
+		
+		return new Publisher<R>() {
+
+			@Override
+			public void subscribe(org.reactivestreams.Subscriber<? super R> subscriber) {
+				
+				if (subscriber == null) {
+					throw new NullPointerException("subscriber is null");
+				}
+				
+				final StreamSubscription<R> subscription = new StreamSubscription<R>(subscriber, null);
+				subscriber.onSubscribe(subscription);
+				
+				if (subscription.isCancelled()) {
+					return;
+				}
+				
+				final AtomicReference<LongConsumer> demand = new AtomicReference<LongConsumer>();
+				final CancellableContext context;
+				
+				try {
+					context = CallContext.run(new Runnable() {
+	
+						@Override
+						public void run() {
+							demand.set(asyncOnDemand(subscription));
+						}
+						
+					});
+				}
+				catch(RuntimeException e) {
+					subscription.onError(e);
+					return;
+				}
+				
+				subscription.attach(demand.get(), context);
+			}
+			
+		};
+		
+	}
+	
 }
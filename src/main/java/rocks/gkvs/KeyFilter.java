@@ -0,0 +1,218 @@
+/*
+ *
+ * Copyright 2018-present GKVS authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package rocks.gkvs;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hashing;
+
+/**
+ *
+ * KeyFilter
+ *
+ * Bloom filter of record keys of one view
+ *
+ * The filter is loaded by the key-only Scan and keeps keys written by Put of the client,
+ * so the key that is not in the filter is definitely absent. Removed keys stay in the filter,
+ * they only add false positives. The filter answers only after the load completes and
+ * while the number of keys fits the capacity of the target false positive rate.
+ *
+ */
+
+final class KeyFilter {
+
+	private static final HashFunction HASH = Hashing.murmur3_128();
+	private static final double LN2 = Math.log(2);
+
+	private final AtomicLongArray bits;
+	private final long numBits;
+	private final int numHashes;
+	private final long capacity;
+
+	private final LongAdder count = new LongAdder();
+	private final LongAdder hits = new LongAdder();
+	private volatile boolean ready;
+
+	/**
+	 * Creates the empty filter
+	 *
+	 * @param maxBytes - memory of the filter
+	 * @param fpp - target false positive rate
+	 */
+
+	protected KeyFilter(long maxBytes, double fpp) {
+
+		if (fpp <= 0 || fpp >= 1) {
+			throw new IllegalArgumentException("invalid key filter fpp: " + fpp);
+		}
+
+		if (maxBytes < 8) {
+			throw new IllegalArgumentException("invalid key filter bytes: " + maxBytes);
+		}
+
+		int words = (int) Math.min(maxBytes / 8, Integer.MAX_VALUE - 8);
+
+		this.bits = new AtomicLongArray(words);
+		this.numBits = words * 64L;
+		this.numHashes = Math.max(1, (int) Math.round(-Math.log(fpp) / LN2));
+		this.capacity = (long) (numBits * LN2 * LN2 / -Math.log(fpp));
+	}
+
+	protected static KeyFilter fromConfig(GkvsConfig config) {
+		return new KeyFilter(config.getKeyFilterBytes(), config.getKeyFilterFpp());
+	}
+
+	/**
+	 * Adds the key, called before the write of the key is sent
+	 *
+	 * The key is counted only if it set a new bit, so writes of the same key do not exhaust the capacity
+	 *
+	 * @param key - record key
+	 */
+
+	protected void add(Key key) {
+
+		ByteBuffer hash = hash(key);
+		long h1 = hash.getLong(0);
+		long h2 = hash.getLong(8);
+
+		boolean added = false;
+
+		long combined = h1;
+		for (int i = 0; i != numHashes; ++i) {
+			long bit = (combined & Long.MAX_VALUE) % numBits;
+			added |= set(bit);
+			combined += h2;
+		}
+
+		if (added) {
+			count.increment();
+		}
+	}
+
+	/**
+	 * Checks that the key can be in the view
+	 *
+	 * @param key - record key
+	 * @return false if the key was never added
+	 */
+
+	protected boolean mightContain(Key key) {
+
+		ByteBuffer hash = hash(key);
+		long h1 = hash.getLong(0);
+		long h2 = hash.getLong(8);
+
+		long combined = h1;
+		for (int i = 0; i != numHashes; ++i) {
+			long bit = (combined & Long.MAX_VALUE) % numBits;
+			if (!get(bit)) {
+				return false;
+			}
+			combined += h2;
+		}
+
+		return true;
+	}
+
+	/**
+	 * Checks that the key is definitely absent
+	 *
+	 * @param key - record key
+	 * @return true if the loaded filter does not contain the key
+	 */
+
+	protected boolean isAbsent(Key key) {
+
+		if (!ready || count.sum() > capacity) {
+			return false;
+		}
+
+		if (!mightContain(key)) {
+			hits.increment();
+			return true;
+		}
+
+		return false;
+	}
+
+	/**
+	 * Marks the filter loaded
+	 */
+
+	protected void ready() {
+		this.ready = true;
+	}
+
+	protected boolean isReady() {
+		return ready;
+	}
+
+	protected long count() {
+		return count.sum();
+	}
+
+	protected long capacity() {
+		return capacity;
+	}
+
+	protected long hits() {
+		return hits.sum();
+	}
+
+	private static ByteBuffer hash(Key key) {
+		return ByteBuffer.wrap(HASH.hashBytes(key.getRecordKeyBytes()).asBytes()).order(ByteOrder.LITTLE_ENDIAN);
+	}
+
+	/**
+	 * Sets the bit
+	 *
+	 * @return true if the bit was not set
+	 */
+
+	private boolean set(long bit) {
+
+		int word = (int) (bit >>> 6);
+		long mask = 1L << bit;
+
+		long value;
+		do {
+			value = bits.get(word);
+			if ((value & mask) != 0) {
+				return false;
+			}
+		}
+		while (!bits.compareAndSet(word, value, value | mask));
+
+		return true;
+	}
+
+	private boolean get(long bit) {
+		return (bits.get((int) (bit >>> 6)) & (1L << bit)) != 0;
+	}
+
+	@Override
+	public String toString() {
+		return "KeyFilter [bits=" + numBits + ", hashes=" + numHashes + ", count=" + count.sum() + ", capacity=" + capacity + ", ready=" + ready + "]";
+	}
+
+}
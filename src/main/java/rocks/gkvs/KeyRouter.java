@@ -0,0 +1,132 @@
+/*
+ *
+ * Copyright 2018-present GKVS authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package rocks.gkvs;
+
+import java.util.List;
+
+import com.google.protobuf.ByteString;
+
+/**
+ *
+ * KeyRouter
+ *
+ * Rendezvous (highest random weight) hashing of the keys across endpoints
+ *
+ * Adding or removing the endpoint moves only keys that belong to it
+ *
+ */
+
+final class KeyRouter {
+
+	private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+	private static final long FNV_PRIME = 0x100000001b3L;
+
+	private final long[] seeds;
+
+	protected KeyRouter(List<String> endpoints) {
+
+		if (endpoints.isEmpty()) {
+			throw new IllegalArgumentException("empty endpoints");
+		}
+
+		this.seeds = new long[endpoints.size()];
+		for (int i = 0; i != seeds.length; ++i) {
+			seeds[i] = hash(endpoints.get(i));
+		}
+	}
+
+	protected int size() {
+		return seeds.length;
+	}
+
+	/**
+	 * Finds the endpoint for the key
+	 *
+	 * @param key - record key
+	 * @return index of the endpoint
+	 */
+
+	protected int route(Key key) {
+
+		int size = seeds.length;
+		if (size == 1) {
+			return 0;
+		}
+
+		long keyHash = hash(key);
+
+		int best = 0;
+		long bestScore = mix(keyHash ^ seeds[0]);
+
+		for (int i = 1; i != size; ++i) {
+			long score = mix(keyHash ^ seeds[i]);
+			if (Long.compareUnsigned(score, bestScore) > 0) {
+				best = i;
+				bestScore = score;
+			}
+		}
+
+		return best;
+	}
+
+	protected static long hash(Key key) {
+
+		long h = hash(FNV_OFFSET, key.getViewName());
+
+		// separator between view name and record key
+		h = (h ^ 0xFF) * FNV_PRIME;
+
+		ByteString recordKey = key.getRecordKey();
+		int size = recordKey.size();
+		for (int i = 0; i != size; ++i) {
+			h = (h ^ (recordKey.byteAt(i) & 0xFF)) * FNV_PRIME;
+		}
+
+		return h;
+	}
+
+	protected static long hash(String str) {
+		return hash(FNV_OFFSET, str);
+	}
+
+	private static long hash(long h, String str) {
+		int length = str.length();
+		for (int i = 0; i != length; ++i) {
+			char ch = str.charAt(i);
+			h = (h ^ (ch & 0xFF)) * FNV_PRIME;
+			h = (h ^ (ch >>> 8)) * FNV_PRIME;
+		}
+		return h;
+	}
+
+	/**
+	 * Finalizer of SplitMix64, spreads FNV bits over the whole word
+	 */
+
+	private static long mix(long z) {
+		z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+		z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+		return z ^ (z >>> 31);
+	}
+
+	@Override
+	public String toString() {
+		return "KeyRouter [endpoints=" + seeds.length + "]";
+	}
+
+}
@@ -17,6 +17,11 @@
  */
 package rocks.gkvs;
 
+import java.nio.ByteBuffer;
+
+import com.google.protobuf.ByteString;
+
+import rocks.gkvs.value.RawValue;
 import rocks.gkvs.value.Value;
 
 /**
@@ -53,6 +58,26 @@ public final class KeyValue {
 		return new KeyValue(key, value);
 	}
 	
+	/**
+	 * Creates the key-value of the pre-encoded msgpack value for PutAll, the payload is not parsed or copied
+	 * 
+	 * @param key - record key
+	 * @param msgpack - one msgpack value
+	 * @return key-value
+	 */
+	
+	public static KeyValue raw(Key key, byte[] msgpack) {
+		return new KeyValue(key, RawValue.wrap(msgpack));
+	}
+	
+	public static KeyValue raw(Key key, ByteBuffer msgpack) {
+		return new KeyValue(key, RawValue.wrap(msgpack));
+	}
+	
+	public static KeyValue raw(Key key, ByteString msgpack) {
+		return new KeyValue(key, RawValue.wrap(msgpack));
+	}
+	
 	public Key key() {
 		return key;
 	}
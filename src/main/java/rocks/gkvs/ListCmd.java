@@ -22,6 +22,7 @@ import java.util.List;
 
 import com.google.common.util.concurrent.ListenableFuture;
 
+import rocks.gkvs.protos.GenericStoreGrpc;
 import rocks.gkvs.protos.ListOperation;
 import rocks.gkvs.protos.ListResult;
 import rocks.gkvs.protos.ListType;
@@ -104,15 +105,23 @@ public final class ListCmd {
 	
 	private List<Entry> doSync() {
 		
-		ListResult result = instance.getBlockingStub().list(buildRequest());
-		
-		return Transformers.toEntryList(result);
+		GkvsChannel channel = instance.acquireChannel();
+		try {
+			ListResult result = channel.blockingUnary(GenericStoreGrpc.getListMethod(), instance.deadline(0), buildRequest());
+			return Transformers.toEntryList(result);
+		}
+		finally {
+			channel.release();
+		}
 		
 	}
 	
 	public GkvsFuture<List<Entry>> async() {
 		
-		ListenableFuture<ListResult> result = instance.getFutureStub().list(buildRequest());
+		ListOperation request = buildRequest();
+		
+		GkvsChannel channel = instance.acquireChannel();
+		ListenableFuture<ListResult> result = channel.track(channel.getFutureStub(instance.deadline(0)).list(request));
 		
 		return new GkvsFuture<List<Entry>>(Transformers.toEntryList(result));
 		
@@ -0,0 +1,105 @@
+/*
+ *
+ * Copyright 2018-present GKVS authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package rocks.gkvs;
+
+/**
+ *
+ * MergedObserver
+ *
+ * Merges many parallel streams in to the single observer
+ *
+ * Events are serialized, the first error terminates the output,
+ * completion is delivered when all forked streams and the producer are completed
+ *
+ * @param <T>
+ */
+
+final class MergedObserver<T> {
+
+	private final Observer<T> observer;
+
+	// producer holds one reference until complete()
+	private int active = 1;
+	private boolean done = false;
+
+	protected MergedObserver(Observer<T> observer) {
+		this.observer = observer;
+	}
+
+	/**
+	 * Creates observer for one more stream
+	 *
+	 * @return stream observer
+	 */
+
+	protected Observer<T> fork() {
+
+		synchronized (this) {
+			active++;
+		}
+
+		return new Observer<T>() {
+
+			@Override
+			public void onNext(T item) {
+				next(item);
+			}
+
+			@Override
+			public void onError(Throwable t) {
+				error(t);
+			}
+
+			@Override
+			public void onCompleted() {
+				complete();
+			}
+
+		};
+
+	}
+
+	protected synchronized boolean isDone() {
+		return done;
+	}
+
+	protected synchronized void next(T item) {
+		if (!done) {
+			observer.onNext(item);
+		}
+	}
+
+	protected synchronized void error(Throwable t) {
+		if (!done) {
+			done = true;
+			observer.onError(t);
+		}
+	}
+
+	/**
+	 * Completes the producer or the stream
+	 */
+
+	protected synchronized void complete() {
+		if (!done && --active == 0) {
+			done = true;
+			observer.onCompleted();
+		}
+	}
+
+}
@@ -18,19 +18,39 @@
 
 package rocks.gkvs;
 
-import java.util.HashMap;
+import java.util.ArrayList;
 import java.util.Iterator;
-import java.util.Map;
+import java.util.List;
+import java.util.function.Consumer;
 
+import javax.annotation.Nullable;
+
+import com.google.common.base.Function;
+import com.google.common.base.Supplier;
+import com.google.common.util.concurrent.AsyncFunction;
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.Futures;
 import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.MoreExecutors;
+
+import com.google.protobuf.CodedOutputStream;
 
-import rocks.gkvs.Transformers.KeyResolver;
+import io.grpc.Context.CancellableContext;
+import io.grpc.Deadline;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.FluxSink;
+import rocks.gkvs.ChunkedCall.Chunk;
+import rocks.gkvs.ChunkedCall.ChunkListener;
+import rocks.gkvs.Records.KeyIndex;
 import rocks.gkvs.protos.BatchKeyOperation;
 import rocks.gkvs.protos.BatchValueResult;
+import rocks.gkvs.protos.GenericStoreGrpc;
 import rocks.gkvs.protos.KeyOperation;
 import rocks.gkvs.protos.OperationHeader;
 import rocks.gkvs.protos.OutputOptions;
 import rocks.gkvs.protos.Select;
+import rocks.gkvs.protos.ValueResult;
 
 /**
  * 
@@ -47,23 +67,24 @@ public final class MultiGet extends One<Iterable<Record>> {
 
 	private final GkvsClient instance;
 	
-	private final Map<Long, Key> keys = new HashMap<>();
+	private final List<Key> keys = new ArrayList<Key>();
 	
 	private Select.Builder selectOrNull;
 	private boolean metadataOnly = false;
 	private int timeoutMls = 0;
+	private boolean hedge;
+	private int chunkKeys;
+	private int chunkBytes;
+	private int concurrency;
+	private boolean nearCache;
 
-	final KeyResolver keyResolver = new KeyResolver() {
-
-		@Override
-		public Key find(long tag) {
-			return keys.get(tag);
-		}
-		
-	};
-	
 	public MultiGet(GkvsClient instance) {
 		this.instance = instance;
+		this.hedge = instance.useHedging();
+		this.chunkKeys = instance.getMultiGetChunkKeys();
+		this.chunkBytes = instance.getMultiGetChunkBytes();
+		this.concurrency = instance.getMultiGetConcurrency();
+		this.nearCache = instance.useNearCache();
 	}
 	
 	public MultiGet withTimeout(int timeoutMls) {
@@ -71,16 +92,52 @@ public final class MultiGet extends One<Iterable<Record>> {
 		return this;
 	}
 	
+	/**
+	 * Sets the max number of keys in one call
+	 * 
+	 * @param chunkKeys - number of keys, 0 for unlimited
+	 * @return this
+	 */
+	
+	public MultiGet withChunkKeys(int chunkKeys) {
+		this.chunkKeys = chunkKeys;
+		return this;
+	}
+	
+	/**
+	 * Sets the max estimated size of one request
+	 * 
+	 * @param chunkBytes - size in bytes, 0 for unlimited
+	 * @return this
+	 */
+	
+	public MultiGet withChunkBytes(int chunkBytes) {
+		this.chunkBytes = chunkBytes;
+		return this;
+	}
+	
+	/**
+	 * Sets the max number of chunks in flight
+	 * 
+	 * @param concurrency - number of chunks
+	 * @return this
+	 */
+	
+	public MultiGet withConcurrency(int concurrency) {
+		this.concurrency = concurrency;
+		return this;
+	}
+	
 	public MultiGet setKeys(Key...keys) {
 		for (Key key : keys) {
-			this.keys.put(instance.nextTag(), key);
+			this.keys.add(key);
 		}
 		return this;
 	}
 	
 	public MultiGet setKeys(Iterator<Key> keys) {
 		while(keys.hasNext()) {
-			this.keys.put(instance.nextTag(), keys.next());
+			this.keys.add(keys.next());
 		}
 		return this;
 	}
@@ -91,7 +148,36 @@ public final class MultiGet extends One<Iterable<Record>> {
 	}
 	
 	public MultiGet addKey(Key key) {
-		this.keys.put(instance.nextTag(), key);
+		this.keys.add(key);
+		return this;
+	}
+	
+	/**
+	 * Enables or disables hedging of this read, takes effect only if the client has hedging enabled
+	 * 
+	 * @param hedge - send the duplicate batches to the slow read
+	 * @return this
+	 */
+	
+	public MultiGet hedge(boolean hedge) {
+		this.hedge = hedge;
+		return this;
+	}
+	
+	public MultiGet metadataOnly() {
+		this.metadataOnly = true;
+		return this;
+	}
+	
+	/**
+	 * Enables or disables the near cache for this read, takes effect only for keys of views cached by the client
+	 * 
+	 * @param nearCache - serve cached records and cache results
+	 * @return this
+	 */
+	
+	public MultiGet nearCache(boolean nearCache) {
+		this.nearCache = nearCache;
 		return this;
 	}
 	
@@ -134,39 +220,495 @@ public final class MultiGet extends One<Iterable<Record>> {
 		
 	}
 	
-	private BatchKeyOperation buildRequest() {
+	/**
+	 * Creates records of distinct keys, records found in the near cache and keys that are definitely absent are set
+	 * 
+	 * @param index - distinct keys
+	 * @return records
+	 */
+	
+	private Records newRecords(KeyIndex index) {
+		
+		NearCache cache = nearCache ? instance.getNearCache() : null;
+		NearCache.Fill fill = null;
+		
+		if (cache != null) {
+			Select select = selectOrNull != null ? selectOrNull.build() : Select.getDefaultInstance();
+			fill = cache.newFill(select, metadataOnly ? OutputOptions.METADATA : OutputOptions.VALUE);
+		}
+		
+		Records records = new Records(index, fill);
+		
+		for (int i = 0; i != index.keys.length; ++i) {
+			
+			Key key = index.keys[i];
+			
+			if (instance.isAbsent(key)) {
+				records.set(i, Transformers.notFound(key, i + 1));
+				continue;
+			}
+			
+			Record record = fill != null ? fill.get(key) : null;
+			if (record != null) {
+				records.set(i, record);
+				continue;
+			}
+			
+			Record stale = fill != null ? fill.getStale(key) : null;
+			if (stale != null) {
+				records.setStale(i, stale);
+			}
+		}
+		
+		return records;
+	}
+	
+	/**
+	 * Splits distinct keys without records by endpoints and then in to chunks by the number of keys and the estimated size,
+	 * the single empty chunk is created if there are no keys, no chunks if all records are cached
+	 * 
+	 * The tag of the key is its index plus one
+	 * 
+	 * @param index - distinct keys
+	 * @param records - records set so far
+	 * @return chunks
+	 */
+	
+	private List<Chunk> buildChunks(KeyIndex index, Records records) {
+		
+		List<Chunk> chunks = new ArrayList<Chunk>();
+		
+		if (index.keys.length == 0) {
+			chunks.add(new Chunk(0, BatchKeyOperation.getDefaultInstance()));
+			return chunks;
+		}
+		
+		BatchKeyOperation.Builder[] requests = new BatchKeyOperation.Builder[instance.getEndpointCount()];
+		int[] bytes = new int[requests.length];
+		
+		for (int i = 0; i != index.keys.length; ++i) {
+			
+			if (records.has(i)) {
+				continue;
+			}
+			
+			Key key = index.keys[i];
+			int endpoint = instance.route(key);
+			
+			KeyOperation request = buildRequest(i + 1, key).build();
+			int size = CodedOutputStream.computeMessageSize(BatchKeyOperation.OPERATION_FIELD_NUMBER, request);
+			
+			if (requests[endpoint] != null && isFull(requests[endpoint].getOperationCount(), bytes[endpoint] + size)) {
+				chunks.add(new Chunk(endpoint, requests[endpoint].build()));
+				requests[endpoint] = null;
+			}
+			
+			if (requests[endpoint] == null) {
+				requests[endpoint] = BatchKeyOperation.newBuilder();
+				bytes[endpoint] = 0;
+			}
+			
+			requests[endpoint].addOperation(request);
+			bytes[endpoint] += size;
+		}
+		
+		for (int i = 0; i != requests.length; ++i) {
+			if (requests[i] != null) {
+				chunks.add(new Chunk(i, requests[i].build()));
+			}
+		}
+		
+		return chunks;
+		
+	}
+	
+	private boolean isFull(int count, int bytes) {
+		return (chunkKeys > 0 && count >= chunkKeys) || (chunkBytes > 0 && bytes > chunkBytes);
+	}
+	
+	/**
+	 * Sends chunks in parallel and collects results
+	 * 
+	 * @param records - records to collect results in to
+	 * @param chunks - chunks of keys
+	 * @return future of all records
+	 */
+	
+	private ListenableFuture<Records> send(final Records records, List<Chunk> chunks, @Nullable Deadline deadline) {
+		
+		ListenableFuture<Void> done = ChunkedCall.start(instance, chunks, concurrency, deadline, new ChunkListener() {
+
+			@Override
+			public void onChunk(int chunk, BatchValueResult result) {
+				for (ValueResult valueResult : result.getResultList()) {
+					records.add(valueResult);
+				}
+			}
+			
+		});
+		
+		return Futures.transform(done, new Function<Void, Records>() {
+
+			@Override
+			public Records apply(Void input) {
+				return records.complete();
+			}
+			
+		});
+	}
+	
+	/**
+	 * Sends chunks, the whole set of chunks is duplicated if the hedge delay expires
+	 * 
+	 * @param records - cached records, every attempt collects results in to the copy
+	 * @param chunks - chunks of keys
+	 * @return future of all records
+	 */
+	
+	private ListenableFuture<Records> hedgedSend(final Records records, final List<Chunk> chunks, final @Nullable Deadline deadline) {
+		
+		return instance.hedge(new Supplier<ListenableFuture<Records>>() {
+
+			@Override
+			public ListenableFuture<Records> get() {
+				return send(records.copy(), chunks, deadline);
+			}
+			
+		});
+		
+	}
+	
+	private ListenableFuture<Records> sendRecords() {
+		KeyIndex index = new KeyIndex(keys);
+		return send(index, newRecords(index));
+	}
+	
+	/**
+	 * Revalidates stale records and then sends keys without records
+	 * 
+	 * @param index - distinct keys
+	 * @param records - records set so far
+	 * @return future of all records
+	 */
+	
+	private ListenableFuture<Records> send(final KeyIndex index, final Records records) {
+		
+		MultiGet revalidation = revalidation(records);
+		
+		if (revalidation == null) {
+			return sendMissing(index, records);
+		}
+		
+		return Futures.transformAsync(revalidation.sendRecords(), new AsyncFunction<Records, Records>() {
+
+			@Override
+			public ListenableFuture<Records> apply(Records metadata) {
+				records.revalidate(metadata);
+				return sendMissing(index, records);
+			}
+			
+		});
+	}
+	
+	private ListenableFuture<Records> sendMissing(KeyIndex index, Records records) {
 		
-		BatchKeyOperation.Builder builder = BatchKeyOperation.newBuilder();
+		List<Chunk> chunks = buildChunks(index, records);
+		Deadline deadline = instance.deadline(timeoutMls);
 		
-		for (Map.Entry<Long, Key> entry : keys.entrySet()) {
-			builder.addOperation(buildRequest(entry.getKey(), entry.getValue()));
+		if (chunks.isEmpty()) {
+			return Futures.immediateFuture(records.complete());
 		}
 		
-		return builder.build();
+		return hedge ? hedgedSend(records, chunks, deadline) : send(records, chunks, deadline);
+	}
+	
+	/**
+	 * Creates the metadata-only read of keys with stale records, the value of the key is read
+	 * only if the version changed
+	 * 
+	 * @param records - records set so far
+	 * @return read or null if there are no stale records
+	 */
+	
+	private @Nullable MultiGet revalidation(Records records) {
+		
+		List<Key> stale = records.getStaleKeys();
+		
+		if (stale.isEmpty()) {
+			return null;
+		}
 		
+		return new MultiGet(instance)
+				.setKeys(stale)
+				.metadataOnly()
+				.nearCache(false)
+				.hedge(hedge)
+				.withTimeout(timeoutMls)
+				.withChunkKeys(chunkKeys)
+				.withChunkBytes(chunkBytes)
+				.withConcurrency(concurrency);
 	}
 	
+	/**
+	 * Gets records in the order of keys, the result is also the view by key
+	 * 
+	 * @return records
+	 */
+	
 	@Override
-	public Iterable<Record> sync() {
+	public Records sync() {
 		
-		final BatchValueResult result = instance.getBlockingStub().multiGet(buildRequest());
-				
-		return Transformers.toRecords(result.getResultList(), keyResolver);
+		KeyIndex index = new KeyIndex(keys);
+		Records records = newRecords(index);
+		
+		MultiGet revalidation = revalidation(records);
+		if (revalidation != null) {
+			records.revalidate(revalidation.sync());
+		}
+		
+		List<Chunk> chunks = buildChunks(index, records);
+		Deadline deadline = instance.deadline(timeoutMls);
+		
+		if (chunks.isEmpty()) {
+			return records.complete();
+		}
+		
+		if (hedge) {
+			return GkvsFuture.from(hedgedSend(records, chunks, deadline)).getUnchecked();
+		}
+		
+		if (chunks.size() != 1) {
+			return GkvsFuture.from(send(records, chunks, deadline)).getUnchecked();
+		}
+		
+		Chunk chunk = chunks.get(0);
+		GkvsChannel channel = instance.acquireChannel(chunk.endpoint);
+		try {
+			BatchValueResult result = channel.blockingUnary(GenericStoreGrpc.getMultiGetMethod(), deadline, chunk.request);
+			for (ValueResult valueResult : result.getResultList()) {
+				records.add(valueResult);
+			}
+			return records.complete();
+		}
+		finally {
+			channel.release();
+		}
 		
 	}
 	
+	/**
+	 * Gets future of records, the result is {@link Records} 
+	 * 
+	 * @return future
+	 */
+	
+	@SuppressWarnings({ "unchecked", "rawtypes" })
 	@Override
 	public GkvsFuture<Iterable<Record>> async() {
+		// records are read-only, the future of records is the future of iterable
+		return (GkvsFuture) asyncRecords();
+	}
+	
+	/**
+	 * Gets future of records in the order of keys
+	 * 
+	 * @return future
+	 */
+	
+	public GkvsFuture<Records> asyncRecords() {
+		
+		KeyIndex index = new KeyIndex(keys);
+		final Records records = newRecords(index);
 		
-		ListenableFuture<BatchValueResult> result = instance.getFutureStub().multiGet(buildRequest());
+		if (records.hasStale()) {
+			return GkvsFuture.from(send(index, records));
+		}
+		
+		List<Chunk> chunks = buildChunks(index, records);
+		Deadline deadline = instance.deadline(timeoutMls);
 		
-		return GkvsFuture.from(Transformers.toBatchRecords(result, keyResolver));
+		if (chunks.isEmpty()) {
+			return GkvsFuture.completed(records.complete());
+		}
+		
+		if (hedge || chunks.size() != 1) {
+			return GkvsFuture.from(hedge ? hedgedSend(records, chunks, deadline) : send(records, chunks, deadline));
+		}
 		
+		Chunk chunk = chunks.get(0);
+		GkvsChannel channel = instance.acquireChannel(chunk.endpoint);
+		
+		return new UnaryCall<BatchKeyOperation, BatchValueResult, Records>(channel) {
+
+			@Override
+			protected Records decode(BatchValueResult result) {
+				for (ValueResult valueResult : result.getResultList()) {
+					records.add(valueResult);
+				}
+				return records.complete();
+			}
+			
+		}.start(GenericStoreGrpc.getMultiGetMethod(), deadline, chunk.request);
 	}
 	
+	@Override
+	protected void asyncSingle(Observer<Iterable<Record>> recordObserver) {
+		observe(sendRecords(), recordObserver);
+	}
+	
+	private void observe(ListenableFuture<Records> result, final Observer<Iterable<Record>> recordObserver) {
+		
+		Futures.addCallback(result, new FutureCallback<Records>() {
+
+			@Override
+			public void onSuccess(Records records) {
+				recordObserver.onNext(records);
+				recordObserver.onCompleted();
+			}
+
+			@Override
+			public void onFailure(Throwable t) {
+				recordObserver.onError(t);
+			}
+			
+		}, MoreExecutors.directExecutor());
+		
+	}
+	
+	/**
+	 * Gets records through the observer, every chunk is delivered by the separate onNext as soon as it completes,
+	 * records of the chunk are in the order of the first request of keys within the chunk,
+	 * records found in the near cache and keys that are definitely absent are delivered first
+	 * 
+	 * @param recordObserver - observer of chunks
+	 */
+	
 	@Override
 	public void async(final Observer<Iterable<Record>> recordObserver) {
-		instance.getAsyncStub().multiGet(buildRequest(), Transformers.observeBatchRecords(recordObserver, keyResolver));
+		
+		if (hedge) {
+			asyncSingle(recordObserver);
+			return;
+		}
+		
+		KeyIndex index = new KeyIndex(keys);
+		final Records records = newRecords(index);
+		
+		if (records.hasStale()) {
+			observe(send(index, records), recordObserver);
+			return;
+		}
+		
+		List<Chunk> chunks = buildChunks(index, records);
+		Deadline deadline = instance.deadline(timeoutMls);
+		
+		List<Record> cached = new ArrayList<Record>();
+		for (int i = 0; i != index.keys.length; ++i) {
+			if (records.has(i)) {
+				cached.add(records.get(index.keys[i]));
+			}
+		}
+		
+		if (!cached.isEmpty()) {
+			recordObserver.onNext(cached);
+		}
+		
+		if (chunks.isEmpty()) {
+			recordObserver.onCompleted();
+			return;
+		}
+		
+		ListenableFuture<Void> done = ChunkedCall.start(instance, chunks, concurrency, deadline, new ChunkListener() {
+
+			@Override
+			public void onChunk(int chunk, BatchValueResult result) {
+				
+				List<Record> decoded = new ArrayList<Record>(result.getResultCount());
+				for (ValueResult valueResult : result.getResultList()) {
+					Record record = records.add(valueResult);
+					if (record != null) {
+						decoded.add(record);
+					}
+				}
+				
+				recordObserver.onNext(decoded);
+			}
+			
+		});
+		
+		Futures.addCallback(done, new FutureCallback<Void>() {
+
+			@Override
+			public void onSuccess(Void result) {
+				recordObserver.onCompleted();
+			}
+
+			@Override
+			public void onFailure(Throwable t) {
+				recordObserver.onError(t);
+			}
+			
+		}, MoreExecutors.directExecutor());
+		
+	}
+	
+	/**
+	 * Creates Flux stream of records (REACTOR), records of every chunk are emitted as soon as the chunk completes,
+	 * cancel of the subscription cancels the call
+	 * 
+	 * @return flux
+	 */
+	
+	public Flux<Record> flux() {
+		
+		return Flux.create(new Consumer<FluxSink<Record>>() {
+
+			@Override
+			public void accept(final FluxSink<Record> sink) {
+
+				final Observer<Iterable<Record>> observer = new Observer<Iterable<Record>>() {
+
+					@Override
+					public void onNext(Iterable<Record> records) {
+						for (Record record : records) {
+							sink.next(record);
+						}
+					}
+
+					@Override
+					public void onError(Throwable t) {
+						sink.error(t);
+					}
+
+					@Override
+					public void onCompleted() {
+						sink.complete();
+					}
+					
+				};
+				
+				final CancellableContext context = CallContext.run(new Runnable() {
+
+					@Override
+					public void run() {
+						async(observer);
+					}
+					
+				});
+				
+				sink.onCancel(new Disposable() {
+
+					@Override
+					public void dispose() {
+						CallContext.cancel(context);
+					}
+					
+				});
+				
+			}
+			
+		});
+		
 	}
 	
 	@Override
@@ -0,0 +1,635 @@
+/*
+ *
+ * Copyright 2018-present GKVS authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package rocks.gkvs;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.annotation.Nullable;
+
+import com.google.common.base.Supplier;
+
+import rocks.gkvs.Get.FlightKey;
+import rocks.gkvs.protos.OutputOptions;
+import rocks.gkvs.protos.Select;
+import rocks.gkvs.protos.ValueResult;
+
+/**
+ *
+ * NearCache
+ *
+ * Client-side cache of records read by Get and MultiGet
+ *
+ * The cache is split in to stripes by the key, every stripe is the segmented LRU bounded by
+ * the number of records and by the estimated size: new records enter the probation segment,
+ * the second hit moves the record to the protected segment, so one-time reads of the scan
+ * do not flush the hot set. The record is served until the configured ttl or the record ttl expires.
+ *
+ * In the revalidating mode the expired record with the version is kept for the stale window,
+ * the read checks the version by the metadata-only read and refetches the value only if the version changed,
+ * see {@link #getStale(FlightKey)}.
+ *
+ * In the off-heap mode serialized results are kept in {@link SlabStore} and only the index is on the heap,
+ * the result is parsed on every hit, the value is decoded when it is accessed.
+ *
+ * One shape of the read (select and output) is cached per key, the read of the other shape replaces it.
+ * Put and Remove of the client invalidate the key, the read that was in flight during the invalidation
+ * does not fill the cache, see {@link #stamp(Key)}.
+ *
+ */
+
+final class NearCache {
+
+	private static final int ENTRY_OVERHEAD = 64;
+	private static final int PROTECTED_PERCENT = 80;
+
+	private final Set<String> views;
+	private final long ttlNanos;
+	private final long staleNanos;
+	private final Stripes<Stripe> stripes;
+	private final @Nullable SlabStore store;
+
+	private final LongAdder hits = new LongAdder();
+	private final LongAdder misses = new LongAdder();
+	private final LongAdder evictions = new LongAdder();
+	private final LongAdder expirations = new LongAdder();
+	private final LongAdder invalidations = new LongAdder();
+	private final LongAdder revalidations = new LongAdder();
+
+	/**
+	 * Creates the cache
+	 *
+	 * @param views - cached views, empty for all views
+	 * @param maxEntries - max number of records
+	 * @param maxBytes - max estimated size of records
+	 * @param ttlMls - max time the record is served
+	 * @param staleMls - time the expired record is kept for revalidation, 0 to disable revalidation
+	 * @param offHeapBytes - memory of the off-heap store, 0 to keep records on the heap
+	 * @param slabBytes - memory of one slab of the off-heap store
+	 */
+
+	protected NearCache(List<String> views, int maxEntries, long maxBytes, int ttlMls, int staleMls, long offHeapBytes, int slabBytes) {
+
+		if (maxEntries < 1) {
+			throw new IllegalArgumentException("invalid near cache entries: " + maxEntries);
+		}
+
+		this.views = new HashSet<String>(views);
+		this.ttlNanos = TimeUnit.MILLISECONDS.toNanos(ttlMls);
+		this.staleNanos = TimeUnit.MILLISECONDS.toNanos(staleMls);
+
+		final int entries = Math.max(1, maxEntries / Stripes.STRIPES);
+		final long bytes = Math.max(1, maxBytes / Stripes.STRIPES);
+
+		this.stripes = new Stripes<Stripe>(new Supplier<Stripe>() {
+
+			@Override
+			public Stripe get() {
+				return new Stripe(entries, bytes);
+			}
+
+		});
+
+		if (offHeapBytes > 0) {
+
+			this.store = new SlabStore(offHeapBytes, slabBytes, new SlabStore.Evictor() {
+
+				@Override
+				public void evicted(SlabStore.Slot slot) {
+					if (stripe(slot.key).remove(slot)) {
+						evictions.increment();
+					}
+				}
+
+			});
+		}
+		else {
+			this.store = null;
+		}
+	}
+
+	protected static NearCache fromConfig(GkvsConfig config) {
+		int staleMls = config.useNearCacheRevalidation() ? config.getNearCacheStaleMls() : 0;
+		long offHeapBytes = config.useNearCacheOffHeap() ? config.getNearCacheOffHeapBytes() : 0;
+		return new NearCache(config.getNearCacheViews(), config.getNearCacheEntries(), config.getNearCacheBytes(), config.getNearCacheTtlMls(), staleMls,
+				offHeapBytes, config.getNearCacheSlabBytes());
+	}
+
+	/**
+	 * Checks that records of the view are cached
+	 *
+	 * @param key - record key
+	 * @return true if the view is cached
+	 */
+
+	protected boolean isCached(Key key) {
+		return views.isEmpty() || views.contains(key.getViewName());
+	}
+
+	/**
+	 * Gets the stamp of the key that must be taken before the read and passed to {@link #put(FlightKey, Record, long)}
+	 *
+	 * @param key - record key
+	 * @return current stamp
+	 */
+
+	protected long stamp(Key key) {
+		return stripes.stamp(key);
+	}
+
+	/**
+	 * Gets the fresh record
+	 *
+	 * @param read - key and shape of the read
+	 * @return record or null
+	 */
+
+	protected @Nullable Record get(FlightKey read) {
+
+		Entry entry = stripe(read.key()).get(read, System.nanoTime());
+		Record record = entry != null ? record(entry) : null;
+
+		if (record != null) {
+			hits.increment();
+		}
+		else {
+			misses.increment();
+		}
+
+		return record;
+	}
+
+	/**
+	 * Gets the expired record that can be revalidated
+	 *
+	 * @param read - key and shape of the read
+	 * @return record with the version or null
+	 */
+
+	protected @Nullable Record getStale(FlightKey read) {
+
+		if (staleNanos == 0) {
+			return null;
+		}
+
+		Entry entry = stripe(read.key()).getStale(read, System.nanoTime());
+		return entry != null ? record(entry) : null;
+	}
+
+	/**
+	 * Gets the record of the entry, reads the off-heap result
+	 *
+	 * @param entry - cached entry
+	 * @return record or null if the result was evicted from the off-heap store
+	 */
+
+	private @Nullable Record record(Entry entry) {
+
+		if (entry.record != null) {
+			return entry.record;
+		}
+
+		ValueResult result = store.read(entry.slot);
+
+		if (result == null) {
+			if (stripe(entry.read.key()).remove(entry.slot)) {
+				evictions.increment();
+			}
+			return null;
+		}
+
+		return new RecordFound(entry.read.key(), result);
+	}
+
+	/**
+	 * Serves the stale record again, the version of the record did not change
+	 *
+	 * @param read - key and shape of the read
+	 * @param stale - stale record
+	 * @param metadata - result of the metadata-only read
+	 * @param stamp - stamp taken before the metadata-only read
+	 * @return record with the current metadata
+	 */
+
+	protected Record revalidated(FlightKey read, Record stale, Record metadata, long stamp) {
+		revalidations.increment();
+		Record record = refresh(read.key(), stale, metadata);
+		put(read, record, stamp);
+		return record;
+	}
+
+	/**
+	 * Replaces the header and the metadata of the stale record by the metadata-only result,
+	 * so the record is served and cached with the current ttl and version
+	 *
+	 * @param key - record key
+	 * @param stale - stale record
+	 * @param metadata - result of the metadata-only read
+	 * @return refreshed record or the stale record if it has no result
+	 */
+
+	private static Record refresh(Key key, Record stale, Record metadata) {
+
+		if (!(stale instanceof RecordFound) || !(metadata instanceof RecordFound)) {
+			return stale;
+		}
+
+		ValueResult current = ((RecordFound) metadata).getResult();
+
+		ValueResult result = ((RecordFound) stale).getResult().toBuilder()
+				.setHeader(current.getHeader())
+				.setMetadata(current.getMetadata())
+				.build();
+
+		return new RecordFound(key, result);
+	}
+
+	/**
+	 * Checks that the result of the metadata-only read has the version of the stale record
+	 *
+	 * @param metadata - result of the metadata-only read
+	 * @param stale - stale record
+	 * @return true if the record did not change
+	 */
+
+	protected static boolean isSameVersion(Record metadata, Record stale) {
+		int[] version = metadata.version();
+		return metadata.exists() && version != null && Arrays.equals(version, stale.version());
+	}
+
+	/**
+	 * Caches the record if there was no invalidation after the stamp
+	 *
+	 * @param read - key and shape of the read
+	 * @param record - result of the read
+	 * @param stamp - stamp taken before the read
+	 */
+
+	protected void put(FlightKey read, Record record, long stamp) {
+
+		if (!record.exists()) {
+			return;
+		}
+
+		long ttl = ttlNanos;
+		if (record.ttl() > 0) {
+			ttl = Math.min(ttl, TimeUnit.SECONDS.toNanos(record.ttl()));
+		}
+
+		if (ttl <= 0) {
+			return;
+		}
+
+		long expiresAt = System.nanoTime() + ttl;
+		boolean versioned = record.version() != null;
+
+		if (store != null && record instanceof RecordFound) {
+
+			// the slab is written outside of the lock of the stripe, see the evictor
+			SlabStore.Slot slot = store.write(read.key(), ((RecordFound) record).getResult());
+
+			if (slot != null) {
+				stripe(read.key()).put(new Entry(read, null, slot, ENTRY_OVERHEAD, versioned, expiresAt), stamp);
+			}
+
+			return;
+		}
+
+		Entry entry = new Entry(read, record, null, weight(record), versioned, expiresAt);
+		stripe(read.key()).put(entry, stamp);
+	}
+
+	/**
+	 * Removes the record, called on Put and Remove of the key
+	 *
+	 * @param key - record key
+	 */
+
+	protected void invalidate(Key key) {
+
+		if (!isCached(key)) {
+			return;
+		}
+
+		stripes.invalidate(key);
+		if (stripe(key).remove(key)) {
+			invalidations.increment();
+		}
+	}
+
+	protected void clear() {
+		stripes.invalidateAll();
+		for (Stripe stripe : stripes.all()) {
+			stripe.clear();
+		}
+		if (store != null) {
+			store.clear();
+		}
+	}
+
+	/**
+	 * Creates the fill of MultiGet, all keys share the shape
+	 *
+	 * @param select - selected columns
+	 * @param output - output options
+	 * @return new fill
+	 */
+
+	protected Fill newFill(Select select, OutputOptions output) {
+		return new Fill(this, select, output);
+	}
+
+	protected NearCacheStats stats() {
+
+		int size = 0;
+		long weight = 0;
+
+		for (Stripe stripe : stripes.all()) {
+			synchronized (stripe) {
+				size += stripe.probation.size() + stripe.hot.size();
+				weight += stripe.weight;
+			}
+		}
+
+		long offHeap = store != null ? store.allocated() : 0;
+
+		return new NearCacheStats(hits.sum(), misses.sum(), evictions.sum(), expirations.sum(), invalidations.sum(), revalidations.sum(), size, weight, offHeap);
+	}
+
+	private Stripe stripe(Key key) {
+		return stripes.stripe(key);
+	}
+
+	private static int weight(Record record) {
+		if (record instanceof RecordFound) {
+			return ENTRY_OVERHEAD + ((RecordFound) record).getSerializedSize();
+		}
+		return ENTRY_OVERHEAD;
+	}
+
+	/**
+	 * Lookup and fill of MultiGet keys with the same shape, the stamp of the key is taken by the lookup
+	 */
+
+	static final class Fill {
+
+		private final NearCache cache;
+		private final Select select;
+		private final OutputOptions output;
+		private final ConcurrentMap<Key, Long> stamps = new ConcurrentHashMap<Key, Long>();
+
+		Fill(NearCache cache, Select select, OutputOptions output) {
+			this.cache = cache;
+			this.select = select;
+			this.output = output;
+		}
+
+		@Nullable Record get(Key key) {
+
+			if (!cache.isCached(key)) {
+				return null;
+			}
+
+			stamps.put(key, cache.stamp(key));
+			return cache.get(new FlightKey(key, select, output));
+		}
+
+		void put(Key key, Record record) {
+			Long stamp = stamps.get(key);
+			if (stamp != null) {
+				cache.put(new FlightKey(key, select, output), record, stamp);
+			}
+		}
+
+		@Nullable Record getStale(Key key) {
+			return cache.isCached(key) && output == OutputOptions.VALUE ? cache.getStale(new FlightKey(key, select, output)) : null;
+		}
+
+		Record revalidated(Key key, Record stale, Record metadata) {
+			Long stamp = stamps.get(key);
+			if (stamp == null) {
+				return refresh(key, stale, metadata);
+			}
+			return cache.revalidated(new FlightKey(key, select, output), stale, metadata, stamp);
+		}
+
+	}
+
+	private static final class Entry {
+
+		final FlightKey read;
+		final @Nullable Record record;
+		final @Nullable SlabStore.Slot slot;
+		final int weight;
+		final boolean versioned;
+		final long expiresAt;
+
+		Entry(FlightKey read, @Nullable Record record, @Nullable SlabStore.Slot slot, int weight, boolean versioned, long expiresAt) {
+			this.read = read;
+			this.record = record;
+			this.slot = slot;
+			this.weight = weight;
+			this.versioned = versioned;
+			this.expiresAt = expiresAt;
+		}
+
+	}
+
+	private final class Stripe {
+
+		final int maxEntries;
+		final int maxHot;
+		final long maxBytes;
+
+		// access order, the eldest is the least recently used
+		final LinkedHashMap<Key, Entry> probation = new LinkedHashMap<Key, Entry>(16, 0.75f, true);
+		final LinkedHashMap<Key, Entry> hot = new LinkedHashMap<Key, Entry>(16, 0.75f, true);
+		long weight;
+
+		Stripe(int maxEntries, long maxBytes) {
+			this.maxEntries = maxEntries;
+			this.maxHot = Math.max(1, maxEntries * PROTECTED_PERCENT / 100);
+			this.maxBytes = maxBytes;
+		}
+
+		synchronized @Nullable Entry get(FlightKey read, long now) {
+
+			Key key = read.key();
+
+			Entry entry = hot.get(key);
+			boolean probing = false;
+
+			if (entry == null) {
+				entry = probation.get(key);
+				probing = true;
+			}
+
+			if (entry == null || !entry.read.equals(read)) {
+				return null;
+			}
+
+			if (now - entry.expiresAt >= 0) {
+				if (!isStale(entry, now)) {
+					removeEntry(key);
+					expirations.increment();
+				}
+				return null;
+			}
+
+			if (probing) {
+				promote(key, entry);
+			}
+
+			return entry;
+		}
+
+		synchronized @Nullable Entry getStale(FlightKey read, long now) {
+
+			Key key = read.key();
+
+			Entry entry = hot.get(key);
+			if (entry == null) {
+				entry = probation.get(key);
+			}
+
+			if (entry == null || !entry.read.equals(read) || !isStale(entry, now)) {
+				return null;
+			}
+
+			return entry;
+		}
+
+		/**
+		 * Checks that the expired record is kept for revalidation
+		 */
+
+		private boolean isStale(Entry entry, long now) {
+			return now - entry.expiresAt >= 0 && now - entry.expiresAt < staleNanos && entry.versioned;
+		}
+
+		synchronized void put(Entry entry, long stamp) {
+
+			Key key = entry.read.key();
+
+			if (!stripes.isCurrent(key, stamp) || entry.weight > maxBytes) {
+				return;
+			}
+
+			removeEntry(key);
+
+			probation.put(key, entry);
+			weight += entry.weight;
+
+			evict();
+		}
+
+		synchronized boolean remove(Key key) {
+			return removeEntry(key);
+		}
+
+		/**
+		 * Removes the entry if it still has the off-heap result
+		 */
+
+		synchronized boolean remove(SlabStore.Slot slot) {
+
+			Key key = slot.key;
+
+			Entry entry = hot.get(key);
+			if (entry == null) {
+				entry = probation.get(key);
+			}
+
+			return entry != null && entry.slot == slot && removeEntry(key);
+		}
+
+		synchronized void clear() {
+			probation.clear();
+			hot.clear();
+			weight = 0;
+		}
+
+		private boolean removeEntry(Key key) {
+
+			Entry entry = probation.remove(key);
+			if (entry == null) {
+				entry = hot.remove(key);
+			}
+
+			if (entry != null) {
+				weight -= entry.weight;
+				return true;
+			}
+
+			return false;
+		}
+
+		/**
+		 * Moves the record to the protected segment, the least recently used protected record goes back to probation
+		 */
+
+		private void promote(Key key, Entry entry) {
+
+			probation.remove(key);
+			hot.put(key, entry);
+
+			if (hot.size() > maxHot) {
+				Iterator<Map.Entry<Key, Entry>> i = hot.entrySet().iterator();
+				Map.Entry<Key, Entry> eldest = i.next();
+				i.remove();
+				probation.put(eldest.getKey(), eldest.getValue());
+			}
+		}
+
+		/**
+		 * Evicts from the probation segment first
+		 */
+
+		private void evict() {
+
+			while (probation.size() + hot.size() > maxEntries || weight > maxBytes) {
+
+				LinkedHashMap<Key, Entry> segment = !probation.isEmpty() ? probation : hot;
+
+				Iterator<Map.Entry<Key, Entry>> i = segment.entrySet().iterator();
+				Entry eldest = i.next().getValue();
+				i.remove();
+
+				weight -= eldest.weight;
+				evictions.increment();
+			}
+
+		}
+
+	}
+
+	@Override
+	public String toString() {
+		return "NearCache [views=" + views + ", stats=" + stats() + "]";
+	}
+
+}
@@ -0,0 +1,129 @@
+/*
+ *
+ * Copyright 2018-present GKVS authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package rocks.gkvs;
+
+/**
+ *
+ * NearCacheStats
+ *
+ * Snapshot of near cache counters
+ *
+ */
+
+public final class NearCacheStats {
+
+	private final long hits;
+	private final long misses;
+	private final long evictions;
+	private final long expirations;
+	private final long invalidations;
+	private final long revalidations;
+	private final int size;
+	private final long weight;
+	private final long offHeapBytes;
+
+	protected NearCacheStats(long hits, long misses, long evictions, long expirations, long invalidations, long revalidations, int size, long weight, long offHeapBytes) {
+		this.hits = hits;
+		this.misses = misses;
+		this.evictions = evictions;
+		this.expirations = expirations;
+		this.invalidations = invalidations;
+		this.revalidations = revalidations;
+		this.size = size;
+		this.weight = weight;
+		this.offHeapBytes = offHeapBytes;
+	}
+
+	public long hits() {
+		return hits;
+	}
+
+	public long misses() {
+		return misses;
+	}
+
+	/**
+	 * Gets the number of records removed to fit in to the capacity
+	 *
+	 * @return number of records
+	 */
+
+	public long evictions() {
+		return evictions;
+	}
+
+	public long expirations() {
+		return expirations;
+	}
+
+	/**
+	 * Gets the number of records removed by Put and Remove of the client
+	 *
+	 * @return number of records
+	 */
+
+	public long invalidations() {
+		return invalidations;
+	}
+
+	/**
+	 * Gets the number of expired records served again because the metadata-only read returned the same version
+	 *
+	 * @return number of records
+	 */
+
+	public long revalidations() {
+		return revalidations;
+	}
+
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Gets the estimated size of cached records
+	 *
+	 * @return size in bytes
+	 */
+
+	public long weight() {
+		return weight;
+	}
+
+	/**
+	 * Gets the memory of allocated off-heap slabs
+	 *
+	 * @return size in bytes, 0 if records are kept on the heap
+	 */
+
+	public long offHeapBytes() {
+		return offHeapBytes;
+	}
+
+	public double hitRate() {
+		long requests = hits + misses;
+		return requests == 0 ? 0.0 : (double) hits / requests;
+	}
+
+	@Override
+	public String toString() {
+		return "NearCacheStats [hits=" + hits + ", misses=" + misses + ", evictions=" + evictions + ", expirations="
+				+ expirations + ", invalidations=" + invalidations + ", revalidations=" + revalidations + ", size=" + size + ", weight=" + weight + ", offHeapBytes=" + offHeapBytes + "]";
+	}
+
+}
@@ -0,0 +1,214 @@
+/*
+ *
+ * Copyright 2018-present GKVS authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package rocks.gkvs;
+
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.google.common.base.Supplier;
+
+/**
+ *
+ * NegativeCache
+ *
+ * Client-side cache of keys that were not found by Get
+ *
+ * Only keys of listed views are cached, the key is answered as not found until the short ttl expires.
+ * Stripes are bounded by the number of keys, the oldest key is evicted first.
+ * Put and Remove of the client invalidate the key by the stamps of {@link Stripes} the same way as in {@link NearCache}.
+ *
+ */
+
+final class NegativeCache {
+
+	private final Set<String> views;
+	private final long ttlNanos;
+	private final Stripes<Stripe> stripes;
+
+	private final LongAdder hits = new LongAdder();
+
+	/**
+	 * Creates the cache
+	 *
+	 * @param views - cached views
+	 * @param maxEntries - max number of keys
+	 * @param ttlMls - max time the key is answered as not found
+	 */
+
+	protected NegativeCache(List<String> views, int maxEntries, int ttlMls) {
+
+		if (maxEntries < 1) {
+			throw new IllegalArgumentException("invalid negative cache entries: " + maxEntries);
+		}
+
+		this.views = new HashSet<String>(views);
+		this.ttlNanos = TimeUnit.MILLISECONDS.toNanos(ttlMls);
+
+		final int entries = Math.max(1, maxEntries / Stripes.STRIPES);
+
+		this.stripes = new Stripes<Stripe>(new Supplier<Stripe>() {
+
+			@Override
+			public Stripe get() {
+				return new Stripe(entries);
+			}
+
+		});
+	}
+
+	protected static NegativeCache fromConfig(GkvsConfig config) {
+		return new NegativeCache(config.getNegativeCacheViews(), config.getNegativeCacheEntries(), config.getNegativeCacheTtlMls());
+	}
+
+	protected boolean isCached(Key key) {
+		return views.contains(key.getViewName());
+	}
+
+	/**
+	 * Gets the stamp of the key that must be taken before the read and passed to {@link #put(Key, Record, long)}
+	 *
+	 * @param key - record key
+	 * @return current stamp
+	 */
+
+	protected long stamp(Key key) {
+		return stripes.stamp(key);
+	}
+
+	/**
+	 * Checks that the key was not found recently
+	 *
+	 * @param key - record key
+	 * @return true if the key is absent
+	 */
+
+	protected boolean contains(Key key) {
+
+		if (stripe(key).contains(key, System.nanoTime())) {
+			hits.increment();
+			return true;
+		}
+
+		return false;
+	}
+
+	/**
+	 * Caches the key if the record was not found and there was no invalidation after the stamp
+	 *
+	 * @param key - record key
+	 * @param record - result of the read
+	 * @param stamp - stamp taken before the read
+	 */
+
+	protected void put(Key key, Record record, long stamp) {
+
+		if (!(record instanceof RecordNotFound) || ttlNanos <= 0) {
+			return;
+		}
+
+		stripe(key).put(key, System.nanoTime() + ttlNanos, stamp);
+	}
+
+	protected void invalidate(Key key) {
+
+		if (!isCached(key)) {
+			return;
+		}
+
+		stripes.invalidate(key);
+		stripe(key).remove(key);
+	}
+
+	protected void clear() {
+		stripes.invalidateAll();
+		for (Stripe stripe : stripes.all()) {
+			stripe.clear();
+		}
+	}
+
+	protected long hits() {
+		return hits.sum();
+	}
+
+	private Stripe stripe(Key key) {
+		return stripes.stripe(key);
+	}
+
+	private final class Stripe {
+
+		final int maxEntries;
+
+		// insertion order, the eldest expires first
+		final LinkedHashMap<Key, Long> expires = new LinkedHashMap<Key, Long>();
+
+		Stripe(int maxEntries) {
+			this.maxEntries = maxEntries;
+		}
+
+		synchronized boolean contains(Key key, long now) {
+
+			Long expiresAt = expires.get(key);
+
+			if (expiresAt == null) {
+				return false;
+			}
+
+			if (now - expiresAt >= 0) {
+				expires.remove(key);
+				return false;
+			}
+
+			return true;
+		}
+
+		synchronized void put(Key key, long expiresAt, long stamp) {
+
+			if (!stripes.isCurrent(key, stamp)) {
+				return;
+			}
+
+			expires.remove(key);
+			expires.put(key, expiresAt);
+
+			if (expires.size() > maxEntries) {
+				Map.Entry<Key, Long> eldest = expires.entrySet().iterator().next();
+				expires.remove(eldest.getKey());
+			}
+		}
+
+		synchronized void remove(Key key) {
+			expires.remove(key);
+		}
+
+		synchronized void clear() {
+			expires.clear();
+		}
+
+	}
+
+	@Override
+	public String toString() {
+		return "NegativeCache [views=" + views + ", hits=" + hits.sum() + "]";
+	}
+
+}
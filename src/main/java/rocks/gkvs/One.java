@@ -2,11 +2,15 @@ package rocks.gkvs;
 
 import java.util.function.Consumer;
 
+import io.grpc.Context.CancellableContext;
+import reactor.core.Disposable;
 import reactor.core.publisher.Mono;
 import reactor.core.publisher.MonoSink;
 import rx.Single;
 import rx.SingleSubscriber;
 import rx.Single.OnSubscribe;
+import rx.functions.Action0;
+import rx.subscriptions.Subscriptions;
 
 /**
  * 
@@ -39,9 +43,19 @@ public abstract class One<T> {
 	public abstract GkvsFuture<T> async();
 	
 	public abstract void async(Observer<T> observer);
+	
+	/**
+	 * Gets the whole result by the single onNext, used by reactive adapters
+	 * 
+	 * @param observer - receiver of the result
+	 */
+	
+	protected void asyncSingle(Observer<T> observer) {
+		async(observer);
+	}
 
 	/**
-	 * Gets RX-JAVA Single result
+	 * Gets RX-JAVA Single result, unsubscribe cancels the call
 	 * 
 	 * @return single object
 	 */
@@ -53,7 +67,7 @@ public abstract class One<T> {
 			@Override
 			public void call(final SingleSubscriber<? super T> subscriber) {
 				
-				async(new Observer<T>() {
+				final Observer<T> observer = new Observer<T>() {
 
 					@Override
 					public void onNext(T item) {
@@ -69,8 +83,26 @@ public abstract class One<T> {
 					public void onCompleted() {
 					}
 					
+				};
+				
+				final CancellableContext context = CallContext.run(new Runnable() {
+
+					@Override
+					public void run() {
+						asyncSingle(observer);
+					}
+					
 				});
 				
+				subscriber.add(Subscriptions.create(new Action0() {
+
+					@Override
+					public void call() {
+						CallContext.cancel(context);
+					}
+					
+				}));
+				
 			}
 			
 		});
@@ -78,7 +110,7 @@ public abstract class One<T> {
 	}
 	
 	/**
-	 * Gets Reactor Mono result
+	 * Gets Reactor Mono result, cancel of the subscription cancels the call
 	 * 
 	 * @return mono result
 	 */
@@ -90,7 +122,7 @@ public abstract class One<T> {
 			@Override
 			public void accept(final MonoSink<T> sink) {
 				
-				async(new Observer<T>() {
+				final Observer<T> observer = new Observer<T>() {
 
 					@Override
 					public void onNext(T item) {
@@ -108,6 +140,24 @@ public abstract class One<T> {
 						sink.success();
 					}
 					
+				};
+				
+				final CancellableContext context = CallContext.run(new Runnable() {
+
+					@Override
+					public void run() {
+						asyncSingle(observer);
+					}
+					
+				});
+				
+				sink.onCancel(new Disposable() {
+
+					@Override
+					public void dispose() {
+						CallContext.cancel(context);
+					}
+					
 				});
 				
 			}
@@ -0,0 +1,97 @@
+/*
+ *
+ * Copyright 2018-present GKVS authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package rocks.gkvs;
+
+import com.google.common.base.Function;
+import com.google.protobuf.MessageLite;
+
+import io.grpc.Context.CancellableContext;
+import io.grpc.stub.StreamObserver;
+
+/**
+ *
+ * PrefetchIterator
+ *
+ * Blocking iterator over the server stream, the queue is bounded by the prefetch window
+ *
+ * The result leaves the window when it is taken by next(), close() cancels the call.
+ *
+ * @param <RespT> - result type
+ * @param <T> - element type
+ */
+
+final class PrefetchIterator<RespT extends MessageLite, T> extends BlockingIterator<T> implements StreamObserver<RespT> {
+
+	private final PrefetchWindow<?, RespT> window;
+	private final Function<RespT, T> transform;
+
+	private volatile CancellableContext context;
+
+	protected PrefetchIterator(PrefetchWindow<?, RespT> window, Function<RespT, T> transform) {
+		this.window = window;
+		this.transform = transform;
+	}
+
+	/**
+	 * Sets the context of the call to cancel on close
+	 *
+	 * @param context - context of the call
+	 */
+
+	protected void setContext(CancellableContext context) {
+		this.context = context;
+	}
+
+	@Override
+	public void onNext(RespT value) {
+		received(value);
+	}
+
+	@Override
+	public void onError(Throwable t) {
+		failed(t);
+	}
+
+	@Override
+	public void onCompleted() {
+		completed();
+	}
+
+	@SuppressWarnings("unchecked")
+	@Override
+	protected T taken(Object item) {
+		RespT value = (RespT) item;
+		window.consumed(value);
+		return transform.apply(value);
+	}
+
+	/**
+	 * Cancels the call if the stream is not read until the end
+	 */
+
+	@Override
+	public void close() {
+		CallContext.cancel(context);
+	}
+
+	@Override
+	public String toString() {
+		return "PrefetchIterator [" + window + "]";
+	}
+
+}
@@ -0,0 +1,211 @@
+/*
+ *
+ * Copyright 2018-present GKVS authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package rocks.gkvs;
+
+import java.util.function.LongConsumer;
+
+import com.google.protobuf.MessageLite;
+
+import io.grpc.stub.ClientCallStreamObserver;
+import io.grpc.stub.ClientResponseObserver;
+import io.grpc.stub.StreamObserver;
+
+/**
+ *
+ * PrefetchWindow
+ *
+ * Manual inbound flow control of the server stream with the bounded window
+ *
+ * Results are requested from the server by the demand of the consumer, but only while
+ * results in flight plus results received and not yet consumed fit in to the window.
+ * The byte window is estimated by the average size of received results,
+ * there is always at least one result in flight or held, so the stream never stalls.
+ *
+ * @param <ReqT> - request type
+ * @param <RespT> - result type
+ */
+
+final class PrefetchWindow<ReqT, RespT extends MessageLite> implements LongConsumer {
+
+	private final int maxRecords;
+	private final long maxBytes;
+
+	private volatile ClientCallStreamObserver<ReqT> call;
+	private boolean started;
+
+	private long demand;
+	// the stub requests the first result on start
+	private long requested = 1;
+	private long held;
+	private long heldBytes;
+	private long averageSize;
+
+	/**
+	 * Creates the window
+	 *
+	 * @param maxRecords - max number of results in flight and held
+	 * @param maxBytes - max estimated size of results in flight and held, 0 for unlimited
+	 */
+
+	protected PrefetchWindow(int maxRecords, long maxBytes) {
+
+		if (maxRecords < 1) {
+			throw new IllegalArgumentException("invalid prefetch: " + maxRecords);
+		}
+
+		this.maxRecords = maxRecords;
+		this.maxBytes = maxBytes;
+	}
+
+	/**
+	 * Wraps the observer of results that must be passed to the stub
+	 *
+	 * @param responses - observer of results
+	 * @param consumeOnNext - true if the result is consumed when onNext returns,
+	 *                        otherwise the consumer calls {@link #consumed(MessageLite)}
+	 * @return observer of the call
+	 */
+
+	protected StreamObserver<RespT> wrap(final StreamObserver<RespT> responses, final boolean consumeOnNext) {
+
+		return new ClientResponseObserver<ReqT, RespT>() {
+
+			@Override
+			public void beforeStart(ClientCallStreamObserver<ReqT> requestStream) {
+				requestStream.disableAutoInboundFlowControl();
+				call = requestStream;
+			}
+
+			@Override
+			public void onNext(RespT value) {
+				received(value.getSerializedSize());
+				responses.onNext(value);
+				if (consumeOnNext) {
+					consumed(value);
+				}
+			}
+
+			@Override
+			public void onError(Throwable t) {
+				responses.onError(t);
+			}
+
+			@Override
+			public void onCompleted() {
+				responses.onCompleted();
+			}
+
+		};
+
+	}
+
+	/**
+	 * Starts requesting results, must be called after the stub call
+	 */
+
+	protected void start() {
+		synchronized (this) {
+			started = true;
+		}
+		replenish();
+	}
+
+	/**
+	 * Adds the demand of the consumer
+	 *
+	 * @param n - number of results
+	 */
+
+	@Override
+	public void accept(long n) {
+
+		if (n <= 0) {
+			return;
+		}
+
+		synchronized (this) {
+			demand = demand + n < 0 ? Long.MAX_VALUE : demand + n;
+		}
+
+		replenish();
+	}
+
+	private synchronized void received(int size) {
+		requested--;
+		held++;
+		heldBytes += size;
+		averageSize = averageSize == 0 ? size : (averageSize * 7 + size) / 8;
+	}
+
+	/**
+	 * Releases the place of the result in the window
+	 *
+	 * @param value - consumed result
+	 */
+
+	protected void consumed(RespT value) {
+
+		synchronized (this) {
+			held--;
+			heldBytes -= value.getSerializedSize();
+		}
+
+		replenish();
+	}
+
+	private void replenish() {
+
+		long n;
+
+		synchronized (this) {
+
+			if (!started || demand == 0) {
+				return;
+			}
+
+			n = Math.min(demand, maxRecords - requested - held);
+
+			if (maxBytes > 0) {
+				// wait for the first result to estimate the size
+				long fit = averageSize > 0 ? (maxBytes - heldBytes) / averageSize - requested : 0;
+				n = Math.min(n, fit);
+			}
+
+			if (n <= 0 && requested + held == 0) {
+				n = 1;
+			}
+
+			if (n <= 0) {
+				return;
+			}
+
+			requested += n;
+			if (demand != Long.MAX_VALUE) {
+				demand -= n;
+			}
+		}
+
+		call.request((int) n);
+	}
+
+	@Override
+	public synchronized String toString() {
+		return "PrefetchWindow [requested=" + requested + ", held=" + held + ", heldBytes=" + heldBytes + "]";
+	}
+
+}
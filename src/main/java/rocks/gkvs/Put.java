@@ -20,9 +20,14 @@ package rocks.gkvs;
 
 import javax.annotation.Nullable;
 
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.Futures;
 import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.MoreExecutors;
 
 import rocks.gkvs.Transformers.KeyResolver;
+import rocks.gkvs.Transformers.SingleKeyResolver;
+import rocks.gkvs.protos.GenericStoreGrpc;
 import rocks.gkvs.protos.OperationHeader;
 import rocks.gkvs.protos.PutOperation;
 import rocks.gkvs.protos.StatusResult;
@@ -48,9 +53,29 @@ public final class Put extends One<Status> {
 	private Key key;
 	private Value value;
 	private final OperationHeader.Builder header = OperationHeader.newBuilder();
+	private boolean writeBehind;
 		
 	public Put(GkvsClient instance) {
 		this.instance = instance;
+		this.writeBehind = instance.useWriteBehind();
+	}
+	
+	/**
+	 * Enables or disables write-behind of this put, takes effect only if the client has write-behind enabled
+	 * 
+	 * Conditional puts are always sent alone
+	 * 
+	 * @param writeBehind - queue the put in to the PutAll stream
+	 * @return this
+	 */
+	
+	public Put writeBehind(boolean writeBehind) {
+		this.writeBehind = writeBehind;
+		return this;
+	}
+	
+	private boolean isWriteBehind() {
+		return writeBehind && !builder.getCompareAndPut();
 	}
 	
 	public Put withTimeout(int timeoutMls) {
@@ -119,6 +144,9 @@ public final class Put extends One<Status> {
 		builder.setKey(key.toProto());
 		builder.setValue(Transformers.toProto(value));
 		
+		instance.mayExist(key);
+		instance.invalidate(key);
+		
 		return builder.build();
 	}
 
@@ -131,23 +159,55 @@ public final class Put extends One<Status> {
 		catch(RuntimeException e) {
 			throw new GkvsException("sync fail " + this, e);
 		}
+		finally {
+			instance.invalidate(key);
+		}
 		
 	}
 	
 	private Status doSync() {
 		
-		final StatusResult result = instance.getBlockingStub().put(buildRequest());
+		PutOperation request = buildRequest();
 		
-		return Transformers.toStatus(key, result);
+		if (isWriteBehind()) {
+			return Futures.getUnchecked(instance.writeBehind(key, request, instance.deadline(header.getTimeout())));
+		}
+		
+		GkvsChannel channel = instance.acquireChannel(key);
+		try {
+			StatusResult result = channel.blockingUnary(GenericStoreGrpc.getPutMethod(), instance.deadline(header.getTimeout()), request);
+			return Transformers.toStatus(key, result);
+		}
+		finally {
+			channel.release();
+		}
 		
 	}
 	
 	@Override
 	public GkvsFuture<Status> async() {
 		
-		ListenableFuture<StatusResult> result = instance.getFutureStub().put(buildRequest());
+		PutOperation request = buildRequest();
+		
+		if (isWriteBehind()) {
+			ListenableFuture<Status> queued = instance.writeBehind(key, request, instance.deadline(header.getTimeout()));
+			queued.addListener(instance.invalidation(key), MoreExecutors.directExecutor());
+			return new GkvsFuture<Status>(queued);
+		}
+		
+		GkvsChannel channel = instance.acquireChannel(key);
+		
+		GkvsFuture<Status> result = new UnaryCall<PutOperation, StatusResult, Status>(channel) {
+
+			@Override
+			protected Status decode(StatusResult result) {
+				return Transformers.toStatus(key, result);
+			}
+			
+		}.start(GenericStoreGrpc.getPutMethod(), instance.deadline(header.getTimeout()), request);
 		
-		return new GkvsFuture<Status>(Transformers.toStatus(key, result));
+		result.addListener(instance.invalidation(key), MoreExecutors.directExecutor());
+		return result;
 		
 	}
 	
@@ -156,18 +216,31 @@ public final class Put extends One<Status> {
 		
 		PutOperation request = buildRequest();
 		
-		instance.pushWaitingQueue(request.getHeader().getTag(), key);
-		
-		final KeyResolver keyResolver = new KeyResolver() {
+		if (isWriteBehind()) {
+			
+			Futures.addCallback(instance.writeBehind(key, request, instance.deadline(header.getTimeout())), new FutureCallback<Status>() {
 
-			@Override
-			public Key find(long requestId) {
-				return instance.popWaitingQueue(requestId);
-			}
+				@Override
+				public void onSuccess(Status status) {
+					instance.invalidate(key);
+					statusObserver.onNext(status);
+					statusObserver.onCompleted();
+				}
+
+				@Override
+				public void onFailure(Throwable t) {
+					statusObserver.onError(t);
+				}
+				
+			}, MoreExecutors.directExecutor());
 			
-		};
+			return;
+		}
+		
+		final KeyResolver keyResolver = new SingleKeyResolver(key);
 		
-		instance.getAsyncStub().put(request, Transformers.observeStatuses(statusObserver, keyResolver));
+		GkvsChannel channel = instance.acquireChannel(key);
+		channel.getAsyncStub(instance.deadline(header.getTimeout())).put(request, channel.track(Transformers.observeStatuses(instance.invalidating(key, statusObserver), keyResolver)));
 	
 	}
 	
@@ -18,10 +18,19 @@
 
 package rocks.gkvs;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import javax.annotation.Nullable;
+
+import io.grpc.Deadline;
 import io.grpc.stub.StreamObserver;
 import rocks.gkvs.Transformers.KeyResolver;
+import rocks.gkvs.Transformers.TagKeyResolver;
 import rocks.gkvs.protos.OperationHeader;
 import rocks.gkvs.protos.PutOperation;
+import rocks.gkvs.protos.StatusResult;
 
 /**
  * 
@@ -40,6 +49,7 @@ public final class PutAll extends BiStream<KeyValue, Status> {
 	
 	private int timeoutMls;
 	private int ttlSec;
+	private int deadlineMls;
 	
 	public PutAll(GkvsClient instance) {
 		this.instance = instance;
@@ -50,6 +60,18 @@ public final class PutAll extends BiStream<KeyValue, Status> {
 		return this;
 	}
 	
+	/**
+	 * Sets the deadline of the whole stream, the stream is cancelled when it expires
+	 * 
+	 * @param deadlineMls - deadline in milliseconds after the start of the stream
+	 * @return this
+	 */
+	
+	public PutAll withDeadline(int deadlineMls) {
+		this.deadlineMls = deadlineMls;
+		return this;
+	}
+	
 	public PutAll withTtl(int ttlSec) {
 		this.ttlSec = ttlSec;
 		return this;
@@ -74,6 +96,9 @@ public final class PutAll extends BiStream<KeyValue, Status> {
 		builder.setValue(Transformers.toProto(keyValue.value()));
 
 		builder.setTtl(ttlSec);
+		
+		instance.mayExist(keyValue.key());
+		instance.invalidate(keyValue.key());
 
 		return builder;
 	}
@@ -96,35 +121,105 @@ public final class PutAll extends BiStream<KeyValue, Status> {
 	
 	@Override
 	public Observer<KeyValue> async(Observer<Status> statusObserver) {
+		return async(statusObserver, null);
+	}
+	
+	@Override
+	protected Observer<KeyValue> async(Observer<Status> statusObserver, @Nullable FlowControl control) {
 		
-		final KeyResolver keyResolver = new KeyResolver() {
+		final TagTable<Key> waitingKeys = new TagTable<Key>();
+		final KeyResolver keyResolver = new TagKeyResolver(waitingKeys);
+		
+		Observer<Status> observer = instance.invalidating(statusObserver);
+		Deadline deadline = instance.streamDeadline(deadlineMls);
+		
+		if (instance.getEndpointCount() > 1) {
+			return asyncRouted(observer, waitingKeys, keyResolver, deadline, control);
+		}
+		
+		final GkvsChannel channel = instance.acquireChannel();
+		final StreamObserver<PutOperation> streamIn = channel.getAsyncStub(deadline).putAll(FlowControl.<PutOperation, StatusResult>wrap(control, channel.track(Transformers.observeStatuses(observer, keyResolver))));
+		
+		return new Observer<KeyValue>() {
 
 			@Override
-			public Key find(long requestId) {
-				return instance.popWaitingQueue(requestId);
+			public void onNext(KeyValue keyValue) {
+				PutOperation op = buildRequest(keyValue).build();
+				waitingKeys.put(op.getHeader().getTag(), keyValue.key());
+				streamIn.onNext(op);
+			}
+
+			@Override
+			public void onError(Throwable t) {
+				streamIn.onError(t);
+			}
+
+			@Override
+			public void onCompleted() {
+				streamIn.onCompleted();
 			}
 			
 		};
 		
-		final StreamObserver<PutOperation> streamIn = instance.getAsyncStub().putAll(Transformers.observeStatuses(statusObserver, keyResolver));
+	}
+
+	/**
+	 * Opens the stream per endpoint on demand, every key goes to the endpoint that owns it
+	 * 
+	 * @param statusObserver - observer of merged statuses
+	 * @param waitingKeys - keys of requests in flight
+	 * @param keyResolver - resolver of request keys
+	 * @param deadline - deadline of all streams
+	 * @param control - flow control of all streams
+	 * @return observer of key-values
+	 */
+	
+	private Observer<KeyValue> asyncRouted(final Observer<Status> statusObserver, final TagTable<Key> waitingKeys, final KeyResolver keyResolver, final @Nullable Deadline deadline, final @Nullable FlowControl control) {
+		
+		final MergedObserver<Status> merged = new MergedObserver<Status>(statusObserver);
+		
+		final List<StreamObserver<PutOperation>> streams = new ArrayList<StreamObserver<PutOperation>>(Collections.<StreamObserver<PutOperation>>nCopies(instance.getEndpointCount(), null));
 		
 		return new Observer<KeyValue>() {
 
+			private StreamObserver<PutOperation> stream(int endpoint) {
+				
+				StreamObserver<PutOperation> streamIn = streams.get(endpoint);
+				
+				if (streamIn == null) {
+					GkvsChannel channel = instance.acquireChannel(endpoint);
+					streamIn = channel.getAsyncStub(deadline).putAll(FlowControl.<PutOperation, StatusResult>wrap(control, channel.track(Transformers.observeStatuses(merged.fork(), keyResolver))));
+					streams.set(endpoint, streamIn);
+				}
+				
+				return streamIn;
+			}
+			
 			@Override
 			public void onNext(KeyValue keyValue) {
 				PutOperation op = buildRequest(keyValue).build();
-				instance.pushWaitingQueue(op.getHeader().getTag(), keyValue.key());
-				streamIn.onNext(op);
+				waitingKeys.put(op.getHeader().getTag(), keyValue.key());
+				stream(instance.route(keyValue.key())).onNext(op);
 			}
 
 			@Override
 			public void onError(Throwable t) {
-				streamIn.onError(t);
+				for (StreamObserver<PutOperation> streamIn : streams) {
+					if (streamIn != null) {
+						streamIn.onError(t);
+					}
+				}
+				merged.error(t);
 			}
 
 			@Override
 			public void onCompleted() {
-				streamIn.onCompleted();
+				for (StreamObserver<PutOperation> streamIn : streams) {
+					if (streamIn != null) {
+						streamIn.onCompleted();
+					}
+				}
+				merged.complete();
 			}
 			
 		};
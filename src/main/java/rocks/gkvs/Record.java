@@ -18,6 +18,8 @@
 
 package rocks.gkvs;
 
+import java.nio.ByteBuffer;
+
 import javax.annotation.Nullable;
 
 import rocks.gkvs.value.Value;
@@ -51,4 +53,12 @@ public interface Record {
 	
 	@Nullable byte[] rawValue();
 	
+	/**
+	 * Gets the msgpack payload of the value without the copy, can be written by {@link GkvsClient#putRaw(Key, ByteBuffer)} as is
+	 * 
+	 * @return read-only buffer or null if the record has no value
+	 */
+	
+	@Nullable ByteBuffer rawValueBuffer();
+	
 }
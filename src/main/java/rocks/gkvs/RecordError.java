@@ -17,6 +17,8 @@
  */
 package rocks.gkvs;
 
+import java.nio.ByteBuffer;
+
 import javax.annotation.Nullable;
 
 import rocks.gkvs.protos.ValueResult;
@@ -111,6 +113,11 @@ public final class RecordError implements Record {
 		return null;
 	}
 
+	@Override
+	public @Nullable ByteBuffer rawValueBuffer() {
+		return null;
+	}
+
 	@Override
 	public String toString() {
 		return "RECORD_ERROR [" + tag() + "]: " + getStatus();
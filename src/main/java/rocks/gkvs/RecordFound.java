@@ -18,11 +18,14 @@
 
 package rocks.gkvs;
 
+import java.nio.ByteBuffer;
+
 import javax.annotation.Nullable;
 
 import rocks.gkvs.protos.Metadata;
 import rocks.gkvs.protos.ValueResult;
 import rocks.gkvs.value.Nil;
+import rocks.gkvs.value.PayloadView;
 import rocks.gkvs.value.Value;
 
 /**
@@ -41,11 +44,34 @@ public final class RecordFound implements Record {
 	private final @Nullable Key requestKey;
 	private final ValueResult result;
 	
+	// decoded on the first access, shared by values of the record
+	private volatile @Nullable PayloadView payload;
+	
 	protected RecordFound(@Nullable Key requestKey, ValueResult result) {
 		this.requestKey = requestKey;
 		this.result = result;
 	}
 	
+	/**
+	 * Gets the size of the result, used as the weight of the cached record
+	 * 
+	 * @return size in bytes
+	 */
+	
+	protected int getSerializedSize() {
+		return result.getSerializedSize();
+	}
+	
+	/**
+	 * Gets the result, used by the off-heap cache
+	 * 
+	 * @return result of the read
+	 */
+	
+	protected ValueResult getResult() {
+		return result;
+	}
+	
 	@Override
 	public long tag() {
 		return result.getHeader().getTag();
@@ -90,7 +116,19 @@ public final class RecordFound implements Record {
 	
 	@Override
 	public Value value() {
-		return result.hasValue() ? Transformers.fromProto(result.getValue()) : Nil.get();
+		
+		if (!result.hasValue()) {
+			return Nil.get();
+		}
+		
+		PayloadView view = payload;
+		
+		if (view == null) {
+			view = Transformers.viewOf(result.getValue());
+			payload = view;
+		}
+		
+		return view.value();
 	}
 
 	@Override
@@ -103,6 +141,11 @@ public final class RecordFound implements Record {
 		
 		return null;
 	}
+	
+	@Override
+	public @Nullable ByteBuffer rawValueBuffer() {
+		return result.hasValue() ? result.getValue().getRaw().asReadOnlyByteBuffer() : null;
+	}
 
 	@Override
 	public String toString() {
@@ -18,6 +18,8 @@
 
 package rocks.gkvs;
 
+import java.nio.ByteBuffer;
+
 import javax.annotation.Nullable;
 
 import rocks.gkvs.protos.ValueResult;
@@ -85,6 +87,11 @@ public final class RecordNotFound implements Record {
 		return null;
 	}
 
+	@Override
+	public @Nullable ByteBuffer rawValueBuffer() {
+		return null;
+	}
+
 	@Override
 	public String toString() {
 		return "RECORD_NOT_FOUND [" + tag() + "]";
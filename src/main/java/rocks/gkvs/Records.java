@@ -0,0 +1,355 @@
+/*
+ *
+ * Copyright 2018-present GKVS authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package rocks.gkvs;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.annotation.Nullable;
+
+import rocks.gkvs.NearCache.Fill;
+import rocks.gkvs.protos.OperationHeader;
+import rocks.gkvs.protos.StatusCode;
+import rocks.gkvs.protos.ValueResult;
+
+/**
+ *
+ * Records
+ *
+ * Result of MultiGet in the order of requested keys
+ *
+ * Every distinct key is requested and decoded only once, duplicate keys share the record.
+ * Iteration returns records in the order of keys, including duplicates.
+ * Lookup by key takes constant time.
+ *
+ */
+
+public final class Records implements Iterable<Record> {
+
+	private final KeyIndex index;
+	private final Record[] records;
+	private final @Nullable Fill fill;
+	private @Nullable Record[] stale;
+
+	private volatile Map<Key, Record> map;
+
+	protected Records(KeyIndex index) {
+		this(index, null);
+	}
+
+	/**
+	 * Creates records that fill the near cache by decoded results
+	 *
+	 * @param index - distinct keys
+	 * @param fill - fill of the near cache or null
+	 */
+
+	protected Records(KeyIndex index, @Nullable Fill fill) {
+		this.index = index;
+		this.records = new Record[index.keys.length];
+		this.fill = fill;
+	}
+
+	/**
+	 * Gets the number of requested keys, including duplicates
+	 *
+	 * @return number of records
+	 */
+
+	public int size() {
+		return index.positions.length;
+	}
+
+	/**
+	 * Gets the record by position of the requested key
+	 *
+	 * @param position - position of the key in the request
+	 * @return record
+	 */
+
+	public Record get(int position) {
+		return records[index.positions[position]];
+	}
+
+	/**
+	 * Gets the record by key
+	 *
+	 * @param key - requested key
+	 * @return record or null if the key was not requested
+	 */
+
+	public @Nullable Record get(Key key) {
+		Integer i = index.indexes.get(key);
+		return i != null ? records[i] : null;
+	}
+
+	/**
+	 * Gets records in the order of requested keys
+	 *
+	 * @return unmodifiable list
+	 */
+
+	public List<Record> asList() {
+
+		return new AbstractList<Record>() {
+
+			@Override
+			public Record get(int position) {
+				return Records.this.get(position);
+			}
+
+			@Override
+			public int size() {
+				return Records.this.size();
+			}
+
+		};
+	}
+
+	/**
+	 * Gets records by distinct keys in the order of the first request of the key
+	 *
+	 * @return unmodifiable map
+	 */
+
+	public Map<Key, Record> asMap() {
+
+		Map<Key, Record> result = map;
+
+		if (result == null) {
+
+			Map<Key, Record> copy = new LinkedHashMap<Key, Record>(index.keys.length * 2);
+			for (int i = 0; i != index.keys.length; ++i) {
+				copy.put(index.keys[i], records[i]);
+			}
+
+			result = Collections.unmodifiableMap(copy);
+			map = result;
+		}
+
+		return result;
+	}
+
+	@Override
+	public Iterator<Record> iterator() {
+		return asList().iterator();
+	}
+
+	/**
+	 * Decodes the result, the tag of the result is the index of the distinct key plus one
+	 *
+	 * @param result - result of the key
+	 * @return decoded record or null if the tag is unknown
+	 */
+
+	protected @Nullable Record add(ValueResult result) {
+
+		long tag = result.getHeader().getTag();
+		if (tag < 1 || tag > records.length) {
+			return null;
+		}
+
+		int i = (int) (tag - 1);
+		Record record = Transformers.toRecord(index.keys[i], result);
+		records[i] = record;
+
+		if (fill != null) {
+			fill.put(index.keys[i], record);
+		}
+
+		return record;
+	}
+
+	/**
+	 * Sets the record of the distinct key that is not requested from the server
+	 *
+	 * @param i - index of the distinct key
+	 * @param record - cached record
+	 */
+
+	protected void set(int i, Record record) {
+		records[i] = record;
+	}
+
+	/**
+	 * Checks that the distinct key has the record
+	 *
+	 * @param i - index of the distinct key
+	 * @return true if the record is set
+	 */
+
+	protected boolean has(int i) {
+		return records[i] != null;
+	}
+
+	/**
+	 * Sets the expired record of the near cache that is served if the version did not change
+	 *
+	 * @param i - index of the distinct key
+	 * @param record - stale record
+	 */
+
+	protected void setStale(int i, Record record) {
+		if (stale == null) {
+			stale = new Record[records.length];
+		}
+		stale[i] = record;
+	}
+
+	protected boolean hasStale() {
+		return stale != null;
+	}
+
+	/**
+	 * Gets keys with stale records
+	 *
+	 * @return keys to revalidate
+	 */
+
+	protected List<Key> getStaleKeys() {
+
+		if (stale == null) {
+			return Collections.emptyList();
+		}
+
+		List<Key> keys = new ArrayList<Key>();
+		for (int i = 0; i != stale.length; ++i) {
+			if (stale[i] != null) {
+				keys.add(index.keys[i]);
+			}
+		}
+
+		return keys;
+	}
+
+	/**
+	 * Sets stale records that have the same version in the metadata-only result,
+	 * other keys stay without records and are read again
+	 *
+	 * @param metadata - result of the metadata-only read of stale keys
+	 */
+
+	protected void revalidate(Records metadata) {
+
+		if (stale == null) {
+			return;
+		}
+
+		for (int i = 0; i != stale.length; ++i) {
+
+			Record record = stale[i];
+			if (record == null) {
+				continue;
+			}
+
+			Record current = metadata.get(index.keys[i]);
+			if (current != null && NearCache.isSameVersion(current, record)) {
+				records[i] = fill != null ? fill.revalidated(index.keys[i], record, current) : record;
+			}
+		}
+
+		stale = null;
+	}
+
+	/**
+	 * Copies records set so far, every hedged attempt collects results in to its own copy
+	 *
+	 * @return new records
+	 */
+
+	protected Records copy() {
+		Records copy = new Records(index, fill);
+		System.arraycopy(records, 0, copy.records, 0, records.length);
+		return copy;
+	}
+
+	/**
+	 * Fills records of keys without results by errors
+	 *
+	 * @return this
+	 */
+
+	protected Records complete() {
+
+		for (int i = 0; i != records.length; ++i) {
+
+			if (records[i] == null) {
+
+				ValueResult missing = ValueResult.newBuilder()
+						.setHeader(OperationHeader.newBuilder().setTag(i + 1))
+						.setStatus(rocks.gkvs.protos.Status.newBuilder()
+								.setCode(StatusCode.ERROR)
+								.setErrorMessage("no result for the key"))
+						.build();
+
+				records[i] = new RecordError(index.keys[i], missing);
+			}
+
+		}
+
+		return this;
+	}
+
+	@Override
+	public String toString() {
+		return "Records [size=" + size() + ", keys=" + index.keys.length + "]";
+	}
+
+	/**
+	 * Distinct keys of the request and positions of requested keys
+	 */
+
+	protected static final class KeyIndex {
+
+		final Key[] keys;
+		final Map<Key, Integer> indexes;
+		final int[] positions;
+
+		protected KeyIndex(List<Key> requested) {
+
+			List<Key> distinct = new ArrayList<Key>(requested.size());
+
+			this.indexes = new HashMap<Key, Integer>(requested.size() * 2);
+			this.positions = new int[requested.size()];
+
+			for (int i = 0; i != positions.length; ++i) {
+
+				Key key = requested.get(i);
+				Integer index = indexes.get(key);
+
+				if (index == null) {
+					index = distinct.size();
+					distinct.add(key);
+					indexes.put(key, index);
+				}
+
+				positions[i] = index;
+			}
+
+			this.keys = distinct.toArray(new Key[distinct.size()]);
+		}
+
+	}
+
+}
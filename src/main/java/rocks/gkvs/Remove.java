@@ -18,9 +18,11 @@
 
 package rocks.gkvs;
 
-import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.MoreExecutors;
 
 import rocks.gkvs.Transformers.KeyResolver;
+import rocks.gkvs.Transformers.SingleKeyResolver;
+import rocks.gkvs.protos.GenericStoreGrpc;
 import rocks.gkvs.protos.KeyOperation;
 import rocks.gkvs.protos.OperationHeader;
 import rocks.gkvs.protos.Select;
@@ -89,6 +91,8 @@ public final class Remove extends One<Status> {
 			builder.setSelect(selectOrNull);
 		}
 		
+		instance.invalidate(key);
+		
 		return builder.build();
 	}
 	
@@ -101,23 +105,45 @@ public final class Remove extends One<Status> {
 		catch(RuntimeException e) {
 			throw new GkvsException("sync fail " + this, e);
 		}
+		finally {
+			instance.invalidate(key);
+		}
 		
 	}
 	
 	private Status doSync() {
 		
-		StatusResult result = instance.getBlockingStub().remove(buildRequest());
+		KeyOperation request = buildRequest();
 		
-		return Transformers.toStatus(key, result);
+		GkvsChannel channel = instance.acquireChannel(key);
+		try {
+			StatusResult result = channel.blockingUnary(GenericStoreGrpc.getRemoveMethod(), instance.deadline(header.getTimeout()), request);
+			return Transformers.toStatus(key, result);
+		}
+		finally {
+			channel.release();
+		}
 		
 	}
 	
 	@Override
 	public GkvsFuture<Status> async() {
 		
-		ListenableFuture<StatusResult> result = instance.getFutureStub().remove(buildRequest());
+		KeyOperation request = buildRequest();
+		
+		GkvsChannel channel = instance.acquireChannel(key);
+		
+		GkvsFuture<Status> result = new UnaryCall<KeyOperation, StatusResult, Status>(channel) {
+
+			@Override
+			protected Status decode(StatusResult result) {
+				return Transformers.toStatus(key, result);
+			}
+			
+		}.start(GenericStoreGrpc.getRemoveMethod(), instance.deadline(header.getTimeout()), request);
 		
-		return new GkvsFuture<Status>(Transformers.toStatus(key, result));
+		result.addListener(instance.invalidation(key), MoreExecutors.directExecutor());
+		return result;
 		
 	}
 	
@@ -126,18 +152,10 @@ public final class Remove extends One<Status> {
 		
 		KeyOperation request = buildRequest();
 		
-		instance.pushWaitingQueue(request.getHeader().getTag(), key);
-		
-		final KeyResolver keyResolver = new KeyResolver() {
-
-			@Override
-			public Key find(long requestId) {
-				return instance.popWaitingQueue(requestId);
-			}
-			
-		};
+		final KeyResolver keyResolver = new SingleKeyResolver(key);
 		
-		instance.getAsyncStub().remove(request, Transformers.observeStatuses(statusObserver, keyResolver));
+		GkvsChannel channel = instance.acquireChannel(key);
+		channel.getAsyncStub(instance.deadline(header.getTimeout())).remove(request, channel.track(Transformers.observeStatuses(instance.invalidating(key, statusObserver), keyResolver)));
 	
 	}
 	
@@ -18,11 +18,20 @@
 
 package rocks.gkvs;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import javax.annotation.Nullable;
+
+import io.grpc.Deadline;
 import io.grpc.stub.StreamObserver;
 import rocks.gkvs.Transformers.KeyResolver;
+import rocks.gkvs.Transformers.TagKeyResolver;
 import rocks.gkvs.protos.KeyOperation;
 import rocks.gkvs.protos.OperationHeader;
 import rocks.gkvs.protos.Select;
+import rocks.gkvs.protos.StatusResult;
 
 /**
  * 
@@ -41,6 +50,7 @@ public final class RemoveAll extends BiStream<Key, Status> {
 	
 	private Select.Builder selectOrNull;
 	private int timeoutMls;
+	private int deadlineMls;
 	
 	public RemoveAll(GkvsClient instance) {
 		this.instance = instance;
@@ -64,6 +74,18 @@ public final class RemoveAll extends BiStream<Key, Status> {
 		return this;
 	}
 
+	/**
+	 * Sets the deadline of the whole stream, the stream is cancelled when it expires
+	 * 
+	 * @param deadlineMls - deadline in milliseconds after the start of the stream
+	 * @return this
+	 */
+	
+	public RemoveAll withDeadline(int deadlineMls) {
+		this.deadlineMls = deadlineMls;
+		return this;
+	}
+	
 	private KeyOperation buildRequest(Key key) {
 		
 		if (key == null) {
@@ -84,6 +106,8 @@ public final class RemoveAll extends BiStream<Key, Status> {
 			builder.setSelect(selectOrNull);
 		}
 		
+		instance.invalidate(key);
+		
 		return builder.build();
 	}
 	
@@ -105,35 +129,105 @@ public final class RemoveAll extends BiStream<Key, Status> {
 	
 	@Override
 	public Observer<Key> async(Observer<Status> statusObserver) {
+		return async(statusObserver, null);
+	}
+	
+	@Override
+	protected Observer<Key> async(Observer<Status> statusObserver, @Nullable FlowControl control) {
 		
-		final KeyResolver keyResolver = new KeyResolver() {
+		final TagTable<Key> waitingKeys = new TagTable<Key>();
+		final KeyResolver keyResolver = new TagKeyResolver(waitingKeys);
+		
+		Observer<Status> observer = instance.invalidating(statusObserver);
+		Deadline deadline = instance.streamDeadline(deadlineMls);
+		
+		if (instance.getEndpointCount() > 1) {
+			return asyncRouted(observer, waitingKeys, keyResolver, deadline, control);
+		}
+		
+		final GkvsChannel channel = instance.acquireChannel();
+		final StreamObserver<KeyOperation> streamIn = channel.getAsyncStub(deadline).removeAll(FlowControl.<KeyOperation, StatusResult>wrap(control, channel.track(Transformers.observeStatuses(observer, keyResolver))));
+		
+		return new Observer<Key>() {
 
 			@Override
-			public Key find(long requestId) {
-				return instance.popWaitingQueue(requestId);
+			public void onNext(Key key) {
+				KeyOperation op = buildRequest(key);
+				waitingKeys.put(op.getHeader().getTag(), key);
+				streamIn.onNext(op);
+			}
+
+			@Override
+			public void onError(Throwable t) {
+				streamIn.onError(t);
+			}
+
+			@Override
+			public void onCompleted() {
+				streamIn.onCompleted();
 			}
 			
 		};
 		
-		final StreamObserver<KeyOperation> streamIn = instance.getAsyncStub().removeAll(Transformers.observeStatuses(statusObserver, keyResolver));
+	}
+
+	/**
+	 * Opens the stream per endpoint on demand, every key goes to the endpoint that owns it
+	 * 
+	 * @param statusObserver - observer of merged statuses
+	 * @param waitingKeys - keys of requests in flight
+	 * @param keyResolver - resolver of request keys
+	 * @param deadline - deadline of all streams
+	 * @param control - flow control of all streams
+	 * @return observer of keys
+	 */
+	
+	private Observer<Key> asyncRouted(final Observer<Status> statusObserver, final TagTable<Key> waitingKeys, final KeyResolver keyResolver, final @Nullable Deadline deadline, final @Nullable FlowControl control) {
+		
+		final MergedObserver<Status> merged = new MergedObserver<Status>(statusObserver);
+		
+		final List<StreamObserver<KeyOperation>> streams = new ArrayList<StreamObserver<KeyOperation>>(Collections.<StreamObserver<KeyOperation>>nCopies(instance.getEndpointCount(), null));
 		
 		return new Observer<Key>() {
 
+			private StreamObserver<KeyOperation> stream(int endpoint) {
+				
+				StreamObserver<KeyOperation> streamIn = streams.get(endpoint);
+				
+				if (streamIn == null) {
+					GkvsChannel channel = instance.acquireChannel(endpoint);
+					streamIn = channel.getAsyncStub(deadline).removeAll(FlowControl.<KeyOperation, StatusResult>wrap(control, channel.track(Transformers.observeStatuses(merged.fork(), keyResolver))));
+					streams.set(endpoint, streamIn);
+				}
+				
+				return streamIn;
+			}
+			
 			@Override
 			public void onNext(Key key) {
 				KeyOperation op = buildRequest(key);
-				instance.pushWaitingQueue(op.getHeader().getTag(), key);
-				streamIn.onNext(op);
+				waitingKeys.put(op.getHeader().getTag(), key);
+				stream(instance.route(key)).onNext(op);
 			}
 
 			@Override
 			public void onError(Throwable t) {
-				streamIn.onError(t);
+				for (StreamObserver<KeyOperation> streamIn : streams) {
+					if (streamIn != null) {
+						streamIn.onError(t);
+					}
+				}
+				merged.error(t);
 			}
 
 			@Override
 			public void onCompleted() {
-				streamIn.onCompleted();
+				for (StreamObserver<KeyOperation> streamIn : streams) {
+					if (streamIn != null) {
+						streamIn.onCompleted();
+					}
+				}
+				merged.complete();
 			}
 			
 		};
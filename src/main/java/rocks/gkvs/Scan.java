@@ -20,7 +20,14 @@ package rocks.gkvs;
 
 import java.util.Iterator;
 
+import javax.annotation.Nullable;
+
+import io.grpc.Context;
+import io.grpc.Context.CancellableContext;
+import io.grpc.stub.StreamObserver;
+
 import rocks.gkvs.Transformers.NullKeyResolver;
+import rocks.gkvs.Transformers.SimpleRecordFn;
 import rocks.gkvs.protos.OperationHeader;
 import rocks.gkvs.protos.ScanOperation;
 import rocks.gkvs.protos.Select;
@@ -47,6 +54,9 @@ public final class Scan extends IncomingStream<Record> {
 	
 	private boolean includeKey = true;
 	private boolean includeValue = false;
+	private int deadlineMls;
+	private int prefetch;
+	private long prefetchBytes;
 	
 	public Scan(GkvsClient instance) {
 		this.instance = instance;
@@ -67,6 +77,51 @@ public final class Scan extends IncomingStream<Record> {
 		return this;
 	}
 
+	/**
+	 * Sets the deadline of the whole stream, the stream is cancelled when it expires
+	 * 
+	 * @param deadlineMls - deadline in milliseconds after the start of the stream
+	 * @return this
+	 */
+	
+	public Scan withDeadline(int deadlineMls) {
+		this.deadlineMls = deadlineMls;
+		return this;
+	}
+	
+	/**
+	 * Enables manual flow control, the stream holds at most the number of records in flight and not consumed
+	 * 
+	 * @param prefetch - number of records
+	 * @return this
+	 */
+	
+	public Scan withPrefetch(int prefetch) {
+		this.prefetch = prefetch;
+		return this;
+	}
+	
+	/**
+	 * Enables manual flow control, the stream holds at most the estimated size of records in flight and not consumed
+	 * 
+	 * @param prefetchBytes - size in bytes
+	 * @return this
+	 */
+	
+	public Scan withPrefetchBytes(long prefetchBytes) {
+		this.prefetchBytes = prefetchBytes;
+		return this;
+	}
+	
+	private @Nullable PrefetchWindow<ScanOperation, ValueResult> newWindow() {
+		
+		if (prefetch <= 0 && prefetchBytes <= 0) {
+			return null;
+		}
+		
+		return new PrefetchWindow<ScanOperation, ValueResult>(prefetch > 0 ? prefetch : Integer.MAX_VALUE, prefetchBytes);
+	}
+	
 	public Scan select(String column) {
 		
 		if (column == null) {
@@ -102,19 +157,107 @@ public final class Scan extends IncomingStream<Record> {
 		
 	}
 	
+	/**
+	 * Gets records by the blocking iterator, the iterator is also {@link CloseableIterator} 
+	 * and cancels the call on close, the iterator abandoned before the end must be closed
+	 * 
+	 * @return iterator of records
+	 */
+	
 	@Override
 	public Iterator<Record> sync() {
 		
-		Iterator<ValueResult> results = instance.getBlockingStub().scan(buildRequest());
-		return Transformers.toRecords(results);
+		final ScanOperation request = buildRequest();
+		
+		final PrefetchWindow<ScanOperation, ValueResult> window = newWindow();
+		
+		if (window != null) {
+			
+			final PrefetchIterator<ValueResult, Record> iterator = new PrefetchIterator<ValueResult, Record>(window, SimpleRecordFn.INS);
+			
+			iterator.setContext(CallContext.run(new Runnable() {
+
+				@Override
+				public void run() {
+					GkvsChannel channel = instance.acquireChannel();
+					channel.getAsyncStub(instance.streamDeadline(deadlineMls)).scan(request, window.wrap(channel.track((StreamObserver<ValueResult>) iterator), false));
+				}
+				
+			}));
+			
+			window.accept(Long.MAX_VALUE);
+			window.start();
+			
+			return iterator;
+		}
+		
+		final GkvsChannel channel = instance.acquireChannel();
+		final CancellableContext context = Context.current().withCancellation();
+		
+		Iterator<ValueResult> results;
+		
+		Context previous = context.attach();
+		try {
+			results = channel.getBlockingStub(instance.streamDeadline(deadlineMls)).scan(request);
+		}
+		catch(RuntimeException e) {
+			channel.release();
+			context.cancel(e);
+			throw e;
+		}
+		finally {
+			context.detach(previous);
+		}
+		
+		return channel.track(results, SimpleRecordFn.INS, context);
 		
 	}
 	
 	@Override
 	public void async(Observer<Record> recordObserver) {
 		
-		instance.getAsyncStub().scan(buildRequest(), Transformers.observeRecords(recordObserver, NullKeyResolver.INS));
+		PrefetchWindow<ScanOperation, ValueResult> window = newWindow();
+		
+		start(recordObserver, window);
+		
+		if (window != null) {
+			window.accept(Long.MAX_VALUE);
+		}
+		
+	}
+	
+	/**
+	 * Results are always requested by the demand, the prefetch limits the window if it is set
+	 */
+	
+	@Override
+	protected PrefetchWindow<ScanOperation, ValueResult> asyncOnDemand(Observer<Record> recordObserver) {
+		
+		PrefetchWindow<ScanOperation, ValueResult> window = newWindow();
+		
+		if (window == null) {
+			window = new PrefetchWindow<ScanOperation, ValueResult>(Integer.MAX_VALUE, 0);
+		}
+		
+		start(recordObserver, window);
+		return window;
+	}
+	
+	private void start(Observer<Record> recordObserver, @Nullable PrefetchWindow<ScanOperation, ValueResult> window) {
+		
+		ScanOperation request = buildRequest();
+		
+		GkvsChannel channel = instance.acquireChannel();
+		StreamObserver<ValueResult> results = channel.track(Transformers.observeRecords(recordObserver, NullKeyResolver.INS));
+		
+		if (window == null) {
+			channel.getAsyncStub(instance.streamDeadline(deadlineMls)).scan(request, results);
+			return;
+		}
 		
+		// the record is consumed when onNext of the observer returns
+		channel.getAsyncStub(instance.streamDeadline(deadlineMls)).scan(request, window.wrap(results, true));
+		window.start();
 	}
 
 	@Override
@@ -0,0 +1,104 @@
+/*
+ *
+ * Copyright 2018-present GKVS authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package rocks.gkvs;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import com.google.common.base.Supplier;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.common.util.concurrent.SettableFuture;
+
+import io.grpc.Context;
+
+/**
+ *
+ * SingleFlight
+ *
+ * Concurrent identical calls share one call in flight and one result
+ *
+ * The call is forgotten as soon as it completes, so the next caller sends the new one.
+ * Every caller gets its own view of the shared future, cancel of the view does not cancel the call of others
+ *
+ * @param <K> - identity of the call
+ * @param <V> - result
+ */
+
+final class SingleFlight<K, V> {
+
+	private final ConcurrentMap<K, ListenableFuture<V>> inFlight = new ConcurrentHashMap<K, ListenableFuture<V>>();
+
+	/**
+	 * Joins the call in flight or starts the new one
+	 *
+	 * @param key - identity of the call
+	 * @param call - starts the call
+	 * @return view of the shared result
+	 */
+
+	protected ListenableFuture<V> execute(final K key, Supplier<ListenableFuture<V>> call) {
+
+		ListenableFuture<V> existing = inFlight.get(key);
+		if (existing != null) {
+			return Futures.nonCancellationPropagating(existing);
+		}
+
+		final SettableFuture<V> shared = SettableFuture.create();
+
+		existing = inFlight.putIfAbsent(key, shared);
+		if (existing != null) {
+			return Futures.nonCancellationPropagating(existing);
+		}
+
+		shared.addListener(new Runnable() {
+
+			@Override
+			public void run() {
+				inFlight.remove(key, shared);
+			}
+
+		}, MoreExecutors.directExecutor());
+
+		// the shared call is not cancelled with the context of the first caller
+		Context forked = Context.current().fork();
+		Context previous = forked.attach();
+		try {
+			shared.setFuture(call.get());
+		}
+		catch(RuntimeException e) {
+			shared.setException(e);
+		}
+		finally {
+			forked.detach(previous);
+		}
+
+		return Futures.nonCancellationPropagating(shared);
+	}
+
+	protected int size() {
+		return inFlight.size();
+	}
+
+	@Override
+	public String toString() {
+		return "SingleFlight [inFlight=" + inFlight.size() + "]";
+	}
+
+}
@@ -0,0 +1,279 @@
+/*
+ *
+ * Copyright 2018-present GKVS authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package rocks.gkvs;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.locks.StampedLock;
+
+import javax.annotation.Nullable;
+
+import com.google.protobuf.InvalidProtocolBufferException;
+
+import rocks.gkvs.protos.ValueResult;
+
+/**
+ *
+ * SlabStore
+ *
+ * Off-heap storage of serialized results of the near cache
+ *
+ * The memory is split in to slabs of direct buffers that are allocated on first use.
+ * Results are appended to the current slab, when all slabs are used the oldest slab is recycled
+ * as a whole and its results are evicted, so the store has no fragmentation and no per-result frees.
+ * Space of invalidated results is reclaimed when the slab is recycled.
+ *
+ * Reads do not lock, the result is copied to the heap and validated before it is parsed,
+ * the result that was overwritten during the read is a miss.
+ *
+ */
+
+final class SlabStore {
+
+	private final int slabSize;
+	private final ByteBuffer[] slabs;
+	private final AtomicIntegerArray generations;
+	private final Evictor evictor;
+
+	// recycle of the slab takes the write lock, reads are optimistic
+	private final StampedLock recycle = new StampedLock();
+
+	private final List<List<Slot>> written;
+	private int current = -1;
+	private int used;
+	private long allocated;
+
+	/**
+	 * Creates the store
+	 *
+	 * @param maxBytes - max memory of all slabs
+	 * @param slabSize - memory of one slab, max size of the result
+	 * @param evictor - called for results of the recycled slab outside of the lock of the store
+	 */
+
+	protected SlabStore(long maxBytes, int slabSize, Evictor evictor) {
+
+		if (slabSize < 1024) {
+			throw new IllegalArgumentException("invalid slab bytes: " + slabSize);
+		}
+
+		long count = maxBytes / slabSize;
+		if (count < 2 || count > Integer.MAX_VALUE) {
+			throw new IllegalArgumentException("invalid off-heap bytes: " + maxBytes + ", slab bytes: " + slabSize);
+		}
+
+		this.slabSize = slabSize;
+		this.slabs = new ByteBuffer[(int) count];
+		this.generations = new AtomicIntegerArray(slabs.length);
+		this.written = new ArrayList<List<Slot>>(slabs.length);
+		this.evictor = evictor;
+
+		for (int i = 0; i != slabs.length; ++i) {
+			written.add(new ArrayList<Slot>());
+		}
+	}
+
+	/**
+	 * Writes the result
+	 *
+	 * @param key - record key
+	 * @param result - result of the read
+	 * @return location of the result or null if it does not fit in to the slab
+	 */
+
+	protected @Nullable Slot write(Key key, ValueResult result) {
+
+		// serialized on the heap outside of the lock, the unsafe direct encoder of protobuf 3.5
+		// does not resolve the address of the direct buffer on newer JVMs
+		byte[] bytes = result.toByteArray();
+		int size = bytes.length;
+
+		if (size > slabSize) {
+			return null;
+		}
+
+		Slot slot;
+		List<Slot> evicted = null;
+
+		synchronized (this) {
+
+			if (current == -1 || used + size > slabSize) {
+				evicted = next();
+			}
+
+			ByteBuffer slab = slabs[current];
+
+			ByteBuffer target = slab.duplicate();
+			target.position(used);
+			target.put(bytes);
+
+			slot = new Slot(key, slab, current, generations.get(current), used, size);
+			written.get(current).add(slot);
+			used += size;
+		}
+
+		if (evicted != null) {
+			for (Slot old : evicted) {
+				evictor.evicted(old);
+			}
+		}
+
+		return slot;
+	}
+
+	/**
+	 * Moves to the next slab, recycles it if it is used
+	 *
+	 * @return slots of the recycled slab
+	 */
+
+	private @Nullable List<Slot> next() {
+
+		current = (current + 1) % slabs.length;
+		used = 0;
+
+		if (slabs[current] == null) {
+			slabs[current] = ByteBuffer.allocateDirect(slabSize);
+			allocated += slabSize;
+			return null;
+		}
+
+		long stamp = recycle.writeLock();
+		try {
+			generations.incrementAndGet(current);
+		}
+		finally {
+			recycle.unlockWrite(stamp);
+		}
+
+		List<Slot> slots = written.get(current);
+		written.set(current, new ArrayList<Slot>());
+		return slots;
+	}
+
+	/**
+	 * Reads the result
+	 *
+	 * @param slot - location of the result
+	 * @return result or null if the slab was recycled
+	 */
+
+	protected @Nullable ValueResult read(Slot slot) {
+
+		long stamp = recycle.tryOptimisticRead();
+
+		if (stamp == 0 || !isValid(slot)) {
+			return null;
+		}
+
+		ByteBuffer source = slot.slab.duplicate();
+		source.position(slot.offset);
+
+		byte[] bytes = new byte[slot.length];
+		source.get(bytes);
+
+		if (!recycle.validate(stamp)) {
+			return null;
+		}
+
+		try {
+			return ValueResult.parseFrom(bytes);
+		}
+		catch (InvalidProtocolBufferException e) {
+			return null;
+		}
+	}
+
+	protected boolean isValid(Slot slot) {
+		return generations.get(slot.index) == slot.generation;
+	}
+
+	/**
+	 * Gets the memory of allocated slabs
+	 *
+	 * @return size in bytes
+	 */
+
+	protected synchronized long allocated() {
+		return allocated;
+	}
+
+	/**
+	 * Invalidates all results, allocated slabs are reused
+	 */
+
+	protected void clear() {
+
+		long stamp = recycle.writeLock();
+		try {
+			synchronized (this) {
+				for (int i = 0; i != slabs.length; ++i) {
+					generations.incrementAndGet(i);
+					written.set(i, new ArrayList<Slot>());
+				}
+				current = -1;
+				used = 0;
+			}
+		}
+		finally {
+			recycle.unlockWrite(stamp);
+		}
+	}
+
+	/**
+	 * Location of the result
+	 */
+
+	static final class Slot {
+
+		final Key key;
+		final ByteBuffer slab;
+		final int index;
+		final int generation;
+		final int offset;
+		final int length;
+
+		Slot(Key key, ByteBuffer slab, int index, int generation, int offset, int length) {
+			this.key = key;
+			this.slab = slab;
+			this.index = index;
+			this.generation = generation;
+			this.offset = offset;
+			this.length = length;
+		}
+
+	}
+
+	/**
+	 * Receiver of evicted results
+	 */
+
+	interface Evictor {
+
+		void evicted(Slot slot);
+
+	}
+
+	@Override
+	public synchronized String toString() {
+		return "SlabStore [slabs=" + slabs.length + ", slabSize=" + slabSize + ", allocated=" + allocated + "]";
+	}
+
+}
@@ -0,0 +1,296 @@
+/*
+ *
+ * Copyright 2018-present GKVS authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package rocks.gkvs;
+
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.function.LongConsumer;
+
+import javax.annotation.Nullable;
+
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+
+import io.grpc.Context.CancellableContext;
+
+/**
+ *
+ * StreamSubscription
+ *
+ * Reactive Streams subscription of the streaming call
+ *
+ * The demand of the subscriber is passed to the flow control of the call, so the server sends
+ * only requested results, results that came before the demand are held and emitted later.
+ * Cancel of the subscription cancels the call, signals to the subscriber are serialized.
+ *
+ * The subscriber can request and cancel in onSubscribe, before the call is attached,
+ * the demand and the cancel are applied to the call when it starts.
+ *
+ * @param <R> - receive type
+ */
+
+final class StreamSubscription<R> implements Subscription, Observer<R> {
+
+	private final Subscriber<? super R> subscriber;
+	private final @Nullable Runnable onCancel;
+
+	private final Queue<R> queue = new ArrayDeque<R>();
+
+	private boolean attached;
+	private @Nullable LongConsumer upstream;
+	private @Nullable CancellableContext context;
+	private long pending;
+
+	private long demand;
+	private boolean done;
+	private Throwable error;
+	private volatile boolean cancelled;
+	private boolean emitting;
+	private boolean missed;
+
+	/**
+	 * Creates the subscription
+	 *
+	 * @param subscriber - subscriber of results
+	 * @param onCancel - additional cancel handler or null
+	 */
+
+	protected StreamSubscription(Subscriber<? super R> subscriber, @Nullable Runnable onCancel) {
+		this.subscriber = subscriber;
+		this.onCancel = onCancel;
+	}
+
+	/**
+	 * Attaches the started call
+	 *
+	 * @param upstream - receiver of the demand or null if the call has no flow control
+	 * @param context - context of the call
+	 */
+
+	protected void attach(@Nullable LongConsumer upstream, CancellableContext context) {
+
+		long n;
+		boolean cancel;
+
+		synchronized (this) {
+			this.attached = true;
+			this.upstream = upstream;
+			this.context = context;
+			n = pending;
+			pending = 0;
+			cancel = cancelled || error != null;
+		}
+
+		if (cancel) {
+			CallContext.cancel(context);
+		}
+		else if (upstream != null && n > 0) {
+			upstream.accept(n);
+		}
+	}
+
+	protected boolean isCancelled() {
+		return cancelled;
+	}
+
+	@Override
+	public void request(long n) {
+
+		if (n <= 0) {
+			// rule 3.9
+			fail(new IllegalArgumentException("non-positive request: " + n));
+			return;
+		}
+
+		LongConsumer target = null;
+
+		synchronized (this) {
+
+			if (cancelled) {
+				return;
+			}
+
+			demand = add(demand, n);
+
+			if (attached) {
+				target = upstream;
+			}
+			else {
+				pending = add(pending, n);
+			}
+		}
+
+		if (target != null) {
+			target.accept(n);
+		}
+
+		drain();
+	}
+
+	@Override
+	public void cancel() {
+
+		CancellableContext call;
+
+		synchronized (this) {
+			if (cancelled) {
+				return;
+			}
+			cancelled = true;
+			queue.clear();
+			call = context;
+		}
+
+		cancelCall(call);
+	}
+
+	@Override
+	public void onNext(R item) {
+		synchronized (this) {
+			if (done || cancelled) {
+				return;
+			}
+			queue.add(item);
+		}
+		drain();
+	}
+
+	@Override
+	public void onError(Throwable t) {
+		synchronized (this) {
+			if (done) {
+				return;
+			}
+			error = t;
+			done = true;
+		}
+		drain();
+	}
+
+	@Override
+	public void onCompleted() {
+		synchronized (this) {
+			if (done) {
+				return;
+			}
+			done = true;
+		}
+		drain();
+	}
+
+	/**
+	 * Stops the call and delivers the error without the demand
+	 */
+
+	private void fail(Throwable t) {
+
+		CancellableContext call;
+
+		synchronized (this) {
+			if (done || cancelled) {
+				return;
+			}
+			queue.clear();
+			error = t;
+			done = true;
+			call = context;
+		}
+
+		cancelCall(call);
+		drain();
+	}
+
+	private void cancelCall(@Nullable CancellableContext call) {
+
+		if (call != null) {
+			CallContext.cancel(call);
+		}
+
+		if (onCancel != null) {
+			onCancel.run();
+		}
+	}
+
+	private void drain() {
+
+		synchronized (this) {
+			if (emitting) {
+				missed = true;
+				return;
+			}
+			emitting = true;
+		}
+
+		while (true) {
+
+			R item = null;
+			boolean terminate = false;
+
+			synchronized (this) {
+
+				if (cancelled) {
+					emitting = false;
+					return;
+				}
+				else if (!queue.isEmpty() && demand > 0) {
+					item = queue.poll();
+					if (demand != Long.MAX_VALUE) {
+						demand--;
+					}
+				}
+				else if (queue.isEmpty() && done) {
+					terminate = true;
+					cancelled = true;
+				}
+				else if (missed) {
+					missed = false;
+					continue;
+				}
+				else {
+					emitting = false;
+					return;
+				}
+
+			}
+
+			// emitting stays set, nothing is delivered after the terminal event
+			if (terminate) {
+				if (error != null) {
+					subscriber.onError(error);
+				}
+				else {
+					subscriber.onComplete();
+				}
+				return;
+			}
+
+			subscriber.onNext(item);
+		}
+
+	}
+
+	private static long add(long a, long b) {
+		return a + b < 0 ? Long.MAX_VALUE : a + b;
+	}
+
+	@Override
+	public synchronized String toString() {
+		return "StreamSubscription [demand=" + demand + ", queued=" + queue.size() + ", done=" + done + "]";
+	}
+
+}
@@ -0,0 +1,121 @@
+/*
+ *
+ * Copyright 2018-present GKVS authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package rocks.gkvs;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import com.google.common.base.Supplier;
+
+/**
+ *
+ * Stripes
+ *
+ * Stripes of the client-side cache and invalidation stamps of keys, shared by {@link NearCache} and {@link NegativeCache}
+ *
+ * The read takes the stamp of the key before it is sent and the result is cached only if the stamp did not change,
+ * so the read that was in flight during the write does not fill the cache with the old record.
+ * Stamps are kept per slot of the key hash, the invalidation of one key fails only the fills of keys of the same slot.
+ *
+ * @param <S> - stripe type
+ */
+
+final class Stripes<S> {
+
+	protected static final int STRIPES = 16;
+
+	private static final int SLOTS = 1024;
+
+	private final List<S> stripes;
+
+	// incremented by every invalidation of keys of the slot
+	private final AtomicLongArray stamps = new AtomicLongArray(SLOTS);
+
+	protected Stripes(Supplier<S> factory) {
+
+		List<S> list = new ArrayList<S>(STRIPES);
+		for (int i = 0; i != STRIPES; ++i) {
+			list.add(factory.get());
+		}
+
+		this.stripes = Collections.unmodifiableList(list);
+	}
+
+	protected S stripe(Key key) {
+		return stripes.get(hash(key) & (STRIPES - 1));
+	}
+
+	protected List<S> all() {
+		return stripes;
+	}
+
+	/**
+	 * Gets the stamp of the key that must be taken before the read
+	 *
+	 * @param key - record key
+	 * @return current stamp
+	 */
+
+	protected long stamp(Key key) {
+		return stamps.get(slot(key));
+	}
+
+	/**
+	 * Checks that the key was not invalidated after the stamp, called under the lock of the stripe
+	 *
+	 * @param key - record key
+	 * @param stamp - stamp taken before the read
+	 * @return true if the result of the read can be cached
+	 */
+
+	protected boolean isCurrent(Key key, long stamp) {
+		return stamps.get(slot(key)) == stamp;
+	}
+
+	/**
+	 * Fails fills of the key in flight, must be called before the key is removed from the stripe
+	 *
+	 * @param key - record key
+	 */
+
+	protected void invalidate(Key key) {
+		stamps.incrementAndGet(slot(key));
+	}
+
+	/**
+	 * Fails all fills in flight, must be called before stripes are cleared
+	 */
+
+	protected void invalidateAll() {
+		for (int i = 0; i != SLOTS; ++i) {
+			stamps.incrementAndGet(i);
+		}
+	}
+
+	private static int slot(Key key) {
+		return hash(key) & (SLOTS - 1);
+	}
+
+	private static int hash(Key key) {
+		int h = key.hashCode();
+		return h ^ (h >>> 16);
+	}
+
+}
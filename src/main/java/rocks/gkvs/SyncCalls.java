@@ -0,0 +1,82 @@
+/*
+ *
+ * Copyright 2018-present GKVS authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package rocks.gkvs;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import io.grpc.CallOptions;
+import io.grpc.Channel;
+import io.grpc.MethodDescriptor;
+import io.grpc.stub.ClientCalls;
+import io.netty.util.concurrent.DefaultThreadFactory;
+
+/**
+ *
+ * SyncCalls
+ *
+ * Blocking unary calls and the executor of blocking tasks
+ *
+ * This is the Java 8 variant, the call is the same as by the blocking stub and tasks run on the pool of platform threads.
+ * The multi-release jar replaces the class on Java 21 by the variant with virtual threads, see src/main/java21.
+ *
+ */
+
+final class SyncCalls {
+
+	private static final int POOL_THREADS = Runtime.getRuntime().availableProcessors() * 4;
+
+	private SyncCalls() {
+	}
+
+	/**
+	 * Executes the unary call and waits for the result
+	 *
+	 * @param channel - channel
+	 * @param method - unary method
+	 * @param options - call options with the deadline
+	 * @param request - request
+	 * @return response
+	 * @throws io.grpc.StatusRuntimeException on the failure of the call
+	 */
+
+	protected static <ReqT, RespT> RespT blockingUnary(Channel channel, MethodDescriptor<ReqT, RespT> method, CallOptions options, ReqT request) {
+		return ClientCalls.blockingUnaryCall(channel, method, options, request);
+	}
+
+	/**
+	 * Creates the executor of blocking tasks
+	 *
+	 * @return pool of daemon threads
+	 */
+
+	protected static ExecutorService newTaskExecutor() {
+		return Executors.newFixedThreadPool(POOL_THREADS, new DefaultThreadFactory("gkvs-fanout", true));
+	}
+
+	/**
+	 * Checks that tasks run on virtual threads
+	 *
+	 * @return false
+	 */
+
+	protected static boolean isVirtual() {
+		return false;
+	}
+
+}
@@ -0,0 +1,264 @@
+/*
+ *
+ * Copyright 2018-present GKVS authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package rocks.gkvs;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.annotation.Nullable;
+
+/**
+ *
+ * TagTable
+ *
+ * Correlates request tags with their keys while the requests are in flight
+ *
+ * Striped open-addressing table with primitive long keys, linear probing and backward-shift deletion,
+ * no boxing and no expiry. The table lives as long as the stream that owns it,
+ * so the keys of the abandoned stream go away together with the stream.
+ *
+ * Tags are positive, zero marks the empty slot.
+ *
+ * @param <V> - value type
+ */
+
+final class TagTable<V> {
+
+	protected static final int DEFAULT_MAX_SIZE = 1 << 20;
+
+	private static final int STRIPES = 8;
+	private static final int INITIAL_CAPACITY = 16;
+
+	private final Stripe<V>[] stripes;
+	private final int maxStripeSize;
+
+	protected TagTable() {
+		this(DEFAULT_MAX_SIZE);
+	}
+
+	@SuppressWarnings({"unchecked", "rawtypes"})
+	protected TagTable(int maxSize) {
+
+		if (maxSize < STRIPES) {
+			throw new IllegalArgumentException("maxSize is too small: " + maxSize);
+		}
+
+		this.stripes = new Stripe[STRIPES];
+		for (int i = 0; i != STRIPES; ++i) {
+			stripes[i] = new Stripe<V>();
+		}
+		this.maxStripeSize = maxSize / STRIPES;
+	}
+
+	/**
+	 * Associates the value with the tag
+	 *
+	 * @param tag - positive request tag
+	 * @param value - not null value
+	 * @throws IllegalStateException if too many requests are in flight
+	 */
+
+	protected void put(long tag, V value) {
+
+		if (tag <= 0L) {
+			throw new IllegalArgumentException("invalid tag: " + tag);
+		}
+
+		long hash = mix(tag);
+		Stripe<V> stripe = stripes[(int) (hash >>> 61)];
+
+		synchronized (stripe) {
+			if (!stripe.put(tag, value, (int) hash, maxStripeSize)) {
+				throw new IllegalStateException("too many requests in flight: " + size());
+			}
+		}
+	}
+
+	/**
+	 * Removes the tag
+	 *
+	 * @param tag - request tag
+	 * @return value or null if the tag is unknown
+	 */
+
+	protected @Nullable V remove(long tag) {
+
+		long hash = mix(tag);
+		Stripe<V> stripe = stripes[(int) (hash >>> 61)];
+
+		synchronized (stripe) {
+			return stripe.remove(tag, (int) hash);
+		}
+	}
+
+	/**
+	 * Removes all tags
+	 *
+	 * @return removed values
+	 */
+
+	@SuppressWarnings("unchecked")
+	protected List<V> removeAll() {
+
+		List<V> removed = new ArrayList<V>();
+
+		for (Stripe<V> stripe : stripes) {
+			synchronized (stripe) {
+				for (int i = 0; i != stripe.tags.length; ++i) {
+					if (stripe.tags[i] != 0L) {
+						removed.add((V) stripe.values[i]);
+					}
+				}
+				stripe.clear();
+			}
+		}
+
+		return removed;
+	}
+
+	protected int size() {
+		int size = 0;
+		for (Stripe<V> stripe : stripes) {
+			synchronized (stripe) {
+				size += stripe.size;
+			}
+		}
+		return size;
+	}
+
+	/**
+	 * Tags are sequential, the finalizer of SplitMix64 spreads them over stripes and slots
+	 */
+
+	private static long mix(long z) {
+		z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+		z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+		return z ^ (z >>> 31);
+	}
+
+	private static final class Stripe<V> {
+
+		private long[] tags = new long[INITIAL_CAPACITY];
+		private Object[] values = new Object[INITIAL_CAPACITY];
+		private int size;
+
+		void clear() {
+			tags = new long[INITIAL_CAPACITY];
+			values = new Object[INITIAL_CAPACITY];
+			size = 0;
+		}
+
+		boolean put(long tag, V value, int hash, int maxSize) {
+
+			int index = find(tag, hash);
+			if (tags[index] == tag) {
+				values[index] = value;
+				return true;
+			}
+
+			if (size >= maxSize) {
+				return false;
+			}
+
+			// keep load factor under 1/2
+			if ((size + 1) * 2 > tags.length) {
+				resize(tags.length * 2);
+				index = find(tag, hash);
+			}
+
+			tags[index] = tag;
+			values[index] = value;
+			size++;
+			return true;
+		}
+
+		@SuppressWarnings("unchecked")
+		@Nullable V remove(long tag, int hash) {
+
+			int index = find(tag, hash);
+			if (tags[index] != tag) {
+				return null;
+			}
+
+			V value = (V) values[index];
+
+			int mask = tags.length - 1;
+
+			// backward-shift deletion keeps probe sequences without tombstones
+			int hole = index;
+			int next = (hole + 1) & mask;
+			while (tags[next] != 0L) {
+				int home = (int) mix(tags[next]) & mask;
+				if (((next - home) & mask) >= ((next - hole) & mask)) {
+					tags[hole] = tags[next];
+					values[hole] = values[next];
+					hole = next;
+				}
+				next = (next + 1) & mask;
+			}
+
+			tags[hole] = 0L;
+			values[hole] = null;
+			size--;
+
+			return value;
+		}
+
+		/**
+		 * Finds the slot of the tag or the empty slot where it must be placed
+		 */
+
+		private int find(long tag, int hash) {
+			int mask = tags.length - 1;
+			int index = hash & mask;
+			while (tags[index] != 0L && tags[index] != tag) {
+				index = (index + 1) & mask;
+			}
+			return index;
+		}
+
+		private void resize(int capacity) {
+
+			long[] oldTags = tags;
+			Object[] oldValues = values;
+
+			tags = new long[capacity];
+			values = new Object[capacity];
+
+			int mask = capacity - 1;
+			for (int i = 0; i != oldTags.length; ++i) {
+				long tag = oldTags[i];
+				if (tag != 0L) {
+					int index = (int) mix(tag) & mask;
+					while (tags[index] != 0L) {
+						index = (index + 1) & mask;
+					}
+					tags[index] = tag;
+					values[index] = oldValues[i];
+				}
+			}
+		}
+
+	}
+
+	@Override
+	public String toString() {
+		return "TagTable [size=" + size() + "]";
+	}
+
+}
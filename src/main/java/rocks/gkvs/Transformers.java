@@ -17,7 +17,7 @@
  */
 package rocks.gkvs;
 
-import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
@@ -29,13 +29,17 @@ import com.google.common.collect.Iterators;
 import com.google.common.util.concurrent.Futures;
 import com.google.common.util.concurrent.ListenableFuture;
 import com.google.protobuf.ByteString;
+import com.google.protobuf.UnsafeByteOperations;
 
 import io.grpc.stub.StreamObserver;
-import rocks.gkvs.protos.BatchValueResult;
 import rocks.gkvs.protos.ListEntry;
 import rocks.gkvs.protos.ListResult;
+import rocks.gkvs.protos.OperationHeader;
+import rocks.gkvs.protos.StatusCode;
 import rocks.gkvs.protos.StatusResult;
 import rocks.gkvs.protos.ValueResult;
+import rocks.gkvs.value.PayloadView;
+import rocks.gkvs.value.RawValue;
 
 /**
  * 
@@ -88,13 +92,22 @@ final class Transformers {
 	protected static rocks.gkvs.protos.Value toProto(rocks.gkvs.value.Value value) {
 		rocks.gkvs.protos.Value.Builder builder = rocks.gkvs.protos.Value.newBuilder();
 		
-		ByteString.Output out = ByteString.newOutput();
-		try {
-			value.writeTo(out);
-		} catch (IOException e) {
-			throw new GkvsException("i/o error", e);
+		if (value instanceof RawValue) {
+			// the payload of the received record goes to the request as is, ropes are not flattened
+			builder.setRaw(((RawValue) value).payloadBytes());
+			return builder.build();
+		}
+		
+		ByteBuffer frozen = value.getFrozenMsgpack();
+		
+		if (frozen != null) {
+			// encoded once by the freeze, shared by all writes of the value
+			builder.setRaw(UnsafeByteOperations.unsafeWrap(frozen));
+		}
+		else {
+			// the encoded array is not shared, it is wrapped without the copy
+			builder.setRaw(UnsafeByteOperations.unsafeWrap(value.toMsgpack()));
 		}
-		builder.setRaw(out.toByteString());
 		
 		return builder.build();
 	}
@@ -109,14 +122,39 @@ final class Transformers {
 		
 	}
 	
-	protected static rocks.gkvs.value.Value fromProto(rocks.gkvs.protos.Value proto) {
-		return parseValue(getValuePayload(proto));
+	/**
+	 * Wraps the payload of the value without the copy, fields are decoded on access
+	 * 
+	 * @param proto - value of the result
+	 * @return view of the payload
+	 */
+	
+	protected static PayloadView viewOf(rocks.gkvs.protos.Value proto) {
+		return PayloadView.wrap(getValuePayload(proto).asReadOnlyByteBuffer());
 	}
 	
 	protected static ByteString getValuePayload(rocks.gkvs.protos.Value proto) {
 		return proto.getRaw();
 	}
 	
+	/**
+	 * Creates the record of the key that is answered as not found without the read
+	 * 
+	 * @param requestKey - requested key
+	 * @param tag - tag of the request
+	 * @return record
+	 */
+	
+	protected static Record notFound(Key requestKey, long tag) {
+		
+		ValueResult result = ValueResult.newBuilder()
+				.setHeader(OperationHeader.newBuilder().setTag(tag))
+				.setStatus(rocks.gkvs.protos.Status.newBuilder().setCode(StatusCode.SUCCESS))
+				.build();
+		
+		return new RecordNotFound(requestKey, result);
+	}
+	
 	protected static Record toRecord(@Nullable Key requestKey, ValueResult result) {
 		if (ProtocolUtils.isError(result)) {
 			return new RecordError(requestKey, result);
@@ -142,10 +180,6 @@ final class Transformers {
 		return Futures.transform(result, new SimpleKeyRecordFn(requestKey));
 	}
 	
-	protected static ListenableFuture<Iterable<Record>> toBatchRecords(ListenableFuture<BatchValueResult> result, KeyResolver keyResolver) {
-		return Futures.transform(result, new BatchKeyRecordFn(keyResolver));
-	}
-	
 	protected static ListenableFuture<Status> toStatus(@Nullable Key requestKey, ListenableFuture<StatusResult> result) {
 		return Futures.transform(result, new SimpleKeyStatusFn(requestKey));
 	}
@@ -190,30 +224,52 @@ final class Transformers {
 		
 	}
 	
-	protected static final class SimpleKeyRecordFn implements Function<ValueResult, Record> {
-
-		private final @Nullable Key requestKey;
+	/**
+	 * Resolves the key of the unary call, there is only one request in flight
+	 */
+	
+	protected static final class SingleKeyResolver implements KeyResolver {
 		
-		protected SimpleKeyRecordFn(@Nullable Key requestKey) {
-			this.requestKey = requestKey;
+		private final Key key;
+		
+		protected SingleKeyResolver(Key key) {
+			this.key = key;
 		}
 		
-		public Record apply(ValueResult result) {
-			return toRecord(requestKey, result);
+		public Key find(long requestId) {
+			return key;
+		}
+		
+	}
+	
+	/**
+	 * Resolves keys of the stream and forgets them
+	 */
+	
+	protected static final class TagKeyResolver implements KeyResolver {
+		
+		private final TagTable<Key> waitingKeys;
+		
+		protected TagKeyResolver(TagTable<Key> waitingKeys) {
+			this.waitingKeys = waitingKeys;
+		}
+		
+		public @Nullable Key find(long requestId) {
+			return waitingKeys.remove(requestId);
 		}
 		
 	}
 	
-	protected static final class BatchKeyRecordFn implements Function<BatchValueResult, Iterable<Record>> {
+	protected static final class SimpleKeyRecordFn implements Function<ValueResult, Record> {
 
-		private final KeyResolver keyResolver;
+		private final @Nullable Key requestKey;
 		
-		protected BatchKeyRecordFn(KeyResolver keyResolver) {
-			this.keyResolver = keyResolver;
+		protected SimpleKeyRecordFn(@Nullable Key requestKey) {
+			this.requestKey = requestKey;
 		}
 		
-		public Iterable<Record> apply(BatchValueResult result) {
-			return toRecords(result.getResultList(), keyResolver);
+		public Record apply(ValueResult result) {
+			return toRecord(requestKey, result);
 		}
 		
 	}
@@ -284,10 +340,6 @@ final class Transformers {
 		return new StreamRecordObserverAdapter(recordObserver, keyResolver);
 	}
 	
-	protected static StreamObserver<BatchValueResult> observeBatchRecords(Observer<Iterable<Record>> recordObserver, KeyResolver keyResolver) {
-		return new StreamBatchRecordObserverAdapter(recordObserver, keyResolver);
-	}
-	
 	protected static StreamObserver<StatusResult> observeStatuses(Observer<Status> statusObserver, KeyResolver keyResolver) {
 		return new StreamStatusObserverAdapter(statusObserver, keyResolver);
 	}
@@ -319,33 +371,6 @@ final class Transformers {
 		
 	}
 	
-	protected static final class StreamBatchRecordObserverAdapter implements StreamObserver<BatchValueResult> {
-
-		private final Observer<Iterable<Record>> recordObserver;
-		private final KeyResolver keyResolver;
-		
-		public StreamBatchRecordObserverAdapter(Observer<Iterable<Record>> recordObserver, KeyResolver keyResolver) {
-			this.recordObserver = recordObserver;
-			this.keyResolver = keyResolver;
-		}
-		
-		@Override
-		public void onNext(BatchValueResult value) {
-			recordObserver.onNext(Transformers.toRecords(value.getResultList(), keyResolver));
-		}
-
-		@Override
-		public void onError(Throwable t) {
-			recordObserver.onError(t);
-		}
-
-		@Override
-		public void onCompleted() {
-			recordObserver.onCompleted();
-		}
-		
-	}
-	
 	protected static final class StreamStatusObserverAdapter implements StreamObserver<StatusResult> {
 
 		private final Observer<Status> statusObserver;
@@ -0,0 +1,178 @@
+/*
+ *
+ * Copyright 2018-present GKVS authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package rocks.gkvs;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import javax.annotation.Nullable;
+
+import io.grpc.CallOptions;
+import io.grpc.ClientCall;
+import io.grpc.Deadline;
+import io.grpc.Metadata;
+import io.grpc.MethodDescriptor;
+
+/**
+ *
+ * UnaryCall
+ *
+ * Async unary call that drives ClientCall directly and completes itself from the listener
+ *
+ * There is no future stub, no intermediate ListenableFuture and no transform, the response is decoded
+ * by the subclass in the listener. Cancel of the future cancels the call, the channel slot is released on close.
+ *
+ * @param <ReqT> - request type
+ * @param <RespT> - response type
+ * @param <T> - result type
+ */
+
+abstract class UnaryCall<ReqT, RespT, T> extends GkvsFuture<T> {
+
+	private final GkvsChannel channel;
+	private final Listener listener = new Listener();
+	private final AtomicBoolean released = new AtomicBoolean();
+
+	private volatile ClientCall<ReqT, RespT> call;
+
+	/**
+	 * Creates the call over the acquired channel
+	 *
+	 * @param channel - channel, released when the call closes
+	 */
+
+	protected UnaryCall(GkvsChannel channel) {
+		this.channel = channel;
+	}
+
+	/**
+	 * Decodes the response, called by the listener
+	 *
+	 * @param response - response of the server
+	 * @return result
+	 */
+
+	protected abstract T decode(RespT response);
+
+	/**
+	 * Starts the call
+	 *
+	 * @param method - unary method of the store
+	 * @param deadline - deadline or null
+	 * @param request - request
+	 * @return this
+	 */
+
+	protected UnaryCall<ReqT, RespT, T> start(MethodDescriptor<ReqT, RespT> method, @Nullable Deadline deadline, ReqT request) {
+
+		ClientCall<ReqT, RespT> call;
+
+		try {
+			call = channel.newCall(method, deadline != null ? CallOptions.DEFAULT.withDeadline(deadline) : CallOptions.DEFAULT);
+		}
+		catch(RuntimeException e) {
+			release();
+			throw e;
+		}
+
+		this.call = call;
+		boolean started = false;
+
+		try {
+			call.start(listener, new Metadata());
+			started = true;
+			// the second message is requested to detect the protocol violation
+			call.request(2);
+			call.sendMessage(request);
+			call.halfClose();
+		}
+		catch(RuntimeException e) {
+			call.cancel("start failed", e);
+			// the listener of the call that did not start is never closed
+			if (!started) {
+				release();
+			}
+			throw e;
+		}
+
+		return this;
+	}
+
+	private void release() {
+		if (released.compareAndSet(false, true)) {
+			channel.release();
+		}
+	}
+
+	/**
+	 * Cancels the future and the call
+	 */
+
+	@Override
+	public boolean cancel(boolean mayInterruptIfRunning) {
+
+		boolean cancelled = super.cancel(mayInterruptIfRunning);
+
+		ClientCall<ReqT, RespT> c = call;
+		if (cancelled && c != null) {
+			c.cancel("cancelled by the caller", null);
+		}
+
+		return cancelled;
+	}
+
+	private final class Listener extends ClientCall.Listener<RespT> {
+
+		private RespT response;
+
+		@Override
+		public void onMessage(RespT message) {
+			if (response != null) {
+				throw io.grpc.Status.INTERNAL.withDescription("more than one value received for unary call").asRuntimeException();
+			}
+			response = message;
+		}
+
+		@Override
+		public void onClose(io.grpc.Status status, Metadata trailers) {
+
+			release();
+
+			if (!status.isOk()) {
+				completeExceptionally(status.asRuntimeException(trailers));
+			}
+			else if (response == null) {
+				completeExceptionally(io.grpc.Status.INTERNAL.withDescription("no value received for unary call").asRuntimeException(trailers));
+			}
+			else {
+				try {
+					complete(decode(response));
+				}
+				catch(RuntimeException e) {
+					completeExceptionally(e);
+				}
+			}
+		}
+
+	}
+
+	@Override
+	public String toString() {
+		return "UnaryCall [done=" + isDone() + "]";
+	}
+
+}
@@ -0,0 +1,155 @@
+/*
+ *
+ * Copyright 2018-present GKVS authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package rocks.gkvs;
+
+import java.util.Iterator;
+
+import io.grpc.Context.CancellableContext;
+
+/**
+ *
+ * WindowIterator
+ *
+ * Lazy blocking iterator over the bi-directional stream with one result per request
+ *
+ * Requests are taken from the source by the consumer thread and sent ahead of results,
+ * at most the window of requests is in flight or waits in the queue,
+ * so memory does not depend on the size of the source.
+ * The stream must answer every request, the completion of the stream with missing results fails the iteration,
+ * the deadline of the stream bounds the wait for the result that never comes.
+ *
+ * @param <S> - send type
+ * @param <R> - receive type
+ */
+
+final class WindowIterator<S, R> extends BlockingIterator<R> implements Observer<R> {
+
+	private final Iterator<S> source;
+	private final int window;
+
+	private Observer<S> sender;
+	private CancellableContext context;
+
+	private int inFlight;
+	private boolean sourceDone;
+
+	protected WindowIterator(Iterator<S> source, int window) {
+
+		if (window < 1) {
+			throw new IllegalArgumentException("invalid window: " + window);
+		}
+
+		this.source = source;
+		this.window = window;
+	}
+
+	/**
+	 * Opens the stream in the cancellable context
+	 *
+	 * @param stream - bi-directional stream
+	 * @return this
+	 */
+
+	protected WindowIterator<S, R> open(final BiStream<S, R> stream) {
+
+		final WindowIterator<S, R> receiver = this;
+
+		this.context = CallContext.run(new Runnable() {
+
+			@Override
+			public void run() {
+				sender = stream.async(receiver);
+			}
+
+		});
+
+		return this;
+	}
+
+	@Override
+	public void onNext(R item) {
+		received(item);
+	}
+
+	@Override
+	public void onError(Throwable t) {
+		failed(t);
+	}
+
+	@Override
+	public void onCompleted() {
+		completed();
+	}
+
+	/**
+	 * Fills the window from the source, half-closes the stream when the source is exhausted
+	 */
+
+	@Override
+	protected void beforeTake() {
+
+		while (!sourceDone && inFlight < window) {
+
+			if (source.hasNext()) {
+				sender.onNext(source.next());
+				inFlight++;
+			}
+			else {
+				sourceDone = true;
+				sender.onCompleted();
+			}
+		}
+
+	}
+
+	/**
+	 * All results of the window are taken before the completion, the missing result fails the iteration
+	 */
+
+	@Override
+	protected void checkCompleted() {
+
+		if (inFlight > 0) {
+			throw new GkvsException("stream completed without " + inFlight + " results");
+		}
+
+		if (!sourceDone) {
+			throw new GkvsException("stream completed before the end of the source");
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	@Override
+	protected R taken(Object item) {
+		inFlight--;
+		return (R) item;
+	}
+
+	@Override
+	public void close() {
+		if (finish()) {
+			CallContext.cancel(context);
+		}
+	}
+
+	@Override
+	public String toString() {
+		return "WindowIterator [window=" + window + ", inFlight=" + inFlight + "]";
+	}
+
+}
@@ -0,0 +1,393 @@
+/*
+ *
+ * Copyright 2018-present GKVS authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package rocks.gkvs;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.Nullable;
+
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.common.util.concurrent.SettableFuture;
+
+import io.grpc.Context;
+import io.grpc.Deadline;
+import io.grpc.stub.StreamObserver;
+import rocks.gkvs.protos.PutOperation;
+import rocks.gkvs.protos.StatusResult;
+
+/**
+ *
+ * WriteBehind
+ *
+ * Funnels puts from many threads in to long-lived PutAll streams
+ *
+ * Every endpoint has the fixed number of lanes, the key always goes to the same lane, so writes of the key keep the order.
+ * The lane keeps unsent writes by key, the next write of the key replaces the unsent one (last write wins)
+ * and both callers get the status of the sent write.
+ * Lanes are flushed every flush interval or as soon as pending bytes exceed the limit, the flush sends
+ * while the stream is ready and the ready handler of the stream sends the rest. Unsent writes are counted
+ * in pending bytes, writes over the limit are rejected until the stream drains.
+ * Statuses are returned to callers by tag, the put fails by its deadline if there is no status.
+ *
+ */
+
+final class WriteBehind {
+
+	private final GkvsClient instance;
+	private final int streams;
+	private final long maxPendingBytes;
+
+	private final Lane[] lanes;
+	private final ScheduledFuture<?> timer;
+
+	protected WriteBehind(GkvsClient instance, int streams, int flushMls, long maxPendingBytes) {
+
+		if (streams < 1) {
+			throw new IllegalArgumentException("invalid number of streams: " + streams);
+		}
+
+		if (flushMls < 1) {
+			throw new IllegalArgumentException("invalid flush interval: " + flushMls);
+		}
+
+		this.instance = instance;
+		this.streams = streams;
+		this.maxPendingBytes = maxPendingBytes;
+
+		this.lanes = new Lane[instance.getEndpointCount() * streams];
+		for (int i = 0; i != lanes.length; ++i) {
+			lanes[i] = new Lane(i / streams);
+		}
+
+		this.timer = instance.getScheduler().scheduleWithFixedDelay(new Runnable() {
+
+			@Override
+			public void run() {
+				flush();
+			}
+
+		}, flushMls, flushMls, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * Queues the write
+	 *
+	 * @param key - record key
+	 * @param request - put with the unique tag
+	 * @param deadline - deadline of the put or null
+	 * @return future of the status
+	 */
+
+	protected ListenableFuture<Status> submit(Key key, PutOperation request, @Nullable Deadline deadline) {
+
+		Lane lane = lanes[instance.route(key) * streams + (key.hashCode() & Integer.MAX_VALUE) % streams];
+		Write write = new Write(key, request);
+
+		if (deadline != null) {
+			expireAt(lane, write, deadline);
+		}
+
+		return lane.add(write);
+	}
+
+	private void expireAt(final Lane lane, final Write write, Deadline deadline) {
+
+		final ScheduledFuture<?> expiry = instance.getScheduler().schedule(new Runnable() {
+
+			@Override
+			public void run() {
+				lane.expire(write);
+			}
+
+		}, deadline.timeRemaining(TimeUnit.NANOSECONDS), TimeUnit.NANOSECONDS);
+
+		write.future.addListener(new Runnable() {
+
+			@Override
+			public void run() {
+				expiry.cancel(false);
+			}
+
+		}, MoreExecutors.directExecutor());
+	}
+
+	protected void flush() {
+		for (Lane lane : lanes) {
+			lane.flush();
+		}
+	}
+
+	/**
+	 * Sends all pending writes and half-closes streams, the channel shutdown waits for their statuses
+	 */
+
+	protected void close() {
+		timer.cancel(false);
+		for (Lane lane : lanes) {
+			lane.close();
+		}
+	}
+
+	private static final class Write {
+
+		final Key key;
+		final long tag;
+		final int size;
+		final SettableFuture<Status> future = SettableFuture.create();
+
+		// released after the send, the status needs only the key
+		PutOperation request;
+
+		Write(Key key, PutOperation request) {
+			this.key = key;
+			this.tag = request.getHeader().getTag();
+			this.size = request.getSerializedSize();
+			this.request = request;
+		}
+
+	}
+
+	private final class Lane {
+
+		private final int endpoint;
+
+		// unsent writes, counted in bytes until they are given to the stream
+		private final Map<Key, Write> pending = new LinkedHashMap<Key, Write>();
+		private long pendingBytes;
+
+		private StreamObserver<PutOperation> stream;
+		private FlowControl control;
+		private TagTable<Write> sent;
+
+		// the ready handler can be called by the send on the same thread
+		private boolean sending;
+
+		Lane(int endpoint) {
+			this.endpoint = endpoint;
+		}
+
+		ListenableFuture<Status> add(Write write) {
+
+			boolean rejected = false;
+
+			synchronized (this) {
+
+				if (pendingBytes >= maxPendingBytes) {
+					flush();
+					rejected = pendingBytes >= maxPendingBytes;
+				}
+
+				if (!rejected) {
+
+					Write replaced = pending.put(write.key, write);
+					if (replaced != null) {
+						pendingBytes -= replaced.size;
+						replaced.future.setFuture(write.future);
+					}
+
+					pendingBytes += write.size;
+
+					if (pendingBytes >= maxPendingBytes) {
+						flush();
+					}
+				}
+			}
+
+			if (rejected) {
+				// the stream is not ready, the server does not keep up
+				write.future.setException(io.grpc.Status.RESOURCE_EXHAUSTED.withDescription("pending bytes exceed " + maxPendingBytes).asRuntimeException());
+			}
+
+			return write.future;
+		}
+
+		void expire(Write write) {
+
+			synchronized (this) {
+				if (pending.get(write.key) == write) {
+					pending.remove(write.key);
+					pendingBytes -= write.size;
+				}
+			}
+
+			write.future.setException(io.grpc.Status.DEADLINE_EXCEEDED.withDescription("write-behind put timed out").asRuntimeException());
+		}
+
+		void flush() {
+			send(false);
+		}
+
+		/**
+		 * Sends pending writes while the stream is ready, the ready handler sends the rest
+		 *
+		 * @param all - sends all writes regardless of the readiness
+		 */
+
+		private synchronized void send(boolean all) {
+
+			if (pending.isEmpty() || sending) {
+				return;
+			}
+
+			sending = true;
+
+			try {
+
+				if (stream == null) {
+					open();
+				}
+
+				StreamObserver<PutOperation> streamOut = stream;
+				TagTable<Write> streamSent = sent;
+
+				Iterator<Write> i = pending.values().iterator();
+
+				while (i.hasNext() && (all || control.isReady())) {
+
+					Write write = i.next();
+					i.remove();
+					pendingBytes -= write.size;
+
+					PutOperation request = write.request;
+					write.request = null;
+
+					streamSent.put(write.tag, write);
+					streamOut.onNext(request);
+				}
+
+				// the stream failed while sending
+				if (sent != streamSent) {
+					RuntimeException e = io.grpc.Status.UNAVAILABLE.withDescription("stream closed").asRuntimeException();
+					for (Write write : streamSent.removeAll()) {
+						write.future.setException(e);
+					}
+				}
+
+			}
+			catch(RuntimeException e) {
+				for (Write write : pending.values()) {
+					write.future.setException(e);
+				}
+				pending.clear();
+				pendingBytes = 0;
+			}
+			finally {
+				sending = false;
+			}
+
+		}
+
+		synchronized void close() {
+			send(true);
+			if (stream != null) {
+				stream.onCompleted();
+				stream = null;
+			}
+		}
+
+		/**
+		 * Opens the stream that lives until the error or close
+		 */
+
+		private void open() {
+
+			final TagTable<Write> streamSent = new TagTable<Write>();
+
+			StreamObserver<StatusResult> responses = new StreamObserver<StatusResult>() {
+
+				@Override
+				public void onNext(StatusResult result) {
+					Write write = streamSent.remove(result.getHeader().getTag());
+					if (write != null) {
+						write.future.set(Transformers.toStatus(write.key, result));
+					}
+				}
+
+				@Override
+				public void onError(Throwable t) {
+					closed(streamSent, t);
+				}
+
+				@Override
+				public void onCompleted() {
+					closed(streamSent, io.grpc.Status.INTERNAL.withDescription("stream completed without status").asRuntimeException());
+				}
+
+			};
+
+			// statuses are not limited, the ready handler sends writes that wait for the transport
+			FlowControl streamControl = new FlowControl(new Runnable() {
+
+				@Override
+				public void run() {
+					flush();
+				}
+
+			});
+			streamControl.request(Long.MAX_VALUE);
+
+			// the stream is not cancelled with the context of the caller
+			Context forked = Context.current().fork();
+			Context previous = forked.attach();
+			try {
+				GkvsChannel channel = instance.acquireChannel(endpoint);
+				this.stream = channel.getAsyncStub(null).putAll(FlowControl.<PutOperation, StatusResult>wrap(streamControl, channel.track(responses)));
+				this.control = streamControl;
+				this.sent = streamSent;
+			}
+			finally {
+				forked.detach(previous);
+			}
+		}
+
+		/**
+		 * Fails writes without status, the next flush opens the new stream
+		 */
+
+		private void closed(TagTable<Write> streamSent, Throwable t) {
+
+			List<Write> lost;
+
+			synchronized (this) {
+				if (sent == streamSent) {
+					stream = null;
+					control = null;
+					sent = null;
+				}
+				lost = streamSent.removeAll();
+			}
+
+			for (Write write : lost) {
+				write.future.setException(t);
+			}
+		}
+
+	}
+
+	@Override
+	public String toString() {
+		return "WriteBehind [lanes=" + lanes.length + "]";
+	}
+
+}
@@ -51,6 +51,12 @@ public final class Bool extends Value {
 		this.booleanValue = Boolean.parseBoolean(value);
 	}
 	
+	@Override
+	public Bool freeze() {
+		super.freeze();
+		return this;
+	}
+	
 	@Override
 	public boolean isNil() {
 		return false;
@@ -95,6 +101,11 @@ public final class Bool extends Value {
 		packer.packBoolean(booleanValue);
 	}
 
+	@Override
+	public int estimatedSize() {
+		return 1;
+	}
+
 	@Override
 	public int hashCode() {
 		final int prime = 31;
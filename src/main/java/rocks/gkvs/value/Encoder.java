@@ -0,0 +1,318 @@
+/*
+ *
+ * Copyright 2018-present GKVS authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package rocks.gkvs.value;
+
+import java.io.IOException;
+
+import org.msgpack.core.MessagePack;
+import org.msgpack.core.MessagePacker;
+import org.msgpack.core.buffer.MessageBuffer;
+import org.msgpack.core.buffer.MessageBufferOutput;
+
+import rocks.gkvs.GkvsException;
+
+/**
+ *
+ * Encoder
+ *
+ * Encodes values in to msgpack arrays of the exact size
+ *
+ * The size is computed by {@link Value#estimatedSize()} before the write, the packer writes
+ * directly in to the new array, so the array is not copied and can be given to the caller.
+ * Packers are reused by the thread.
+ *
+ */
+
+final class Encoder {
+
+	private static final ThreadLocal<Encoder> ENCODER = new ThreadLocal<Encoder>() {
+
+		@Override
+		protected Encoder initialValue() {
+			return new Encoder();
+		}
+
+	};
+
+	private final ExactOutput output = new ExactOutput();
+	private final MessagePacker packer = MessagePack.newDefaultPacker(output);
+
+	private Encoder() {
+	}
+
+	/**
+	 * Encodes the value
+	 *
+	 * @param value - value to encode
+	 * @return new array that is not shared
+	 */
+
+	static byte[] encode(Value value) {
+
+		Encoder encoder = ENCODER.get();
+
+		if (encoder.output.target != null) {
+			// nested call from the write of the value
+			encoder = new Encoder();
+		}
+
+		byte[] target = new byte[value.estimatedSize()];
+		encoder.output.target = target;
+
+		try {
+
+			value.writeTo(encoder.packer);
+			encoder.packer.flush();
+
+			if (encoder.output.position != target.length) {
+				throw new GkvsException("estimated size " + target.length + " of " + value.getClass().getSimpleName() + " is not equal to the written size " + encoder.output.position);
+			}
+
+		} catch (IOException e) {
+			ENCODER.remove();
+			throw new GkvsException("i/o error", e);
+		} catch (RuntimeException e) {
+			// the packer can keep the buffer of the failed write
+			ENCODER.remove();
+			throw e;
+		} finally {
+			encoder.output.target = null;
+			encoder.output.position = 0;
+		}
+
+		return target;
+	}
+
+	/**
+	 * Counts bytes of the write of the value, the default size of values that do not compute it
+	 *
+	 * @param value - value to count
+	 * @return exact size of the msgpack form
+	 */
+
+	static int countSize(Value value) {
+
+		CountingOutput output = new CountingOutput();
+		MessagePacker packer = MessagePack.newDefaultPacker(output);
+
+		try {
+			value.writeTo(packer);
+			packer.flush();
+		} catch (IOException e) {
+			throw new GkvsException("i/o error", e);
+		}
+
+		if (output.count > Integer.MAX_VALUE) {
+			throw new GkvsException("value is too large: " + output.count);
+		}
+
+		return (int) output.count;
+	}
+
+	/**
+	 * Gets the length of the UTF8 form of the string, the same as of {@link String#getBytes(java.nio.charset.Charset)},
+	 * unpaired surrogates are replaced by one byte
+	 *
+	 * @param s - string
+	 * @return number of bytes
+	 */
+
+	static int utf8Length(String s) {
+
+		int length = s.length();
+		int bytes = 0;
+
+		for (int i = 0; i < length; ++i) {
+
+			char c = s.charAt(i);
+
+			if (c < 0x80) {
+				bytes++;
+			}
+			else if (c < 0x800) {
+				bytes += 2;
+			}
+			else if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(s.charAt(i + 1))) {
+				bytes += 4;
+				i++;
+			}
+			else if (Character.isSurrogate(c)) {
+				bytes++;
+			}
+			else {
+				bytes += 3;
+			}
+		}
+
+		return bytes;
+	}
+
+	static int intSize(long v) {
+
+		if (v < -(1L << 5)) {
+
+			if (v < -(1L << 15)) {
+				return v < -(1L << 31) ? 9 : 5;
+			}
+
+			return v < -(1L << 7) ? 3 : 2;
+		}
+
+		if (v < (1L << 7)) {
+			return 1;
+		}
+
+		if (v < (1L << 16)) {
+			return v < (1L << 8) ? 2 : 3;
+		}
+
+		return v < (1L << 32) ? 5 : 9;
+	}
+
+	static int doubleSize() {
+		return 9;
+	}
+
+	static int containerHeaderSize(int size) {
+
+		if (size < (1 << 4)) {
+			return 1;
+		}
+
+		return size < (1 << 16) ? 3 : 5;
+	}
+
+	static int stringHeaderSize(int length) {
+
+		if (length < (1 << 5)) {
+			return 1;
+		}
+
+		if (length < (1 << 8)) {
+			return 2;
+		}
+
+		return length < (1 << 16) ? 3 : 5;
+	}
+
+	static int binaryHeaderSize(int length) {
+
+		if (length < (1 << 8)) {
+			return 2;
+		}
+
+		return length < (1 << 16) ? 3 : 5;
+	}
+
+	/**
+	 * Output that only counts written bytes, the packer writes in to the reused scratch buffer
+	 */
+
+	private static final class CountingOutput implements MessageBufferOutput {
+
+		private byte[] scratch = new byte[256];
+		long count;
+
+		@Override
+		public MessageBuffer next(int minimumSize) throws IOException {
+
+			if (scratch.length < minimumSize) {
+				scratch = new byte[minimumSize];
+			}
+
+			return MessageBuffer.wrap(scratch);
+		}
+
+		@Override
+		public void writeBuffer(int length) throws IOException {
+			count += length;
+		}
+
+		@Override
+		public void write(byte[] buffer, int offset, int length) throws IOException {
+			count += length;
+		}
+
+		@Override
+		public void add(byte[] buffer, int offset, int length) throws IOException {
+			count += length;
+		}
+
+		@Override
+		public void flush() throws IOException {
+		}
+
+		@Override
+		public void close() throws IOException {
+		}
+
+	}
+
+	/**
+	 * Output that gives the remaining part of the target array to the packer
+	 */
+
+	private static final class ExactOutput implements MessageBufferOutput {
+
+		byte[] target;
+		int position;
+
+		@Override
+		public MessageBuffer next(int minimumSize) throws IOException {
+
+			int remaining = target.length - position;
+
+			if (remaining < minimumSize) {
+				throw new IOException("value is larger than estimated size " + target.length);
+			}
+
+			return MessageBuffer.wrap(target, position, remaining);
+		}
+
+		@Override
+		public void writeBuffer(int length) throws IOException {
+			position += length;
+		}
+
+		@Override
+		public void write(byte[] buffer, int offset, int length) throws IOException {
+
+			if (target.length - position < length) {
+				throw new IOException("value is larger than estimated size " + target.length);
+			}
+
+			System.arraycopy(buffer, offset, target, position, length);
+			position += length;
+		}
+
+		@Override
+		public void add(byte[] buffer, int offset, int length) throws IOException {
+			write(buffer, offset, length);
+		}
+
+		@Override
+		public void flush() throws IOException {
+		}
+
+		@Override
+		public void close() throws IOException {
+		}
+
+	}
+
+}
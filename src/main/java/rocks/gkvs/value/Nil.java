@@ -82,6 +82,11 @@ public final class Nil extends Value {
 		packer.packNil();
 	}
 	
+	@Override
+	public int estimatedSize() {
+		return 1;
+	}
+	
 	@Override
 	public void print(StringBuilder str, int initialSpaces, int tabSpaces) {
 		str.append("Nil");
@@ -83,6 +83,12 @@ public final class Num extends Value {
 		return type;
 	}
 	
+	@Override
+	public Num freeze() {
+		super.freeze();
+		return this;
+	}
+	
 	@Override
 	public boolean isNil() {
 		return false;
@@ -223,6 +229,18 @@ public final class Num extends Value {
 		}
 	}
 
+	@Override
+	public int estimatedSize() {
+		switch (type) {
+		case INT64:
+			return Encoder.intSize(longValue);
+		case FLOAT64:
+			return Encoder.doubleSize();
+		default:
+			throw new IllegalStateException("unexpected type: " + type);
+		}
+	}
+
 	@Override
 	public int hashCode() {
 		final int prime = 31;
@@ -0,0 +1,768 @@
+/*
+ *
+ * Copyright 2018-present GKVS authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package rocks.gkvs.value;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import javax.annotation.Nullable;
+
+import org.msgpack.core.MessagePacker;
+
+/**
+ *
+ * PayloadView
+ *
+ * Read-only view of the msgpack payload that decodes only accessed fields
+ *
+ * The map or the array is indexed on the first access by one pass over the payload
+ * that keeps offsets and hashes of keys and offsets of values. Values are decoded on access,
+ * decoded scalars and views of nested tables are memoized, so the view can be shared by threads.
+ * Tables returned by {@link #value()} read through the view and switch to the full parse on the first change.
+ *
+ * Maps with keys that are not strings or integers, or with numeric string keys,
+ * are parsed fully on the first access to keep the same keys as {@link Parser}.
+ *
+ */
+
+public final class PayloadView {
+
+	// absolute reads only, the position of the buffer is never changed
+	private final ByteBuffer buffer;
+	private final int offset;
+
+	private volatile @Nullable Index index;
+
+	private PayloadView(ByteBuffer buffer, int offset) {
+		this.buffer = buffer;
+		this.offset = offset;
+	}
+
+	/**
+	 * Wraps the payload without the copy
+	 *
+	 * @param payload - msgpack payload between the position and the limit
+	 * @return view
+	 */
+
+	public static PayloadView wrap(ByteBuffer payload) {
+		return new PayloadView(payload.slice(), 0);
+	}
+
+	public static PayloadView wrap(byte[] payload) {
+		return new PayloadView(ByteBuffer.wrap(payload), 0);
+	}
+
+	/**
+	 * Gets the value, every call returns the new table over the same view
+	 *
+	 * @return value, nil for the empty payload or null for the nil payload as {@link Parser} does
+	 */
+
+	public @Nullable Value value() {
+
+		if (offset == buffer.limit()) {
+			return Nil.get();
+		}
+
+		int b = u8(offset);
+
+		if (isContainer(b)) {
+			return new Table(this);
+		}
+
+		return decode(offset);
+	}
+
+	protected boolean isRegular() {
+		return index().regular;
+	}
+
+	protected boolean isMap() {
+		return index().map;
+	}
+
+	protected TableType type() {
+		return index().type;
+	}
+
+	protected int entries() {
+		return index().size;
+	}
+
+	/**
+	 * Finds the entry by the key
+	 *
+	 * @param key - string key
+	 * @return last entry with the key or -1
+	 */
+
+	protected int find(String key) {
+
+		Index idx = index();
+
+		if (idx.type == TableType.EMPTY) {
+			return -1;
+		}
+
+		if (idx.type == TableType.LIST) {
+			// array or integer keys only, compared as numbers
+			return find(Integer.parseInt(key));
+		}
+
+		byte[] bytes = key.getBytes(StandardCharsets.UTF_8);
+		int hash = hash(bytes);
+
+		for (int i = idx.size - 1; i >= 0; --i) {
+
+			if (idx.hashes[i] == hash && idx.keys[i] != -1 && keyEquals(idx.keys[i], key, bytes)) {
+				return i;
+			}
+
+		}
+
+		return -1;
+	}
+
+	/**
+	 * Finds the entry by the integer key or the index of the array
+	 *
+	 * @param key - integer key
+	 * @return entry or -1
+	 */
+
+	protected int find(int key) {
+
+		Index idx = index();
+
+		if (!idx.map) {
+			return key >= 0 && key < idx.size ? key : -1;
+		}
+
+		if (idx.type == TableType.MAP) {
+			return find(Integer.toString(key));
+		}
+
+		for (int i = idx.size - 1; i >= 0; --i) {
+
+			if (idx.keys[i] != -1 && readLong(idx.keys[i]) == key) {
+				return i;
+			}
+
+		}
+
+		return -1;
+	}
+
+	/**
+	 * Gets the key of the map entry
+	 *
+	 * @param entry - index of the entry
+	 * @return decoded key or null
+	 */
+
+	protected @Nullable Value key(int entry) {
+
+		Index idx = index();
+
+		if (!idx.map) {
+			return new Num(entry);
+		}
+
+		return read(idx.keyAt[entry]);
+	}
+
+	/**
+	 * Gets the value of the entry, scalars are memoized
+	 *
+	 * @param entry - index of the entry
+	 * @return value or null if the entry is nil
+	 */
+
+	protected @Nullable Value get(int entry) {
+
+		Index idx = index();
+
+		// racy memo, every thread decodes the same value
+		Object decoded = idx.decoded[entry];
+
+		if (decoded instanceof PayloadView) {
+			return new Table((PayloadView) decoded);
+		}
+
+		if (decoded != null) {
+			return (Value) decoded;
+		}
+
+		int pos = idx.values[entry];
+
+		if (isContainer(u8(pos))) {
+			PayloadView nested = new PayloadView(buffer, pos);
+			idx.decoded[entry] = nested;
+			return new Table(nested);
+		}
+
+		Value value = decode(pos);
+		idx.decoded[entry] = value;
+		return value;
+	}
+
+	/**
+	 * Gets the length of the payload of the view
+	 *
+	 * @return size in bytes
+	 */
+
+	protected int length() {
+		return skip(offset) - offset;
+	}
+
+	/**
+	 * Writes the payload of the view as is
+	 *
+	 * @param packer - destination
+	 * @throws IOException
+	 */
+
+	protected void writeTo(MessagePacker packer) throws IOException {
+
+		int length = length();
+
+		if (buffer.hasArray()) {
+			packer.writePayload(buffer.array(), buffer.arrayOffset() + offset, length);
+		}
+		else {
+			packer.writePayload(bytes(offset, length));
+		}
+	}
+
+	private Index index() {
+
+		Index idx = index;
+
+		if (idx == null) {
+			try {
+				idx = new Index(offset);
+			}
+			catch (IndexOutOfBoundsException e) {
+				throw new ParseException("truncated payload", e);
+			}
+			index = idx;
+		}
+
+		return idx;
+	}
+
+	private final class Index {
+
+		final boolean map;
+		final int size;
+
+		// offsets of keys of the map, keys are -1 for nil and out of range keys
+		final int[] keyAt;
+		final int[] keys;
+		final int[] hashes;
+
+		final int[] values;
+		final Object[] decoded;
+
+		final boolean regular;
+		final TableType type;
+
+		Index(int pos) {
+
+			int b = u8(pos);
+
+			this.map = isMap(b);
+			this.size = length(pos);
+
+			this.values = new int[size];
+			this.decoded = new Object[size];
+
+			pos += headerLength(b);
+
+			if (!map) {
+
+				this.keyAt = null;
+				this.keys = null;
+				this.hashes = null;
+
+				boolean empty = true;
+
+				for (int i = 0; i != size; ++i) {
+					values[i] = pos;
+					empty &= u8(pos) == NIL;
+					pos = skip(pos);
+				}
+
+				this.regular = true;
+				this.type = empty ? TableType.EMPTY : TableType.LIST;
+				return;
+			}
+
+			this.keyAt = new int[size];
+			this.keys = new int[size];
+			this.hashes = new int[size];
+
+			boolean regular = true;
+			boolean strings = false;
+			boolean empty = true;
+
+			for (int i = 0; i != size; ++i) {
+
+				keyAt[i] = pos;
+				keys[i] = -1;
+
+				int k = u8(pos);
+
+				if (isString(k)) {
+
+					int start = pos + stringHeaderLength(k);
+					int length = stringLength(pos);
+
+					if (length > 0 && isNumeric(u8(start))) {
+						regular = false;
+					}
+
+					keys[i] = pos;
+					hashes[i] = hash(start, length);
+				}
+				else if (isInteger(k)) {
+
+					long key = readLong(pos);
+
+					if (key < 0 || key > Integer.MAX_VALUE) {
+						regular = false;
+					}
+					else {
+						keys[i] = pos;
+						hashes[i] = hash(Long.toString(key).getBytes(StandardCharsets.UTF_8));
+					}
+				}
+				else if (k != NIL) {
+					regular = false;
+				}
+
+				pos = skip(pos);
+				values[i] = pos;
+
+				if (u8(pos) == NIL) {
+					// skipped by the parser
+					keys[i] = -1;
+				}
+				else if (k != NIL) {
+					empty = false;
+					strings |= isString(k);
+				}
+
+				pos = skip(pos);
+			}
+
+			this.regular = regular;
+			this.type = empty ? TableType.EMPTY : strings ? TableType.MAP : TableType.LIST;
+		}
+
+	}
+
+	private static final int NIL = 0xc0;
+
+	private int u8(int pos) {
+		return buffer.get(pos) & 0xff;
+	}
+
+	private int u16(int pos) {
+		return buffer.getShort(pos) & 0xffff;
+	}
+
+	private int u32(int pos) {
+
+		int value = buffer.getInt(pos);
+
+		if (value < 0) {
+			throw new ParseException("payload length overflow: " + (value & 0xffffffffL));
+		}
+
+		return value;
+	}
+
+	private static boolean isContainer(int b) {
+		return (b >= 0x80 && b <= 0x9f) || (b >= 0xdc && b <= 0xdf);
+	}
+
+	private static boolean isMap(int b) {
+		return (b >= 0x80 && b <= 0x8f) || b == 0xde || b == 0xdf;
+	}
+
+	private static boolean isString(int b) {
+		return (b >= 0xa0 && b <= 0xbf) || (b >= 0xd9 && b <= 0xdb) || (b >= 0xc4 && b <= 0xc6);
+	}
+
+	private static boolean isInteger(int b) {
+		return b <= 0x7f || b >= 0xe0 || (b >= 0xcc && b <= 0xcf) || (b >= 0xd0 && b <= 0xd3);
+	}
+
+	private static boolean isNumeric(int first) {
+		// string keys that the table stores as integers
+		return (first >= '0' && first <= '9') || first == '-' || first == '+';
+	}
+
+	private static int headerLength(int b) {
+
+		if (b <= 0x9f) {
+			return 1;
+		}
+
+		return b == 0xdc || b == 0xde ? 3 : 5;
+	}
+
+	private int length(int pos) {
+
+		int b = u8(pos);
+
+		if (b <= 0x9f) {
+			return b & 0x0f;
+		}
+
+		return b == 0xdc || b == 0xde ? u16(pos + 1) : u32(pos + 1);
+	}
+
+	private static int stringHeaderLength(int b) {
+
+		if (b >= 0xa0 && b <= 0xbf) {
+			return 1;
+		}
+
+		switch (b) {
+		case 0xc4:
+		case 0xd9:
+			return 2;
+		case 0xc5:
+		case 0xda:
+			return 3;
+		default:
+			return 5;
+		}
+	}
+
+	private int stringLength(int pos) {
+
+		int b = u8(pos);
+
+		if (b >= 0xa0 && b <= 0xbf) {
+			return b & 0x1f;
+		}
+
+		switch (b) {
+		case 0xc4:
+		case 0xd9:
+			return u8(pos + 1);
+		case 0xc5:
+		case 0xda:
+			return u16(pos + 1);
+		default:
+			return u32(pos + 1);
+		}
+	}
+
+	private long readLong(int pos) {
+
+		int b = u8(pos);
+
+		if (b <= 0x7f) {
+			return b;
+		}
+
+		if (b >= 0xe0) {
+			return (byte) b;
+		}
+
+		switch (b) {
+		case 0xcc:
+			return u8(pos + 1);
+		case 0xcd:
+			return u16(pos + 1);
+		case 0xce:
+			return buffer.getInt(pos + 1) & 0xffffffffL;
+		case 0xcf:
+			long value = buffer.getLong(pos + 1);
+			if (value < 0) {
+				throw new ParseException("integer overflow: uint64");
+			}
+			return value;
+		case 0xd0:
+			return buffer.get(pos + 1);
+		case 0xd1:
+			return buffer.getShort(pos + 1);
+		case 0xd2:
+			return buffer.getInt(pos + 1);
+		default:
+			return buffer.getLong(pos + 1);
+		}
+	}
+
+	private byte[] bytes(int pos, int length) {
+
+		byte[] bytes = new byte[length];
+
+		ByteBuffer source = buffer.duplicate();
+		source.position(pos);
+		source.get(bytes);
+
+		return bytes;
+	}
+
+	private String string(int pos, int length) {
+
+		if (buffer.hasArray()) {
+			return new String(buffer.array(), buffer.arrayOffset() + pos, length, StandardCharsets.UTF_8);
+		}
+
+		return new String(bytes(pos, length), StandardCharsets.UTF_8);
+	}
+
+	private boolean keyEquals(int pos, String key, byte[] bytes) {
+
+		int b = u8(pos);
+
+		if (isInteger(b)) {
+			return Long.toString(readLong(pos)).equals(key);
+		}
+
+		int start = pos + stringHeaderLength(b);
+		int length = stringLength(pos);
+
+		if (length != bytes.length) {
+			return false;
+		}
+
+		for (int i = 0; i != length; ++i) {
+			if (buffer.get(start + i) != bytes[i]) {
+				return false;
+			}
+		}
+
+		return true;
+	}
+
+	private static int hash(byte[] bytes) {
+		int h = 1;
+		for (byte b : bytes) {
+			h = 31 * h + b;
+		}
+		return h;
+	}
+
+	private int hash(int pos, int length) {
+		int h = 1;
+		for (int i = 0; i != length; ++i) {
+			h = 31 * h + buffer.get(pos + i);
+		}
+		return h;
+	}
+
+	/**
+	 * Reads the value, tables are not decoded
+	 */
+
+	private @Nullable Value read(int pos) {
+
+		if (isContainer(u8(pos))) {
+			return new Table(new PayloadView(buffer, pos));
+		}
+
+		return decode(pos);
+	}
+
+	/**
+	 * Decodes the scalar value the same way as {@link Parser}
+	 */
+
+	private @Nullable Value decode(int pos) {
+
+		try {
+
+			int b = u8(pos);
+
+			if (isInteger(b)) {
+				return new Num(readLong(pos));
+			}
+
+			if (isString(b)) {
+
+				int start = pos + stringHeaderLength(b);
+				int length = stringLength(pos);
+
+				if (b >= 0xc4 && b <= 0xc6) {
+					return new Str(bytes(start, length), false);
+				}
+
+				return new Str(string(start, length));
+			}
+
+			switch (b) {
+			case 0xc2:
+				return new Bool(false);
+			case 0xc3:
+				return new Bool(true);
+			case 0xca:
+				return new Num((double) buffer.getFloat(pos + 1));
+			case 0xcb:
+				return new Num(buffer.getDouble(pos + 1));
+			default:
+				// nil and extension types
+				return null;
+			}
+
+		}
+		catch (IndexOutOfBoundsException e) {
+			throw new ParseException("truncated payload", e);
+		}
+	}
+
+	/**
+	 * Skips the value
+	 *
+	 * @param pos - offset of the value
+	 * @return offset of the next value
+	 */
+
+	private int skip(int pos) {
+
+		long count = 1;
+
+		while (count > 0) {
+
+			int b = u8(pos);
+			count--;
+
+			if (b <= 0x7f || b >= 0xe0) {
+				pos += 1;
+			}
+			else if (b <= 0x8f) {
+				count += 2 * (b & 0x0f);
+				pos += 1;
+			}
+			else if (b <= 0x9f) {
+				count += b & 0x0f;
+				pos += 1;
+			}
+			else if (b <= 0xbf) {
+				pos += 1 + (b & 0x1f);
+			}
+			else {
+
+				switch (b) {
+				case 0xc0:
+				case 0xc1:
+				case 0xc2:
+				case 0xc3:
+					pos += 1;
+					break;
+				case 0xc4:
+				case 0xd9:
+					pos += 2 + u8(pos + 1);
+					break;
+				case 0xc5:
+				case 0xda:
+					pos += 3 + u16(pos + 1);
+					break;
+				case 0xc6:
+				case 0xdb:
+					pos += 5 + u32(pos + 1);
+					break;
+				case 0xc7:
+					pos += 3 + u8(pos + 1);
+					break;
+				case 0xc8:
+					pos += 4 + u16(pos + 1);
+					break;
+				case 0xc9:
+					pos += 6 + u32(pos + 1);
+					break;
+				case 0xca:
+					pos += 5;
+					break;
+				case 0xcb:
+					pos += 9;
+					break;
+				case 0xcc:
+				case 0xd0:
+					pos += 2;
+					break;
+				case 0xcd:
+				case 0xd1:
+					pos += 3;
+					break;
+				case 0xce:
+				case 0xd2:
+					pos += 5;
+					break;
+				case 0xcf:
+				case 0xd3:
+					pos += 9;
+					break;
+				case 0xd4:
+					pos += 3;
+					break;
+				case 0xd5:
+					pos += 4;
+					break;
+				case 0xd6:
+					pos += 6;
+					break;
+				case 0xd7:
+					pos += 10;
+					break;
+				case 0xd8:
+					pos += 18;
+					break;
+				case 0xdc:
+					count += u16(pos + 1);
+					pos += 3;
+					break;
+				case 0xdd:
+					count += u32(pos + 1);
+					pos += 5;
+					break;
+				case 0xde:
+					count += 2L * u16(pos + 1);
+					pos += 3;
+					break;
+				default:
+					count += 2L * u32(pos + 1);
+					pos += 5;
+					break;
+				}
+
+			}
+
+			if (pos > buffer.limit()) {
+				throw new ParseException("truncated payload");
+			}
+		}
+
+		return pos;
+	}
+
+	@Override
+	public String toString() {
+		return "PayloadView [offset=" + offset + ", limit=" + buffer.limit() + "]";
+	}
+
+}
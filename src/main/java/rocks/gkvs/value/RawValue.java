@@ -0,0 +1,294 @@
+/*
+ *
+ * Copyright 2018-present GKVS authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package rocks.gkvs.value;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import org.msgpack.core.MessagePacker;
+
+import com.google.protobuf.ByteOutput;
+import com.google.protobuf.ByteString;
+import com.google.protobuf.UnsafeByteOperations;
+
+/**
+ *
+ * RawValue
+ *
+ * Pre-encoded msgpack value that is written as is
+ *
+ * The payload is wrapped without the copy and is not parsed on the write, it must be one msgpack value
+ * and must not be changed after the wrap. The payload is kept as {@link ByteString} and is passed to the request as is,
+ * so the rope of the received record is not flattened by the write.
+ * The value is frozen, reads decode the payload through {@link PayloadView}.
+ *
+ */
+
+public final class RawValue extends Value {
+
+	// not changed, passed to the request as is
+	private final ByteString payload;
+
+	// flat view of the payload, created by the first read
+	private volatile ByteBuffer buffer;
+
+	private volatile PayloadView view;
+
+	private RawValue(ByteString payload) {
+		this.payload = payload;
+	}
+
+	/**
+	 * Wraps the payload
+	 *
+	 * @param msgpack - msgpack value
+	 * @return value
+	 */
+
+	public static RawValue wrap(ByteString msgpack) {
+
+		if (msgpack == null || msgpack.isEmpty()) {
+			throw new IllegalArgumentException("empty value");
+		}
+
+		return new RawValue(msgpack);
+	}
+
+	/**
+	 * Wraps the payload
+	 *
+	 * @param msgpack - msgpack value between the position and the limit
+	 * @return value
+	 */
+
+	public static RawValue wrap(ByteBuffer msgpack) {
+
+		if (msgpack == null || !msgpack.hasRemaining()) {
+			throw new IllegalArgumentException("empty value");
+		}
+
+		return new RawValue(UnsafeByteOperations.unsafeWrap(msgpack.slice()));
+	}
+
+	public static RawValue wrap(byte[] msgpack) {
+
+		if (msgpack == null) {
+			throw new IllegalArgumentException("empty value");
+		}
+
+		return wrap(ByteBuffer.wrap(msgpack));
+	}
+
+	public static RawValue wrap(byte[] msgpack, int offset, int length) {
+
+		if (msgpack == null) {
+			throw new IllegalArgumentException("empty value");
+		}
+
+		return wrap(ByteBuffer.wrap(msgpack, offset, length));
+	}
+
+	/**
+	 * Gets the payload without the copy
+	 *
+	 * @return read-only buffer
+	 */
+
+	public ByteBuffer payload() {
+		return buffer().asReadOnlyBuffer();
+	}
+
+	/**
+	 * Gets the payload for the request without the copy
+	 *
+	 * @return payload
+	 */
+
+	public ByteString payloadBytes() {
+		return payload;
+	}
+
+	/**
+	 * Gets the flat payload, only the rope is copied once
+	 */
+
+	private ByteBuffer buffer() {
+
+		ByteBuffer b = buffer;
+
+		if (b == null) {
+			b = payload.asReadOnlyByteBuffer();
+			buffer = b;
+		}
+
+		return b;
+	}
+
+	private Value decoded() {
+
+		PayloadView v = view;
+
+		if (v == null) {
+			v = PayloadView.wrap(buffer());
+			view = v;
+		}
+
+		Value value = v.value();
+		return value != null ? value : Nil.get();
+	}
+
+	@Override
+	public RawValue freeze() {
+		return this;
+	}
+
+	@Override
+	public boolean isFrozen() {
+		return true;
+	}
+
+	@Override
+	public ByteBuffer getFrozenMsgpack() {
+		return buffer().asReadOnlyBuffer();
+	}
+
+	@Override
+	public boolean isNil() {
+		return decoded().isNil();
+	}
+
+	@Override
+	public Bool asBool(Bool defaultValue) {
+		return decoded().asBool(defaultValue);
+	}
+
+	@Override
+	public Num asNum(Num defaultValue) {
+		return decoded().asNum(defaultValue);
+	}
+
+	@Override
+	public Str asStr(Str defaultValue) {
+		return decoded().asStr(defaultValue);
+	}
+
+	@Override
+	public Table asTable(Table defaultTable) {
+		return decoded().asTable(defaultTable);
+	}
+
+	@Override
+	public String asString() {
+		return decoded().asString();
+	}
+
+	@Override
+	public org.msgpack.value.Value toMsgpackValue() {
+		return decoded().toMsgpackValue();
+	}
+
+	@Override
+	public void writeTo(MessagePacker packer) throws IOException {
+
+		// pieces of the payload go to the packer as they are, the rope is not flattened
+		UnsafeByteOperations.unsafeWriteTo(payload, new PackerOutput(packer));
+	}
+
+	@Override
+	public int estimatedSize() {
+		return payload.size();
+	}
+
+	@Override
+	public int hashCode() {
+		return payload.hashCode();
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj)
+			return true;
+		if (obj == null)
+			return false;
+		if (getClass() != obj.getClass())
+			return false;
+		RawValue other = (RawValue) obj;
+		return payload.equals(other.payload);
+	}
+
+	@Override
+	public void print(StringBuilder str, int initialSpaces, int tabSpaces) {
+		str.append("RawValue [size=").append(payload.size()).append("] ");
+		decoded().print(str, initialSpaces, tabSpaces);
+	}
+
+	/**
+	 * Writes pieces of the payload in to the packer, only pieces in direct buffers are copied by chunks
+	 */
+
+	private static final class PackerOutput extends ByteOutput {
+
+		private static final int CHUNK = 4096;
+
+		private final MessagePacker packer;
+
+		PackerOutput(MessagePacker packer) {
+			this.packer = packer;
+		}
+
+		@Override
+		public void write(byte value) throws IOException {
+			packer.writePayload(new byte[] { value });
+		}
+
+		@Override
+		public void write(byte[] value, int offset, int length) throws IOException {
+			packer.writePayload(value, offset, length);
+		}
+
+		@Override
+		public void writeLazy(byte[] value, int offset, int length) throws IOException {
+			packer.writePayload(value, offset, length);
+		}
+
+		@Override
+		public void write(ByteBuffer value) throws IOException {
+
+			if (value.hasArray()) {
+				packer.writePayload(value.array(), value.arrayOffset() + value.position(), value.remaining());
+				return;
+			}
+
+			ByteBuffer b = value.duplicate();
+			byte[] chunk = new byte[Math.min(CHUNK, b.remaining())];
+
+			while (b.hasRemaining()) {
+				int length = Math.min(chunk.length, b.remaining());
+				b.get(chunk, 0, length);
+				packer.writePayload(chunk, 0, length);
+			}
+		}
+
+		@Override
+		public void writeLazy(ByteBuffer value) throws IOException {
+			write(value);
+		}
+
+	}
+
+}
@@ -43,6 +43,9 @@ public final class Str extends Value {
 	private final int length;
 	private final StrType type;
 	
+	// encoded on the first write of the UTF8 string
+	private volatile byte[] utf8;
+	
 	public Str(String value) {
 		
 		if (value == null) {
@@ -93,6 +96,12 @@ public final class Str extends Value {
 		return type;
 	}
 	
+	@Override
+	public Str freeze() {
+		super.freeze();
+		return this;
+	}
+	
 	@Override
 	public boolean isNil() {
 		return false;
@@ -178,7 +187,7 @@ public final class Str extends Value {
 		switch(type) {
 		
 		case UTF8:
-			byte[] data = stringValue.getBytes(StandardCharsets.UTF_8);
+			byte[] data = utf8();
 			packer.packRawStringHeader(data.length);
 			packer.writePayload(data);
 			break;
@@ -193,6 +202,31 @@ public final class Str extends Value {
 		}	
 	}
   
+	@Override
+	public int estimatedSize() {
+		switch(type) {
+		
+		case UTF8:
+			int size = utf8().length;
+			return Encoder.stringHeaderSize(size) + size;
+			
+		case RAW:
+			return Encoder.binaryHeaderSize(length) + length;
+			
+		}
+		
+		throw new IllegalStateException("unexpected type: " + type);
+	}
+	
+	private byte[] utf8() {
+		byte[] bytes = utf8;
+		if (bytes == null) {
+			bytes = stringValue.getBytes(StandardCharsets.UTF_8);
+			utf8 = bytes;
+		}
+		return bytes;
+	}
+  
 	@Override
 	public int hashCode() {
 		final int prime = 31;
@@ -78,6 +78,10 @@ public final class Table extends Value {
 		
 		void writeTo(MessagePacker packer) throws IOException;
 		
+		int estimatedSize();
+		
+		void sealTables();
+		
 		void print(StringBuilder str, int initialSpaces, int tabSpaces);
 		
 	}
@@ -149,6 +153,13 @@ public final class Table extends Value {
 			throw new UnsupportedOperationException("serialize immutable NULL table");
 		}
 		
+		public int estimatedSize() {
+			throw new UnsupportedOperationException("serialize immutable NULL table");
+		}
+		
+		public void sealTables() {
+		}
+		
 		public void print(StringBuilder str, int initialSpaces, int tabSpaces) {
 		}
 		
@@ -231,6 +242,13 @@ public final class Table extends Value {
 			packer.packArrayHeader(0);
 		}
 		
+		public int estimatedSize() {
+			return 1;
+		}
+		
+		public void sealTables() {
+		}
+		
 		public void print(StringBuilder str, int initialSpaces, int tabSpaces) {
 		}
 		
@@ -409,6 +427,34 @@ public final class Table extends Value {
 			
 		}
 		
+		public int estimatedSize() {
+			
+			int size = list.size();
+			int total = Encoder.containerHeaderSize(size);
+			boolean sequence = list.isSequence();
+			
+			for (int i = 0; i < size; ++i) {
+				
+				if (!sequence) {
+					total += Encoder.intSize(list.keyAt(i));
+				}
+				
+				total += list.valueAt(i).estimatedSize();
+			}
+			
+			return total;
+		}
+		
+		public void sealTables() {
+			int size = list.size();
+			for (int i = 0; i < size; ++i) {
+				Value value = list.valueAt(i);
+				if (value instanceof Table) {
+					((Table) value).seal();
+				}
+			}
+		}
+		
 		private void writeIntMapTo(MessagePacker packer) throws IOException {
 
 			int size = list.size();
@@ -447,6 +493,7 @@ public final class Table extends Value {
 	final class MapTable implements InternalTable {
 
 		private final Map<String, Value> map = new HashMap<String, Value>();
+		
 
 		public TableType type() {
 			return TableType.MAP;
@@ -488,7 +535,7 @@ public final class Table extends Value {
 				return map.put(key, value);
 			}
 			else {
-				return map.remove(key);
+				return remove(key);
 			}
 			
 		}
@@ -502,7 +549,7 @@ public final class Table extends Value {
 		}
 		
 		public Value remove(int key) {
-			return map.remove(Integer.toString(key));
+			return remove(Integer.toString(key));
 		}
 		
 		public Set<String> keySet() {
@@ -620,10 +667,10 @@ public final class Table extends Value {
 
 			for (Map.Entry<String, Value> entry : map.entrySet()) {
 
-				String key = entry.getKey();
 				Value value = entry.getValue();
 
-				byte[] data = key.getBytes(StandardCharsets.UTF_8);
+				// encoded by every write, the table does not keep the second copy of keys
+				byte[] data = entry.getKey().getBytes(StandardCharsets.UTF_8);
 				packer.packRawStringHeader(data.length);
 				packer.writePayload(data);
 
@@ -632,7 +679,29 @@ public final class Table extends Value {
 
 			
 		}
-
+		
+		public int estimatedSize() {
+			
+			int total = Encoder.containerHeaderSize(map.size());
+			
+			for (Map.Entry<String, Value> entry : map.entrySet()) {
+				
+				int length = Encoder.utf8Length(entry.getKey());
+				total += Encoder.stringHeaderSize(length) + length;
+				total += entry.getValue().estimatedSize();
+			}
+			
+			return total;
+		}
+		
+		public void sealTables() {
+			for (Value value : map.values()) {
+				if (value instanceof Table) {
+					((Table) value).seal();
+				}
+			}
+		}
+		
 		public void print(StringBuilder str, int initialSpaces, int tabSpaces) {
 			boolean first = true;
 			for (Map.Entry<String, Value> entry : map.entrySet()) {
@@ -648,6 +717,172 @@ public final class Table extends Value {
 		}		
 	}
 
+	final class LazyTable implements InternalTable {
+
+		private final PayloadView view;
+
+		// nested tables that were returned, changes in them are kept by the full parse
+		private Map<Integer, Value> returned;
+
+		LazyTable(PayloadView view) {
+			this.view = view;
+		}
+
+		public TableType type() {
+			return view.isRegular() ? view.type() : parse().type();
+		}
+
+		public Value get(String key) {
+			return view.isRegular() ? entry(view.find(key)) : parse().get(key);
+		}
+
+		public Value get(int key) {
+			return view.isRegular() ? entry(view.find(key)) : parse().get(key);
+		}
+
+		public Value put(String key, Value value) {
+			return parse().put(key, value);
+		}
+
+		public Value put(int key, Value value) {
+			return parse().put(key, value);
+		}
+
+		public Value remove(String key) {
+			return parse().remove(key);
+		}
+
+		public Value remove(int key) {
+			return parse().remove(key);
+		}
+
+		public Set<String> keySet() {
+			return parse().keySet();
+		}
+
+		public int[] sortedKeys() {
+			return parse().sortedKeys();
+		}
+
+		public int firstKey() {
+			return parse().firstKey();
+		}
+
+		public int lastKey() {
+			return parse().lastKey();
+		}
+
+		public int size() {
+			return parse().size();
+		}
+
+		public void clear() {
+			parse().clear();
+		}
+
+		public String asString() {
+			return parse().asString();
+		}
+
+		public org.msgpack.value.Value toMsgpackValue() {
+			return parse().toMsgpackValue();
+		}
+
+		public void writeTo(MessagePacker packer) throws IOException {
+
+			if (returned == null) {
+				// not changed, the payload is written as is
+				view.writeTo(packer);
+			}
+			else {
+				parse().writeTo(packer);
+			}
+
+		}
+
+		public int estimatedSize() {
+			return returned == null ? view.length() : parse().estimatedSize();
+		}
+
+		public void sealTables() {
+			if (returned != null) {
+				for (Value value : returned.values()) {
+					((Table) value).seal();
+				}
+			}
+		}
+
+		public void print(StringBuilder str, int initialSpaces, int tabSpaces) {
+			parse().print(str, initialSpaces, tabSpaces);
+		}
+
+		private Value entry(int entry) {
+
+			if (entry == -1) {
+				return null;
+			}
+
+			Value value = returned != null ? returned.get(entry) : null;
+
+			if (value == null) {
+
+				value = view.get(entry);
+
+				if (value instanceof Table) {
+					if (returned == null) {
+						returned = new HashMap<Integer, Value>();
+					}
+					returned.put(entry, value);
+				}
+			}
+
+			return value;
+		}
+
+		/**
+		 * Replaces the view by the table with all entries, the same way as {@link Parser} does
+		 *
+		 * @return new internal table
+		 */
+
+		private InternalTable parse() {
+
+			table = new EmptyTable();
+
+			boolean map = view.isMap();
+			int size = view.entries();
+
+			for (int i = 0; i != size; ++i) {
+
+				Value value = entry(i);
+
+				if (value == null) {
+					continue;
+				}
+
+				if (!map) {
+					table.put(i, value);
+					continue;
+				}
+
+				Value key = view.key(i);
+
+				if (key != null) {
+
+					if (key instanceof Num && table.type() == TableType.LIST) {
+						table.put((int) ((Num) key).asLong(), value);
+					} else {
+						table.put(key.asString(), value);
+					}
+				}
+
+			}
+
+			return table;
+		}
+
+	}
+
 	private InternalTable switchToList() {
 		
 		if (table.type() == TableType.EMPTY) {
@@ -671,6 +906,9 @@ public final class Table extends Value {
 		
 	private InternalTable table;
 	
+	// set by the freeze of the table or of the parent table
+	private volatile boolean sealed;
+	
 	public Table() {
 		this.table = new EmptyTable();
 	}
@@ -678,6 +916,10 @@ public final class Table extends Value {
 	protected Table(InternalTable internalTable) {
 		this.table = internalTable;
 	}
+
+	Table(PayloadView view) {
+		this.table = new LazyTable(view);
+	}
 	
 	public TableType getType() {
 		return table.type();
@@ -687,6 +929,35 @@ public final class Table extends Value {
 	public boolean isNil() {
 		return table == NullTable.NULL;
 	}
+	
+	@Override
+	public Table freeze() {
+		super.freeze();
+		return this;
+	}
+	
+	@Override
+	protected void seal() {
+		if (!sealed) {
+			sealed = true;
+			table.sealTables();
+		}
+	}
+	
+	private void checkMutable() {
+		if (sealed) {
+			throw new UnsupportedOperationException("change of frozen table");
+		}
+	}
+	
+	private Value sealed(Value value) {
+		
+		if (sealed && value instanceof Table) {
+			((Table) value).seal();
+		}
+		
+		return value;
+	}
 
 	@Override
 	public Bool asBool(Bool defaultValue) {
@@ -716,14 +987,14 @@ public final class Table extends Value {
 
 		Value val = table.get(key);
 		
-		return val != null ? val : Nil.get();
+		return val != null ? sealed(val) : Nil.get();
 	}
 
 	public Value get(int key) {
 		
 		Value val = table.get(key);
 		
-		return val != null ? val : Nil.get();
+		return val != null ? sealed(val) : Nil.get();
 	}
 
 	public Value get(Field field) {
@@ -754,6 +1025,7 @@ public final class Table extends Value {
 			throw new IllegalArgumentException("key is null");
 		}
 
+		checkMutable();
 		return table.put(key, value);
 	}
 
@@ -762,6 +1034,7 @@ public final class Table extends Value {
 	}
 
 	public Value put(int key, Value value) {
+		checkMutable();
 		return table.put(key, value);
 	}
 
@@ -779,6 +1052,7 @@ public final class Table extends Value {
 			return null;
 		}
 
+		checkMutable();
 		Table currentTable = navigateTable(field, true);
 		String key = field.get(field.size() - 1);
 		if (value != null) {
@@ -799,10 +1073,12 @@ public final class Table extends Value {
 			throw new IllegalArgumentException("key is null");
 		}
 		
+		checkMutable();
 		return table.remove(key);
 	}
 
 	public Value remove(int key) {
+		checkMutable();
 		return table.remove(key);
 	}
 
@@ -816,6 +1092,7 @@ public final class Table extends Value {
 			return null;
 		}
 
+		checkMutable();
 		Table currentTable = navigateTable(field, true);
 		String key = field.get(field.size() - 1);
 		return currentTable.remove(key);
@@ -869,6 +1146,7 @@ public final class Table extends Value {
 	}
 
 	public void clear() {
+		checkMutable();
 		table.clear();
 	}
 
@@ -884,7 +1162,21 @@ public final class Table extends Value {
 
 	@Override
 	public void writeTo(MessagePacker packer) throws IOException {
-		table.writeTo(packer);
+		
+		byte[] bytes = frozen();
+		
+		if (bytes != null) {
+			packer.writePayload(bytes);
+		}
+		else {
+			table.writeTo(packer);
+		}
+	}
+
+	@Override
+	public int estimatedSize() {
+		byte[] bytes = frozen();
+		return bytes != null ? bytes.length : table.estimatedSize();
 	}
 
 	@Override
@@ -19,14 +19,13 @@ package rocks.gkvs.value;
 
 import java.io.IOException;
 import java.io.OutputStream;
+import java.nio.ByteBuffer;
 
 import javax.annotation.Nullable;
 
 import org.msgpack.core.MessagePack;
 import org.msgpack.core.MessagePacker;
-import org.msgpack.core.buffer.ArrayBufferOutput;
 
-import rocks.gkvs.GkvsException;
 import rocks.gkvs.value.Table.NullTable;
 
 
@@ -46,11 +45,27 @@ public abstract class Value {
 	private static volatile Str DEFAULT_STR = new Str(""); 
 	private static volatile Table DEFAULT_TABLE = new Table(NullTable.NULL); 
 	
+	// msgpack form of the frozen value
+	private volatile byte[] frozen;
+	
 	public abstract String asString();
 	
 	public abstract org.msgpack.value.Value toMsgpackValue();
 	
 	public abstract void writeTo(MessagePacker packer) throws IOException;
+	
+	/**
+	 * Gets the size of the msgpack form of the value, the value is encoded in to the array of this size
+	 * 
+	 * The size must be exact, the encoding fails if the write differs. The default counts bytes
+	 * of the write, values of the library compute the size without the write.
+	 * 
+	 * @return exact number of bytes written by {@link #writeTo(MessagePacker)}
+	 */
+	
+	public int estimatedSize() {
+		return Encoder.countSize(this);
+	}
 		
 	public abstract void print(StringBuilder out, int initialSpaces, int tabSpaces);
 	
@@ -117,17 +132,51 @@ public abstract class Value {
 	public abstract Table asTable(Table defaultValue);
 	
 	public byte[] toMsgpack() {
-
-		ArrayBufferOutput out = new ArrayBufferOutput();
-		try {
-			MessagePacker packer = MessagePack.newDefaultPacker(out);
-			writeTo(packer);
-			packer.flush();
-		} catch (IOException e) {
-			throw new GkvsException("i/o error", e);
+		byte[] bytes = frozen;
+		return bytes != null ? bytes.clone() : Encoder.encode(this);
+	}
+	
+	/**
+	 * Freezes the value, the msgpack form is computed once and reused by every write of the value.
+	 * Changes of the frozen table and its nested tables are rejected.
+	 * 
+	 * @return this value
+	 */
+	
+	public Value freeze() {
+		
+		if (frozen == null) {
+			seal();
+			frozen = Encoder.encode(this);
 		}
-
-		return out.toByteArray();
+		
+		return this;
+	}
+	
+	public boolean isFrozen() {
+		return frozen != null;
+	}
+	
+	/**
+	 * Gets the msgpack form of the frozen value without the copy
+	 * 
+	 * @return read-only buffer or null if the value is not frozen
+	 */
+	
+	public @Nullable ByteBuffer getFrozenMsgpack() {
+		byte[] bytes = frozen;
+		return bytes != null ? ByteBuffer.wrap(bytes).asReadOnlyBuffer() : null;
+	}
+	
+	protected @Nullable byte[] frozen() {
+		return frozen;
+	}
+	
+	/**
+	 * Rejects changes of the value, called before the value is frozen
+	 */
+	
+	protected void seal() {
 	}
 	
 	public void writeTo(OutputStream out) throws IOException {
@@ -0,0 +1,151 @@
+/*
+ *
+ * Copyright 2018-present GKVS authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package rocks.gkvs;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.locks.LockSupport;
+
+import io.grpc.CallOptions;
+import io.grpc.Channel;
+import io.grpc.ClientCall;
+import io.grpc.Metadata;
+import io.grpc.MethodDescriptor;
+import io.grpc.StatusRuntimeException;
+
+/**
+ *
+ * SyncCalls
+ *
+ * Blocking unary calls and the executor of blocking tasks, Java 21 variant of the multi-release jar
+ *
+ * The call is driven by the async ClientCall, the listener runs on the executor of the channel
+ * and the caller waits by LockSupport.park without monitors and locks, so the virtual thread
+ * unmounts from the carrier while the call is in flight. Tasks run on the virtual thread per task executor.
+ *
+ */
+
+final class SyncCalls {
+
+	private SyncCalls() {
+	}
+
+	/**
+	 * Executes the unary call and waits for the result, the interrupt cancels the call
+	 *
+	 * @param channel - channel
+	 * @param method - unary method
+	 * @param options - call options with the deadline
+	 * @param request - request
+	 * @return response
+	 * @throws StatusRuntimeException on the failure of the call
+	 */
+
+	protected static <ReqT, RespT> RespT blockingUnary(Channel channel, MethodDescriptor<ReqT, RespT> method, CallOptions options, ReqT request) {
+
+		ClientCall<ReqT, RespT> call = channel.newCall(method, options);
+		UnaryListener<RespT> listener = new UnaryListener<RespT>(Thread.currentThread());
+
+		try {
+			call.start(listener, new Metadata());
+			// the second message is requested to detect the protocol violation
+			call.request(2);
+			call.sendMessage(request);
+			call.halfClose();
+		}
+		catch (RuntimeException | Error e) {
+			call.cancel("start failed", e);
+			throw e;
+		}
+
+		while (!listener.done) {
+			LockSupport.park(listener);
+			if (Thread.interrupted()) {
+				call.cancel("interrupted", null);
+				Thread.currentThread().interrupt();
+				throw io.grpc.Status.CANCELLED.withDescription("interrupted").asRuntimeException();
+			}
+		}
+
+		if (listener.error != null) {
+			throw listener.error;
+		}
+
+		return listener.value;
+	}
+
+	/**
+	 * Creates the executor of blocking tasks
+	 *
+	 * @return virtual thread per task executor
+	 */
+
+	protected static ExecutorService newTaskExecutor() {
+		return Executors.newVirtualThreadPerTaskExecutor();
+	}
+
+	/**
+	 * Checks that tasks run on virtual threads
+	 *
+	 * @return true
+	 */
+
+	protected static boolean isVirtual() {
+		return true;
+	}
+
+	private static final class UnaryListener<RespT> extends ClientCall.Listener<RespT> {
+
+		private final Thread waiter;
+
+		// published by the volatile write of done
+		private RespT value;
+		private StatusRuntimeException error;
+		private volatile boolean done;
+
+		UnaryListener(Thread waiter) {
+			this.waiter = waiter;
+		}
+
+		@Override
+		public void onMessage(RespT message) {
+			if (value != null) {
+				error = io.grpc.Status.INTERNAL.withDescription("more than one value received for unary call").asRuntimeException();
+			}
+			value = message;
+		}
+
+		@Override
+		public void onClose(io.grpc.Status status, Metadata trailers) {
+
+			if (error == null) {
+				if (!status.isOk()) {
+					error = status.asRuntimeException(trailers);
+				}
+				else if (value == null) {
+					error = io.grpc.Status.INTERNAL.withDescription("no value received for unary call").asRuntimeException(trailers);
+				}
+			}
+
+			done = true;
+			LockSupport.unpark(waiter);
+		}
+
+	}
+
+}
@@ -0,0 +1,199 @@
+/*
+ *
+ * Copyright 2018-present GKVS authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package rocks.gkvs;
+
+import java.util.concurrent.Flow;
+
+import org.reactivestreams.Publisher;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+
+/**
+ *
+ * GkvsFlow
+ *
+ * Adapters of streaming calls to java.util.concurrent.Flow, available on Java 9 and later
+ *
+ * Adapters only forward signals, the demand and the cancel reach the call without buffering.
+ *
+ * Example:
+ * 
+ * Flow.Publisher<Record> records = GkvsFlow.toFlowPublisher(Gkvs.Client.scan("TEST").publisher());
+ *
+ */
+
+public final class GkvsFlow {
+
+	private GkvsFlow() {
+	}
+	
+	/**
+	 * Converts Reactive Streams publisher to Flow publisher
+	 * 
+	 * @param publisher - publisher of results, see {@link IncomingStream#publisher()} and {@link BiStream#publisher(Publisher)}
+	 * @return flow publisher
+	 */
+	
+	public static <T> Flow.Publisher<T> toFlowPublisher(final Publisher<T> publisher) {
+		
+		if (publisher == null) {
+			throw new NullPointerException("publisher is null");
+		}
+		
+		return new Flow.Publisher<T>() {
+
+			@Override
+			public void subscribe(Flow.Subscriber<? super T> subscriber) {
+				
+				if (subscriber == null) {
+					throw new NullPointerException("subscriber is null");
+				}
+				
+				publisher.subscribe(new ToFlowSubscriber<T>(subscriber));
+			}
+			
+		};
+	}
+	
+	/**
+	 * Converts Flow publisher to Reactive Streams publisher, used as incoming data of {@link BiStream#publisher(Publisher)}
+	 * 
+	 * @param publisher - flow publisher
+	 * @return reactive streams publisher
+	 */
+	
+	public static <T> Publisher<T> toPublisher(final Flow.Publisher<T> publisher) {
+		
+		if (publisher == null) {
+			throw new NullPointerException("publisher is null");
+		}
+		
+		return new Publisher<T>() {
+
+			@Override
+			public void subscribe(Subscriber<? super T> subscriber) {
+				
+				if (subscriber == null) {
+					throw new NullPointerException("subscriber is null");
+				}
+				
+				publisher.subscribe(new FromFlowSubscriber<T>(subscriber));
+			}
+			
+		};
+	}
+	
+	/**
+	 * Converts Bi-directional stream to Flow publisher of results
+	 * 
+	 * @param stream - bi-directional stream
+	 * @param incoming - flow publisher of sending data
+	 * @return flow publisher of results
+	 */
+	
+	public static <S, R> Flow.Publisher<R> toFlowPublisher(BiStream<S, R> stream, Flow.Publisher<S> incoming) {
+		return toFlowPublisher(stream.publisher(toPublisher(incoming)));
+	}
+	
+	private static final class ToFlowSubscriber<T> implements Subscriber<T> {
+		
+		private final Flow.Subscriber<? super T> subscriber;
+		
+		ToFlowSubscriber(Flow.Subscriber<? super T> subscriber) {
+			this.subscriber = subscriber;
+		}
+
+		@Override
+		public void onSubscribe(final Subscription s) {
+			
+			subscriber.onSubscribe(new Flow.Subscription() {
+
+				@Override
+				public void request(long n) {
+					s.request(n);
+				}
+
+				@Override
+				public void cancel() {
+					s.cancel();
+				}
+				
+			});
+		}
+
+		@Override
+		public void onNext(T item) {
+			subscriber.onNext(item);
+		}
+
+		@Override
+		public void onError(Throwable t) {
+			subscriber.onError(t);
+		}
+
+		@Override
+		public void onComplete() {
+			subscriber.onComplete();
+		}
+		
+	}
+	
+	private static final class FromFlowSubscriber<T> implements Flow.Subscriber<T> {
+		
+		private final Subscriber<? super T> subscriber;
+		
+		FromFlowSubscriber(Subscriber<? super T> subscriber) {
+			this.subscriber = subscriber;
+		}
+
+		@Override
+		public void onSubscribe(final Flow.Subscription s) {
+			
+			subscriber.onSubscribe(new Subscription() {
+
+				@Override
+				public void request(long n) {
+					s.request(n);
+				}
+
+				@Override
+				public void cancel() {
+					s.cancel();
+				}
+				
+			});
+		}
+
+		@Override
+		public void onNext(T item) {
+			subscriber.onNext(item);
+		}
+
+		@Override
+		public void onError(Throwable t) {
+			subscriber.onError(t);
+		}
+
+		@Override
+		public void onComplete() {
+			subscriber.onComplete();
+		}
+		
+	}
+	
+}
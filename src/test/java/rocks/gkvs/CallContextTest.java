@@ -0,0 +1,113 @@
+/*
+ *
+ * Copyright 2018-present GKVS authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package rocks.gkvs;
+
+import java.util.Iterator;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import io.grpc.Context;
+import reactor.core.Disposable;
+import rx.Subscription;
+
+/**
+ *
+ * CallContextTest
+ *
+ */
+
+public class CallContextTest {
+
+	private static final class PendingOne extends One<String> {
+
+		Context context;
+
+		@Override
+		public String sync() {
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		public GkvsFuture<String> async() {
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		public void async(Observer<String> observer) {
+			context = Context.current();
+		}
+
+	}
+
+	private static final class PendingStream extends IncomingStream<String> {
+
+		Context context;
+
+		@Override
+		public Iterator<String> sync() {
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		public void async(Observer<String> observer) {
+			context = Context.current();
+		}
+
+	}
+
+	@Test
+	public void testMonoCancel() {
+
+		PendingOne one = new PendingOne();
+
+		Disposable disposable = one.mono().subscribe();
+
+		Assert.assertFalse(one.context.isCancelled());
+		disposable.dispose();
+		Assert.assertTrue(one.context.isCancelled());
+
+	}
+
+	@Test
+	public void testSingleUnsubscribe() {
+
+		PendingOne one = new PendingOne();
+
+		Subscription subscription = one.single().subscribe();
+
+		Assert.assertFalse(one.context.isCancelled());
+		subscription.unsubscribe();
+		Assert.assertTrue(one.context.isCancelled());
+
+	}
+
+	@Test
+	public void testFluxCancel() {
+
+		PendingStream stream = new PendingStream();
+
+		Disposable disposable = stream.flux().subscribe();
+
+		Assert.assertFalse(stream.context.isCancelled());
+		disposable.dispose();
+		Assert.assertTrue(stream.context.isCancelled());
+
+	}
+
+}
@@ -0,0 +1,80 @@
+/*
+ *
+ * Copyright 2018-present GKVS authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package rocks.gkvs;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import io.grpc.ManagedChannelBuilder;
+
+/**
+ *
+ * ChannelPoolTest
+ *
+ */
+
+public class ChannelPoolTest {
+
+	private ChannelPool pool;
+
+	@Before
+	public void setup() {
+		pool = new ChannelPool(ManagedChannelBuilder.forAddress("localhost", 4040).usePlaintext(), 3);
+	}
+
+	@After
+	public void teardown() throws InterruptedException {
+		pool.shutdown();
+		pool.awaitTermination(5, TimeUnit.SECONDS);
+	}
+
+	@Test
+	public void testLeastOutstanding() {
+
+		GkvsChannel first = pool.acquire();
+		GkvsChannel second = pool.acquire();
+		GkvsChannel third = pool.acquire();
+
+		Assert.assertNotSame(first, second);
+		Assert.assertNotSame(second, third);
+		Assert.assertNotSame(first, third);
+
+		second.release();
+
+		Assert.assertSame(second, pool.acquire());
+
+	}
+
+	@Test
+	public void testRelease() {
+
+		for (int i = 0; i != 30; ++i) {
+			pool.acquire().release();
+		}
+
+		for (int i = 0; i != pool.size(); ++i) {
+			Assert.assertEquals(0, pool.get(i).getOutstanding());
+		}
+
+	}
+
+}
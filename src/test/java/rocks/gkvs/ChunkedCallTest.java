@@ -0,0 +1,146 @@
+/*
+ *
+ * Copyright 2018-present GKVS authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package rocks.gkvs;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import rocks.gkvs.value.Str;
+
+/**
+ *
+ * ChunkedCallTest
+ *
+ */
+
+public class ChunkedCallTest {
+
+	private static List<Key> load(GkvsClient client, int count) {
+		List<Key> keys = new ArrayList<Key>();
+		for (int i = 0; i != count; ++i) {
+			Key key = Key.raw("test", "key" + i);
+			client.put(key, new Str("value" + i)).sync();
+			keys.add(key);
+		}
+		return keys;
+	}
+	
+	@Test
+	public void testChunkKeys() throws Exception {
+		
+		try (FakeStore store = new FakeStore(); GkvsClient client = store.client(FakeStore.config().build())) {
+			
+			List<Key> keys = load(client, 100);
+			
+			int count = 0;
+			for (Record record : client.multiGet(keys).withChunkKeys(10).withConcurrency(3).sync()) {
+				Assert.assertTrue(record.exists());
+				count++;
+			}
+			
+			Assert.assertEquals(100, count);
+			Assert.assertEquals(10, store.getMultiGetSizes().size());
+			for (int size : store.getMultiGetSizes()) {
+				Assert.assertEquals(10, size);
+			}
+			
+		}
+		
+	}
+	
+	@Test
+	public void testChunkBytes() throws Exception {
+		
+		try (FakeStore store = new FakeStore(); GkvsClient client = store.client(FakeStore.config().build())) {
+			
+			List<Key> keys = load(client, 100);
+			
+			int count = 0;
+			for (Record record : client.multiGet(keys).withChunkKeys(0).withChunkBytes(256).async().get()) {
+				Assert.assertTrue(record.exists());
+				count++;
+			}
+			
+			Assert.assertEquals(100, count);
+			Assert.assertTrue(store.getMultiGetSizes().size() > 1);
+			
+		}
+		
+	}
+	
+	@Test
+	public void testObserver() throws Exception {
+		
+		try (FakeStore store = new FakeStore(); GkvsClient client = store.client(FakeStore.config().build())) {
+			
+			List<Key> keys = load(client, 100);
+			
+			final AtomicInteger chunks = new AtomicInteger();
+			final AtomicInteger records = new AtomicInteger();
+			final CountDownLatch done = new CountDownLatch(1);
+			
+			client.multiGet(keys).withChunkKeys(25).async(new Observer<Iterable<Record>>() {
+
+				@Override
+				public void onNext(Iterable<Record> item) {
+					chunks.incrementAndGet();
+					for (Record record : item) {
+						records.incrementAndGet();
+					}
+				}
+
+				@Override
+				public void onError(Throwable t) {
+				}
+
+				@Override
+				public void onCompleted() {
+					done.countDown();
+				}
+				
+			});
+			
+			Assert.assertTrue(done.await(1, TimeUnit.SECONDS));
+			Assert.assertEquals(4, chunks.get());
+			Assert.assertEquals(100, records.get());
+			
+		}
+		
+	}
+	
+	@Test
+	public void testFlux() throws Exception {
+		
+		try (FakeStore store = new FakeStore(); GkvsClient client = store.client(FakeStore.config().build())) {
+			
+			List<Key> keys = load(client, 100);
+			
+			Assert.assertEquals(100L, client.multiGet(keys).withChunkKeys(7).flux().count().block().longValue());
+			Assert.assertEquals(15, store.getMultiGetSizes().size());
+			
+		}
+		
+	}
+	
+}
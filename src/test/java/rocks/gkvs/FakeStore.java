@@ -0,0 +1,306 @@
+/*
+ *
+ * Copyright 2018-present GKVS authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package rocks.gkvs;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import io.grpc.Server;
+import io.grpc.inprocess.InProcessChannelBuilder;
+import io.grpc.inprocess.InProcessServerBuilder;
+import io.grpc.stub.ServerCallStreamObserver;
+import io.grpc.stub.StreamObserver;
+import rocks.gkvs.protos.BatchKeyOperation;
+import rocks.gkvs.protos.BatchValueResult;
+import rocks.gkvs.protos.GenericStoreGrpc.GenericStoreImplBase;
+import rocks.gkvs.protos.KeyOperation;
+import rocks.gkvs.protos.Metadata;
+import rocks.gkvs.protos.PutOperation;
+import rocks.gkvs.protos.ScanOperation;
+import rocks.gkvs.protos.StatusCode;
+import rocks.gkvs.protos.StatusResult;
+import rocks.gkvs.protos.ValueResult;
+
+/**
+ *
+ * FakeStore
+ *
+ * In-process gKVS server with in-memory records for unit tests
+ *
+ */
+
+public class FakeStore extends GenericStoreImplBase implements Closeable {
+
+	private final String name = "gkvs-" + UUID.randomUUID();
+	private final Server server;
+
+	final Map<rocks.gkvs.protos.Key, rocks.gkvs.protos.Value> records = new ConcurrentHashMap<rocks.gkvs.protos.Key, rocks.gkvs.protos.Value>();
+
+	final Map<rocks.gkvs.protos.Key, Integer> versions = new ConcurrentHashMap<rocks.gkvs.protos.Key, Integer>();
+
+	final Map<rocks.gkvs.protos.Key, Integer> ttls = new ConcurrentHashMap<rocks.gkvs.protos.Key, Integer>();
+
+	final AtomicInteger getCalls = new AtomicInteger();
+	final AtomicInteger putCalls = new AtomicInteger();
+	final AtomicInteger putAllStreams = new AtomicInteger();
+	final List<Integer> multiGetSizes = new CopyOnWriteArrayList<Integer>();
+	final AtomicInteger scanSent = new AtomicInteger();
+	final List<StreamObserver<ValueResult>> heldGets = new CopyOnWriteArrayList<StreamObserver<ValueResult>>();
+	volatile boolean holdGets;
+	final List<ServerCallStreamObserver<StatusResult>> heldPutAlls = new CopyOnWriteArrayList<ServerCallStreamObserver<StatusResult>>();
+	volatile boolean holdPutAlls;
+	final List<ServerCallStreamObserver<StatusResult>> heldRemoveAlls = new CopyOnWriteArrayList<ServerCallStreamObserver<StatusResult>>();
+	volatile boolean holdRemoveAlls;
+
+	public FakeStore() throws IOException {
+		this.server = InProcessServerBuilder.forName(name).directExecutor().addService(this).build().start();
+	}
+
+	public GkvsClient client(GkvsConfig config) {
+		return new GkvsClient(config, InProcessChannelBuilder.forName(name).directExecutor());
+	}
+
+	public static GkvsConfig.Builder config() {
+		GkvsConfig.Builder builder = new GkvsConfig.Builder();
+		builder.setHost("localhost");
+		builder.setPort(4040);
+		return builder;
+	}
+
+	public List<Integer> getMultiGetSizes() {
+		return Collections.unmodifiableList(multiGetSizes);
+	}
+
+	private static rocks.gkvs.protos.Status success() {
+		return rocks.gkvs.protos.Status.newBuilder().setCode(StatusCode.SUCCESS).build();
+	}
+
+	private ValueResult get(KeyOperation op) {
+
+		ValueResult.Builder result = ValueResult.newBuilder()
+				.setHeader(op.getHeader())
+				.setStatus(success());
+
+		rocks.gkvs.protos.Value value = records.get(op.getKey());
+		if (value != null) {
+			Integer ttl = ttls.get(op.getKey());
+			result.setMetadata(Metadata.newBuilder().addVersion(versions.get(op.getKey())).setTtl(ttl != null ? ttl : 0));
+			result.setValue(value);
+		}
+
+		return result.build();
+	}
+
+	private StatusResult put(PutOperation op) {
+		Integer version = versions.get(op.getKey());
+		versions.put(op.getKey(), version != null ? version + 1 : 1);
+		ttls.put(op.getKey(), op.getTtl());
+		records.put(op.getKey(), op.getValue());
+		return StatusResult.newBuilder()
+				.setHeader(op.getHeader())
+				.setStatus(success())
+				.build();
+	}
+
+	private StatusResult remove(KeyOperation op) {
+		versions.remove(op.getKey());
+		ttls.remove(op.getKey());
+		records.remove(op.getKey());
+		return StatusResult.newBuilder()
+				.setHeader(op.getHeader())
+				.setStatus(success())
+				.build();
+	}
+
+	@Override
+	public void get(KeyOperation request, StreamObserver<ValueResult> responseObserver) {
+		getCalls.incrementAndGet();
+		if (holdGets) {
+			heldGets.add(responseObserver);
+			return;
+		}
+		responseObserver.onNext(get(request));
+		responseObserver.onCompleted();
+	}
+
+	@Override
+	public void multiGet(BatchKeyOperation request, StreamObserver<BatchValueResult> responseObserver) {
+		multiGetSizes.add(request.getOperationCount());
+		BatchValueResult.Builder result = BatchValueResult.newBuilder();
+		for (KeyOperation op : request.getOperationList()) {
+			result.addResult(get(op));
+		}
+		responseObserver.onNext(result.build());
+		responseObserver.onCompleted();
+	}
+
+	@Override
+	public StreamObserver<KeyOperation> getAll(final StreamObserver<ValueResult> responseObserver) {
+
+		return new StreamObserver<KeyOperation>() {
+
+			@Override
+			public void onNext(KeyOperation op) {
+				responseObserver.onNext(get(op));
+			}
+
+			@Override
+			public void onError(Throwable t) {
+			}
+
+			@Override
+			public void onCompleted() {
+				responseObserver.onCompleted();
+			}
+
+		};
+	}
+
+	@Override
+	public void put(PutOperation request, StreamObserver<StatusResult> responseObserver) {
+		putCalls.incrementAndGet();
+		responseObserver.onNext(put(request));
+		responseObserver.onCompleted();
+	}
+
+	@Override
+	public StreamObserver<PutOperation> putAll(final StreamObserver<StatusResult> responseObserver) {
+
+		putAllStreams.incrementAndGet();
+
+		// the slow server, writes are not read until the release
+		if (holdPutAlls) {
+			ServerCallStreamObserver<StatusResult> call = (ServerCallStreamObserver<StatusResult>) responseObserver;
+			call.disableAutoInboundFlowControl();
+			heldPutAlls.add(call);
+		}
+
+		return new StreamObserver<PutOperation>() {
+
+			@Override
+			public void onNext(PutOperation op) {
+				responseObserver.onNext(put(op));
+			}
+
+			@Override
+			public void onError(Throwable t) {
+			}
+
+			@Override
+			public void onCompleted() {
+				responseObserver.onCompleted();
+			}
+
+		};
+	}
+
+	public void releasePutAlls() {
+		holdPutAlls = false;
+		for (ServerCallStreamObserver<StatusResult> call : heldPutAlls) {
+			call.request(Integer.MAX_VALUE);
+		}
+		heldPutAlls.clear();
+	}
+
+	@Override
+	public StreamObserver<KeyOperation> removeAll(final StreamObserver<StatusResult> responseObserver) {
+
+		// the slow server, removes are not read until the release
+		if (holdRemoveAlls) {
+			ServerCallStreamObserver<StatusResult> call = (ServerCallStreamObserver<StatusResult>) responseObserver;
+			call.disableAutoInboundFlowControl();
+			heldRemoveAlls.add(call);
+		}
+
+		return new StreamObserver<KeyOperation>() {
+
+			@Override
+			public void onNext(KeyOperation op) {
+				responseObserver.onNext(remove(op));
+			}
+
+			@Override
+			public void onError(Throwable t) {
+			}
+
+			@Override
+			public void onCompleted() {
+				responseObserver.onCompleted();
+			}
+
+		};
+	}
+
+	public void releaseRemoveAlls() {
+		holdRemoveAlls = false;
+		for (ServerCallStreamObserver<StatusResult> call : heldRemoveAlls) {
+			call.request(Integer.MAX_VALUE);
+		}
+		heldRemoveAlls.clear();
+	}
+
+	/**
+	 * Sends records only while the client is ready to receive them
+	 */
+	
+	@Override
+	public void scan(ScanOperation request, StreamObserver<ValueResult> responseObserver) {
+		
+		final ServerCallStreamObserver<ValueResult> call = (ServerCallStreamObserver<ValueResult>) responseObserver;
+		final Iterator<Map.Entry<rocks.gkvs.protos.Key, rocks.gkvs.protos.Value>> records = new ArrayList<Map.Entry<rocks.gkvs.protos.Key, rocks.gkvs.protos.Value>>(this.records.entrySet()).iterator();
+		final ValueResult.Builder result = ValueResult.newBuilder().setHeader(request.getHeader()).setStatus(success());
+		
+		call.setOnReadyHandler(new Runnable() {
+			
+			private boolean completed;
+
+			@Override
+			public synchronized void run() {
+				
+				while (call.isReady() && records.hasNext()) {
+					Map.Entry<rocks.gkvs.protos.Key, rocks.gkvs.protos.Value> record = records.next();
+					result.setKey(record.getKey()).setMetadata(Metadata.newBuilder().addVersion(1)).setValue(record.getValue());
+					scanSent.incrementAndGet();
+					call.onNext(result.build());
+				}
+				
+				if (!records.hasNext() && !completed) {
+					completed = true;
+					call.onCompleted();
+				}
+			}
+			
+		});
+		
+	}
+	
+	@Override
+	public void close() {
+		server.shutdownNow();
+	}
+
+}
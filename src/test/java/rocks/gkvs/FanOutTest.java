@@ -0,0 +1,96 @@
+/*
+ *
+ * Copyright 2018-present GKVS authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package rocks.gkvs;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import rocks.gkvs.value.Str;
+
+/**
+ *
+ * FanOutTest
+ *
+ */
+
+public class FanOutTest {
+
+	@Test
+	public void testSync() throws Exception {
+		
+		try (FakeStore store = new FakeStore(); final GkvsClient client = store.client(FakeStore.config().build())) {
+			
+			List<Put> puts = new ArrayList<Put>();
+			List<Get> gets = new ArrayList<Get>();
+			
+			for (int i = 0; i != 1000; ++i) {
+				puts.add(client.put(Key.raw("test", "key" + i), new Str("value" + i)));
+				gets.add(client.get(Key.raw("test", "key" + i)));
+			}
+			
+			for (Status status : FanOut.sync(puts)) {
+				Assert.assertTrue(status.updated());
+			}
+			
+			List<Record> records = FanOut.sync(gets);
+			
+			Assert.assertEquals(1000, records.size());
+			for (int i = 0; i != 1000; ++i) {
+				Assert.assertEquals(Key.raw("test", "key" + i), records.get(i).key().get());
+				Assert.assertEquals("value" + i, records.get(i).value().asStr().asString());
+			}
+			
+		}
+		
+	}
+	
+	@Test
+	public void testFailure() throws Exception {
+		
+		List<Integer> inputs = new ArrayList<Integer>();
+		for (int i = 0; i != 100; ++i) {
+			inputs.add(i);
+		}
+		
+		try {
+			
+			FanOut.map(inputs, new Function<Integer, Integer>() {
+
+				@Override
+				public Integer apply(Integer i) {
+					if (i == 50) {
+						throw new IllegalStateException("failed " + i);
+					}
+					return i;
+				}
+				
+			});
+			
+			Assert.fail();
+		}
+		catch(IllegalStateException e) {
+			Assert.assertEquals("failed 50", e.getMessage());
+		}
+		
+	}
+	
+}
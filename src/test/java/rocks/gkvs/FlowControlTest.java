@@ -0,0 +1,149 @@
+/*
+ *
+ * Copyright 2018-present GKVS authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package rocks.gkvs;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import reactor.core.publisher.Flux;
+import reactor.test.StepVerifier;
+import rx.Observable;
+import rx.observers.TestSubscriber;
+
+/**
+ *
+ * FlowControlTest
+ *
+ */
+
+public class FlowControlTest {
+
+	private static List<Key> keys(int count) {
+		List<Key> keys = new ArrayList<Key>();
+		for (int i = 0; i != count; ++i) {
+			keys.add(Key.raw("test", "key" + i));
+		}
+		return keys;
+	}
+	
+	@Test
+	public void testInboundDemand() throws Exception {
+		
+		try (FakeStore store = new FakeStore(); GkvsClient client = store.client(FakeStore.config().build())) {
+			
+			final AtomicInteger received = new AtomicInteger();
+			final CountDownLatch done = new CountDownLatch(1);
+			
+			Observer<Record> observer = new Observer<Record>() {
+
+				@Override
+				public void onNext(Record record) {
+					received.incrementAndGet();
+				}
+
+				@Override
+				public void onError(Throwable t) {
+				}
+
+				@Override
+				public void onCompleted() {
+					done.countDown();
+				}
+				
+			};
+			
+			FlowControl control = new FlowControl(new Runnable() {
+
+				@Override
+				public void run() {
+				}
+				
+			});
+			
+			Observer<Key> sender = client.getAll().async(observer, control);
+			
+			for (Key key : keys(100)) {
+				sender.onNext(key);
+			}
+			sender.onCompleted();
+			
+			// the first result is requested by the stub on start
+			Thread.sleep(100);
+			Assert.assertTrue(received.get() <= 1);
+			
+			control.request(10);
+			Thread.sleep(100);
+			Assert.assertEquals(10, received.get());
+			
+			control.request(90);
+			Assert.assertTrue(done.await(1, TimeUnit.SECONDS));
+			Assert.assertEquals(100, received.get());
+			
+		}
+		
+	}
+	
+	@Test
+	public void testObserveBackpressure() throws Exception {
+		
+		try (FakeStore store = new FakeStore(); GkvsClient client = store.client(FakeStore.config().build())) {
+			
+			TestSubscriber<Record> subscriber = TestSubscriber.create(0);
+			
+			client.getAll().observe(Observable.from(keys(100))).subscribe(subscriber);
+			
+			Thread.sleep(100);
+			subscriber.assertValueCount(0);
+			
+			subscriber.requestMore(10);
+			Thread.sleep(100);
+			subscriber.assertValueCount(10);
+			
+			subscriber.requestMore(90);
+			subscriber.awaitTerminalEvent(1, TimeUnit.SECONDS);
+			subscriber.assertValueCount(100);
+			subscriber.assertCompleted();
+			
+		}
+		
+	}
+	
+	@Test
+	public void testFluxBackpressure() throws Exception {
+		
+		try (FakeStore store = new FakeStore(); GkvsClient client = store.client(FakeStore.config().build())) {
+			
+			StepVerifier.create(client.getAll().flux(Flux.fromIterable(keys(100))), 0)
+				.thenRequest(10)
+				.expectNextCount(10)
+				.thenRequest(90)
+				.expectNextCount(90)
+				.expectComplete()
+				.verify(java.time.Duration.ofSeconds(1));
+			
+		}
+		
+	}
+	
+}
@@ -0,0 +1,135 @@
+/*
+ *
+ * Copyright 2018-present GKVS authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package rocks.gkvs;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import rocks.gkvs.value.Str;
+
+/**
+ *
+ * GetBatcherTest
+ *
+ */
+
+public class GetBatcherTest {
+
+	@Test
+	public void testBatch() throws Exception {
+
+		GkvsConfig.Builder config = FakeStore.config();
+		config.useBatching(true);
+		config.setBatchLingerMls(50);
+		config.setBatchSize(8);
+
+		try (FakeStore store = new FakeStore(); GkvsClient client = store.client(config.build())) {
+
+			client.put("test", "k3", new Str("v3")).sync();
+
+			List<GkvsFuture<Record>> futures = new ArrayList<GkvsFuture<Record>>();
+			for (int i = 0; i != 8; ++i) {
+				futures.add(client.get("test", "k" + i).async());
+			}
+
+			for (int i = 0; i != 8; ++i) {
+				Record record = futures.get(i).get();
+				Assert.assertEquals("k" + i, record.key().getRecordKeyString());
+				Assert.assertEquals(i == 3, record.exists());
+			}
+
+			Assert.assertEquals(0, store.getCalls.get());
+			Assert.assertEquals(8, store.getMultiGetSizes().get(0).intValue());
+
+			// linger flushes the incomplete batch
+			Assert.assertTrue(client.get("test", "k3").sync().exists());
+
+			// opt-out sends the unary call
+			Assert.assertTrue(client.get("test", "k3").batch(false).sync().exists());
+			Assert.assertEquals(1, store.getCalls.get());
+
+		}
+
+	}
+
+	@Test
+	public void testDeadlines() throws Exception {
+
+		GkvsConfig.Builder config = FakeStore.config();
+		config.useBatching(true);
+		config.setBatchLingerMls(200);
+		config.setBatchSize(8);
+
+		try (FakeStore store = new FakeStore(); GkvsClient client = store.client(config.build())) {
+
+			client.put("test", "key", new Str("value")).sync();
+
+			GkvsFuture<Record> shortRead = client.get("test", "key").withTimeout(50).async();
+			GkvsFuture<Record> longRead = client.get("test", "key").withTimeout(5000).async();
+
+			// the short timeout fails only its own read
+			try {
+				shortRead.get(1, TimeUnit.SECONDS);
+				Assert.fail();
+			}
+			catch(ExecutionException e) {
+				Assert.assertEquals(io.grpc.Status.Code.DEADLINE_EXCEEDED, io.grpc.Status.fromThrowable(e).getCode());
+			}
+
+			// the expired read is not sent
+			Assert.assertTrue(longRead.get(1, TimeUnit.SECONDS).exists());
+			Assert.assertEquals(Arrays.asList(1), store.getMultiGetSizes());
+		}
+
+	}
+
+	@Test
+	public void testLingerAfterFullBatch() throws Exception {
+
+		GkvsConfig.Builder config = FakeStore.config();
+		config.useBatching(true);
+		config.setBatchLingerMls(200);
+		config.setBatchSize(2);
+
+		try (FakeStore store = new FakeStore(); GkvsClient client = store.client(config.build())) {
+
+			client.get("test", "k0").async();
+			client.get("test", "k1").async();
+			Assert.assertEquals(Arrays.asList(2), store.getMultiGetSizes());
+
+			Thread.sleep(100);
+
+			// the timer of the full batch does not flush the next one early
+			GkvsFuture<Record> next = client.get("test", "k2").async();
+
+			Thread.sleep(150);
+			Assert.assertFalse(next.isDone());
+
+			Assert.assertFalse(next.get(1, TimeUnit.SECONDS).exists());
+			Assert.assertEquals(Arrays.asList(2, 1), store.getMultiGetSizes());
+		}
+
+	}
+
+}
@@ -0,0 +1,66 @@
+/*
+ *
+ * Copyright 2018-present GKVS authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package rocks.gkvs;
+
+import java.util.Properties;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ *
+ * GkvsTransportTest
+ *
+ */
+
+public class GkvsTransportTest {
+
+	@Test
+	public void testShared() {
+
+		GkvsConfig config = GkvsConfig.fromProperties(new Properties());
+
+		GkvsTransport first = GkvsTransport.shared(config);
+		GkvsTransport second = GkvsTransport.shared(config);
+
+		Assert.assertSame(first, second);
+
+		first.release();
+		second.release();
+
+		GkvsTransport third = GkvsTransport.shared(config);
+
+		Assert.assertNotSame(first, third);
+		Assert.assertTrue(first.getEventLoopGroup().isShuttingDown());
+
+		third.release();
+
+	}
+
+	@Test
+	public void testNio() {
+
+		GkvsTransport transport = GkvsTransport.create(false, 1, 1);
+
+		Assert.assertFalse(transport.isEpoll());
+
+		transport.close();
+
+	}
+
+}
@@ -0,0 +1,149 @@
+/*
+ *
+ * Copyright 2018-present GKVS authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package rocks.gkvs;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.google.common.base.Supplier;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.SettableFuture;
+
+/**
+ *
+ * HedgedFutureTest
+ *
+ */
+
+public class HedgedFutureTest {
+
+	private static final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+
+	@AfterClass
+	public static void shutdown() {
+		scheduler.shutdownNow();
+	}
+
+	private static final class Calls implements Supplier<ListenableFuture<String>> {
+
+		final List<SettableFuture<String>> sent = new ArrayList<SettableFuture<String>>();
+
+		@Override
+		public synchronized ListenableFuture<String> get() {
+			SettableFuture<String> call = SettableFuture.create();
+			sent.add(call);
+			return call;
+		}
+
+		synchronized SettableFuture<String> call(int i) {
+			return sent.get(i);
+		}
+
+		synchronized int size() {
+			return sent.size();
+		}
+
+	}
+
+	@Test
+	public void testPrimaryWins() throws Exception {
+
+		Calls calls = new Calls();
+		ListenableFuture<String> future = HedgedFuture.start(calls, new HedgePolicy(1000, 0, 10), scheduler);
+
+		calls.call(0).set("primary");
+
+		Assert.assertEquals("primary", future.get(1, TimeUnit.SECONDS));
+		Assert.assertEquals(1, calls.size());
+
+	}
+
+	@Test
+	public void testHedgeWins() throws Exception {
+
+		Calls calls = new Calls();
+		ListenableFuture<String> future = HedgedFuture.start(calls, new HedgePolicy(1, 0, 10), scheduler);
+
+		while (calls.size() < 2) {
+			Thread.sleep(1);
+		}
+
+		calls.call(1).set("hedge");
+
+		Assert.assertEquals("hedge", future.get(1, TimeUnit.SECONDS));
+		Assert.assertTrue(calls.call(0).isCancelled());
+
+	}
+
+	@Test
+	public void testErrorWaitsForHedge() throws Exception {
+
+		Calls calls = new Calls();
+		ListenableFuture<String> future = HedgedFuture.start(calls, new HedgePolicy(1, 0, 10), scheduler);
+
+		while (calls.size() < 2) {
+			Thread.sleep(1);
+		}
+
+		calls.call(0).setException(new IllegalStateException("primary"));
+		Assert.assertFalse(future.isDone());
+
+		calls.call(1).set("hedge");
+		Assert.assertEquals("hedge", future.get(1, TimeUnit.SECONDS));
+
+	}
+
+	@Test
+	public void testBudget() {
+
+		HedgePolicy policy = new HedgePolicy(1, 0, 10);
+
+		int hedges = 0;
+		for (int i = 0; i != 1000; ++i) {
+			policy.onRequest();
+			if (policy.tryHedge()) {
+				hedges++;
+			}
+		}
+
+		// initial burst plus 10 percent of requests
+		Assert.assertTrue("hedges " + hedges, hedges <= 110);
+
+	}
+
+	@Test
+	public void testAdaptiveDelay() {
+
+		HedgePolicy policy = new HedgePolicy(1, 90, 10);
+
+		for (int i = 0; i != 1000; ++i) {
+			policy.record(TimeUnit.MILLISECONDS.toNanos(i < 950 ? 2 : 100));
+		}
+
+		Assert.assertEquals(TimeUnit.MILLISECONDS.toNanos(2), policy.getDelayNanos());
+
+	}
+
+}
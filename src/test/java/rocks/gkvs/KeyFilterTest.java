@@ -0,0 +1,186 @@
+/*
+ *
+ * Copyright 2018-present GKVS authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package rocks.gkvs;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import rocks.gkvs.value.Str;
+
+/**
+ *
+ * KeyFilterTest
+ *
+ */
+
+public class KeyFilterTest {
+
+	@Test
+	public void testFalsePositives() {
+
+		KeyFilter filter = new KeyFilter(16 * 1024, 0.01);
+		Assert.assertTrue(filter.capacity() > 10000);
+
+		for (int i = 0; i != 10000; ++i) {
+			filter.add(Key.raw("test", "key" + i));
+		}
+
+		for (int i = 0; i != 10000; ++i) {
+			Assert.assertTrue(filter.mightContain(Key.raw("test", "key" + i)));
+		}
+
+		int falsePositives = 0;
+		for (int i = 0; i != 10000; ++i) {
+			if (filter.mightContain(Key.raw("test", "other" + i))) {
+				falsePositives++;
+			}
+		}
+
+		Assert.assertTrue("false positives " + falsePositives, falsePositives < 300);
+	}
+
+	@Test
+	public void testRewrites() {
+
+		KeyFilter filter = new KeyFilter(1024, 0.01);
+		filter.ready();
+
+		Key key = Key.raw("test", "key");
+		for (int i = 0; i != 10000; ++i) {
+			filter.add(key);
+		}
+
+		// rewrites of the same key do not exhaust the capacity
+		Assert.assertEquals(1, filter.count());
+		Assert.assertTrue(filter.count() <= filter.capacity());
+		Assert.assertTrue(filter.isAbsent(Key.raw("test", "other")));
+	}
+
+	@Test
+	public void testLoad() throws Exception {
+
+		try (FakeStore store = new FakeStore(); GkvsClient client = store.client(FakeStore.config().build())) {
+
+			for (int i = 0; i != 10; ++i) {
+				client.put(Key.raw("test", "key" + i), new Str("value" + i)).sync();
+			}
+
+			Assert.assertFalse(client.hasKeyFilter("test"));
+			Assert.assertEquals(10, client.loadKeyFilter("test"));
+			Assert.assertTrue(client.hasKeyFilter("test"));
+
+			int calls = store.getCalls.get();
+
+			Assert.assertTrue(client.exists(Key.raw("test", "key1")).sync().exists());
+			Assert.assertEquals(calls + 1, store.getCalls.get());
+
+			Assert.assertFalse(client.exists(Key.raw("test", "missing")).sync().exists());
+			Assert.assertFalse(client.get(Key.raw("test", "missing")).async().get(1, TimeUnit.SECONDS).exists());
+			Assert.assertEquals(calls + 1, store.getCalls.get());
+
+			// the put adds the key to the filter before it is sent
+			client.put(Key.raw("test", "missing"), new Str("value")).sync();
+			Assert.assertTrue(client.get(Key.raw("test", "missing")).sync().exists());
+			Assert.assertEquals(calls + 2, store.getCalls.get());
+
+			Records records = client.multiGet(Arrays.asList(Key.raw("test", "key2"), Key.raw("test", "absent"))).sync();
+			Assert.assertTrue(records.get(0).exists());
+			Assert.assertFalse(records.get(1).exists());
+			Assert.assertEquals(Arrays.asList(1), store.getMultiGetSizes());
+
+			client.removeKeyFilter("test");
+			client.get(Key.raw("test", "absent")).sync();
+			Assert.assertEquals(calls + 3, store.getCalls.get());
+		}
+
+	}
+
+	@Test
+	public void testNegativeCache() throws Exception {
+
+		GkvsConfig.Builder config = FakeStore.config();
+		config.addNegativeCacheView("test");
+		config.setNegativeCacheTtlMls(1000);
+
+		try (FakeStore store = new FakeStore(); GkvsClient client = store.client(config.build())) {
+
+			Key key = Key.raw("test", "key");
+			Key other = Key.raw("other", "key");
+
+			Assert.assertFalse(client.exists(key).sync().exists());
+			Assert.assertFalse(client.exists(key).sync().exists());
+			Assert.assertFalse(client.get(other).sync().exists());
+			Assert.assertFalse(client.get(other).sync().exists());
+			Assert.assertEquals(3, store.getCalls.get());
+
+			client.put(key, new Str("value")).sync();
+
+			Assert.assertTrue(client.exists(key).sync().exists());
+			Assert.assertEquals(4, store.getCalls.get());
+		}
+
+	}
+
+	@Test
+	public void testNegativeCacheStamps() {
+
+		NegativeCache cache = new NegativeCache(Arrays.asList("test"), 100, 1000);
+
+		Key key = Key.raw("test", "key");
+
+		// invalidations of other keys and of other views do not fail the fill in flight
+		long stamp = cache.stamp(key);
+		cache.invalidate(Key.raw("test", "other"));
+		cache.invalidate(Key.raw("other", "key"));
+		cache.put(key, Transformers.notFound(key, 1), stamp);
+		Assert.assertTrue(cache.contains(key));
+
+		// the invalidation of the key does
+		stamp = cache.stamp(key);
+		cache.invalidate(key);
+		cache.put(key, Transformers.notFound(key, 1), stamp);
+		Assert.assertFalse(cache.contains(key));
+	}
+
+	@Test
+	public void testNegativeCacheTtl() throws Exception {
+
+		GkvsConfig.Builder config = FakeStore.config();
+		config.addNegativeCacheView("test");
+		config.setNegativeCacheTtlMls(50);
+
+		try (FakeStore store = new FakeStore(); GkvsClient client = store.client(config.build())) {
+
+			Key key = Key.raw("test", "key");
+
+			client.get(key).sync();
+			client.get(key).sync();
+			Assert.assertEquals(1, store.getCalls.get());
+
+			Thread.sleep(100);
+
+			client.get(key).sync();
+			Assert.assertEquals(2, store.getCalls.get());
+		}
+
+	}
+
+}
@@ -0,0 +1,80 @@
+/*
+ *
+ * Copyright 2018-present GKVS authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package rocks.gkvs;
+
+import java.util.Arrays;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ *
+ * KeyRouterTest
+ *
+ */
+
+public class KeyRouterTest {
+
+	private static final int KEYS = 10000;
+
+	@Test
+	public void testDistribution() {
+
+		KeyRouter router = new KeyRouter(Arrays.asList("host1:4040", "host2:4040", "host3:4040", "host4:4040"));
+
+		int[] counts = new int[router.size()];
+
+		for (int i = 0; i != KEYS; ++i) {
+			counts[router.route(Key.raw("test", "key" + i))]++;
+		}
+
+		for (int count : counts) {
+			Assert.assertTrue("unbalanced " + Arrays.toString(counts), count > KEYS / 8);
+		}
+
+	}
+
+	@Test
+	public void testStable() {
+
+		KeyRouter before = new KeyRouter(Arrays.asList("host1:4040", "host2:4040", "host3:4040"));
+		KeyRouter after = new KeyRouter(Arrays.asList("host1:4040", "host2:4040", "host3:4040", "host4:4040"));
+
+		for (int i = 0; i != KEYS; ++i) {
+
+			Key key = Key.raw("test", "key" + i);
+
+			Assert.assertEquals(before.route(key), before.route(Key.raw("test", "key" + i)));
+
+			int endpoint = after.route(key);
+			if (endpoint != 3) {
+				// only keys of the new endpoint are moved
+				Assert.assertEquals(before.route(key), endpoint);
+			}
+		}
+
+	}
+
+	@Test
+	public void testViewName() {
+
+		Assert.assertNotEquals(KeyRouter.hash(Key.raw("ab", "c")), KeyRouter.hash(Key.raw("a", "bc")));
+
+	}
+
+}
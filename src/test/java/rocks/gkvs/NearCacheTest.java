@@ -0,0 +1,457 @@
+/*
+ *
+ * Copyright 2018-present GKVS authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package rocks.gkvs;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import rocks.gkvs.Get.FlightKey;
+import rocks.gkvs.protos.OutputOptions;
+import rocks.gkvs.protos.Select;
+import rocks.gkvs.value.Str;
+
+/**
+ *
+ * NearCacheTest
+ *
+ */
+
+public class NearCacheTest {
+
+	private static GkvsConfig.Builder config() {
+		GkvsConfig.Builder builder = FakeStore.config();
+		builder.useNearCache(true);
+		return builder;
+	}
+
+	@Test
+	public void testHitAndInvalidate() throws Exception {
+
+		try (FakeStore store = new FakeStore(); GkvsClient client = store.client(config().build())) {
+
+			Key key = Key.raw("test", "key");
+			client.put(key, new Str("one")).sync();
+
+			Assert.assertEquals("one", client.get(key).sync().value().asStr().asString());
+			Assert.assertEquals("one", client.get(key).sync().value().asStr().asString());
+			Assert.assertEquals("one", client.get(key).async().get(1, TimeUnit.SECONDS).value().asStr().asString());
+			Assert.assertEquals(1, store.getCalls.get());
+
+			// the other shape of the read is not served from the cache
+			client.get(key).metadataOnly().sync();
+			Assert.assertEquals(2, store.getCalls.get());
+
+			client.put(key, new Str("two")).sync();
+
+			Assert.assertEquals("two", client.get(key).sync().value().asStr().asString());
+			Assert.assertEquals(3, store.getCalls.get());
+
+			client.get(key).nearCache(false).sync();
+			Assert.assertEquals(4, store.getCalls.get());
+
+			NearCacheStats stats = client.getNearCacheStats();
+			Assert.assertEquals(2, stats.hits());
+			Assert.assertEquals(1, stats.invalidations());
+			Assert.assertEquals(1, stats.size());
+
+			client.clearNearCache();
+			Assert.assertEquals(0, client.getNearCacheStats().size());
+		}
+
+	}
+
+	@Test
+	public void testMissingNotCached() throws Exception {
+
+		try (FakeStore store = new FakeStore(); GkvsClient client = store.client(config().build())) {
+
+			Key key = Key.raw("test", "missing");
+
+			Assert.assertFalse(client.get(key).sync().exists());
+			Assert.assertFalse(client.get(key).sync().exists());
+			Assert.assertEquals(2, store.getCalls.get());
+		}
+
+	}
+
+	@Test
+	public void testTtl() throws Exception {
+
+		GkvsConfig.Builder config = config();
+		config.setNearCacheTtlMls(50);
+
+		try (FakeStore store = new FakeStore(); GkvsClient client = store.client(config.build())) {
+
+			Key key = Key.raw("test", "key");
+			client.put(key, new Str("value")).sync();
+
+			client.get(key).sync();
+			client.get(key).sync();
+			Assert.assertEquals(1, store.getCalls.get());
+
+			Thread.sleep(100);
+
+			client.get(key).sync();
+			Assert.assertEquals(2, store.getCalls.get());
+			Assert.assertEquals(1, client.getNearCacheStats().expirations());
+		}
+
+	}
+
+	@Test
+	public void testEviction() throws Exception {
+
+		GkvsConfig.Builder config = config();
+		config.setNearCacheEntries(16);
+
+		try (FakeStore store = new FakeStore(); GkvsClient client = store.client(config.build())) {
+
+			for (int i = 0; i != 100; ++i) {
+				Key key = Key.raw("test", "key" + i);
+				client.put(key, new Str("value" + i)).sync();
+				client.get(key).sync();
+			}
+
+			NearCacheStats stats = client.getNearCacheStats();
+			Assert.assertTrue(stats.size() <= 16);
+			Assert.assertEquals(100 - stats.size(), stats.evictions());
+		}
+
+	}
+
+	@Test
+	public void testViews() throws Exception {
+
+		GkvsConfig.Builder config = config();
+		config.addNearCacheView("cached");
+
+		try (FakeStore store = new FakeStore(); GkvsClient client = store.client(config.build())) {
+
+			Key cached = Key.raw("cached", "key");
+			Key other = Key.raw("other", "key");
+			client.put(cached, new Str("value")).sync();
+			client.put(other, new Str("value")).sync();
+
+			client.get(cached).sync();
+			client.get(cached).sync();
+			client.get(other).sync();
+			client.get(other).sync();
+
+			Assert.assertEquals(3, store.getCalls.get());
+		}
+
+	}
+
+	@Test
+	public void testStamps() throws Exception {
+
+		GkvsConfig.Builder config = config();
+		config.addNearCacheView("cached");
+
+		try (FakeStore store = new FakeStore(); GkvsClient client = store.client(config.build())) {
+
+			NearCache cache = client.getNearCache();
+
+			Key key = Key.raw("cached", "key");
+			client.put(key, new Str("one")).sync();
+
+			FlightKey read = new FlightKey(key, Select.getDefaultInstance(), OutputOptions.VALUE);
+			Record record = client.get(key).nearCache(false).sync();
+
+			// writes of other keys and of other views do not fail the fill in flight
+			long stamp = cache.stamp(key);
+			client.put(Key.raw("cached", "other"), new Str("value")).sync();
+			client.put(Key.raw("other", "key"), new Str("value")).sync();
+			cache.put(read, record, stamp);
+			Assert.assertNotNull(cache.get(read));
+
+			// the write of the key does
+			cache.clear();
+			stamp = cache.stamp(key);
+			client.put(key, new Str("two")).sync();
+			cache.put(read, record, stamp);
+			Assert.assertNull(cache.get(read));
+		}
+
+	}
+
+	@Test
+	public void testMultiGet() throws Exception {
+
+		try (FakeStore store = new FakeStore(); GkvsClient client = store.client(config().build())) {
+
+			List<Key> keys = new ArrayList<Key>();
+			for (int i = 0; i != 4; ++i) {
+				Key key = Key.raw("test", "key" + i);
+				client.put(key, new Str("value" + i)).sync();
+				keys.add(key);
+			}
+
+			client.get(keys.get(0)).sync();
+			client.get(keys.get(1)).sync();
+
+			Records records = client.multiGet(keys).sync();
+			Assert.assertEquals(Arrays.asList(2), store.getMultiGetSizes());
+			for (int i = 0; i != 4; ++i) {
+				Assert.assertEquals("value" + i, records.get(i).value().asStr().asString());
+			}
+
+			records = client.multiGet(keys).asyncRecords().get(1, TimeUnit.SECONDS);
+			Assert.assertEquals(Arrays.asList(2), store.getMultiGetSizes());
+			Assert.assertEquals("value3", records.get(3).value().asStr().asString());
+
+			client.put(keys.get(3), new Str("value3")).sync();
+
+			BlockingCollector<Iterable<Record>> collector = Observers.collector();
+			client.multiGet(keys).async(collector);
+
+			int count = 0;
+			for (Iterable<Record> chunk : collector.await(1, TimeUnit.SECONDS)) {
+				for (@SuppressWarnings("unused") Record record : chunk) {
+					count++;
+				}
+			}
+
+			Assert.assertEquals(4, count);
+			Assert.assertEquals(Arrays.asList(2, 1), store.getMultiGetSizes());
+		}
+
+	}
+
+	@Test
+	public void testRevalidate() throws Exception {
+
+		GkvsConfig.Builder config = config();
+		config.setNearCacheTtlMls(50);
+		config.useNearCacheRevalidation(true);
+
+		try (FakeStore store = new FakeStore(); 
+				GkvsClient client = store.client(config.build()); 
+				GkvsClient writer = store.client(FakeStore.config().build())) {
+
+			Key key = Key.raw("test", "key");
+			client.put(key, new Str("one")).sync();
+
+			client.get(key).sync();
+			Assert.assertEquals(1, store.getCalls.get());
+
+			Thread.sleep(100);
+
+			// the version did not change, the stale record is served after the metadata-only read
+			Assert.assertEquals("one", client.get(key).sync().value().asStr().asString());
+			Assert.assertEquals(2, store.getCalls.get());
+			Assert.assertEquals(1, client.getNearCacheStats().revalidations());
+
+			client.get(key).sync();
+			Assert.assertEquals(2, store.getCalls.get());
+
+			Thread.sleep(100);
+
+			// the other client changed the record, the value is read again
+			writer.put(key, new Str("two")).sync();
+
+			Assert.assertEquals("two", client.get(key).async().get(1, TimeUnit.SECONDS).value().asStr().asString());
+			Assert.assertEquals(4, store.getCalls.get());
+			Assert.assertEquals(1, client.getNearCacheStats().revalidations());
+
+			Thread.sleep(100);
+
+			Assert.assertEquals("two", client.get(key).async().get(1, TimeUnit.SECONDS).value().asStr().asString());
+			Assert.assertEquals(5, store.getCalls.get());
+			Assert.assertEquals(2, client.getNearCacheStats().revalidations());
+		}
+
+	}
+
+	@Test
+	public void testRevalidateMetadata() throws Exception {
+
+		GkvsConfig.Builder config = config();
+		config.setNearCacheTtlMls(50);
+		config.useNearCacheRevalidation(true);
+
+		try (FakeStore store = new FakeStore(); GkvsClient client = store.client(config.build())) {
+
+			Key key = Key.raw("test", "key");
+			client.put(key, new Str("value")).withTtl(100).sync();
+
+			Assert.assertEquals(100, client.get(key).sync().ttl());
+
+			Thread.sleep(100);
+
+			// the ttl was extended without the change of the version
+			store.ttls.put(key.toProto(), 200);
+
+			Record record = client.get(key).sync();
+			Assert.assertEquals("value", record.value().asStr().asString());
+			Assert.assertEquals(200, record.ttl());
+			Assert.assertEquals(1, client.getNearCacheStats().revalidations());
+
+			// the revalidated record is cached with the current metadata
+			Assert.assertEquals(200, client.get(key).sync().ttl());
+			Assert.assertEquals(2, store.getCalls.get());
+
+			Thread.sleep(100);
+			store.ttls.put(key.toProto(), 300);
+
+			Records records = client.multiGet(Arrays.asList(key)).sync();
+			Assert.assertEquals(300, records.get(0).ttl());
+			Assert.assertEquals(300, client.get(key).sync().ttl());
+			Assert.assertEquals(2, client.getNearCacheStats().revalidations());
+		}
+
+	}
+
+	@Test
+	public void testRevalidateMultiGet() throws Exception {
+
+		GkvsConfig.Builder config = config();
+		config.setNearCacheTtlMls(50);
+		config.useNearCacheRevalidation(true);
+
+		try (FakeStore store = new FakeStore(); 
+				GkvsClient client = store.client(config.build()); 
+				GkvsClient writer = store.client(FakeStore.config().build())) {
+
+			List<Key> keys = new ArrayList<Key>();
+			for (int i = 0; i != 4; ++i) {
+				Key key = Key.raw("test", "key" + i);
+				client.put(key, new Str("value" + i)).sync();
+				keys.add(key);
+			}
+
+			client.multiGet(keys).sync();
+			Assert.assertEquals(Arrays.asList(4), store.getMultiGetSizes());
+
+			Thread.sleep(100);
+
+			writer.put(keys.get(2), new Str("changed")).sync();
+
+			// metadata of 4 stale keys, then the value of the changed key
+			Records records = client.multiGet(keys).sync();
+			Assert.assertEquals(Arrays.asList(4, 4, 1), store.getMultiGetSizes());
+			Assert.assertEquals("value1", records.get(1).value().asStr().asString());
+			Assert.assertEquals("changed", records.get(2).value().asStr().asString());
+			Assert.assertEquals(3, client.getNearCacheStats().revalidations());
+
+			Thread.sleep(100);
+
+			records = client.multiGet(keys).asyncRecords().get(1, TimeUnit.SECONDS);
+			Assert.assertEquals(Arrays.asList(4, 4, 1, 4), store.getMultiGetSizes());
+			Assert.assertEquals("changed", records.get(2).value().asStr().asString());
+			Assert.assertEquals(7, client.getNearCacheStats().revalidations());
+		}
+
+	}
+
+	@Test
+	public void testOffHeap() throws Exception {
+
+		GkvsConfig.Builder config = config();
+		config.useNearCacheOffHeap(true);
+		config.setNearCacheOffHeapBytes(8 * 1024);
+		config.setNearCacheSlabBytes(4 * 1024);
+
+		try (FakeStore store = new FakeStore(); GkvsClient client = store.client(config.build())) {
+
+			Key key = Key.raw("test", "key");
+			client.put(key, new Str("value")).sync();
+
+			Assert.assertEquals("value", client.get(key).sync().value().asStr().asString());
+			Assert.assertEquals("value", client.get(key).sync().value().asStr().asString());
+			Assert.assertEquals(1, store.getCalls.get());
+			Assert.assertEquals(4 * 1024, client.getNearCacheStats().offHeapBytes());
+
+			// fills both slabs, the slab of the key is recycled
+			for (int i = 0; i != 300; ++i) {
+				Key other = Key.raw("test", "other" + i);
+				client.put(other, new Str("value of the other key " + i)).sync();
+				client.get(other).sync();
+			}
+
+			NearCacheStats stats = client.getNearCacheStats();
+			Assert.assertEquals(8 * 1024, stats.offHeapBytes());
+			Assert.assertTrue(stats.evictions() > 0);
+
+			int calls = store.getCalls.get();
+			Assert.assertEquals("value", client.get(key).sync().value().asStr().asString());
+			Assert.assertEquals(calls + 1, store.getCalls.get());
+		}
+
+	}
+
+	@Test
+	public void testPutAllRace() throws Exception {
+
+		try (FakeStore store = new FakeStore(); GkvsClient client = store.client(config().build())) {
+
+			Key key = Key.raw("test", "key");
+			client.put(key, new Str("one")).sync();
+
+			store.holdPutAlls = true;
+
+			BlockingCollector<Status> collector = Observers.collector();
+			Observer<KeyValue> putAll = client.putAll().async(collector);
+			putAll.onNext(KeyValue.of(key, new Str("two")));
+			putAll.onCompleted();
+
+			// the read overtakes the write and fills the cache with the old value
+			Assert.assertEquals("one", client.get(key).sync().value().asStr().asString());
+
+			store.releasePutAlls();
+			Assert.assertEquals(1, collector.await(1, TimeUnit.SECONDS).size());
+
+			Assert.assertEquals("two", client.get(key).sync().value().asStr().asString());
+			Assert.assertEquals(2, store.getCalls.get());
+		}
+
+	}
+
+	@Test
+	public void testRemoveAllRace() throws Exception {
+
+		try (FakeStore store = new FakeStore(); GkvsClient client = store.client(config().build())) {
+
+			Key key = Key.raw("test", "key");
+			client.put(key, new Str("one")).sync();
+
+			store.holdRemoveAlls = true;
+
+			BlockingCollector<Status> collector = Observers.collector();
+			Observer<Key> removeAll = client.removeAll().async(collector);
+			removeAll.onNext(key);
+			removeAll.onCompleted();
+
+			// the read overtakes the remove and fills the cache with the old value
+			Assert.assertEquals("one", client.get(key).sync().value().asStr().asString());
+
+			store.releaseRemoveAlls();
+			Assert.assertEquals(1, collector.await(1, TimeUnit.SECONDS).size());
+
+			Assert.assertFalse(client.get(key).sync().exists());
+			Assert.assertEquals(2, store.getCalls.get());
+		}
+
+	}
+
+}
@@ -0,0 +1,146 @@
+/*
+ *
+ * Copyright 2018-present GKVS authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package rocks.gkvs;
+
+import java.io.Closeable;
+import java.time.Duration;
+import java.util.Iterator;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import reactor.test.StepVerifier;
+import rocks.gkvs.value.Str;
+
+/**
+ *
+ * PrefetchWindowTest
+ *
+ */
+
+public class PrefetchWindowTest {
+
+	private static FakeStore load(int count) throws Exception {
+		FakeStore store = new FakeStore();
+		try (GkvsClient client = store.client(FakeStore.config().build())) {
+			for (int i = 0; i != count; ++i) {
+				client.put(Key.raw("test", "key" + i), new Str("value" + i)).sync();
+			}
+		}
+		return store;
+	}
+	
+	@Test
+	public void testIterator() throws Exception {
+		
+		try (FakeStore store = load(1000); GkvsClient client = store.client(FakeStore.config().build())) {
+			
+			Iterator<Record> records = client.scan("test").withPrefetch(10).sync();
+			
+			Thread.sleep(100);
+			Assert.assertTrue(store.scanSent.get() <= 10);
+			
+			int count = 0;
+			while (records.hasNext()) {
+				Assert.assertTrue(records.next().exists());
+				count++;
+			}
+			
+			Assert.assertEquals(1000, count);
+			Assert.assertEquals(1000, store.scanSent.get());
+			
+		}
+		
+	}
+	
+	@Test
+	public void testCloseWithoutWindow() throws Exception {
+		
+		try (FakeStore store = load(100); GkvsClient client = store.client(FakeStore.config().build())) {
+			
+			Iterator<Record> records = client.scan("test").sync();
+			Assert.assertTrue(records.next().exists());
+			
+			// abandoned before the end
+			((CloseableIterator<Record>) records).close();
+			
+			GkvsChannel channel = client.acquireChannel(0);
+			Assert.assertEquals(1, channel.getOutstanding());
+			channel.release();
+			
+		}
+		
+	}
+	
+	@Test
+	public void testBytes() throws Exception {
+		
+		try (FakeStore store = load(1000); GkvsClient client = store.client(FakeStore.config().build())) {
+			
+			Iterator<Record> records = client.scan("test").includeValue(true).withPrefetchBytes(256).sync();
+			
+			Assert.assertTrue(records.hasNext());
+			Thread.sleep(100);
+			Assert.assertTrue(store.scanSent.get() < 20);
+			
+			((Closeable) records).close();
+			
+		}
+		
+	}
+	
+	@Test
+	public void testFlux() throws Exception {
+		
+		try (FakeStore store = load(1000); GkvsClient client = store.client(FakeStore.config().build())) {
+			
+			StepVerifier.create(client.scan("test").withPrefetch(100).flux(), 0)
+				.thenRequest(5)
+				.expectNextCount(5)
+				.then(new Runnable() {
+
+					@Override
+					public void run() {
+						Assert.assertTrue(store.scanSent.get() <= 6);
+					}
+					
+				})
+				.thenRequest(Long.MAX_VALUE)
+				.expectNextCount(995)
+				.expectComplete()
+				.verify(Duration.ofSeconds(1));
+			
+		}
+		
+	}
+	
+	@Test
+	public void testObserver() throws Exception {
+		
+		try (FakeStore store = load(1000); GkvsClient client = store.client(FakeStore.config().build())) {
+			
+			BlockingCollector<Record> collector = new BlockingCollector<Record>();
+			client.scan("test").withPrefetch(10).async(collector);
+			
+			Assert.assertEquals(1000, collector.awaitUnchecked().size());
+			
+		}
+		
+	}
+	
+}
@@ -0,0 +1,176 @@
+/*
+ *
+ * Copyright 2018-present GKVS authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package rocks.gkvs;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.google.protobuf.ByteString;
+
+import rocks.gkvs.value.Num;
+import rocks.gkvs.value.RawValue;
+import rocks.gkvs.value.Str;
+import rocks.gkvs.value.Table;
+
+/**
+ *
+ * RawValueTest
+ *
+ */
+
+public class RawValueTest {
+
+	private static byte[] payload() {
+		Table table = new Table();
+		table.put("name", new Str("Alex"));
+		table.put("logins", new Num(9));
+		return table.toMsgpack();
+	}
+
+	private static byte[] bytes(ByteBuffer buffer) {
+		byte[] bytes = new byte[buffer.remaining()];
+		buffer.duplicate().get(bytes);
+		return bytes;
+	}
+
+	@Test
+	public void testPutRaw() throws Exception {
+
+		byte[] payload = payload();
+
+		try (FakeStore store = new FakeStore(); GkvsClient client = store.client(FakeStore.config().build())) {
+
+			Key key = Key.raw("test", "array");
+			client.putRaw(key, payload).sync();
+
+			Record record = client.get(key).sync();
+			ByteBuffer buffer = record.rawValueBuffer();
+			Assert.assertTrue(buffer.isReadOnly());
+			Assert.assertArrayEquals(payload, bytes(buffer));
+			Assert.assertEquals(new Str("Alex"), record.value().asTable().get("name"));
+
+			// the payload of one record is written to the other one as is
+			Key copy = Key.raw("test", "copy");
+			client.putRaw(copy, buffer).sync();
+			Assert.assertArrayEquals(payload, client.get(copy).sync().rawValue());
+
+			Key direct = Key.raw("test", "direct");
+			ByteBuffer directBuffer = ByteBuffer.allocateDirect(payload.length);
+			directBuffer.put(payload).flip();
+			client.putRaw(direct, directBuffer).sync();
+			Assert.assertArrayEquals(payload, client.get(direct).sync().rawValue());
+
+			Key string = Key.raw("test", "string");
+			client.putRaw(string, ByteString.copyFrom(payload)).sync();
+			Assert.assertEquals(new Num(9), client.get(string).sync().value().asTable().get("logins"));
+
+			Assert.assertNull(client.get(Key.raw("test", "missing")).sync().rawValueBuffer());
+		}
+
+	}
+
+	@Test
+	public void testPutAll() throws Exception {
+
+		byte[] payload = payload();
+
+		try (FakeStore store = new FakeStore(); GkvsClient client = store.client(FakeStore.config().build())) {
+
+			Key first = Key.raw("test", "first");
+			Key second = Key.raw("test", "second");
+
+			Iterable<Status> statuses = client.putAll().sync(Arrays.asList(
+					KeyValue.raw(first, payload),
+					KeyValue.raw(second, ByteBuffer.wrap(payload))));
+
+			for (Status status : statuses) {
+				Assert.assertTrue(status.updated());
+			}
+
+			Assert.assertArrayEquals(payload, client.get(first).sync().rawValue());
+			Assert.assertArrayEquals(payload, client.get(second).sync().rawValue());
+		}
+
+	}
+
+	@Test
+	public void testRope() throws Exception {
+
+		byte[] payload = payload();
+		int half = payload.length / 2;
+
+		ByteString rope = ByteString.copyFrom(payload, 0, half).concat(ByteString.copyFrom(payload, half, payload.length - half));
+
+		// the rope is passed to the request as is
+		Assert.assertSame(rope, Transformers.toProto(RawValue.wrap(rope)).getRaw());
+
+		try (FakeStore store = new FakeStore(); GkvsClient client = store.client(FakeStore.config().build())) {
+
+			Key key = Key.raw("test", "rope");
+			client.putRaw(key, rope).sync();
+			Assert.assertArrayEquals(payload, client.get(key).sync().rawValue());
+
+			Key other = Key.raw("test", "other");
+			client.putAll().sync(Arrays.asList(KeyValue.raw(other, rope)));
+			Assert.assertEquals(new Str("Alex"), client.get(other).sync().value().asTable().get("name"));
+		}
+
+		RawValue value = RawValue.wrap(rope);
+		Assert.assertArrayEquals(payload, value.toMsgpack());
+		Assert.assertEquals(RawValue.wrap(payload), value);
+
+		// pieces of the rope are written to the packer of the enclosing table
+		Table table = new Table();
+		table.put("rope", value);
+		Table parsed = rocks.gkvs.value.PayloadView.wrap(table.toMsgpack()).value().asTable();
+		Assert.assertEquals(new Str("Alex"), parsed.get("rope").asTable().get("name"));
+
+		ByteBuffer direct = ByteBuffer.allocateDirect(payload.length);
+		direct.put(payload).flip();
+		Assert.assertArrayEquals(payload, RawValue.wrap(direct).toMsgpack());
+	}
+
+	@Test
+	public void testValue() throws Exception {
+
+		byte[] payload = payload();
+		RawValue value = RawValue.wrap(payload);
+
+		Assert.assertTrue(value.isFrozen());
+		Assert.assertSame(value, value.freeze());
+		Assert.assertArrayEquals(payload, value.toMsgpack());
+		Assert.assertArrayEquals(payload, bytes(value.getFrozenMsgpack()));
+		Assert.assertEquals(payload.length, value.estimatedSize());
+		Assert.assertEquals(new Str("Alex"), value.asTable().get("name"));
+
+		// nested in the table
+		Table table = new Table();
+		table.put("raw", value);
+		Table parsed = rocks.gkvs.value.PayloadView.wrap(table.toMsgpack()).value().asTable();
+		Assert.assertEquals(new Num(9), parsed.get("raw").asTable().get("logins"));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testEmpty() {
+		RawValue.wrap(new byte[0]);
+	}
+
+}
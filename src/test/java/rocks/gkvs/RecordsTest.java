@@ -0,0 +1,107 @@
+/*
+ *
+ * Copyright 2018-present GKVS authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package rocks.gkvs;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import rocks.gkvs.value.Str;
+
+/**
+ *
+ * RecordsTest
+ *
+ */
+
+public class RecordsTest {
+
+	@Test
+	public void testOrderAndDuplicates() throws Exception {
+		
+		try (FakeStore store = new FakeStore(); GkvsClient client = store.client(FakeStore.config().build())) {
+			
+			List<Key> keys = new ArrayList<Key>();
+			for (int i = 0; i != 50; ++i) {
+				Key key = Key.raw("test", "key" + i);
+				if (i % 2 == 0) {
+					client.put(key, new Str("value" + i)).sync();
+				}
+				keys.add(key);
+			}
+			
+			// every key twice
+			keys.addAll(new ArrayList<Key>(keys));
+			
+			Records records = client.multiGet(keys).withChunkKeys(7).sync();
+			
+			int sent = 0;
+			for (int size : store.getMultiGetSizes()) {
+				sent += size;
+			}
+			Assert.assertEquals(50, sent);
+			
+			Assert.assertEquals(100, records.size());
+			Assert.assertEquals(50, records.asMap().size());
+			
+			Iterator<Record> first = records.iterator();
+			Iterator<Record> second = records.iterator();
+			
+			for (int i = 0; i != 100; ++i) {
+				
+				Record record = first.next();
+				Assert.assertSame(record, second.next());
+				Assert.assertSame(record, records.get(i));
+				Assert.assertSame(record, records.get(keys.get(i)));
+				
+				Assert.assertEquals(keys.get(i), record.key().get());
+				Assert.assertEquals((i % 50) % 2 == 0, record.exists());
+			}
+			
+			Assert.assertNull(records.get(Key.raw("test", "unknown")));
+			
+		}
+		
+	}
+	
+	@Test
+	public void testMono() throws Exception {
+		
+		try (FakeStore store = new FakeStore(); GkvsClient client = store.client(FakeStore.config().build())) {
+			
+			List<Key> keys = new ArrayList<Key>();
+			for (int i = 0; i != 20; ++i) {
+				keys.add(Key.raw("test", "key" + i));
+			}
+			
+			Iterable<Record> records = client.multiGet(keys).withChunkKeys(3).mono().block();
+			
+			int i = 0;
+			for (Record record : records) {
+				Assert.assertEquals(keys.get(i++), record.key().get());
+			}
+			Assert.assertEquals(20, i);
+			
+		}
+		
+	}
+	
+}
@@ -0,0 +1,52 @@
+/*
+ *
+ * Copyright 2018-present GKVS authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package rocks.gkvs;
+
+import org.junit.Assert;
+import org.junit.Assume;
+import org.junit.Test;
+
+/**
+ *
+ * ShadedEpollIT
+ *
+ * Runs by the release profile on the shaded jar, the relocated netty must load the renamed native library
+ *
+ */
+
+public class ShadedEpollIT {
+
+	@Test
+	public void testEpoll() {
+
+		Assume.assumeTrue(System.getProperty("os.name").toLowerCase().startsWith("linux"));
+		Assume.assumeTrue(System.getProperty("os.arch").matches("amd64|x86_64"));
+
+		GkvsTransport transport = GkvsTransport.create(true, 1, 0);
+
+		try {
+			Assert.assertTrue(transport.isEpoll());
+			Assert.assertTrue(transport.getEventLoopGroup().getClass().getName().startsWith("rocks.gkvs.shaded."));
+		}
+		finally {
+			transport.close();
+		}
+
+	}
+
+}
@@ -0,0 +1,92 @@
+/*
+ *
+ * Copyright 2018-present GKVS authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package rocks.gkvs;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.google.common.base.Supplier;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.SettableFuture;
+
+/**
+ *
+ * SingleFlightTest
+ *
+ */
+
+public class SingleFlightTest {
+
+	private static final class Calls implements Supplier<ListenableFuture<String>> {
+
+		final AtomicInteger count = new AtomicInteger();
+		SettableFuture<String> last;
+
+		@Override
+		public ListenableFuture<String> get() {
+			count.incrementAndGet();
+			last = SettableFuture.create();
+			return last;
+		}
+
+	}
+
+	@Test
+	public void testShared() throws Exception {
+
+		SingleFlight<String, String> flights = new SingleFlight<String, String>();
+		Calls calls = new Calls();
+
+		ListenableFuture<String> first = flights.execute("key", calls);
+		ListenableFuture<String> second = flights.execute("key", calls);
+		ListenableFuture<String> other = flights.execute("other", calls);
+
+		Assert.assertEquals(2, calls.count.get());
+
+		// cancel of one caller does not affect the others
+		second.cancel(true);
+
+		calls.last.set("other");
+
+		Assert.assertEquals("other", other.get());
+		Assert.assertFalse(first.isDone());
+
+		Assert.assertEquals(1, flights.size());
+
+	}
+
+	@Test
+	public void testForgetCompleted() throws Exception {
+
+		SingleFlight<String, String> flights = new SingleFlight<String, String>();
+		Calls calls = new Calls();
+
+		ListenableFuture<String> first = flights.execute("key", calls);
+		calls.last.set("value");
+
+		Assert.assertEquals("value", first.get());
+		Assert.assertEquals(0, flights.size());
+
+		flights.execute("key", calls);
+		Assert.assertEquals(2, calls.count.get());
+
+	}
+
+}
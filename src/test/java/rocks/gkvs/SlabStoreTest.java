@@ -0,0 +1,95 @@
+/*
+ *
+ * Copyright 2018-present GKVS authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package rocks.gkvs;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.google.protobuf.ByteString;
+
+import rocks.gkvs.protos.Metadata;
+import rocks.gkvs.protos.ValueResult;
+
+/**
+ *
+ * SlabStoreTest
+ *
+ */
+
+public class SlabStoreTest {
+
+	private static ValueResult result(int size) {
+		return ValueResult.newBuilder()
+				.setMetadata(Metadata.newBuilder().addVersion(size))
+				.setValue(rocks.gkvs.protos.Value.newBuilder().setRaw(ByteString.copyFrom(new byte[size])))
+				.build();
+	}
+
+	@Test
+	public void testWriteRead() {
+
+		final List<SlabStore.Slot> evicted = new ArrayList<SlabStore.Slot>();
+
+		SlabStore store = new SlabStore(4096, 2048, new SlabStore.Evictor() {
+
+			@Override
+			public void evicted(SlabStore.Slot slot) {
+				evicted.add(slot);
+			}
+
+		});
+
+		SlabStore.Slot first = store.write(Key.raw("test", "first"), result(1000));
+		SlabStore.Slot second = store.write(Key.raw("test", "second"), result(500));
+
+		Assert.assertEquals(result(1000), store.read(first));
+		Assert.assertEquals(result(500), store.read(second));
+		Assert.assertEquals(2048, store.allocated());
+
+		// does not fit in to the slab
+		Assert.assertNull(store.write(Key.raw("test", "large"), result(4000)));
+
+		SlabStore.Slot third = store.write(Key.raw("test", "third"), result(1000));
+		Assert.assertEquals(4096, store.allocated());
+		Assert.assertTrue(evicted.isEmpty());
+
+		SlabStore.Slot fourth = store.write(Key.raw("test", "fourth"), result(1000));
+		Assert.assertTrue(evicted.isEmpty());
+
+		// recycles the first slab
+		SlabStore.Slot fifth = store.write(Key.raw("test", "fifth"), result(1000));
+
+		Assert.assertEquals(2, evicted.size());
+		Assert.assertSame(first, evicted.get(0));
+		Assert.assertSame(second, evicted.get(1));
+
+		Assert.assertNull(store.read(first));
+		Assert.assertNull(store.read(second));
+		Assert.assertEquals(result(1000), store.read(third));
+		Assert.assertEquals(result(1000), store.read(fourth));
+		Assert.assertEquals(result(1000), store.read(fifth));
+
+		store.clear();
+		Assert.assertNull(store.read(third));
+		Assert.assertEquals(4096, store.allocated());
+	}
+
+}
@@ -0,0 +1,176 @@
+/*
+ *
+ * Copyright 2018-present GKVS authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package rocks.gkvs;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+
+import reactor.core.publisher.Flux;
+import reactor.test.StepVerifier;
+import rocks.gkvs.value.Str;
+
+/**
+ *
+ * StreamPublisherTest
+ *
+ */
+
+public class StreamPublisherTest {
+
+	private static FakeStore load(int count) throws Exception {
+		FakeStore store = new FakeStore();
+		try (GkvsClient client = store.client(FakeStore.config().build())) {
+			for (int i = 0; i != count; ++i) {
+				client.put(Key.raw("test", "key" + i), new Str("value" + i)).sync();
+			}
+		}
+		return store;
+	}
+	
+	private static List<Key> keys(int count) {
+		List<Key> keys = new ArrayList<Key>();
+		for (int i = 0; i != count; ++i) {
+			keys.add(Key.raw("test", "key" + i));
+		}
+		return keys;
+	}
+	
+	/**
+	 * Subscriber that requests in onSubscribe and records signals
+	 */
+	
+	private static final class TestSubscriber implements Subscriber<Record> {
+
+		final long initial;
+		final AtomicReference<Subscription> subscription = new AtomicReference<Subscription>();
+		final AtomicInteger received = new AtomicInteger();
+		final AtomicReference<Throwable> error = new AtomicReference<Throwable>();
+		final CountDownLatch done = new CountDownLatch(1);
+		
+		TestSubscriber(long initial) {
+			this.initial = initial;
+		}
+		
+		@Override
+		public void onSubscribe(Subscription s) {
+			subscription.set(s);
+			s.request(initial);
+		}
+
+		@Override
+		public void onNext(Record record) {
+			received.incrementAndGet();
+		}
+
+		@Override
+		public void onError(Throwable t) {
+			error.set(t);
+			done.countDown();
+		}
+
+		@Override
+		public void onComplete() {
+			done.countDown();
+		}
+		
+	}
+	
+	@Test
+	public void testScanDemand() throws Exception {
+		
+		try (FakeStore store = load(1000); GkvsClient client = store.client(FakeStore.config().build())) {
+			
+			TestSubscriber subscriber = new TestSubscriber(10);
+			client.scan("test").publisher().subscribe(subscriber);
+			
+			Thread.sleep(100);
+			Assert.assertEquals(10, subscriber.received.get());
+			Assert.assertTrue(store.scanSent.get() <= 11);
+			
+			subscriber.subscription.get().request(Long.MAX_VALUE);
+			
+			Assert.assertTrue(subscriber.done.await(1, TimeUnit.SECONDS));
+			Assert.assertNull(subscriber.error.get());
+			Assert.assertEquals(1000, subscriber.received.get());
+		}
+		
+	}
+	
+	@Test
+	public void testCancel() throws Exception {
+		
+		try (FakeStore store = load(1000); GkvsClient client = store.client(FakeStore.config().build())) {
+			
+			TestSubscriber subscriber = new TestSubscriber(5);
+			client.scan("test").publisher().subscribe(subscriber);
+			
+			Thread.sleep(100);
+			subscriber.subscription.get().cancel();
+			subscriber.subscription.get().request(100);
+			
+			Thread.sleep(100);
+			Assert.assertEquals(5, subscriber.received.get());
+			Assert.assertTrue(store.scanSent.get() <= 6);
+			Assert.assertEquals(1, subscriber.done.getCount());
+		}
+		
+	}
+	
+	@Test
+	public void testInvalidRequest() throws Exception {
+		
+		try (FakeStore store = load(10); GkvsClient client = store.client(FakeStore.config().build())) {
+			
+			TestSubscriber subscriber = new TestSubscriber(0);
+			client.scan("test").publisher().subscribe(subscriber);
+			
+			Assert.assertTrue(subscriber.done.await(1, TimeUnit.SECONDS));
+			Assert.assertTrue(subscriber.error.get() instanceof IllegalArgumentException);
+			Assert.assertEquals(0, subscriber.received.get());
+		}
+		
+	}
+	
+	@Test
+	public void testGetAll() throws Exception {
+		
+		try (FakeStore store = new FakeStore(); GkvsClient client = store.client(FakeStore.config().build())) {
+			
+			StepVerifier.create(client.getAll().publisher(Flux.fromIterable(keys(100))), 0)
+				.thenRequest(10)
+				.expectNextCount(10)
+				.thenRequest(90)
+				.expectNextCount(90)
+				.expectComplete()
+				.verify(Duration.ofSeconds(1));
+			
+		}
+		
+	}
+	
+}
@@ -0,0 +1,97 @@
+/*
+ *
+ * Copyright 2018-present GKVS authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package rocks.gkvs;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ *
+ * TagTableTest
+ *
+ */
+
+public class TagTableTest {
+
+	@Test
+	public void testPutRemove() {
+
+		TagTable<String> table = new TagTable<String>();
+
+		for (long tag = 1; tag <= 1000; ++tag) {
+			table.put(tag, "v" + tag);
+		}
+
+		Assert.assertEquals(1000, table.size());
+
+		for (long tag = 1; tag <= 1000; tag += 2) {
+			Assert.assertEquals("v" + tag, table.remove(tag));
+		}
+
+		Assert.assertNull(table.remove(1L));
+		Assert.assertEquals(500, table.size());
+
+		for (long tag = 2; tag <= 1000; tag += 2) {
+			Assert.assertEquals("v" + tag, table.remove(tag));
+		}
+
+		Assert.assertEquals(0, table.size());
+
+	}
+
+	@Test
+	public void testRandom() {
+
+		TagTable<Long> table = new TagTable<Long>();
+		Map<Long, Long> expected = new HashMap<Long, Long>();
+
+		Random random = new Random(7);
+
+		for (int i = 0; i != 100000; ++i) {
+
+			long tag = 1 + random.nextInt(5000);
+
+			if (random.nextBoolean()) {
+				table.put(tag, tag);
+				expected.put(tag, tag);
+			}
+			else {
+				Assert.assertEquals(expected.remove(tag), table.remove(tag));
+			}
+		}
+
+		Assert.assertEquals(expected.size(), table.size());
+
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void testBounded() {
+
+		TagTable<String> table = new TagTable<String>(64);
+
+		for (long tag = 1; tag <= 1000; ++tag) {
+			table.put(tag, "v");
+		}
+
+	}
+
+}
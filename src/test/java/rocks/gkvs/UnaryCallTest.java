@@ -0,0 +1,198 @@
+/*
+ *
+ * Copyright 2018-present GKVS authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package rocks.gkvs;
+
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import io.grpc.CallOptions;
+import io.grpc.ClientCall;
+import io.grpc.ManagedChannel;
+import io.grpc.Metadata;
+import io.grpc.MethodDescriptor;
+import io.grpc.stub.ServerCallStreamObserver;
+import rocks.gkvs.protos.GenericStoreGrpc;
+import rocks.gkvs.protos.KeyOperation;
+import rocks.gkvs.protos.ValueResult;
+import rocks.gkvs.value.Str;
+
+/**
+ *
+ * UnaryCallTest
+ *
+ */
+
+public class UnaryCallTest {
+
+	@Test
+	public void testAsync() throws Exception {
+		
+		try (FakeStore store = new FakeStore(); GkvsClient client = store.client(FakeStore.config().build())) {
+			
+			Key key = Key.raw("test", "key");
+			
+			GkvsFuture<Status> put = client.put(key, new Str("value")).async();
+			Assert.assertTrue(put instanceof UnaryCall);
+			Assert.assertTrue(put.get(1, TimeUnit.SECONDS).updated());
+			
+			final AtomicReference<Record> received = new AtomicReference<Record>();
+			final CountDownLatch done = new CountDownLatch(1);
+			
+			GkvsFuture<Record> get = client.get(key).async();
+			get.addCallbacks(new Consumer<Record>() {
+
+				@Override
+				public void accept(Record record) {
+					received.set(record);
+					done.countDown();
+				}
+				
+			}, new Consumer<Throwable>() {
+
+				@Override
+				public void accept(Throwable t) {
+					done.countDown();
+				}
+				
+			});
+			
+			Assert.assertTrue(done.await(1, TimeUnit.SECONDS));
+			Assert.assertEquals("value", received.get().value().asStr().asString());
+			Assert.assertTrue(get.isDone());
+			
+			Records records = client.multiGet(Arrays.asList(key, Key.raw("test", "missing"))).asyncRecords().getUnchecked(1, TimeUnit.SECONDS);
+			Assert.assertTrue(records.get(key).exists());
+			Assert.assertFalse(records.get(1).exists());
+			
+		}
+		
+	}
+	
+	@Test
+	public void testCancel() throws Exception {
+		
+		try (FakeStore store = new FakeStore(); GkvsClient client = store.client(FakeStore.config().build())) {
+			
+			store.holdGets = true;
+			
+			GkvsFuture<Record> get = client.get(Key.raw("test", "key")).async();
+			Assert.assertFalse(get.isDone());
+			
+			Assert.assertTrue(get.cancel(true));
+			
+			Assert.assertTrue(get.isCancelled());
+			Assert.assertTrue(((ServerCallStreamObserver<ValueResult>) store.heldGets.get(0)).isCancelled());
+		}
+		
+	}
+	
+	@Test
+	public void testStartFailed() throws Exception {
+		
+		ManagedChannel failing = new ManagedChannel() {
+
+			@Override
+			public <ReqT, RespT> ClientCall<ReqT, RespT> newCall(MethodDescriptor<ReqT, RespT> method, CallOptions options) {
+				
+				return new ClientCall<ReqT, RespT>() {
+
+					@Override
+					public void start(Listener<RespT> listener, Metadata headers) {
+						throw new IllegalStateException("start failed");
+					}
+
+					@Override
+					public void request(int numMessages) {
+					}
+
+					@Override
+					public void cancel(String message, Throwable cause) {
+					}
+
+					@Override
+					public void halfClose() {
+					}
+
+					@Override
+					public void sendMessage(ReqT message) {
+					}
+					
+				};
+			}
+
+			@Override
+			public String authority() {
+				return "failing";
+			}
+
+			@Override
+			public ManagedChannel shutdown() {
+				return this;
+			}
+
+			@Override
+			public boolean isShutdown() {
+				return false;
+			}
+
+			@Override
+			public boolean isTerminated() {
+				return false;
+			}
+
+			@Override
+			public ManagedChannel shutdownNow() {
+				return this;
+			}
+
+			@Override
+			public boolean awaitTermination(long timeout, TimeUnit unit) {
+				return true;
+			}
+			
+		};
+		
+		GkvsChannel channel = new GkvsChannel(failing);
+		channel.acquire();
+		
+		try {
+			
+			new UnaryCall<KeyOperation, ValueResult, Record>(channel) {
+
+				@Override
+				protected Record decode(ValueResult response) {
+					throw new UnsupportedOperationException();
+				}
+				
+			}.start(GenericStoreGrpc.getGetMethod(), null, KeyOperation.getDefaultInstance());
+			
+			Assert.fail();
+		}
+		catch(IllegalStateException e) {
+		}
+		
+		Assert.assertEquals(0, channel.getOutstanding());
+	}
+	
+}
@@ -0,0 +1,198 @@
+/*
+ *
+ * Copyright 2018-present GKVS authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package rocks.gkvs;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import rocks.gkvs.value.Str;
+
+/**
+ *
+ * WindowIteratorTest
+ *
+ */
+
+public class WindowIteratorTest {
+
+	private static Iterable<KeyValue> values(final int count, final AtomicInteger taken) {
+		
+		return new Iterable<KeyValue>() {
+
+			@Override
+			public Iterator<KeyValue> iterator() {
+				
+				return new Iterator<KeyValue>() {
+
+					@Override
+					public boolean hasNext() {
+						return taken.get() < count;
+					}
+
+					@Override
+					public KeyValue next() {
+						int i = taken.getAndIncrement();
+						return KeyValue.of(Key.raw("test", "key" + i), new Str("value" + i));
+					}
+					
+				};
+			}
+			
+		};
+	}
+	
+	private static Iterable<Key> keys(final int count, final AtomicInteger taken) {
+		
+		return new Iterable<Key>() {
+
+			@Override
+			public Iterator<Key> iterator() {
+				
+				return new Iterator<Key>() {
+
+					@Override
+					public boolean hasNext() {
+						return taken.get() < count;
+					}
+
+					@Override
+					public Key next() {
+						return Key.raw("test", "key" + taken.getAndIncrement());
+					}
+					
+				};
+			}
+			
+		};
+	}
+	
+	@Test
+	public void testPutGet() throws Exception {
+		
+		try (FakeStore store = new FakeStore(); GkvsClient client = store.client(FakeStore.config().build())) {
+			
+			AtomicInteger taken = new AtomicInteger();
+			
+			try (Stream<Status> statuses = client.putAll().stream(values(1000, taken), 10)) {
+				Assert.assertEquals(1000, statuses.count());
+			}
+			
+			taken.set(0);
+			
+			try (CloseableIterator<Record> records = client.getAll().iterator(keys(1000, taken), 10)) {
+				
+				int count = 0;
+				while (records.hasNext()) {
+					
+					Record record = records.next();
+					Assert.assertTrue(record.exists());
+					count++;
+					
+					Assert.assertTrue(taken.get() <= count + 10);
+				}
+				
+				Assert.assertEquals(1000, count);
+			}
+			
+		}
+		
+	}
+	
+	@Test
+	public void testClose() throws Exception {
+		
+		try (FakeStore store = new FakeStore(); GkvsClient client = store.client(FakeStore.config().build())) {
+			
+			AtomicInteger taken = new AtomicInteger();
+			
+			CloseableIterator<Record> records = client.getAll().iterator(keys(Integer.MAX_VALUE, taken), 5);
+			
+			for (int i = 0; i != 10; ++i) {
+				Assert.assertTrue(records.hasNext());
+				Assert.assertFalse(records.next().exists());
+			}
+			
+			records.close();
+			
+			Assert.assertFalse(records.hasNext());
+			Assert.assertTrue(taken.get() <= 15);
+		}
+		
+	}
+	
+	@Test
+	public void testMissingResult() throws Exception {
+		
+		// echo stream that does not answer the request 2
+		BiStream<Integer, Integer> stream = new BiStream<Integer, Integer>() {
+
+			@Override
+			public Iterable<Integer> sync(Iterable<Integer> src) {
+				throw new UnsupportedOperationException();
+			}
+
+			@Override
+			public Observer<Integer> async(final Observer<Integer> observer) {
+				
+				return new Observer<Integer>() {
+
+					@Override
+					public void onNext(Integer item) {
+						if (item != 2) {
+							observer.onNext(item);
+						}
+					}
+
+					@Override
+					public void onError(Throwable t) {
+						observer.onError(t);
+					}
+
+					@Override
+					public void onCompleted() {
+						observer.onCompleted();
+					}
+					
+				};
+			}
+			
+		};
+		
+		CloseableIterator<Integer> items = stream.iterator(Arrays.asList(1, 2, 3, 4, 5), 2);
+		
+		Assert.assertEquals(Integer.valueOf(1), items.next());
+		Assert.assertEquals(Integer.valueOf(3), items.next());
+		Assert.assertEquals(Integer.valueOf(4), items.next());
+		Assert.assertEquals(Integer.valueOf(5), items.next());
+		
+		try {
+			items.hasNext();
+			Assert.fail();
+		}
+		catch(GkvsException e) {
+		}
+		
+		Assert.assertFalse(items.hasNext());
+	}
+	
+}
@@ -0,0 +1,183 @@
+/*
+ *
+ * Copyright 2018-present GKVS authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package rocks.gkvs;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import rocks.gkvs.value.Str;
+
+/**
+ *
+ * WriteBehindTest
+ *
+ */
+
+public class WriteBehindTest {
+
+	private static GkvsConfig config() {
+		GkvsConfig.Builder builder = FakeStore.config();
+		builder.useWriteBehind(true);
+		builder.setWriteBehindFlushMls(1000);
+		return builder.build();
+	}
+	
+	@Test
+	public void testOneStream() throws Exception {
+		
+		try (FakeStore store = new FakeStore(); GkvsClient client = store.client(config())) {
+			
+			List<GkvsFuture<Status>> futures = new ArrayList<GkvsFuture<Status>>();
+			
+			for (int i = 0; i != 100; ++i) {
+				futures.add(client.put(Key.raw("test", "key" + i), new Str("value" + i)).async());
+			}
+			
+			client.flush();
+			
+			for (GkvsFuture<Status> future : futures) {
+				Assert.assertTrue(future.get(1, TimeUnit.SECONDS).updated());
+			}
+			
+			Assert.assertEquals(0, store.putCalls.get());
+			Assert.assertEquals(1, store.putAllStreams.get());
+			Assert.assertEquals(100, store.records.size());
+			
+		}
+		
+	}
+	
+	@Test
+	public void testLastWriteWins() throws Exception {
+		
+		try (FakeStore store = new FakeStore(); GkvsClient client = store.client(config())) {
+			
+			Key key = Key.raw("test", "key");
+			
+			GkvsFuture<Status> first = client.put(key, new Str("first")).async();
+			GkvsFuture<Status> second = client.put(key, new Str("second")).async();
+			
+			client.flush();
+			
+			Assert.assertTrue(first.get(1, TimeUnit.SECONDS).updated());
+			Assert.assertTrue(second.get(1, TimeUnit.SECONDS).updated());
+			
+			Assert.assertEquals(1, store.records.size());
+			Assert.assertEquals("second", client.get(key).sync().value().asString());
+			
+		}
+		
+	}
+	
+	@Test
+	public void testSlowServer() throws Exception {
+		
+		GkvsConfig.Builder builder = FakeStore.config();
+		builder.useWriteBehind(true);
+		builder.setWriteBehindFlushMls(1000);
+		builder.setWriteBehindPendingBytes(1000);
+		
+		try (FakeStore store = new FakeStore(); GkvsClient client = store.client(builder.build())) {
+			
+			store.holdPutAlls = true;
+			
+			List<GkvsFuture<Status>> futures = new ArrayList<GkvsFuture<Status>>();
+			
+			int rejected = 0;
+			
+			for (int i = 0; i != 100; ++i) {
+				
+				GkvsFuture<Status> future = client.put(Key.raw("test", "key" + i), new Str("value" + i)).async();
+				
+				if (future.isDone()) {
+					try {
+						future.get();
+						Assert.fail();
+					}
+					catch(ExecutionException e) {
+						Assert.assertEquals(io.grpc.Status.Code.RESOURCE_EXHAUSTED, io.grpc.Status.fromThrowable(e).getCode());
+						rejected++;
+						continue;
+					}
+				}
+				
+				futures.add(future);
+			}
+			
+			// unsent writes are bounded by the pending bytes
+			Assert.assertTrue(rejected > 0);
+			Assert.assertTrue(futures.size() < 100);
+			Assert.assertEquals(0, store.records.size());
+			
+			store.releasePutAlls();
+			
+			for (GkvsFuture<Status> future : futures) {
+				Assert.assertTrue(future.get(1, TimeUnit.SECONDS).updated());
+			}
+			
+			Assert.assertEquals(futures.size(), store.records.size());
+		}
+		
+	}
+	
+	@Test
+	public void testTimeout() throws Exception {
+		
+		try (FakeStore store = new FakeStore(); GkvsClient client = store.client(config())) {
+			
+			store.holdPutAlls = true;
+			
+			GkvsFuture<Status> future = client.put(Key.raw("test", "key"), new Str("value")).withTimeout(50).async();
+			client.flush();
+			
+			try {
+				future.get(1, TimeUnit.SECONDS);
+				Assert.fail();
+			}
+			catch(ExecutionException e) {
+				Assert.assertEquals(io.grpc.Status.Code.DEADLINE_EXCEEDED, io.grpc.Status.fromThrowable(e).getCode());
+			}
+			
+			// the expired write is not sent
+			store.releasePutAlls();
+			client.flush();
+			Assert.assertEquals(0, store.records.size());
+		}
+		
+	}
+	
+	@Test
+	public void testCompareAndPutIsSentAlone() throws Exception {
+		
+		try (FakeStore store = new FakeStore(); GkvsClient client = store.client(config())) {
+			
+			Assert.assertTrue(client.putIfAbsent(Key.raw("test", "key"), new Str("value")).sync().updated());
+			
+			Assert.assertEquals(1, store.putCalls.get());
+			Assert.assertEquals(0, store.putAllStreams.get());
+			
+		}
+		
+	}
+	
+}
@@ -0,0 +1,183 @@
+/*
+ *
+ * Copyright 2018-present GKVS authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package rocks.gkvs.value;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.msgpack.core.MessageBufferPacker;
+import org.msgpack.core.MessagePack;
+
+/**
+ *
+ * EncoderTest
+ *
+ */
+
+public class EncoderTest {
+
+	private static byte[] reference(Value value) throws IOException {
+		MessageBufferPacker packer = MessagePack.newDefaultBufferPacker();
+		value.writeTo(packer);
+		packer.close();
+		return packer.toByteArray();
+	}
+
+	private static void assertEncoded(Value value) throws IOException {
+		byte[] expected = reference(value);
+		Assert.assertEquals(value.toString(), expected.length, value.estimatedSize());
+		Assert.assertArrayEquals(value.toString(), expected, value.toMsgpack());
+	}
+
+	private static String string(int length) {
+		char[] chars = new char[length];
+		Arrays.fill(chars, 'a');
+		return new String(chars);
+	}
+
+	@Test
+	public void testScalars() throws Exception {
+
+		long[] numbers = { 0, 1, 127, 128, 255, 256, 65535, 65536, 4294967295L, 4294967296L, Long.MAX_VALUE,
+				-1, -32, -33, -128, -129, -32768, -32769, -2147483648L, -2147483649L, Long.MIN_VALUE };
+
+		for (long number : numbers) {
+			assertEncoded(new Num(number));
+		}
+
+		assertEncoded(new Num(1.5));
+		assertEncoded(new Bool(true));
+		assertEncoded(Nil.get());
+
+		for (int length : new int[] { 0, 31, 32, 255, 256, 65535, 65536 }) {
+			assertEncoded(new Str(string(length)));
+			assertEncoded(new Str(new byte[length], false));
+		}
+
+		assertEncoded(new Str("привет"));
+	}
+
+	@Test
+	public void testTables() throws Exception {
+
+		Table table = new Table();
+		assertEncoded(table);
+
+		for (int i = 0; i != 20; ++i) {
+			table.put(i, new Num(i));
+		}
+		assertEncoded(table);
+
+		// sparse list
+		table.put(1000, new Str("last"));
+		assertEncoded(table);
+
+		Table map = new Table();
+		map.put("name", new Str("Alex"));
+		map.put(string(40), new Num(-1));
+		map.put("nested", table);
+		assertEncoded(map);
+
+		map.remove(string(40));
+		map.put("ключ", new Bool(false));
+		assertEncoded(map);
+
+		Table lazy = PayloadView.wrap(map.toMsgpack()).value().asTable();
+		Assert.assertEquals(map.estimatedSize(), lazy.estimatedSize());
+		assertEncoded(lazy);
+
+		lazy.get("nested").asTable().put(1, new Str("changed"));
+		assertEncoded(lazy);
+		Assert.assertEquals(new Str("changed"), ((Table) Parser.parseValue(lazy.toMsgpack())).get(new Field("nested.1")));
+	}
+
+	@Test
+	public void testKeys() throws Exception {
+
+		Table map = new Table();
+		map.put("\uD83D\uDE00", new Num(1));
+		map.put("unpaired \uD83D", new Num(2));
+		map.put("é" + string(300), new Num(3));
+		assertEncoded(map);
+	}
+
+	@Test
+	public void testCountedSize() throws Exception {
+
+		// the value outside of the library does not compute the size
+		Value value = new Value() {
+
+			private final Str str = new Str(string(100));
+
+			@Override
+			public String asString() {
+				return str.asString();
+			}
+
+			@Override
+			public org.msgpack.value.Value toMsgpackValue() {
+				return str.toMsgpackValue();
+			}
+
+			@Override
+			public void writeTo(org.msgpack.core.MessagePacker packer) throws IOException {
+				str.writeTo(packer);
+			}
+
+			@Override
+			public void print(StringBuilder out, int initialSpaces, int tabSpaces) {
+				str.print(out, initialSpaces, tabSpaces);
+			}
+
+			@Override
+			public boolean isNil() {
+				return false;
+			}
+
+			@Override
+			public Bool asBool(Bool defaultValue) {
+				return str.asBool(defaultValue);
+			}
+
+			@Override
+			public Num asNum(Num defaultValue) {
+				return str.asNum(defaultValue);
+			}
+
+			@Override
+			public Str asStr(Str defaultValue) {
+				return str;
+			}
+
+			@Override
+			public Table asTable(Table defaultValue) {
+				return defaultValue;
+			}
+
+		};
+
+		assertEncoded(value);
+
+		Table table = new Table();
+		table.put("custom", value);
+		assertEncoded(table);
+	}
+
+}
@@ -0,0 +1,187 @@
+/*
+ *
+ * Copyright 2018-present GKVS authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package rocks.gkvs.value;
+
+import java.nio.ByteBuffer;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.google.protobuf.UnsafeByteOperations;
+
+/**
+ *
+ * FreezeTest
+ *
+ */
+
+public class FreezeTest {
+
+	private static Table template() {
+
+		Table address = new Table();
+		address.put("city", new Str("Moscow"));
+
+		Table table = new Table();
+		table.put("name", new Str("Alex"));
+		table.put("logins", new Num(9));
+		table.put("address", address);
+
+		return table;
+	}
+
+	private static byte[] bytes(ByteBuffer buffer) {
+		byte[] bytes = new byte[buffer.remaining()];
+		buffer.duplicate().get(bytes);
+		return bytes;
+	}
+
+	@Test
+	public void testFreeze() throws Exception {
+
+		Table table = template();
+		byte[] expected = table.toMsgpack();
+
+		Assert.assertFalse(table.isFrozen());
+		Assert.assertNull(table.getFrozenMsgpack());
+
+		Assert.assertSame(table, table.freeze());
+		Assert.assertTrue(table.isFrozen());
+
+		ByteBuffer frozen = table.getFrozenMsgpack();
+		Assert.assertTrue(frozen.isReadOnly());
+		Assert.assertArrayEquals(expected, bytes(frozen));
+		Assert.assertArrayEquals(expected, table.toMsgpack());
+		Assert.assertEquals(expected.length, table.estimatedSize());
+
+		// copies are not shared
+		table.toMsgpack()[0] = 0;
+		Assert.assertArrayEquals(expected, bytes(table.getFrozenMsgpack()));
+
+		rocks.gkvs.protos.Value proto = rocks.gkvs.protos.Value.newBuilder()
+				.setRaw(UnsafeByteOperations.unsafeWrap(table.getFrozenMsgpack()))
+				.build();
+
+		rocks.gkvs.protos.Value parsed = rocks.gkvs.protos.Value.parseFrom(proto.toByteArray());
+		Assert.assertArrayEquals(expected, parsed.getRaw().toByteArray());
+
+		Assert.assertEquals(new Str("Moscow"), table.get(new Field("address.city")));
+	}
+
+	@Test
+	public void testScalars() throws Exception {
+
+		Str str = new Str("value").freeze();
+		Assert.assertArrayEquals(new Str("value").toMsgpack(), bytes(str.getFrozenMsgpack()));
+
+		Num num = new Num(123456L).freeze();
+		Assert.assertArrayEquals(new Num(123456L).toMsgpack(), bytes(num.getFrozenMsgpack()));
+
+		Bool bool = new Bool(true).freeze();
+		Assert.assertArrayEquals(new Bool(true).toMsgpack(), bytes(bool.getFrozenMsgpack()));
+	}
+
+	@Test
+	public void testRejectChanges() {
+
+		Table address = new Table();
+		address.put("city", new Str("Moscow"));
+
+		Table table = new Table();
+		table.put("address", address);
+		table.freeze();
+
+		try {
+			table.put("name", new Str("Bob"));
+			Assert.fail();
+		} catch (UnsupportedOperationException e) {
+		}
+
+		try {
+			table.remove("address");
+			Assert.fail();
+		} catch (UnsupportedOperationException e) {
+		}
+
+		try {
+			table.put(new Field("address.city"), new Str("Paris"));
+			Assert.fail();
+		} catch (UnsupportedOperationException e) {
+		}
+
+		try {
+			table.clear();
+			Assert.fail();
+		} catch (UnsupportedOperationException e) {
+		}
+
+		// the nested table that was put before the freeze
+		try {
+			address.put("city", new Str("Paris"));
+			Assert.fail();
+		} catch (UnsupportedOperationException e) {
+		}
+
+		Assert.assertEquals(new Str("Moscow"), table.get(new Field("address.city")));
+	}
+
+	@Test
+	public void testLazy() throws Exception {
+
+		byte[] payload = template().toMsgpack();
+
+		Table table = PayloadView.wrap(payload).value().asTable();
+		Table address = table.get("address").asTable();
+		table.freeze();
+
+		Assert.assertArrayEquals(payload, bytes(table.getFrozenMsgpack()));
+
+		try {
+			address.put("city", new Str("Paris"));
+			Assert.fail();
+		} catch (UnsupportedOperationException e) {
+		}
+
+		try {
+			table.get("address").asTable().remove("city");
+			Assert.fail();
+		} catch (UnsupportedOperationException e) {
+		}
+
+		// reads of the whole table after the freeze
+		Assert.assertEquals(3, table.size());
+	}
+
+	@Test
+	public void testNested() throws Exception {
+
+		Table shared = template().freeze();
+
+		Table table = new Table();
+		table.put("id", new Num(1));
+		table.put("shared", shared);
+
+		Table expected = new Table();
+		expected.put("id", new Num(1));
+		expected.put("shared", template());
+
+		Assert.assertArrayEquals(expected.toMsgpack(), table.toMsgpack());
+		Assert.assertEquals(expected.estimatedSize(), table.estimatedSize());
+	}
+
+}
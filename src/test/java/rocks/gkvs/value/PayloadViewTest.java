@@ -0,0 +1,201 @@
+/*
+ *
+ * Copyright 2018-present GKVS authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package rocks.gkvs.value;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.msgpack.core.MessageBufferPacker;
+import org.msgpack.core.MessagePack;
+
+/**
+ *
+ * PayloadViewTest
+ *
+ */
+
+public class PayloadViewTest {
+
+	private static byte[] example() throws IOException {
+
+		MessageBufferPacker packer = MessagePack.newDefaultBufferPacker();
+
+		packer.packMapHeader(8);
+
+		packer.packString("name");
+		packer.packString("Alex");
+
+		packer.packString("logins");
+		packer.packLong(-9);
+
+		packer.packString("balance");
+		packer.packDouble(1.5);
+
+		packer.packString("active");
+		packer.packBoolean(true);
+
+		packer.packString("removed");
+		packer.packNil();
+
+		packer.packString("raw");
+		packer.packBinaryHeader(2);
+		packer.writePayload(new byte[] { 1, 2 });
+
+		packer.packString("address");
+		packer.packMapHeader(2);
+		packer.packString("city");
+		packer.packString("Moscow");
+		packer.packString("zip");
+		packer.packLong(4000000000L);
+
+		packer.packString("tags");
+		packer.packArrayHeader(3);
+		packer.packString("a");
+		packer.packNil();
+		packer.packString("c");
+
+		packer.close();
+		return packer.toByteArray();
+	}
+
+	@Test
+	public void testSameAsParser() throws Exception {
+
+		byte[] payload = example();
+
+		Table expected = (Table) Parser.parseValue(payload);
+		Table actual = PayloadView.wrap(ByteBuffer.wrap(payload).asReadOnlyBuffer()).value().asTable();
+
+		Assert.assertEquals(expected.getType(), actual.getType());
+		Assert.assertEquals(new Str("Alex"), actual.get("name"));
+		Assert.assertEquals(new Num(-9), actual.get("logins"));
+		Assert.assertEquals(new Num(1.5), actual.get("balance"));
+		Assert.assertEquals(new Bool(true), actual.get("active"));
+		Assert.assertTrue(actual.get("removed").isNil());
+		Assert.assertTrue(actual.get("missing").isNil());
+		Assert.assertArrayEquals(new byte[] { 1, 2 }, actual.get("raw").asStr().asBytes());
+		Assert.assertEquals(new Str("Moscow"), actual.get(new Field("address.city")));
+		Assert.assertEquals(new Num(4000000000L), actual.get(new Field("address.zip")));
+
+		Table tags = actual.get("tags").asTable();
+		Assert.assertEquals(TableType.LIST, tags.getType());
+		Assert.assertEquals(new Str("a"), tags.get(0));
+		Assert.assertTrue(tags.get(1).isNil());
+		Assert.assertEquals(new Str("c"), tags.get("2"));
+
+		Assert.assertEquals(expected.size(), actual.size());
+		Assert.assertEquals(expected.keySet(), actual.keySet());
+		Assert.assertEquals(expected.toJson(), actual.toJson());
+	}
+
+	@Test
+	public void testWrite() throws Exception {
+
+		byte[] payload = example();
+		PayloadView view = PayloadView.wrap(payload);
+
+		// not changed
+		Table table = view.value().asTable();
+		Assert.assertEquals(new Str("Alex"), table.get("name"));
+		Assert.assertArrayEquals(payload, table.toMsgpack());
+
+		// nested table is changed
+		table = view.value().asTable();
+		table.get("address").asTable().put("city", new Str("Paris"));
+		Assert.assertEquals(new Str("Paris"), table.get(new Field("address.city")));
+
+		Table written = (Table) Parser.parseValue(table.toMsgpack());
+		Assert.assertEquals(new Str("Paris"), written.get(new Field("address.city")));
+		Assert.assertEquals(new Str("Alex"), written.get("name"));
+
+		// the view is not changed
+		Assert.assertEquals(new Str("Moscow"), view.value().asTable().get(new Field("address.city")));
+
+		table = view.value().asTable();
+		table.put("name", new Str("Bob"));
+		table.remove("tags");
+		Assert.assertEquals(new Str("Bob"), table.get("name"));
+		Assert.assertEquals(6, table.size());
+		Assert.assertEquals(TableType.MAP, table.getType());
+	}
+
+	@Test
+	public void testIntegerKeys() throws Exception {
+
+		MessageBufferPacker packer = MessagePack.newDefaultBufferPacker();
+		packer.packMapHeader(2);
+		packer.packInt(5);
+		packer.packString("five");
+		packer.packInt(7);
+		packer.packString("seven");
+		packer.close();
+
+		Table expected = (Table) Parser.parseValue(packer.toByteArray());
+		Table actual = PayloadView.wrap(packer.toByteArray()).value().asTable();
+
+		Assert.assertEquals(TableType.LIST, actual.getType());
+		Assert.assertEquals(expected.getType(), actual.getType());
+		Assert.assertEquals(new Str("five"), actual.get(5));
+		Assert.assertEquals(new Str("seven"), actual.get("7"));
+		Assert.assertTrue(actual.get(6).isNil());
+	}
+
+	@Test
+	public void testNumericKeys() throws Exception {
+
+		MessageBufferPacker packer = MessagePack.newDefaultBufferPacker();
+		packer.packMapHeader(2);
+		packer.packString("05");
+		packer.packString("five");
+		packer.packString("name");
+		packer.packString("Alex");
+		packer.close();
+
+		Table expected = (Table) Parser.parseValue(packer.toByteArray());
+		Table actual = PayloadView.wrap(packer.toByteArray()).value().asTable();
+
+		Assert.assertEquals(expected.getType(), actual.getType());
+		Assert.assertEquals(expected.get("5"), actual.get("5"));
+		Assert.assertEquals(expected.get("name"), actual.get("name"));
+	}
+
+	@Test
+	public void testScalar() throws Exception {
+
+		MessageBufferPacker packer = MessagePack.newDefaultBufferPacker();
+		packer.packString("value");
+		packer.close();
+
+		Assert.assertEquals(new Str("value"), PayloadView.wrap(packer.toByteArray()).value());
+		Assert.assertTrue(PayloadView.wrap(new byte[0]).value().isNil());
+		Assert.assertNull(PayloadView.wrap(new byte[] { (byte) 0xc0 }).value());
+	}
+
+	@Test(expected = ParseException.class)
+	public void testTruncated() throws Exception {
+
+		byte[] payload = example();
+		byte[] truncated = new byte[payload.length - 3];
+		System.arraycopy(payload, 0, truncated, 0, truncated.length);
+
+		PayloadView.wrap(truncated).value().asTable().get("name");
+	}
+
+}